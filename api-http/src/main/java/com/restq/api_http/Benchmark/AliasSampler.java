@@ -0,0 +1,123 @@
+package com.restq.api_http.Benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples outcomes by weight in constant time (Vose's alias method). The table is built once
+ * per request mix; each sample then takes one bounded int and one double from the caller's
+ * generator, whatever the number of outcomes.
+ * <p>
+ * Building the table checks that the probability it assigns to every outcome equals the
+ * outcome's normalized weight, so a sampler that exists reproduces its configured mix.
+ * Instances are immutable and can be shared between threads; the generators should not be.
+ */
+public final class AliasSampler<T> {
+
+    // Rounding left after redistributing the weights, far below anything a run can measure
+    private static final double TOLERANCE = 1e-9;
+
+    private final List<T> outcomes;
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasSampler(List<T> outcomes, double[] weights) {
+        if (outcomes.isEmpty() || outcomes.size() != weights.length) {
+            throw new IllegalArgumentException("Need one weight per outcome and at least one outcome");
+        }
+        int n = weights.length;
+        double total = 0;
+        for (double weight : weights) {
+            if (!(weight >= 0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Weights must be finite and non-negative: " + weight);
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+
+        this.outcomes = List.copyOf(outcomes);
+        this.probability = new double[n];
+        this.alias = new int[n];
+
+        // Scale so the average column holds exactly 1, then pair under-full columns with over-full ones
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            probability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Whatever is left is full up to rounding
+        while (largeCount > 0) {
+            int column = large[--largeCount];
+            probability[column] = 1.0;
+            alias[column] = column;
+        }
+        while (smallCount > 0) {
+            int column = small[--smallCount];
+            probability[column] = 1.0;
+            alias[column] = column;
+        }
+
+        double[] effective = effectiveProbabilities();
+        for (int i = 0; i < n; i++) {
+            double expected = weights[i] / total;
+            if (Math.abs(effective[i] - expected) > TOLERANCE) {
+                throw new IllegalStateException("Alias table gives " + outcomes.get(i) + " probability "
+                        + effective[i] + " instead of " + expected);
+            }
+        }
+    }
+
+    /** Sampler over a map of outcome to weight, in the map's iteration order */
+    public static <T> AliasSampler<T> of(Map<T, Double> weights) {
+        List<T> outcomes = new ArrayList<>(weights.keySet());
+        double[] values = new double[outcomes.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = weights.get(outcomes.get(i));
+        }
+        return new AliasSampler<>(outcomes, values);
+    }
+
+    public T sample(RandomGenerator random) {
+        int column = random.nextInt(probability.length);
+        return random.nextDouble() < probability[column] ? outcomes.get(column) : outcomes.get(alias[column]);
+    }
+
+    public List<T> getOutcomes() {
+        return outcomes;
+    }
+
+    /** Probability of each outcome as sampled from the table, in {@link #getOutcomes()} order */
+    public double[] effectiveProbabilities() {
+        int n = probability.length;
+        double[] effective = new double[n];
+        for (int column = 0; column < n; column++) {
+            effective[column] += probability[column] / n;
+            effective[alias[column]] += (1.0 - probability[column]) / n;
+        }
+        return effective;
+    }
+}
@@ -8,7 +8,9 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.random.RandomGenerator;
 
 import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
@@ -16,16 +18,16 @@ import jakarta.xml.bind.Unmarshaller;
 import jakarta.xml.bind.annotation.*;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.core5.http.NoHttpResponseException;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.EntityDetails;
 import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
 
@@ -33,10 +35,10 @@ import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.statistics.HistogramDataset;
 import org.jfree.data.xy.XYSeries;
 import org.jfree.data.xy.XYSeriesCollection;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -44,6 +46,9 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import org.apache.hc.core5.http.message.BasicHeader;
 
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
 public class ApiBenchmark {
 
     private static final Logger logger = LoggerFactory.getLogger(ApiBenchmark.class);
@@ -55,7 +60,6 @@ public class ApiBenchmark {
     private static String BENCHMARK_TYPE = "TPCH"; // Default benchmark type
     private static Map<String, List<String>> ENDPOINTS;
 
-    private static final Random random = new Random();
 
     // Map to track the initial port used by each thread
     private static final ConcurrentMap<String, Integer> initialPortMap = new ConcurrentHashMap<>();
@@ -65,6 +69,10 @@ public class ApiBenchmark {
     private static ObjectNode allResults;
     private static String resultFileName;
 
+    // Set when <result-format>ndjson</result-format>: runs are appended to it instead of kept in allResults
+    private static ResultSink resultSink;
+    private static int runSequence = 0;
+
     public static void main(String[] args) throws IOException, InterruptedException {
         try {
             
@@ -88,6 +96,16 @@ public class ApiBenchmark {
             Unmarshaller parametersUnmarshaller = parametersContext.createUnmarshaller();
             ParametersConfig parametersConfig = (ParametersConfig) parametersUnmarshaller.unmarshal(
                 classLoader.getResourceAsStream(PARAMETERS_FILE));
+
+            // A misspelt mode would otherwise run a different experiment than the one configured
+            for (ExperimentConfig experiment : benchmarkConfig.getExperiments()) {
+                experiment.validate();
+            }
+
+            if (benchmarkConfig.isStreamingResults()) {
+                resultSink = new ResultSink(resultFileName.substring(0, resultFileName.length() - ".json".length()));
+                resultFileName = resultSink.getRecordsFileName();
+            }
             
             // Add metadata to results
             allResults.put("timestamp", timestamp);
@@ -96,6 +114,11 @@ public class ApiBenchmark {
             allResults.put("parameters_file", PARAMETERS_FILE);
             allResults.put("base_url", BASE_URL);
             allResults.put("pauseBetweenExperiments_ms", benchmarkConfig.getPauseBetweenExperiments());
+            allResults.put("result_format", benchmarkConfig.getResultFormat());
+            JsonNode physicalDesign = DatabaseEndpoints.physicalDesign(BASE_URL);
+            if (physicalDesign != null) {
+                allResults.set("physical_design", physicalDesign);
+            }
             
             // Add endpoints configuration from parameters file
             ObjectNode endpointsNode = allResults.putObject("endpoints");
@@ -117,19 +140,62 @@ public class ApiBenchmark {
             globalConfigNode.put("pauseBetweenExperiments_ms", benchmarkConfig.getPauseBetweenExperiments());
             
             // Add experiments container
-            ObjectNode experimentsNode = allResults.putObject("experiments");
+            ObjectNode experimentsNode = null;
+            if (resultSink != null) {
+                allResults.put("latencies_file", resultSink.getLatenciesFileName());
+                resultSink.writeRecord("benchmark", allResults);
+            } else {
+                experimentsNode = allResults.putObject("experiments");
+            }
             
             // Run each experiment
             for (ExperimentConfig experiment : benchmarkConfig.getExperiments()) {
                 logger.info("Starting experiment: {}", experiment.getExperimentName());
                 
                 // Create a node for this experiment
-                ObjectNode experimentNode = experimentsNode.putObject(experiment.getExperimentName());
+                ObjectNode experimentNode = resultSink != null
+                        ? mapper.createObjectNode()
+                        : experimentsNode.putObject(experiment.getExperimentName());
+                experimentNode.put("experiment_name", experiment.getExperimentName());
                 experimentNode.put("runs_configured", experiment.getRuns());
                 experimentNode.put("connections", experiment.getConnections());
                 experimentNode.put("requests_per_second", experiment.getRequestsPerSecond());
                 experimentNode.put("duration_seconds", experiment.getDuration());
                 experimentNode.put("pause_between_runs_ms", experiment.getPauseBetweenRuns());
+                experimentNode.put("load_mode", experiment.getLoadMode());
+                experimentNode.put("record_latencies", experiment.isRecordLatencies());
+                experimentNode.put("http_client", experiment.getHttpClient());
+                experimentNode.put("max_connections_per_route", experiment.getMaxConnectionsPerRoute());
+                if (experiment.getResultCache() != null) {
+                    experimentNode.put("result_cache", experiment.getResultCache());
+                }
+                if (experiment.getRollups() != null) {
+                    experimentNode.put("rollups", experiment.getRollups());
+                }
+                if (experiment.getColumnar() != null) {
+                    experimentNode.put("columnar", experiment.getColumnar());
+                }
+                if (experiment.getPartitioned() != null) {
+                    experimentNode.put("partitioned", experiment.getPartitioned());
+                    if (experiment.getPartitionedSlices() != null) {
+                        experimentNode.put("partitioned_slices", experiment.getPartitionedSlices());
+                    }
+                }
+                experimentNode.put("reset_database", experiment.isResetDatabase());
+                experimentNode.put("datasource_metrics", experiment.isDataSourceMetrics());
+                if (experiment.isOpenLoop() && !experiment.isTraceReplay()) {
+                    experimentNode.put("arrival_process", experiment.getArrivalProcess());
+                }
+                if (experiment.getSeed() != null) {
+                    experimentNode.put("seed", experiment.getSeed());
+                }
+                if (experiment.getTraceMode() != null) {
+                    experimentNode.put("trace_mode", experiment.getTraceMode());
+                    experimentNode.put("trace_file", experiment.getTraceFile());
+                }
+                if (experiment.isTraceReplay()) {
+                    experimentNode.put("replay_speed", experiment.getReplaySpeed());
+                }
                 
                 // Add probabilities to experiment config
                 ObjectNode expProbNode = experimentNode.putObject("probabilities");
@@ -137,6 +203,10 @@ public class ApiBenchmark {
                     expProbNode.put(entry.getKey(), entry.getValue());
                 }
                 
+                if (resultSink != null) {
+                    resultSink.writeRecord("experiment", experimentNode);
+                }
+                
                 // Add runs array to this experiment
                 ArrayNode runsArray = experimentNode.putArray("runs");
                 
@@ -150,105 +220,192 @@ public class ApiBenchmark {
             }
             
             // Write all results to a single file
-            mapper.writeValue(new File(resultFileName), allResults);
+            if (resultSink == null) {
+                mapper.writeValue(new File(resultFileName), allResults);
+            }
             logger.info("All experiments completed. Results saved to {}", resultFileName);
             
         } catch (JAXBException e) {
             logger.error("Error parsing XML configuration: {}", e.getMessage(), e);
+        } finally {
+            if (resultSink != null) {
+                resultSink.close();
+            }
         }
     }
     
     private static void runExperiment(ExperimentConfig experiment, BenchmarkConfig benchmarkConfig, ArrayNode runsArray) throws InterruptedException, IOException {
+        // The mix is fixed for the experiment, so its alias table is built once and shared by all producers
+        AliasSampler<List<String>> endpointSampler = experiment.isTraceReplay()
+                ? null : endpointSampler(experiment.getProbabilitiesMap(), ENDPOINTS);
+
         for (int run = 0; run < experiment.getRuns(); run++) {
             logger.info("Starting run {} of {} for experiment {}", run + 1, experiment.getRuns(), experiment.getExperimentName());
             
             // Clear initial port map for each run
             initialPortMap.clear();
 
+            JsonNode databaseReset = experiment.isResetDatabase() ? DatabaseEndpoints.reset(BASE_URL) : null;
+            // Switching the API's result cache also empties it, so every run starts from a cold cache
+            if (experiment.getResultCache() != null) {
+                configureFeature("/cache", Map.of("enabled", experiment.getResultCache()));
+            }
+            if (experiment.getRollups() != null) {
+                configureFeature("/rollups", Map.of("enabled", experiment.getRollups()));
+            }
+            if (experiment.getColumnar() != null) {
+                configureFeature("/columnar", Map.of("enabled", experiment.getColumnar()));
+            }
+            if (experiment.getPartitioned() != null) {
+                Map<String, Object> partitioned = new LinkedHashMap<>();
+                partitioned.put("enabled", experiment.getPartitioned());
+                partitioned.put("slices", experiment.getPartitionedSlices());
+                configureFeature("/partitioned", partitioned);
+            }
+            if (experiment.isDataSourceMetrics()) {
+                resetDataSourceMetrics();
+            }
+
             ExecutorService executor = Executors.newFixedThreadPool(experiment.getConnections());
             List<Future<ClientTaskResult>> futures = new ArrayList<>();
             List<TimestampedLatency> allLatencies = new ArrayList<>();
+            List<LatencyRecorder> recorders = new ArrayList<>();
 
             // Create a queue for each connection - each now has its own independent queue
-            List<BlockingQueue<String>> connectionQueues = new ArrayList<>();
+            List<BlockingQueue<ScheduledRequest>> connectionQueues = new ArrayList<>();
             for (int i = 0; i < experiment.getConnections(); i++) {
                 connectionQueues.add(new LinkedBlockingQueue<>());
             }
 
+            // A replayed run lasts as long as the recording, scaled by the replay speed
+            RequestTrace.Reader replay = experiment.isTraceReplay()
+                    ? openReplay(experiment.getTraceFile(), experiment.getConnections())
+                    : null;
+            RequestTrace.Writer trace = experiment.isTraceRecord()
+                    ? RequestTrace.create(traceFile(experiment, run), BENCHMARK_TYPE, experiment.getConnections(),
+                            experiment.getDuration(), experiment.getSeed())
+                    : null;
+            long durationMs = replay != null
+                    ? (long) Math.ceil(replay.getHeader().getDurationSeconds() * 1000L / experiment.getReplaySpeed())
+                    : experiment.getDuration() * 1000L;
+
             long startTimestamp = System.currentTimeMillis();
-            long endTimestamp = startTimestamp + experiment.getDuration() * 1000;
+            long startNanos = System.nanoTime();
+            long endTimestamp = startTimestamp + durationMs;
 
-            // Create and start a producer thread for EACH connection/terminal
+            AtomicLong scheduledRequests = new AtomicLong();
+            int producers = replay != null ? 1 : experiment.getConnections();
+            CountDownLatch producersFinished = new CountDownLatch(producers);
+
+            // null unless the experiment drives all connections through one shared client; created
+            // before the producers start, so a client that cannot be built leaves no queue undrained
+            BenchmarkHttpClient sharedHttpClient = BenchmarkHttpClient.createShared(
+                    experiment.getHttpClient(), experiment.getMaxConnectionsPerRoute());
+
+            // Create and start a producer thread for EACH connection/terminal, or one reading the trace
             List<Thread> producerThreads = new ArrayList<>();
-            for (int i = 0; i < experiment.getConnections(); i++) {
+            for (int i = 0; i < producers; i++) {
                 final int connectionIndex = i;
                 Thread producerThread = new Thread(() -> {
                     try {
-                        while (System.currentTimeMillis() < endTimestamp) {
-                            long startTime = System.currentTimeMillis();
-                            
-                            // Each producer adds the full requestsPerSecond to its own queue
-                            for (int j = 0; j < experiment.getRequestsPerSecond(); j++) {
-                                String endpoint = chooseEndpoint(experiment.getProbabilitiesMap());
-                                connectionQueues.get(connectionIndex).put(endpoint);
-                            }
-
-                            long elapsedTime = System.currentTimeMillis() - startTime;
-                            if (elapsedTime < 1000) {
-                                Thread.sleep(1000 - elapsedTime);
-                            } else {
-                                logger.warn("Warning: Adding requests took longer than 1 second for connection {}", connectionIndex);
-                            }
+                        if (replay != null) {
+                            produceReplay(replay, experiment.getReplaySpeed(), connectionQueues, startNanos,
+                                    scheduledRequests);
+                        } else if (experiment.isOpenLoop()) {
+                            produceOpenLoop(experiment, endpointSampler, connectionQueues.get(connectionIndex),
+                                    connectionIndex, startNanos, scheduledRequests, trace);
+                        } else {
+                            produceBursts(experiment, endpointSampler, connectionQueues.get(connectionIndex),
+                                    connectionIndex, endTimestamp, startNanos, scheduledRequests, trace);
                         }
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
+                    } catch (IOException e) {
+                        logger.error("Request trace failed for connection {}: {}", connectionIndex, e.getMessage(), e);
+                    } finally {
+                        producersFinished.countDown();
                     }
                 });
                 producerThread.start();
                 producerThreads.add(producerThread);
             }
 
-            // Start a client task for each connection, now each with its own queue
+            int currentRunSequence = runSequence++;
+
+            // Start a client task for each connection, now each with its own queue and latency recorder
             for (int i = 0; i < experiment.getConnections(); i++) {
-                futures.add(executor.submit(new ClientTask(experiment, connectionQueues.get(i), endTimestamp)));
+                LatencyRecorder recorder = new LatencyRecorder();
+                recorders.add(recorder);
+                // record-latencies=false keeps raw latencies out of the binary side file as well
+                ResultSink.LatencyWriter latencyWriter = resultSink != null && experiment.isRecordLatencies()
+                        ? resultSink.newLatencyWriter(currentRunSequence) : null;
+                futures.add(executor.submit(new ClientTask(experiment, connectionQueues.get(i), endTimestamp,
+                        durationMs, producersFinished, recorder, sharedHttpClient, latencyWriter)));
             }
 
+            // Snapshot the recorders once per second; each interval is folded into the run histogram
+            Histogram runHistogram = LatencyRecorder.newHistogram();
+            ArrayNode intervalsArray = mapper.createArrayNode();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> sampleInterval(recorders, runHistogram, intervalsArray),
+                    1, 1, TimeUnit.SECONDS);
+
             // Wait for all producer threads to finish
             for (Thread producerThread : producerThreads) {
                 producerThread.join();
             }
+            if (replay != null) {
+                replay.close();
+            }
+            if (trace != null) {
+                trace.close();
+                logger.info("Recorded {} requests to {}", trace.getEntries(), trace.getFile());
+            }
 
             int totalSuccessfulRequests = 0;
+            long unsentRequests = 0;
             for (Future<ClientTaskResult> future : futures) {
                 try {
                     ClientTaskResult result = future.get();
                     allLatencies.addAll(result.getLatencies());
                     totalSuccessfulRequests += result.getSuccessfulRequests();
+                    unsentRequests += result.getUnsentRequests();
                 } catch (ExecutionException | InterruptedException e) {
                     logger.error("Error in executing client task: {}", e.getMessage(), e);
                 }
             }
 
+            sampler.shutdown();
+            sampler.awaitTermination(2, TimeUnit.SECONDS);
+            sampleInterval(recorders, runHistogram, intervalsArray);
+
             // Sort all latencies by timestamp to maintain chronological order
             allLatencies.sort(Comparator.comparing(TimestampedLatency::getTimestamp));
 
-            // Extract just the latency values for calculations (in chronological order)
-            List<Long> orderedLatencyValues = allLatencies.stream()
-                .map(TimestampedLatency::getLatency)
-                .collect(Collectors.toList());
-
             executor.shutdown();
             executor.awaitTermination(2, TimeUnit.SECONDS);
+            if (sharedHttpClient != null) {
+                sharedHttpClient.close();
+            }
 
             long actualEndTimestamp = System.currentTimeMillis();
 
+            JsonNode resultCacheStatistics = experiment.getResultCache() != null
+                    ? fetchResultCacheStatistics()
+                    : null;
+            JsonNode dataSourceMetrics = experiment.isDataSourceMetrics()
+                    ? fetchDataSourceMetrics(startTimestamp)
+                    : null;
+
             // Pass the ordered latencies to the results
-            addRunResults(startTimestamp, actualEndTimestamp, orderedLatencyValues, allLatencies,
-                    totalSuccessfulRequests, experiment.getConnections(), run, experiment, runsArray);
+            addRunResults(startTimestamp, actualEndTimestamp, runHistogram, intervalsArray, allLatencies,
+                    totalSuccessfulRequests, scheduledRequests.get(), unsentRequests,
+                    experiment.getConnections(), run, currentRunSequence, experiment, durationMs, trace,
+                    resultCacheStatistics, databaseReset, dataSourceMetrics, runsArray);
 
-            // Create latency distributions but don't save images
-            createLatencyHistogram(orderedLatencyValues, experiment.getExperimentName() + "_run" + run);
-            createLatencyCDF(orderedLatencyValues, experiment.getExperimentName() + "_run" + run);
+            // Create latency distributions from the run histogram but don't save images
+            createLatencyHistogram(runHistogram, experiment.getExperimentName() + "_run" + run);
+            createLatencyCDF(runHistogram, experiment.getExperimentName() + "_run" + run);
 
             // Pause between runs if there are more to run
             if (run < experiment.getRuns() - 1) {
@@ -258,45 +415,260 @@ public class ApiBenchmark {
         }
     }
 
+    // Switches a report feature of the API with PUT BASE_URL + path; null parameters are left out
+    private static void configureFeature(String path, Map<String, ?> params) {
+        StringBuilder url = new StringBuilder(BASE_URL).append(path);
+        char separator = '?';
+        for (Map.Entry<String, ?> param : params.entrySet()) {
+            if (param.getValue() != null) {
+                url.append(separator).append(param.getKey()).append('=').append(param.getValue());
+                separator = '&';
+            }
+        }
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            client.execute(new HttpPut(url.toString()), response -> {
+                if (response.getCode() >= 300) {
+                    // The run would otherwise go ahead in whatever mode the server was left in
+                    String body = response.getEntity() != null ? EntityUtils.toString(response.getEntity()) : "";
+                    logger.warn("PUT {} returned {}: {}", url, response.getCode(), body);
+                } else {
+                    EntityUtils.consume(response.getEntity());
+                }
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Could not configure {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static JsonNode fetchResultCacheStatistics() {
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpGet(BASE_URL + "/cache"),
+                    response -> EntityUtils.toString(response.getEntity()));
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            logger.warn("Could not read result cache statistics: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Empties the server's pool metrics, so the totals fetched after the run cover only the run
+    private static void resetDataSourceMetrics() {
+        String url = BASE_URL.substring(0, BASE_URL.lastIndexOf('/')) + "/datasource/metrics/reset";
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpPost(url), response -> EntityUtils.toString(response.getEntity()));
+            // The pool is only instrumented when the API starts with the metrics on
+            if (!mapper.readTree(body).path("enabled").asBoolean(true)) {
+                logger.warn("The API collects no data source metrics; start it with DATASOURCE_METRICS_ENABLED=true");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not reset data source metrics: {}", e.getMessage());
+        }
+    }
+
+    private static JsonNode fetchDataSourceMetrics(long since) {
+        String url = BASE_URL.substring(0, BASE_URL.lastIndexOf('/')) + "/datasource/metrics?since=" + since;
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpGet(url), response -> EntityUtils.toString(response.getEntity()));
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            logger.warn("Could not read data source metrics: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Per-request TimestampedLatency objects are only kept for the single-document JSON output
+    private static boolean keepsLatencyList(ExperimentConfig experiment) {
+        return resultSink == null && experiment.isRecordLatencies();
+    }
+
+    private static void sampleInterval(List<LatencyRecorder> recorders, Histogram runHistogram,
+            ArrayNode intervalsArray) {
+        Histogram interval = LatencyRecorder.newHistogram();
+        for (LatencyRecorder recorder : recorders) {
+            interval.add(recorder.intervalSnapshot());
+        }
+        synchronized (runHistogram) {
+            runHistogram.add(interval);
+            ObjectNode intervalNode = intervalsArray.addObject();
+            intervalNode.put("timestamp", System.currentTimeMillis());
+            intervalNode.put("count", interval.getTotalCount());
+            if (interval.getTotalCount() > 0) {
+                intervalNode.put("median_latency_ns", interval.getValueAtPercentile(50));
+                intervalNode.put("p99_latency_ns", interval.getValueAtPercentile(99));
+                intervalNode.put("max_latency_ns", interval.getMaxValue());
+            }
+        }
+    }
+
+    // Original load pattern: enqueue a full second worth of requests at once, then sleep until the next second
+    private static void produceBursts(ExperimentConfig experiment, AliasSampler<List<String>> endpointSampler,
+            BlockingQueue<ScheduledRequest> queue, int connectionIndex, long endTimestamp, long startNanos,
+            AtomicLong scheduledRequests, RequestTrace.Writer trace) throws InterruptedException, IOException {
+        SplittableRandom random = WorkloadSeed.newRandom(experiment.getSeed(), connectionIndex);
+        while (System.currentTimeMillis() < endTimestamp) {
+            long startTime = System.currentTimeMillis();
+
+            // Each producer adds the full requestsPerSecond to its own queue
+            for (int j = 0; j < experiment.getRequestsPerSecond(); j++) {
+                String endpoint = chooseEndpoint(endpointSampler, random);
+                if (trace != null) {
+                    trace.append(connectionIndex, System.nanoTime() - startNanos, endpoint, null);
+                }
+                queue.put(new ScheduledRequest(endpoint, ScheduledRequest.UNSCHEDULED));
+                scheduledRequests.incrementAndGet();
+            }
+
+            long elapsedTime = System.currentTimeMillis() - startTime;
+            if (elapsedTime < 1000) {
+                Thread.sleep(1000 - elapsedTime);
+            } else {
+                logger.warn("Warning: Adding requests took longer than 1 second for connection {}", connectionIndex);
+            }
+        }
+    }
+
+    // Open-loop load pattern: every request gets an intended send time from the arrival process,
+    // independent of how fast the server answers. Latency is later measured from that intended time,
+    // so time spent waiting behind a slow request is counted instead of silently omitted.
+    private static void produceOpenLoop(ExperimentConfig experiment, AliasSampler<List<String>> endpointSampler,
+            BlockingQueue<ScheduledRequest> queue, int connectionIndex, long startNanos,
+            AtomicLong scheduledRequests, RequestTrace.Writer trace) throws InterruptedException, IOException {
+        long durationNanos = experiment.getDuration() * 1_000_000_000L;
+        double meanIntervalNanos = 1_000_000_000.0 / experiment.getRequestsPerSecond();
+        boolean poisson = experiment.isPoissonArrivals();
+        // One generator per producer for arrivals and endpoint picks, nothing shared between threads
+        SplittableRandom random = WorkloadSeed.newRandom(experiment.getSeed(), connectionIndex);
+
+        // Spread constant-rate connections across one interval so they don't fire in lockstep
+        double offsetNanos = poisson
+                ? nextExponential(random, meanIntervalNanos)
+                : meanIntervalNanos * connectionIndex / experiment.getConnections();
+
+        while (offsetNanos < durationNanos) {
+            long intendedStartNanos = startNanos + (long) offsetNanos;
+            parkUntil(intendedStartNanos);
+
+            String endpoint = chooseEndpoint(endpointSampler, random);
+            if (trace != null) {
+                trace.append(connectionIndex, intendedStartNanos - startNanos, endpoint, null);
+            }
+            queue.put(new ScheduledRequest(endpoint, intendedStartNanos));
+            scheduledRequests.incrementAndGet();
+
+            offsetNanos += poisson ? nextExponential(random, meanIntervalNanos) : meanIntervalNanos;
+        }
+    }
+
+    // Replays a recorded request stream: every request goes to the connection that sent it, at its
+    // recorded send time divided by the replay speed, and is measured from that time as in open-loop mode
+    private static void produceReplay(RequestTrace.Reader replay, double speed,
+            List<BlockingQueue<ScheduledRequest>> queues, long startNanos, AtomicLong scheduledRequests)
+            throws InterruptedException, IOException {
+        RequestTrace.Entry entry;
+        while ((entry = replay.next()) != null) {
+            long intendedStartNanos = startNanos + (long) (entry.getOffsetNanos() / speed);
+            parkUntil(intendedStartNanos);
+            queues.get(entry.getTerminal() % queues.size()).put(new ScheduledRequest(entry.getPath(), intendedStartNanos));
+            scheduledRequests.incrementAndGet();
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private static RequestTrace.Reader openReplay(String traceFile, int connections) throws IOException {
+        RequestTrace.Reader replay = RequestTrace.open(new File(traceFile));
+        RequestTrace.Header header = replay.getHeader();
+        if (!BENCHMARK_TYPE.equals(header.getBenchmark())) {
+            replay.close();
+            throw new IllegalArgumentException(traceFile + " records a " + header.getBenchmark()
+                    + " run, not " + BENCHMARK_TYPE);
+        }
+        if (header.getTerminals() != connections) {
+            logger.warn("{} was recorded with {} connections, replaying it over {}", traceFile,
+                    header.getTerminals(), connections);
+        }
+        return replay;
+    }
+
+    // One trace per run; with several runs the run number goes before the extension
+    private static File traceFile(ExperimentConfig experiment, int run) {
+        String name = experiment.getTraceFile();
+        if (experiment.getRuns() <= 1) {
+            return new File(name);
+        }
+        int dot = name.lastIndexOf('.');
+        return dot > name.lastIndexOf(File.separatorChar)
+                ? new File(name.substring(0, dot) + "_run" + run + name.substring(dot))
+                : new File(name + "_run" + run);
+    }
+
+    private static double nextExponential(RandomGenerator random, double mean) {
+        return -Math.log(1.0 - random.nextDouble()) * mean;
+    }
+
     private static class ClientTask implements Callable<ClientTaskResult> {
         private final ExperimentConfig experiment;
-        private final CloseableHttpClient httpClient;
-        private final BlockingQueue<String> queue;
+        private final BenchmarkHttpClient httpClient;
+        private final boolean ownsHttpClient;
+        private final BlockingQueue<ScheduledRequest> queue;
         private final long endTimestamp;
+        private final long durationMs;
+        private final CountDownLatch producersFinished;
+        private final LatencyRecorder recorder;
+        private final ResultSink.LatencyWriter latencyWriter; // null unless results are streamed
         private int successfulRequests = 0; // Track successful requests
         private final String threadName;
 
-        public ClientTask(ExperimentConfig experiment, BlockingQueue<String> queue, long endTimestamp) {
+        public ClientTask(ExperimentConfig experiment, BlockingQueue<ScheduledRequest> queue, long endTimestamp,
+                long durationMs, CountDownLatch producersFinished, LatencyRecorder recorder,
+                BenchmarkHttpClient sharedHttpClient, ResultSink.LatencyWriter latencyWriter) {
             this.experiment = experiment;
             this.queue = queue;
             this.endTimestamp = endTimestamp;
+            this.durationMs = durationMs;
+            this.producersFinished = producersFinished;
+            this.recorder = recorder;
+            this.latencyWriter = latencyWriter;
             this.threadName = Thread.currentThread().getName();
 
-            // Simple connection manager with default settings
-            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-            
-            // Use default client configuration
-            this.httpClient = HttpClients.custom()
-                    .setConnectionManager(connectionManager)
-                    .build();
+            // Without a shared client each connection gets its own client with default settings
+            this.ownsHttpClient = sharedHttpClient == null;
+            this.httpClient = ownsHttpClient ? BenchmarkHttpClient.perTerminal() : sharedHttpClient;
         }
 
         @Override
         public ClientTaskResult call() {
             List<TimestampedLatency> latencies = new ArrayList<>();
+            // In open-loop mode requests still queued at the end are sent anyway (they are the slowest ones),
+            // but never for longer than one extra experiment duration
+            long drainDeadline = endTimestamp + durationMs;
             try {
-                while (System.currentTimeMillis() < endTimestamp) {
-                    String endpoint = queue.poll(100, TimeUnit.MILLISECONDS);
-                    if (endpoint != null) {
+                while (shouldContinue(drainDeadline)) {
+                    ScheduledRequest scheduled = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (scheduled != null) {
                         try {
-                            HttpGet request = new HttpGet(BASE_URL + endpoint);
-                            TimestampedLatency result = sendRequest(request);
+                            TimestampedLatency result = sendRequest(BASE_URL + scheduled.getEndpoint(), scheduled);
                             if (result.getLatency() >= 0) {
-                                latencies.add(result);
+                                recorder.record(result.getLatency());
+                                if (latencyWriter != null) {
+                                    latencyWriter.add(result.getTimestamp(), result.getLatency(),
+                                            result.getServiceTime());
+                                } else if (keepsLatencyList(experiment)) {
+                                    latencies.add(result);
+                                }
                                 successfulRequests++;
                             }
                         } catch (Exception e) {
-                            logger.error("Error making request for endpoint: {}", endpoint, e);
+                            logger.error("Error making request for endpoint: {}", scheduled.getEndpoint(), e);
                         }
                     }
                 }
@@ -304,29 +676,56 @@ public class ApiBenchmark {
                 Thread.currentThread().interrupt();
                 logger.error("Client task interrupted", e);
             } finally {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    logger.error("Error closing HttpClient", e);
+                if (latencyWriter != null) {
+                    try {
+                        latencyWriter.flush();
+                    } catch (IOException e) {
+                        logger.error("Error writing latencies to {}", resultSink.getLatenciesFileName(), e);
+                    }
+                }
+                if (ownsHttpClient) {
+                    try {
+                        httpClient.close();
+                    } catch (IOException e) {
+                        logger.error("Error closing HttpClient", e);
+                    }
                 }
             }
-            return new ClientTaskResult(latencies, successfulRequests);
+            return new ClientTaskResult(latencies, successfulRequests, queue.size());
+        }
+
+        private boolean shouldContinue(long drainDeadline) {
+            long now = System.currentTimeMillis();
+            if (now < endTimestamp) {
+                return true;
+            }
+            if (!experiment.isOpenLoop() || now >= drainDeadline) {
+                return false;
+            }
+            return producersFinished.getCount() > 0 || !queue.isEmpty();
         }
 
-        private TimestampedLatency sendRequest(HttpGet request) {
+        private TimestampedLatency sendRequest(String url, ScheduledRequest scheduled) {
             long requestTimestamp = System.currentTimeMillis();
             long start = System.nanoTime();
 
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                EntityUtils.consume(response.getEntity());
-                return new TimestampedLatency(requestTimestamp, System.nanoTime() - start);
+            try {
+                httpClient.get(url);
+                long finish = System.nanoTime();
+                if (scheduled.isScheduled()) {
+                    // Report against the intended send time, not the moment the request left this client
+                    long intendedTimestamp = requestTimestamp - (start - scheduled.getIntendedStartNanos()) / 1_000_000;
+                    return new TimestampedLatency(intendedTimestamp, finish - scheduled.getIntendedStartNanos(),
+                            finish - start);
+                }
+                return new TimestampedLatency(requestTimestamp, finish - start);
             } catch (NoHttpResponseException e) {
                 logger.error("NoHttpResponseException: The server did not respond. Details:");
-                logger.error("Request: {}", request.toString());
+                logger.error("Request: GET {}", url);
                 e.printStackTrace();
             } catch (IOException e) {
                 logger.error("IOException occurred while sending request");
-                logger.error("Request: {}", request.toString());
+                logger.error("Request: GET {}", url);
                 logger.error("Message: {}", e.getMessage());
                 e.printStackTrace();
             }
@@ -335,14 +734,45 @@ public class ApiBenchmark {
         }
     }
 
+    // A request waiting in a connection queue, with the time it was supposed to be sent
+    private static class ScheduledRequest {
+        static final long UNSCHEDULED = Long.MIN_VALUE;
+
+        private final String endpoint;
+        private final long intendedStartNanos; // System.nanoTime() based, UNSCHEDULED in burst mode
+
+        public ScheduledRequest(String endpoint, long intendedStartNanos) {
+            this.endpoint = endpoint;
+            this.intendedStartNanos = intendedStartNanos;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        public long getIntendedStartNanos() {
+            return intendedStartNanos;
+        }
+
+        public boolean isScheduled() {
+            return intendedStartNanos != UNSCHEDULED;
+        }
+    }
+
     // New class to store a latency with its timestamp
     private static class TimestampedLatency {
-        private final long timestamp; // When the request was made
-        private final long latency;   // Latency in nanoseconds
+        private final long timestamp;   // When the request was made (intended send time in open-loop mode)
+        private final long latency;     // Latency in nanoseconds
+        private final long serviceTime; // Send-to-response time in nanoseconds, excluding queueing delay
 
         public TimestampedLatency(long timestamp, long latency) {
+            this(timestamp, latency, latency);
+        }
+
+        public TimestampedLatency(long timestamp, long latency, long serviceTime) {
             this.timestamp = timestamp;
             this.latency = latency;
+            this.serviceTime = serviceTime;
         }
 
         public long getTimestamp() {
@@ -352,16 +782,22 @@ public class ApiBenchmark {
         public long getLatency() {
             return latency;
         }
+
+        public long getServiceTime() {
+            return serviceTime;
+        }
     }
 
     private static class ClientTaskResult {
         // Change from List<Long> to List<TimestampedLatency>
         private final List<TimestampedLatency> latencies;
         private final int successfulRequests;
+        private final int unsentRequests;
 
-        public ClientTaskResult(List<TimestampedLatency> latencies, int successfulRequests) {
+        public ClientTaskResult(List<TimestampedLatency> latencies, int successfulRequests, int unsentRequests) {
             this.latencies = latencies;
             this.successfulRequests = successfulRequests;
+            this.unsentRequests = unsentRequests;
         }
 
         public List<TimestampedLatency> getLatencies() {
@@ -371,30 +807,52 @@ public class ApiBenchmark {
         public int getSuccessfulRequests() {
             return successfulRequests;
         }
+
+        public int getUnsentRequests() {
+            return unsentRequests;
+        }
     }
 
-    private static String chooseEndpoint(Map<String, Double> probabilities) {
-        double rand = random.nextDouble();
-        double cumulative = 0.0;
+    /**
+     * Alias table over the URL lists of an experiment's endpoints. Endpoints without URLs are
+     * left out, and probabilities that do not sum to 1 are sampled in proportion.
+     */
+    public static AliasSampler<List<String>> endpointSampler(Map<String, Double> probabilities,
+            Map<String, List<String>> endpoints) {
+        List<List<String>> urlLists = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        double sum = 0.0;
         for (Map.Entry<String, Double> entry : probabilities.entrySet()) {
-            cumulative += entry.getValue();
-            if (rand <= cumulative) {
-                List<String> urls = ENDPOINTS.get(entry.getKey());
-                if (urls != null && !urls.isEmpty()) {
-                    // Randomly select one URL from the list
-                    return urls.get(random.nextInt(urls.size()));
-                }
+            sum += entry.getValue();
+            List<String> urls = endpoints.get(entry.getKey());
+            if (urls == null || urls.isEmpty()) {
+                logger.warn("Endpoint {} has no URLs in the parameters file and is left out of the mix", entry.getKey());
+                continue;
             }
+            urlLists.add(urls);
+            weights.add(entry.getValue());
+        }
+        if (urlLists.isEmpty()) {
+            throw new IllegalArgumentException("None of the experiment's endpoints has URLs in the parameters file");
         }
-        // Fallback: get the first URL from the first endpoint
-        List<String> fallbackUrls = ENDPOINTS.values().iterator().next();
-        return fallbackUrls.get(0);
+        if (Math.abs(sum - 1.0) > 1e-6) {
+            logger.warn("Endpoint probabilities sum to {}, sampling them in proportion", sum);
+        }
+        return new AliasSampler<>(urlLists, weights.stream().mapToDouble(Double::doubleValue).toArray());
+    }
+
+    /** Picks an endpoint from the mix, then one of its URLs uniformly; public for the api-jmh harness */
+    public static String chooseEndpoint(AliasSampler<List<String>> endpointSampler, RandomGenerator random) {
+        List<String> urls = endpointSampler.sample(random);
+        return urls.get(random.nextInt(urls.size()));
     }
 
     // Replaces writeBenchmarkResults with a method that adds to our global results
-    private static void addRunResults(long startTimestamp, long endTimestamp, List<Long> latencyValues,
-            List<TimestampedLatency> allLatencies, int totalSuccessfulRequests, int connections, 
-            int run, ExperimentConfig experiment, ArrayNode runsArray) throws IOException {
+    private static void addRunResults(long startTimestamp, long endTimestamp, Histogram runHistogram,
+            ArrayNode intervalsArray, List<TimestampedLatency> allLatencies, int totalSuccessfulRequests, long scheduledRequests,
+            long unsentRequests, int connections, int run, int runSequence, ExperimentConfig experiment,
+            long durationMs, RequestTrace.Writer trace, JsonNode resultCacheStatistics, JsonNode databaseReset,
+            JsonNode dataSourceMetrics, ArrayNode runsArray) throws IOException {
         
         // Create a result node for this run
         ObjectNode runNode = mapper.createObjectNode();
@@ -403,42 +861,53 @@ public class ApiBenchmark {
         runNode.put("start_timestamp", startTimestamp);
         runNode.put("end_timestamp", endTimestamp);
         runNode.put("elapsed_time_ms", endTimestamp - startTimestamp);
-        runNode.put("expected_duration_ms", experiment.getDuration() * 1000);
+        runNode.put("expected_duration_ms", durationMs);
         runNode.put("terminals", connections);
         runNode.put("connections", experiment.getConnections());
         runNode.put("requests_per_second", experiment.getRequestsPerSecond());
+        runNode.put("load_mode", experiment.getLoadMode());
         
         // We don't need to add probabilities to each run since they're now in the experiment config
         // but we'll still track endpoints used
         runNode.put("experiment_name", experiment.getExperimentName());
         
-        // Add chronologically ordered latencies with timestamps
-        ArrayNode latenciesArray = runNode.putArray("latencies");
-        for (TimestampedLatency latency : allLatencies) {
-            ObjectNode latencyNode = latenciesArray.addObject();
-            latencyNode.put("timestamp", latency.getTimestamp());
-            latencyNode.put("latency_ns", latency.getLatency());
+        // Add chronologically ordered latencies with timestamps, unless record-latencies is off
+        if (experiment.isRecordLatencies() && resultSink != null) {
+            // Raw latencies are in the binary side file, rows tagged with this sequence number
+            runNode.put("run_sequence", runSequence);
+            runNode.put("latencies_file", resultSink.getLatenciesFileName());
+        } else if (experiment.isRecordLatencies()) {
+            ArrayNode latenciesArray = runNode.putArray("latencies");
+            for (TimestampedLatency latency : allLatencies) {
+                ObjectNode latencyNode = latenciesArray.addObject();
+                latencyNode.put("timestamp", latency.getTimestamp());
+                latencyNode.put("latency_ns", latency.getLatency());
+                if (experiment.isOpenLoop()) {
+                    latencyNode.put("service_time_ns", latency.getServiceTime());
+                }
+            }
         }
+
+        // Per-second snapshots taken from the client recorders during the run
+        runNode.set("latency_intervals", intervalsArray);
         
-        // Add latency distribution
-        List<Long> sortedLatencies = latencyValues.stream().sorted().collect(Collectors.toList());
+        // Add latency distribution, computed from the merged histogram
+        LatencyDistribution distribution = LatencyDistribution.fromHistogram(runHistogram, 25, 75, 90, 95, 99);
         ObjectNode latencyNode = runNode.putObject("latency_distribution");
-        if (!sortedLatencies.isEmpty()) {
-            latencyNode.put("median_latency_ns", median(sortedLatencies));
-            latencyNode.put("min_latency_ns", sortedLatencies.get(0));
-            latencyNode.put("max_latency_ns", sortedLatencies.get(sortedLatencies.size() - 1));
+        if (distribution.getCount() > 0) {
+            latencyNode.put("median_latency_ns", distribution.getMedianLatency());
+            latencyNode.put("min_latency_ns", distribution.getMinimumLatency());
+            latencyNode.put("max_latency_ns", distribution.getMaximumLatency());
             
             // Add percentiles
             ObjectNode percentileNode = latencyNode.putObject("percentiles");
-            addPercentile(sortedLatencies, 25, percentileNode);
-            addPercentile(sortedLatencies, 75, percentileNode);
-            addPercentile(sortedLatencies, 90, percentileNode);
-            addPercentile(sortedLatencies, 95, percentileNode);
-            addPercentile(sortedLatencies, 99, percentileNode);
+            for (Map.Entry<String, Long> percentile : distribution.getPercentiles().entrySet()) {
+                percentileNode.put(percentile.getKey(), percentile.getValue());
+            }
         }
         
         // Add performance metrics
-        long totalRequests = latencyValues.size();
+        long totalRequests = distribution.getCount();
         double elapsedTimeInSeconds = (endTimestamp - startTimestamp) / 1000.0;
         double throughput = totalRequests / elapsedTimeInSeconds;
         runNode.put("throughput", throughput);
@@ -447,43 +916,60 @@ public class ApiBenchmark {
         runNode.put("goodput", goodput);
         runNode.put("total_requests", totalRequests);
         runNode.put("successful_requests", totalSuccessfulRequests);
+        runNode.put("scheduled_requests", scheduledRequests);
+        if (experiment.isOpenLoop()) {
+            // Requests that were due but never sent before the drain deadline; non-zero means the API saturated
+            runNode.put("unsent_requests", unsentRequests);
+        }
+        if (resultCacheStatistics != null) {
+            // Server-side hit/miss counts for this run, the cache was emptied when the run started
+            runNode.set("result_cache", resultCacheStatistics);
+        }
+        if (databaseReset != null) {
+            // Whether the run started from a restored snapshot and how long the restore took
+            runNode.set("database_reset", databaseReset);
+        }
+        if (dataSourceMetrics != null) {
+            // Pool and statement samples on the same wall clock as latency_intervals
+            runNode.set("datasource", dataSourceMetrics);
+        }
+        if (trace != null) {
+            runNode.put("trace_file", trace.getFile().getPath());
+            runNode.put("trace_entries", trace.getEntries());
+        }
         
-        // Add this run to the runs array
-        runsArray.add(runNode);
-        
-        // Save intermediate results after each run
-        mapper.writeValue(new File(resultFileName), allResults);
+        if (resultSink != null) {
+            // Append the run and forget it
+            resultSink.writeRecord("run", runNode);
+        } else {
+            // Add this run to the runs array
+            runsArray.add(runNode);
+
+            // Save intermediate results after each run
+            mapper.writeValue(new File(resultFileName), allResults);
+        }
         logger.info("Updated results for experiment: {}, run: {}", experiment.getExperimentName(), run);
     }
 
-    private static void addPercentile(List<Long> latencies, int percentile, ObjectNode node) {
-        int index = (int) Math.ceil(percentile / 100.0 * latencies.size()) - 1;
-        index = Math.max(0, Math.min(index, latencies.size() - 1));
-        node.put("p" + percentile, latencies.get(index));
-    }
-
-    private static long median(List<Long> latencies) {
-        int middle = latencies.size() / 2;
-        return latencies.size() % 2 == 0 ? (latencies.get(middle - 1) + latencies.get(middle)) / 2
-                : latencies.get(middle);
-    }
-
-    private static void createLatencyHistogram(List<Long> latencies, String filePrefix) {
+    private static void createLatencyHistogram(Histogram latencies, String filePrefix) {
         // Keep the calculation code but comment out the file saving
         try {
-            // Convert nanoseconds to milliseconds
-            double[] latencyMs = latencies.stream()
-                    .mapToDouble(l -> l / 1_000_000.0)
-                    .toArray();
-
-            HistogramDataset dataset = new HistogramDataset();
-            dataset.addSeries("Latency", latencyMs, 50); // 50 bins
+            // 50 equal-width bins between the fastest and the slowest request, in milliseconds
+            XYSeries series = new XYSeries("Latency");
+            if (latencies.getTotalCount() > 0) {
+                long min = latencies.getMinValue();
+                long width = Math.max(1, (latencies.getMaxValue() - min) / 50 + 1);
+                for (long low = min; low <= latencies.getMaxValue(); low += width) {
+                    series.add(low / 1_000_000.0, latencies.getCountBetweenValues(low, low + width - 1));
+                }
+            }
 
-            JFreeChart histogram = ChartFactory.createHistogram(
+            JFreeChart histogram = ChartFactory.createXYBarChart(
                     "Latency Distribution",
                     "Latency (ms)",
+                    false,
                     "Frequency",
-                    dataset,
+                    new XYSeriesCollection(series),
                     PlotOrientation.VERTICAL,
                     true,
                     true,
@@ -507,20 +993,15 @@ public class ApiBenchmark {
         }
     }
 
-    private static void createLatencyCDF(List<Long> latencies, String filePrefix) {
+    private static void createLatencyCDF(Histogram latencies, String filePrefix) {
         // Keep the calculation code but comment out the file saving
         try {
-            // Sort latencies and calculate CDF
-            List<Long> sortedLatencies = new ArrayList<>(latencies);
-            Collections.sort(sortedLatencies);
-
+            // Percentile steps halve towards the tail, so the curve has points where it bends
             XYSeries series = new XYSeries("CDF");
-            int totalPoints = sortedLatencies.size();
-
-            for (int i = 0; i < totalPoints; i++) {
-                double percentile = (i + 1.0) / totalPoints * 100.0;
-                double latencyMs = sortedLatencies.get(i) / 1_000_000.0; // Convert to ms
-                series.add(latencyMs, percentile);
+            if (latencies.getTotalCount() > 0) {
+                for (HistogramIterationValue value : latencies.percentiles(5)) {
+                    series.add(value.getValueIteratedTo() / 1_000_000.0, value.getPercentileLevelIteratedTo());
+                }
             }
 
             XYSeriesCollection dataset = new XYSeriesCollection(series);
@@ -569,6 +1050,10 @@ public class ApiBenchmark {
         @XmlElement(name = "experiment")
         private List<ExperimentConfig> experiments;
 
+        // "json" (default, one document rewritten after every run) or "ndjson" (appended records + binary latencies)
+        @XmlElement(name = "result-format")
+        private String resultFormat;
+
         public int getPauseBetweenExperiments() {
             return pauseBetweenExperiments;
         }
@@ -580,6 +1065,14 @@ public class ApiBenchmark {
         public List<ExperimentConfig> getExperiments() {
             return experiments;
         }
+
+        public String getResultFormat() {
+            return resultFormat == null || resultFormat.isBlank() ? "json" : resultFormat.trim().toLowerCase();
+        }
+
+        public boolean isStreamingResults() {
+            return "ndjson".equals(getResultFormat());
+        }
     }
     
     @XmlAccessorType(XmlAccessType.FIELD)
@@ -612,13 +1105,80 @@ public class ApiBenchmark {
         @XmlElement(name = "duration-seconds")
         private int duration;
         
+        // "burst" (default) or "open"
+        @XmlElement(name = "load-mode")
+        private String loadMode;
+
+        // "constant" (default) or "poisson", only used in open-loop mode
+        @XmlElement(name = "arrival-process")
+        private String arrivalProcess;
+
+        // "per-terminal" (default), "shared" (one bounded pool) or "h2" (one multiplexed HTTP/2 client)
+        @XmlElement(name = "http-client")
+        private String httpClient;
+
+        // Pool size for the "shared" client; defaults to one connection per configured connection
+        @XmlElement(name = "max-connections-per-route")
+        private Integer maxConnectionsPerRoute;
+
+        // Keep every request in the "latencies" array; turn off for long runs, the histograms are always kept
+        @XmlElement(name = "record-latencies")
+        private Boolean recordLatencies;
+
+        // Turn the API's result cache on or off for every run; left as configured on the server when absent
+        @XmlElement(name = "result-cache")
+        private Boolean resultCache;
+
+        // Answer Q1, Q4 and Q12 from the API's daily rollups for every run; left as configured when absent
+        @XmlElement(name = "rollups")
+        private Boolean rollups;
+
+        // Answer the reports from the API's in-memory columns for every run; left as configured when absent
+        @XmlElement(name = "columnar")
+        private Boolean columnar;
+
+        // Run Q1 and Q6 as concurrent slice queries for every run; left as configured when absent
+        @XmlElement(name = "partitioned")
+        private Boolean partitioned;
+
+        // Slices per Q1/Q6 request when <partitioned> is set; the server's setting when absent
+        @XmlElement(name = "partitioned-slices")
+        private Integer partitionedSlices;
+
+        // Reset the database from its snapshot (POST /api/database/reset) before every run
+        @XmlElement(name = "reset-database")
+        private Boolean resetDatabase;
+
+        // Collect the API's connection pool and statement metrics (GET /api/datasource/metrics) for every run
+        @XmlElement(name = "datasource-metrics")
+        private Boolean dataSourceMetrics;
+
+        // Seeds every connection's generator, so runs with the same seed send the same requests
+        @XmlElement(name = "seed")
+        private Long seed;
+
+        // "record" writes each run's requests to trace-file, "replay" sends the requests of trace-file again
+        @XmlElement(name = "trace-mode")
+        private String traceMode;
+
+        @XmlElement(name = "trace-file")
+        private String traceFile;
+
+        // Replay time scale: 2.0 sends the recorded requests twice as fast
+        @XmlElement(name = "replay-speed")
+        private Double replaySpeed;
+        
         @XmlElementWrapper(name = "probabilities")
         @XmlElement(name = "probability")
         private List<ProbabilityConfig> probabilities;
         
         // Helper method to convert probabilities list to a map
         public Map<String, Double> getProbabilitiesMap() {
-            Map<String, Double> result = new HashMap<>();
+            Map<String, Double> result = new LinkedHashMap<>();
+            if (probabilities == null) {
+                // A replayed experiment takes its mix from the trace
+                return result;
+            }
             for (ProbabilityConfig probability : probabilities) {
                 result.put(probability.getEndpoint(), probability.getValue());
             }
@@ -652,6 +1212,125 @@ public class ApiBenchmark {
         public List<ProbabilityConfig> getProbabilities() {
             return probabilities;
         }
+
+        public String getLoadMode() {
+            if (isTraceReplay()) {
+                return "replay";
+            }
+            return loadMode == null || loadMode.isBlank() ? "burst" : loadMode.trim().toLowerCase();
+        }
+
+        // Replayed requests carry their recorded send times, so they are measured like open-loop ones
+        public boolean isOpenLoop() {
+            return "open".equals(getLoadMode()) || isTraceReplay();
+        }
+
+        public String getArrivalProcess() {
+            return arrivalProcess == null || arrivalProcess.isBlank() ? "constant" : arrivalProcess.trim().toLowerCase();
+        }
+
+        public boolean isPoissonArrivals() {
+            return "poisson".equals(getArrivalProcess());
+        }
+
+        public String getHttpClient() {
+            return httpClient == null || httpClient.isBlank()
+                    ? BenchmarkHttpClient.PER_TERMINAL : httpClient.trim().toLowerCase();
+        }
+
+        /**
+         * Rejects load-mode, arrival-process, http-client and trace-mode values that are not one
+         * of the known modes, and trace-mode without a trace-file
+         */
+        public void validate() {
+            String mode = loadMode == null || loadMode.isBlank() ? "burst" : loadMode.trim().toLowerCase();
+            if (!"burst".equals(mode) && !"open".equals(mode)) {
+                throw new IllegalArgumentException("Unknown load-mode " + loadMode + " in experiment "
+                        + experimentName + " (expected burst or open)");
+            }
+            String arrivals = getArrivalProcess();
+            if (!"constant".equals(arrivals) && !"poisson".equals(arrivals)) {
+                throw new IllegalArgumentException("Unknown arrival-process " + arrivalProcess + " in experiment "
+                        + experimentName + " (expected constant or poisson)");
+            }
+            String client = getHttpClient();
+            if (!BenchmarkHttpClient.PER_TERMINAL.equals(client) && !BenchmarkHttpClient.SHARED.equals(client)
+                    && !BenchmarkHttpClient.HTTP2.equals(client)) {
+                throw new IllegalArgumentException("Unknown http-client " + httpClient + " in experiment "
+                        + experimentName + " (expected " + BenchmarkHttpClient.PER_TERMINAL + ", "
+                        + BenchmarkHttpClient.SHARED + " or " + BenchmarkHttpClient.HTTP2 + ")");
+            }
+            if (getTraceMode() != null) {
+                if (!isTraceRecord() && !isTraceReplay()) {
+                    throw new IllegalArgumentException("Unknown trace-mode " + traceMode + " in experiment "
+                            + experimentName + " (expected record or replay)");
+                }
+                if (getTraceFile() == null) {
+                    throw new IllegalArgumentException("Experiment " + experimentName
+                            + " sets trace-mode without a trace-file");
+                }
+            }
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute == null ? connections : maxConnectionsPerRoute;
+        }
+
+        public boolean isRecordLatencies() {
+            return recordLatencies == null || recordLatencies;
+        }
+
+        public Boolean getResultCache() {
+            return resultCache;
+        }
+
+        public Boolean getRollups() {
+            return rollups;
+        }
+
+        public Boolean getColumnar() {
+            return columnar;
+        }
+
+        public Boolean getPartitioned() {
+            return partitioned;
+        }
+
+        public Integer getPartitionedSlices() {
+            return partitionedSlices;
+        }
+
+        public boolean isResetDatabase() {
+            return resetDatabase != null && resetDatabase;
+        }
+
+        public boolean isDataSourceMetrics() {
+            return dataSourceMetrics != null && dataSourceMetrics;
+        }
+
+        public Long getSeed() {
+            return seed;
+        }
+
+        public String getTraceMode() {
+            return traceMode == null || traceMode.isBlank() ? null : traceMode.trim().toLowerCase();
+        }
+
+        public boolean isTraceRecord() {
+            return "record".equals(getTraceMode());
+        }
+
+        public boolean isTraceReplay() {
+            return "replay".equals(getTraceMode());
+        }
+
+        public String getTraceFile() {
+            return traceFile == null || traceFile.isBlank() ? null : traceFile.trim();
+        }
+
+        public double getReplaySpeed() {
+            return replaySpeed == null || replaySpeed <= 0 ? 1.0 : replaySpeed;
+        }
     }
     
     @XmlAccessorType(XmlAccessType.FIELD)
@@ -0,0 +1,137 @@
+package com.restq.api_http.Benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
+
+/**
+ * HTTP client used by the benchmark drivers. Depending on the configured mode a client
+ * is either private to one terminal, a bounded pool shared by all terminals, or a single
+ * async client multiplexing every request over HTTP/2.
+ *
+ * Both methods block until the full response has been read, so latency measurement in
+ * the drivers does not depend on the mode.
+ */
+public abstract class BenchmarkHttpClient implements Closeable {
+
+    // Values accepted by the <http-client> configuration element
+    public static final String PER_TERMINAL = "per-terminal";
+    public static final String SHARED = "shared";
+    public static final String HTTP2 = "h2";
+
+    public abstract void get(String url) throws IOException;
+
+    public abstract void postJson(String url, String body) throws IOException;
+
+    /** Client owned by a single terminal, with httpclient's default pool settings */
+    public static BenchmarkHttpClient perTerminal() {
+        return new Classic(HttpClients.custom()
+                .setConnectionManager(new PoolingHttpClientConnectionManager())
+                .build());
+    }
+
+    /** Client shared by all terminals, or null when every terminal should create its own */
+    public static BenchmarkHttpClient createShared(String mode, int maxConnectionsPerRoute) {
+        switch (mode) {
+            case SHARED:
+                PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+                connectionManager.setMaxTotal(maxConnectionsPerRoute);
+                connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+                return new Classic(HttpClients.custom()
+                        .setConnectionManager(connectionManager)
+                        .build());
+            case HTTP2:
+                // One connection per route, requests from all terminals become streams on it
+                CloseableHttpAsyncClient asyncClient = HttpAsyncClients.customHttp2().build();
+                asyncClient.start();
+                return new Http2(asyncClient);
+            case PER_TERMINAL:
+                return null;
+            default:
+                throw new IllegalArgumentException("Unknown http-client mode: " + mode);
+        }
+    }
+
+    private static final class Classic extends BenchmarkHttpClient {
+        private final CloseableHttpClient client;
+
+        Classic(CloseableHttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void get(String url) throws IOException {
+            client.execute(new HttpGet(url), response -> {
+                EntityUtils.consume(response.getEntity());
+                return null;
+            });
+        }
+
+        @Override
+        public void postJson(String url, String body) throws IOException {
+            HttpPost request = new HttpPost(url);
+            request.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+            client.execute(request, response -> {
+                EntityUtils.consume(response.getEntity());
+                return null;
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            client.close();
+        }
+    }
+
+    private static final class Http2 extends BenchmarkHttpClient {
+        private final CloseableHttpAsyncClient client;
+
+        Http2(CloseableHttpAsyncClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void get(String url) throws IOException {
+            await(SimpleRequestBuilder.get(url).build());
+        }
+
+        @Override
+        public void postJson(String url, String body) throws IOException {
+            await(SimpleRequestBuilder.post(url).setBody(body, ContentType.APPLICATION_JSON).build());
+        }
+
+        private void await(SimpleHttpRequest request) throws IOException {
+            try {
+                client.execute(request, null).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for " + request);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public void close() {
+            client.close(CloseMode.GRACEFUL);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.restq.api_http.Benchmark;
+
+import java.io.IOException;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Calls the API's /api/database endpoints the TPC-H and TPC-C drivers share. Each method takes
+ * the driver's base URL (such as http://localhost:8086/api/reports) and returns the response
+ * body, or null when the call failed, so a run goes ahead without the result.
+ */
+final class DatabaseEndpoints {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseEndpoints.class);
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private DatabaseEndpoints() {
+    }
+
+    /** Restores the API's database from its snapshot, or takes the snapshot when there is none yet */
+    static JsonNode reset(String baseUrl) {
+        JsonNode reset = call(new HttpPost(databaseUrl(baseUrl, "reset")), "reset the database");
+        if (reset != null) {
+            logger.info("Database reset before run: {}", reset);
+        }
+        return reset;
+    }
+
+    /** Indexes, partitioning and design profiles of the API's database, recorded with the results */
+    static JsonNode physicalDesign(String baseUrl) {
+        return call(new HttpGet(databaseUrl(baseUrl, "physical-design")), "read the physical design");
+    }
+
+    // The database endpoints sit next to the benchmark's own, under /api
+    private static String databaseUrl(String baseUrl, String endpoint) {
+        return baseUrl.substring(0, baseUrl.lastIndexOf('/')) + "/database/" + endpoint;
+    }
+
+    private static JsonNode call(HttpUriRequestBase request, String action) {
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            return client.execute(request, response -> {
+                String body = EntityUtils.toString(response.getEntity());
+                if (response.getCode() >= 300) {
+                    logger.warn("Could not {}: {} {}", action, response.getCode(), body);
+                    return null;
+                }
+                return mapper.readTree(body);
+            });
+        } catch (IOException e) {
+            logger.warn("Could not {}: {}", action, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,20 +1,36 @@
 package com.restq.api_http.Benchmark;
 
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.HdrHistogram.Histogram;
+
 public class LatencyDistribution {
+    private long count;
     private long minimumLatency;
     private long maximumLatency;
     private long medianLatency;
     private Map<String, Long> percentiles;
 
-    void setPercentile(List<Long> latencies, int... percentiles) {
-        this.percentiles = new HashMap<>();
+    // Percentile keys are "p" + percentile, matching the latency_distribution JSON node
+    static LatencyDistribution fromHistogram(Histogram histogram, int... percentiles) {
+        LatencyDistribution distribution = new LatencyDistribution();
+        distribution.count = histogram.getTotalCount();
+        distribution.percentiles = new LinkedHashMap<>();
+        if (distribution.count == 0) {
+            return distribution;
+        }
+        distribution.minimumLatency = histogram.getMinValue();
+        distribution.maximumLatency = histogram.getMaxValue();
+        distribution.medianLatency = histogram.getValueAtPercentile(50);
         for (int p : percentiles) {
-            this.percentiles.put(p + "th Percentile", latencies.get(latencies.size() * p / 100));
+            distribution.percentiles.put("p" + p, histogram.getValueAtPercentile(p));
         }
+        return distribution;
+    }
+
+    public long getCount() {
+        return count;
     }
 
     public long getMinimumLatency() {
@@ -0,0 +1,38 @@
+package com.restq.api_http.Benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.SingleWriterRecorder;
+
+/**
+ * Fixed-size latency recorder owned by a single client thread.
+ * Recording is wait-free; another thread can take interval snapshots at any time.
+ */
+public class LatencyRecorder {
+
+    // Anything slower than this is clamped, which keeps the histogram size fixed
+    public static final long HIGHEST_TRACKABLE_LATENCY_NS = TimeUnit.MINUTES.toNanos(10);
+    public static final int SIGNIFICANT_DIGITS = 3;
+
+    private final SingleWriterRecorder recorder =
+            new SingleWriterRecorder(1, HIGHEST_TRACKABLE_LATENCY_NS, SIGNIFICANT_DIGITS);
+    private Histogram intervalHistogram;
+
+    public void record(long latencyNanos) {
+        recorder.recordValue(Math.max(1, Math.min(latencyNanos, HIGHEST_TRACKABLE_LATENCY_NS)));
+    }
+
+    /**
+     * Returns everything recorded since the previous call. The returned histogram is reused
+     * by the next call, so callers must copy or add it somewhere before snapshotting again.
+     */
+    public synchronized Histogram intervalSnapshot() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        return intervalHistogram;
+    }
+
+    public static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_LATENCY_NS, SIGNIFICANT_DIGITS);
+    }
+}
@@ -0,0 +1,271 @@
+package com.restq.api_http.Benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary record of the request stream of one run, so the exact same requests can be sent again.
+ *
+ * The file is gzip-compressed. It starts with a header (magic "RQTR", version, benchmark type,
+ * terminal count, configured duration, optional seed, start time). Each request follows as
+ * variable-length fields: terminal + 1, the zigzag-encoded change of the intended send time
+ * (nanoseconds since the start of the run) from the previous record, the path relative to the
+ * driver's base URL as a reference into a dictionary built along the way (0 introduces a new
+ * path), and the request body length + 1 followed by its UTF-8 bytes (0 for a GET without body).
+ * A single 0 byte ends the trace. TPC-H paths repeat, so most records take a few bytes.
+ */
+public final class RequestTrace {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTrace.class);
+
+    private static final int MAGIC = 0x52515452; // "RQTR"
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RequestTrace() {
+    }
+
+    public static Writer create(File file, String benchmark, int terminals, int durationSeconds, Long seed)
+            throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        return new Writer(file, new Header(benchmark, terminals, durationSeconds, seed, System.currentTimeMillis()));
+    }
+
+    public static Reader open(File file) throws IOException {
+        return new Reader(file);
+    }
+
+    /** Run-level settings of the recording */
+    public static final class Header {
+        private final String benchmark;
+        private final int terminals;
+        private final int durationSeconds;
+        private final Long seed; // null when the recorded run was unseeded
+        private final long startTimestamp;
+
+        Header(String benchmark, int terminals, int durationSeconds, Long seed, long startTimestamp) {
+            this.benchmark = benchmark;
+            this.terminals = terminals;
+            this.durationSeconds = durationSeconds;
+            this.seed = seed;
+            this.startTimestamp = startTimestamp;
+        }
+
+        public String getBenchmark() { return benchmark; }
+        public int getTerminals() { return terminals; }
+        public int getDurationSeconds() { return durationSeconds; }
+        public Long getSeed() { return seed; }
+        public long getStartTimestamp() { return startTimestamp; }
+    }
+
+    /** One recorded request */
+    public static final class Entry {
+        private final int terminal;
+        private final long offsetNanos;
+        private final String path;
+        private final String body; // null for a GET
+
+        Entry(int terminal, long offsetNanos, String path, String body) {
+            this.terminal = terminal;
+            this.offsetNanos = offsetNanos;
+            this.path = path;
+            this.body = body;
+        }
+
+        public int getTerminal() { return terminal; }
+        public long getOffsetNanos() { return offsetNanos; }
+        public String getPath() { return path; }
+        public String getBody() { return body; }
+    }
+
+    /** Appends requests from any number of producer or terminal threads */
+    public static final class Writer implements Closeable {
+        private final File file;
+        private final DataOutputStream out;
+        private final Map<String, Integer> paths = new HashMap<>();
+        private long previousOffsetNanos;
+        private long entries;
+
+        private Writer(File file, Header header) throws IOException {
+            this.file = file;
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(header.getBenchmark());
+            writeVarLong(header.getTerminals());
+            writeVarLong(header.getDurationSeconds());
+            out.writeBoolean(header.getSeed() != null);
+            if (header.getSeed() != null) {
+                out.writeLong(header.getSeed());
+            }
+            out.writeLong(header.getStartTimestamp());
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public synchronized long getEntries() {
+            return entries;
+        }
+
+        public synchronized void append(int terminal, long offsetNanos, String path, String body) throws IOException {
+            writeVarLong(terminal + 1L);
+            // Threads append slightly out of order, so the delta is signed
+            long delta = offsetNanos - previousOffsetNanos;
+            writeVarLong((delta << 1) ^ (delta >> 63));
+            previousOffsetNanos = offsetNanos;
+
+            Integer reference = paths.get(path);
+            if (reference == null) {
+                out.writeByte(0);
+                out.writeUTF(path);
+                paths.put(path, paths.size() + 1);
+            } else {
+                writeVarLong(reference);
+            }
+
+            if (body == null) {
+                out.writeByte(0);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(bytes.length + 1L);
+                out.write(bytes);
+            }
+            entries++;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                out.writeByte(0);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+    }
+
+    /** Reads a trace front to back; not thread-safe */
+    public static final class Reader implements Closeable {
+        private final File file;
+        private final DataInputStream in;
+        private final Header header;
+        private final List<String> paths = new ArrayList<>();
+        private long previousOffsetNanos;
+        private boolean finished;
+
+        private Reader(File file) throws IOException {
+            this.file = file;
+            this.in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), BUFFER_SIZE));
+            try {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file + " is not a request trace");
+                }
+                int version = in.readUnsignedByte();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported request trace version " + version + " in " + file);
+                }
+                String benchmark = in.readUTF();
+                int terminals = (int) readVarLong();
+                int durationSeconds = (int) readVarLong();
+                Long seed = in.readBoolean() ? in.readLong() : null;
+                this.header = new Header(benchmark, terminals, durationSeconds, seed, in.readLong());
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        public Header getHeader() {
+            return header;
+        }
+
+        /** The next request, or null once the trace is exhausted */
+        public Entry next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            try {
+                long terminal = readVarLong();
+                if (terminal == 0) {
+                    finished = true;
+                    return null;
+                }
+                long zigzag = readVarLong();
+                long offsetNanos = previousOffsetNanos + ((zigzag >>> 1) ^ -(zigzag & 1));
+                previousOffsetNanos = offsetNanos;
+
+                int reference = (int) readVarLong();
+                String path;
+                if (reference == 0) {
+                    path = in.readUTF();
+                    paths.add(path);
+                } else {
+                    path = paths.get(reference - 1);
+                }
+
+                long bodyLength = readVarLong();
+                String body = null;
+                if (bodyLength > 0) {
+                    byte[] bytes = new byte[(int) (bodyLength - 1)];
+                    in.readFully(bytes);
+                    body = new String(bytes, StandardCharsets.UTF_8);
+                }
+                return new Entry((int) (terminal - 1), offsetNanos, path, body);
+            } catch (EOFException e) {
+                // The recording run died before closing the trace; replay what was written
+                logger.warn("Request trace {} is truncated, replaying the requests read so far", file);
+                finished = true;
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed variable-length field in " + file);
+        }
+    }
+}
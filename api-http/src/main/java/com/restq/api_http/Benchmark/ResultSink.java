@@ -0,0 +1,111 @@
+package com.restq.api_http.Benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Append-only results output used instead of rewriting one big JSON document after every run.
+ *
+ * Records go to a newline-delimited JSON file, one object per line, each with a "record" field
+ * ("benchmark", "experiment" or "run"). Per-request latencies go to a binary side file made of
+ * fixed 28-byte big-endian rows: int run_sequence, long timestamp_ms, long latency_ns, long service_time_ns.
+ * Nothing is kept in memory once written.
+ */
+public class ResultSink implements Closeable {
+
+    public static final int LATENCY_RECORD_BYTES = Integer.BYTES + 3 * Long.BYTES;
+
+    // Rows buffered per client before taking the file lock
+    private static final int LATENCY_BATCH_SIZE = 1024;
+
+    private final String recordsFileName;
+    private final String latenciesFileName;
+    private final ObjectMapper mapper = new ObjectMapper(); // no indentation, one record per line
+    private final SequenceWriter recordsWriter;
+    private final DataOutputStream latenciesOut;
+
+    public ResultSink(String baseFileName) throws IOException {
+        this.recordsFileName = baseFileName + ".ndjson";
+        this.latenciesFileName = baseFileName + ".latencies.bin";
+        this.recordsWriter = mapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(new File(recordsFileName));
+        this.latenciesOut = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(latenciesFileName), 1 << 16));
+    }
+
+    public String getRecordsFileName() {
+        return recordsFileName;
+    }
+
+    public String getLatenciesFileName() {
+        return latenciesFileName;
+    }
+
+    public synchronized void writeRecord(String type, ObjectNode record) throws IOException {
+        ObjectNode line = mapper.createObjectNode();
+        line.put("record", type);
+        line.setAll(record);
+        recordsWriter.write(line);
+        recordsWriter.flush();
+        // Latency rows for a run are flushed by its clients before the run record is written
+        latenciesOut.flush();
+    }
+
+    /** Buffer for one client thread; rows reach the side file in batches */
+    public LatencyWriter newLatencyWriter(int runSequence) {
+        return new LatencyWriter(runSequence);
+    }
+
+    private synchronized void writeLatencies(int runSequence, long[] rows, int count) throws IOException {
+        for (int i = 0; i < count; i += 3) {
+            latenciesOut.writeInt(runSequence);
+            latenciesOut.writeLong(rows[i]);
+            latenciesOut.writeLong(rows[i + 1]);
+            latenciesOut.writeLong(rows[i + 2]);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            recordsWriter.close();
+        } finally {
+            latenciesOut.close();
+        }
+    }
+
+    public class LatencyWriter {
+        private final int runSequence;
+        private final long[] rows = new long[LATENCY_BATCH_SIZE * 3];
+        private int size;
+
+        private LatencyWriter(int runSequence) {
+            this.runSequence = runSequence;
+        }
+
+        public void add(long timestamp, long latency, long serviceTime) throws IOException {
+            rows[size++] = timestamp;
+            rows[size++] = latency;
+            rows[size++] = serviceTime;
+            if (size == rows.length) {
+                flush();
+            }
+        }
+
+        public void flush() throws IOException {
+            if (size > 0) {
+                writeLatencies(runSequence, rows, size);
+                size = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.restq.api_http.Benchmark;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Measures the cost of the TPC-C terminal runtime itself, without any HTTP traffic.
+ * Terminals run TpccApiBenchmark's own keying/think time cycle, but the transaction
+ * is replaced by a short sleep. For every step of 10k terminals the
+ * driver's CPU usage and heap are recorded, for platform and/or virtual threads.
+ *
+ * Usage: TerminalRuntimeBenchmark [platform|virtual|both] [maxTerminals] [secondsPerStep]
+ */
+public class TerminalRuntimeBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(TerminalRuntimeBenchmark.class);
+
+    private static final int TERMINALS_PER_STEP = 10_000;
+    private static final long SIMULATED_TRANSACTION_MS = 5;
+
+    private static ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String executorType = args.length > 0 ? args[0].toLowerCase() : "both";
+        int maxTerminals = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        int secondsPerStep = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        String resultFileName = "terminal_runtime_benchmark_" + timestamp + ".json";
+
+        ObjectNode results = mapper.createObjectNode();
+        results.put("timestamp", timestamp);
+        results.put("max_terminals", maxTerminals);
+        results.put("terminals_per_step", TERMINALS_PER_STEP);
+        results.put("seconds_per_step", secondsPerStep);
+        results.put("available_processors", Runtime.getRuntime().availableProcessors());
+        results.put("max_heap_bytes", Runtime.getRuntime().maxMemory());
+
+        List<String> executorTypes = "both".equals(executorType)
+                ? List.of("virtual", "platform")
+                : List.of(executorType);
+
+        for (String type : executorTypes) {
+            ArrayNode stepsArray = results.putArray(type);
+            for (int terminals = TERMINALS_PER_STEP; terminals <= maxTerminals; terminals += TERMINALS_PER_STEP) {
+                ObjectNode stepNode = stepsArray.addObject();
+                stepNode.put("terminals", terminals);
+                try {
+                    runStep(type, terminals, secondsPerStep, stepNode);
+                } catch (OutOfMemoryError | RuntimeException e) {
+                    // Platform threads usually run out of native threads well before 100k terminals
+                    logger.error("{} terminals on {} threads failed: {}", terminals, type, e.toString());
+                    stepNode.put("error", e.toString());
+                    break;
+                }
+                mapper.writeValue(new File(resultFileName), results);
+            }
+        }
+
+        mapper.writeValue(new File(resultFileName), results);
+        logger.info("Terminal runtime benchmark completed. Results saved to {}", resultFileName);
+    }
+
+    private static void runStep(String executorType, int terminals, int durationSeconds, ObjectNode stepNode)
+            throws InterruptedException {
+        com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        ExecutorService executor = "virtual".equals(executorType)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(terminals);
+        AtomicLong transactions = new AtomicLong();
+        long endTimestamp = System.currentTimeMillis() + durationSeconds * 1000L;
+
+        for (int i = 0; i < terminals; i++) {
+            executor.submit(new SimulatedTerminal(endTimestamp, transactions));
+        }
+
+        // Let every terminal get through its first keying time before measuring
+        long warmupMs = Math.min(durationSeconds * 1000L / 3, 20_000);
+        Thread.sleep(warmupMs);
+
+        long cpuStart = os.getProcessCpuTime();
+        long wallStart = System.nanoTime();
+        long transactionsStart = transactions.get();
+        int peakThreads = threads.getThreadCount();
+
+        Thread.sleep(Math.max(0, endTimestamp - System.currentTimeMillis()));
+
+        long cpuNanos = os.getProcessCpuTime() - cpuStart;
+        long wallNanos = System.nanoTime() - wallStart;
+        long measuredTransactions = transactions.get() - transactionsStart;
+        peakThreads = Math.max(peakThreads, threads.getThreadCount());
+
+        // Heap while all terminals are still alive, after a collection to drop garbage
+        System.gc();
+        long heapDuring = memory.getHeapMemoryUsage().getUsed();
+
+        executor.shutdownNow();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+
+        double cpuCores = (double) cpuNanos / wallNanos;
+        double per10k = TERMINALS_PER_STEP / (double) terminals;
+
+        stepNode.put("measured_ms", wallNanos / 1_000_000);
+        stepNode.put("simulated_transactions", measuredTransactions);
+        stepNode.put("transactions_per_second", measuredTransactions / (wallNanos / 1e9));
+        stepNode.put("cpu_cores_used", cpuCores);
+        stepNode.put("cpu_cores_per_10k_terminals", cpuCores * per10k);
+        stepNode.put("heap_used_bytes", heapDuring);
+        stepNode.put("heap_bytes_per_10k_terminals", (long) ((heapDuring - heapBefore) * per10k));
+        stepNode.put("jvm_platform_threads", peakThreads);
+
+        logger.info("{} terminals on {} threads: {} cores, {} MB heap per 10k terminals",
+                terminals, executorType, String.format("%.3f", cpuCores * per10k),
+                (heapDuring - heapBefore) * per10k / (1024 * 1024));
+    }
+
+    // TpccApiBenchmark's terminal cycle with the HTTP call stubbed out
+    private static class SimulatedTerminal implements Runnable {
+        private final long endTimestamp;
+        private final AtomicLong transactions;
+        private final SplittableRandom terminalRandom = new SplittableRandom();
+
+        SimulatedTerminal(long endTimestamp, AtomicLong transactions) {
+            this.endTimestamp = endTimestamp;
+            this.transactions = transactions;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Spread terminal start-up over one think time so they don't all wake together
+                Thread.sleep(terminalRandom.nextInt(12_000));
+                TpccApiBenchmark.runTerminalCycle(terminalRandom, endTimestamp, transactionType -> {
+                    Thread.sleep(SIMULATED_TRANSACTION_MS);
+                    transactions.incrementAndGet();
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
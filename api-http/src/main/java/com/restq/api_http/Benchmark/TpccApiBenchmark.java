@@ -17,14 +17,13 @@ import jakarta.xml.bind.annotation.*;
 
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.core5.http.NoHttpResponseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
-import org.apache.hc.core5.http.io.entity.StringEntity;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
@@ -79,6 +78,18 @@ public class TpccApiBenchmark {
         public long getPostExecutionWaitMs() {
             return postExecutionWaitMs;
         }
+
+        /** Transaction a recorded request path (endpoint plus query string) belongs to, or null */
+        public static TpccTransactionType forPath(String path) {
+            int query = path.indexOf('?');
+            String endpoint = query < 0 ? path : path.substring(0, query);
+            for (TpccTransactionType type : values()) {
+                if (type.getEndpoint().equals(endpoint)) {
+                    return type;
+                }
+            }
+            return null;
+        }
     }
 
     // TPC-C Constants (from benchbase)
@@ -86,7 +97,8 @@ public class TpccApiBenchmark {
     private static final int CUSTOMERS_PER_DISTRICT = 3000;
     private static final int ITEMS_COUNT = 100000;
 
-    private static final Random random = new Random();
+    // TPC-C transaction mix, sampled in constant time by every terminal
+    private static final AliasSampler<TpccTransactionType> TRANSACTION_MIX = transactionMix();
     private static ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
     private static ObjectNode allResults;
     private static String resultFileName;
@@ -116,6 +128,19 @@ public class TpccApiBenchmark {
             allResults.put("warehouses", tpccConfig.getWarehouses());
             allResults.put("duration_seconds", tpccConfig.getDurationSeconds());
             allResults.put("terminals", tpccConfig.getTerminals());
+            allResults.put("terminal_executor", tpccConfig.getTerminalExecutor());
+            allResults.put("http_client", tpccConfig.getHttpClient());
+            allResults.put("max_connections_per_route", tpccConfig.getMaxConnectionsPerRoute());
+            allResults.put("reset_database", tpccConfig.isResetDatabase());
+            allResults.put("profile_transactions", tpccConfig.isProfileTransactions());
+            allResults.put("datasource_metrics", tpccConfig.isDataSourceMetrics());
+            JsonNode physicalDesign = DatabaseEndpoints.physicalDesign(BASE_URL);
+            if (physicalDesign != null) {
+                allResults.set("physical_design", physicalDesign);
+            }
+            if (tpccConfig.getSeed() != null) {
+                allResults.put("seed", tpccConfig.getSeed());
+            }
             
             // Add TPC-C transaction mix
             ObjectNode transactionMixNode = allResults.putObject("transaction_mix");
@@ -146,12 +171,44 @@ public class TpccApiBenchmark {
         logger.info("Starting TPC-C benchmark with {} warehouses, {} terminals for {} seconds", 
                    config.getWarehouses(), config.getTerminals(), config.getDurationSeconds());
 
+        if (config.getTraceMode() != null) {
+            if (!config.isTraceRecord() && !config.isTraceReplay()) {
+                throw new IllegalArgumentException("Unknown trace-mode " + config.getTraceMode());
+            }
+            if (config.getTraceFile() == null) {
+                throw new IllegalArgumentException("trace-mode is set without a trace-file");
+            }
+        }
+
         // Create experiment node
         ObjectNode experimentNode = experimentsNode.putObject("tpcc_benchmark");
         experimentNode.put("warehouses", config.getWarehouses());
         experimentNode.put("terminals", config.getTerminals());
         experimentNode.put("duration_seconds", config.getDurationSeconds());
+        if (config.getSeed() != null) {
+            experimentNode.put("seed", config.getSeed());
+        }
+        if (config.getTraceMode() != null) {
+            experimentNode.put("trace_mode", config.getTraceMode());
+            experimentNode.put("trace_file", config.getTraceFile());
+        }
+
+        // Start from the snapshotted database so repeated runs see the same data
+        if (config.isResetDatabase()) {
+            JsonNode databaseReset = DatabaseEndpoints.reset(BASE_URL);
+            if (databaseReset != null) {
+                experimentNode.set("database_reset", databaseReset);
+            }
+        }
         
+        // Per-phase timing on the server, started from empty histograms
+        if (config.isProfileTransactions()) {
+            configureProfile(true);
+        }
+        if (config.isDataSourceMetrics()) {
+            resetDataSourceMetrics();
+        }
+
         // Create terminals with warehouse/district distribution
         List<TpccTerminal> terminals = createTerminals(config.getWarehouses(), config.getTerminals());
         
@@ -163,18 +220,49 @@ public class TpccApiBenchmark {
             terminalNode.put("warehouse_id", terminal.getWarehouseId());
             terminalNode.put("lower_district_id", terminal.getLowerDistrictId());
             terminalNode.put("upper_district_id", terminal.getUpperDistrictId());
+            if (config.getSeed() != null) {
+                // Enough to rerun this one terminal's transactions
+                terminalNode.put("seed", WorkloadSeed.derive(config.getSeed(), terminal.getTerminalId()));
+            }
         }
 
-        ExecutorService executor = Executors.newFixedThreadPool(terminals.size());
+        // Requests of each recorded terminal, sent again at their recorded times
+        Map<Integer, List<RequestTrace.Entry>> replay = null;
+        long durationMs = config.getDurationSeconds() * 1000L;
+        if (config.isTraceReplay()) {
+            try (RequestTrace.Reader reader = openReplay(config.getTraceFile(), terminals.size())) {
+                durationMs = (long) Math.ceil(reader.getHeader().getDurationSeconds() * 1000L / config.getReplaySpeed());
+                replay = readReplay(reader, terminals.size());
+            }
+            experimentNode.put("replay_speed", config.getReplaySpeed());
+            experimentNode.put("replay_duration_ms", durationMs);
+        }
+        RequestTrace.Writer trace = config.isTraceRecord()
+                ? RequestTrace.create(new File(config.getTraceFile()), BENCHMARK_TYPE, terminals.size(),
+                        config.getDurationSeconds(), config.getSeed())
+                : null;
+
+        // Terminals spend nearly all their time in keying/think sleeps, so with virtual threads
+        // a sleeping terminal costs a small heap object instead of a parked OS thread
+        ExecutorService executor = config.isVirtualThreads()
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(terminals.size());
+        // null when every terminal opens its own client
+        BenchmarkHttpClient sharedHttpClient = BenchmarkHttpClient.createShared(
+                config.getHttpClient(), config.getMaxConnectionsPerRoute());
         List<Future<TpccTerminalResult>> futures = new ArrayList<>();
         List<TpccTimestampedLatency> allLatencies = new ArrayList<>();
 
         long startTimestamp = System.currentTimeMillis();
-        long endTimestamp = startTimestamp + config.getDurationSeconds() * 1000;
+        long startNanos = System.nanoTime();
+        long endTimestamp = startTimestamp + durationMs;
 
         // Start all terminals
         for (TpccTerminal terminal : terminals) {
-            futures.add(executor.submit(new TpccTerminalTask(terminal, endTimestamp, config.getWarehouses())));
+            List<RequestTrace.Entry> terminalReplay = replay == null ? null
+                    : replay.getOrDefault(terminal.getTerminalId(), Collections.emptyList());
+            futures.add(executor.submit(new TpccTerminalTask(terminal, endTimestamp, config, sharedHttpClient,
+                    startNanos, trace, terminalReplay)));
         }
 
         // Wait for all terminals to complete
@@ -212,9 +300,33 @@ public class TpccApiBenchmark {
 
         executor.shutdown();
         executor.awaitTermination(2, TimeUnit.SECONDS);
+        if (sharedHttpClient != null) {
+            sharedHttpClient.close();
+        }
+        if (trace != null) {
+            trace.close();
+            experimentNode.put("trace_entries", trace.getEntries());
+            logger.info("Recorded {} transactions to {}", trace.getEntries(), trace.getFile());
+        }
 
         long actualEndTimestamp = System.currentTimeMillis();
 
+        if (config.isProfileTransactions()) {
+            JsonNode phases = fetchProfile();
+            if (phases != null) {
+                experimentNode.set("transaction_phases", phases.path("transactions"));
+            }
+            // Leave the server unprofiled for whatever runs next
+            configureProfile(false);
+        }
+        if (config.isDataSourceMetrics()) {
+            JsonNode dataSourceMetrics = fetchDataSourceMetrics(startTimestamp);
+            if (dataSourceMetrics != null) {
+                // Pool and statement samples on the same wall clock as the latency timestamps
+                experimentNode.set("datasource", dataSourceMetrics);
+            }
+        }
+
         // Sort all latencies by timestamp
         allLatencies.sort(Comparator.comparing(TpccTimestampedLatency::getTimestamp));
 
@@ -224,6 +336,87 @@ public class TpccApiBenchmark {
                       config, experimentNode);
     }
 
+    private static RequestTrace.Reader openReplay(String traceFile, int terminals) throws IOException {
+        RequestTrace.Reader reader = RequestTrace.open(new File(traceFile));
+        RequestTrace.Header header = reader.getHeader();
+        if (!BENCHMARK_TYPE.equals(header.getBenchmark())) {
+            reader.close();
+            throw new IllegalArgumentException(traceFile + " records a " + header.getBenchmark()
+                    + " run, not " + BENCHMARK_TYPE);
+        }
+        if (header.getTerminals() != terminals) {
+            logger.warn("{} was recorded with {} terminals, this run has {}", traceFile,
+                    header.getTerminals(), terminals);
+        }
+        return reader;
+    }
+
+    // Groups a recorded run by terminal; terminals this run does not have are dropped
+    private static Map<Integer, List<RequestTrace.Entry>> readReplay(RequestTrace.Reader reader, int terminals)
+            throws IOException {
+        Map<Integer, List<RequestTrace.Entry>> replay = new HashMap<>();
+        long dropped = 0;
+        RequestTrace.Entry entry;
+        while ((entry = reader.next()) != null) {
+            if (entry.getTerminal() < terminals) {
+                replay.computeIfAbsent(entry.getTerminal(), t -> new ArrayList<>()).add(entry);
+            } else {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("Dropped {} recorded transactions of terminals beyond {}", dropped, terminals);
+        }
+        return replay;
+    }
+
+    // Empties the server's pool metrics, so the totals fetched after the run cover only the run
+    private static void resetDataSourceMetrics() {
+        String url = BASE_URL.substring(0, BASE_URL.lastIndexOf('/')) + "/datasource/metrics/reset";
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpPost(url), response -> EntityUtils.toString(response.getEntity()));
+            // The pool is only instrumented when the API starts with the metrics on
+            if (!mapper.readTree(body).path("enabled").asBoolean(true)) {
+                logger.warn("The API collects no data source metrics; start it with DATASOURCE_METRICS_ENABLED=true");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not reset data source metrics: {}", e.getMessage());
+        }
+    }
+
+    private static JsonNode fetchDataSourceMetrics(long since) {
+        String url = BASE_URL.substring(0, BASE_URL.lastIndexOf('/')) + "/datasource/metrics?since=" + since;
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpGet(url), response -> EntityUtils.toString(response.getEntity()));
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            logger.warn("Could not read data source metrics: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static void configureProfile(boolean enabled) {
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            client.execute(new HttpPut(BASE_URL + "/profile?enabled=" + enabled), response -> {
+                EntityUtils.consume(response.getEntity());
+                return null;
+            });
+        } catch (IOException e) {
+            logger.warn("Could not configure transaction profiling: {}", e.getMessage());
+        }
+    }
+
+    private static JsonNode fetchProfile() {
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String body = client.execute(new HttpGet(BASE_URL + "/profile"),
+                    response -> EntityUtils.toString(response.getEntity()));
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            logger.warn("Could not read transaction phase timings: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private static List<TpccTerminal> createTerminals(int numWarehouses, int numTerminals) {
         List<TpccTerminal> terminals = new ArrayList<>();
         
@@ -251,6 +444,8 @@ public class TpccApiBenchmark {
                 if (t + 1 == numWarehouseTerminals) {
                     upperDistrictId = DISTRICTS_PER_WAREHOUSE;
                 }
+                // With more than 10 terminals per warehouse several terminals share a district
+                upperDistrictId = Math.max(lowerDistrictId, upperDistrictId);
 
                 terminals.add(new TpccTerminal(terminalId++, warehouseId, lowerDistrictId, upperDistrictId));
                 
@@ -281,75 +476,127 @@ public class TpccApiBenchmark {
         public int getUpperDistrictId() { return upperDistrictId; }
     }
 
+    private static AliasSampler<TpccTransactionType> transactionMix() {
+        TpccTransactionType[] types = TpccTransactionType.values();
+        double[] probabilities = new double[types.length];
+        for (int i = 0; i < types.length; i++) {
+            probabilities[i] = types[i].getProbability();
+        }
+        return new AliasSampler<>(List.of(types), probabilities);
+    }
+
+    /** The transaction of one cycle, sent (or simulated) between the keying and the think time */
+    @FunctionalInterface
+    interface TerminalTransaction {
+        void run(TpccTransactionType transactionType) throws InterruptedException;
+    }
+
+    /**
+     * One terminal's TPC-C cycle until endTimestamp: draw a transaction from the mix, wait its
+     * keying time, run it, then wait an exponentially distributed think time. Shared with
+     * TerminalRuntimeBenchmark, which runs the same cycle with the transaction stubbed out.
+     */
+    static void runTerminalCycle(SplittableRandom random, long endTimestamp, TerminalTransaction transaction)
+            throws InterruptedException {
+        while (System.currentTimeMillis() < endTimestamp) {
+            // Choose transaction type based on TPC-C probabilities
+            TpccTransactionType transactionType = TRANSACTION_MIX.sample(random);
+
+            // Pre-execution wait (keying time)
+            if (transactionType.getPreExecutionWaitMs() > 0) {
+                Thread.sleep(transactionType.getPreExecutionWaitMs());
+            }
+
+            transaction.run(transactionType);
+
+            // Post-execution wait (think time) - exponentially distributed
+            long thinkTime = calculateThinkTime(random, transactionType.getPostExecutionWaitMs());
+            if (thinkTime > 0) {
+                Thread.sleep(thinkTime);
+            }
+        }
+    }
+
+    private static long calculateThinkTime(SplittableRandom random, long meanThinkTime) {
+        // TPC-C uses exponentially distributed think times
+        double c = random.nextDouble();
+        long thinkTime = (long) (-1 * Math.log(c) * meanThinkTime);
+        return Math.min(thinkTime, 10 * meanThinkTime); // Cap at 10x mean
+    }
+
     private static class TpccTerminalTask implements Callable<TpccTerminalResult> {
         private final TpccTerminal terminal;
         private final long endTimestamp;
         private final int numWarehouses;
-        private final CloseableHttpClient httpClient;
-        private final Random terminalRandom;
-
-        public TpccTerminalTask(TpccTerminal terminal, long endTimestamp, int numWarehouses) {
+        private final BenchmarkHttpClient httpClient;
+        private final boolean ownsHttpClient;
+        private final SplittableRandom terminalRandom;
+        private final long startNanos;
+        private final RequestTrace.Writer trace;       // null unless the run is recorded
+        private final List<RequestTrace.Entry> replay; // null unless the run is replayed
+        private final double replaySpeed;
+
+        // Filled by call(); a task runs once
+        private final List<TpccTimestampedLatency> latencies = new ArrayList<>();
+        private final Map<TpccTransactionType, Integer> transactionCounts = new HashMap<>();
+        private final Map<TpccTransactionType, List<Long>> transactionLatencies = new HashMap<>();
+        private int totalTransactions;
+        private int successfulTransactions;
+
+        public TpccTerminalTask(TpccTerminal terminal, long endTimestamp, TpccConfig config,
+                                BenchmarkHttpClient sharedHttpClient, long startNanos,
+                                RequestTrace.Writer trace, List<RequestTrace.Entry> replay) {
             this.terminal = terminal;
             this.endTimestamp = endTimestamp;
-            this.numWarehouses = numWarehouses;
-            this.terminalRandom = new Random();
-
-            PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-            this.httpClient = HttpClients.custom()
-                    .setConnectionManager(connectionManager)
-                    .build();
+            this.numWarehouses = config.getWarehouses();
+            this.terminalRandom = WorkloadSeed.newRandom(config.getSeed(), terminal.getTerminalId());
+            this.startNanos = startNanos;
+            this.trace = trace;
+            this.replay = replay;
+            this.replaySpeed = config.getReplaySpeed();
+
+            this.ownsHttpClient = sharedHttpClient == null;
+            this.httpClient = ownsHttpClient ? BenchmarkHttpClient.perTerminal() : sharedHttpClient;
         }
 
         @Override
         public TpccTerminalResult call() {
-            List<TpccTimestampedLatency> latencies = new ArrayList<>();
-            Map<TpccTransactionType, Integer> transactionCounts = new HashMap<>();
-            Map<TpccTransactionType, List<Long>> transactionLatencies = new HashMap<>();
-            
             for (TpccTransactionType txType : TpccTransactionType.values()) {
                 transactionCounts.put(txType, 0);
                 transactionLatencies.put(txType, new ArrayList<>());
             }
 
-            int totalTransactions = 0;
-            int successfulTransactions = 0;
-
             try {
-                while (System.currentTimeMillis() < endTimestamp) {
-                    // Choose transaction type based on TPC-C probabilities
-                    TpccTransactionType transactionType = chooseTransactionType();
-                    
-                    // Pre-execution wait (keying time)
-                    if (transactionType.getPreExecutionWaitMs() > 0) {
-                        Thread.sleep(transactionType.getPreExecutionWaitMs());
-                    }
-
-                    // Execute transaction
-                    TpccTimestampedLatency result = executeTransaction(transactionType);
-                    
-                    totalTransactions++;
-                    transactionCounts.put(transactionType, transactionCounts.get(transactionType) + 1);
-                    
-                    if (result.getLatency() >= 0) {
-                        latencies.add(result);
-                        transactionLatencies.get(transactionType).add(result.getLatency());
-                        successfulTransactions++;
-                    }
-
-                    // Post-execution wait (think time) - exponentially distributed
-                    long thinkTime = calculateThinkTime(transactionType.getPostExecutionWaitMs());
-                    if (thinkTime > 0) {
-                        Thread.sleep(thinkTime);
+                if (replay != null) {
+                    // Keying and think times are already in the recorded send times
+                    for (RequestTrace.Entry entry : replay) {
+                        TpccTransactionType transactionType = TpccTransactionType.forPath(entry.getPath());
+                        if (transactionType == null) {
+                            logger.warn("Terminal {} skips recorded request to unknown path {}",
+                                    terminal.getTerminalId(), entry.getPath());
+                            continue;
+                        }
+                        long waitNanos = startNanos + (long) (entry.getOffsetNanos() / replaySpeed) - System.nanoTime();
+                        if (waitNanos > 0) {
+                            TimeUnit.NANOSECONDS.sleep(waitNanos);
+                        }
+
+                        record(transactionType, execute(transactionType, entry.getPath(), entry.getBody()));
                     }
+                } else {
+                    runTerminalCycle(terminalRandom, endTimestamp,
+                            transactionType -> record(transactionType, executeTransaction(transactionType)));
                 }
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 logger.error("Terminal {} interrupted", terminal.getTerminalId());
             } finally {
-                try {
-                    httpClient.close();
-                } catch (IOException e) {
-                    logger.error("Error closing HttpClient for terminal {}", terminal.getTerminalId());
+                if (ownsHttpClient) {
+                    try {
+                        httpClient.close();
+                    } catch (IOException e) {
+                        logger.error("Error closing HttpClient for terminal {}", terminal.getTerminalId());
+                    }
                 }
             }
 
@@ -357,48 +604,48 @@ public class TpccApiBenchmark {
                                          transactionCounts, transactionLatencies);
         }
 
-        private TpccTransactionType chooseTransactionType() {
-            double rand = terminalRandom.nextDouble();
-            double cumulative = 0.0;
-            
-            for (TpccTransactionType txType : TpccTransactionType.values()) {
-                cumulative += txType.getProbability();
-                if (rand <= cumulative) {
-                    return txType;
-                }
+        private void record(TpccTransactionType transactionType, TpccTimestampedLatency result) {
+            totalTransactions++;
+            transactionCounts.put(transactionType, transactionCounts.get(transactionType) + 1);
+            if (result.getLatency() >= 0) {
+                latencies.add(result);
+                transactionLatencies.get(transactionType).add(result.getLatency());
+                successfulTransactions++;
             }
-            
-            return TpccTransactionType.NEW_ORDER; // Fallback
         }
 
         private TpccTimestampedLatency executeTransaction(TpccTransactionType transactionType) {
+            String requestBody = generateRequestBody(transactionType);
+            if (transactionType == TpccTransactionType.ORDER_STATUS ||
+                transactionType == TpccTransactionType.STOCK_LEVEL) {
+                // These are typically read-only transactions, use GET
+                return execute(transactionType, transactionType.getEndpoint() + "?" + requestBody, null);
+            }
+            // These are write transactions, use POST
+            return execute(transactionType, transactionType.getEndpoint(), requestBody);
+        }
+
+        // GET when there is no body, POST otherwise; path is relative to BASE_URL
+        private TpccTimestampedLatency execute(TpccTransactionType transactionType, String path, String body) {
             long requestTimestamp = System.currentTimeMillis();
             long start = System.nanoTime();
 
+            if (trace != null) {
+                try {
+                    trace.append(terminal.getTerminalId(), start - startNanos, path, body);
+                } catch (IOException e) {
+                    logger.error("Could not record {} for terminal {}: {}", transactionType,
+                               terminal.getTerminalId(), e.getMessage());
+                }
+            }
+
             try {
-                String url = BASE_URL + transactionType.getEndpoint();
-                String requestBody = generateRequestBody(transactionType);
-                
-                if (transactionType == TpccTransactionType.ORDER_STATUS || 
-                    transactionType == TpccTransactionType.STOCK_LEVEL) {
-                    // These are typically read-only transactions, use GET
-                    HttpGet request = new HttpGet(url + "?" + requestBody);
-                    try (CloseableHttpResponse response = httpClient.execute(request)) {
-                        EntityUtils.consume(response.getEntity());
-                        return new TpccTimestampedLatency(requestTimestamp, System.nanoTime() - start, transactionType);
-                    }
+                if (body == null) {
+                    httpClient.get(BASE_URL + path);
                 } else {
-                    // These are write transactions, use POST
-                    HttpPost request = new HttpPost(url);
-                    request.setEntity(new StringEntity(requestBody));
-                    request.setHeader("Content-Type", "application/json");
-                    
-                    try (CloseableHttpResponse response = httpClient.execute(request)) {
-                        EntityUtils.consume(response.getEntity());
-                        return new TpccTimestampedLatency(requestTimestamp, System.nanoTime() - start, transactionType);
-                    }
+                    httpClient.postJson(BASE_URL + path, body);
                 }
-                
+                return new TpccTimestampedLatency(requestTimestamp, System.nanoTime() - start, transactionType);
             } catch (Exception e) {
                 logger.error("Error executing {} transaction for terminal {}: {}", 
                            transactionType, terminal.getTerminalId(), e.getMessage());
@@ -456,13 +703,6 @@ public class TpccApiBenchmark {
                     return String.format("warehouseId=%d&districtId=%d", terminal.getWarehouseId(), districtId);
             }
         }
-
-        private long calculateThinkTime(long meanThinkTime) {
-            // TPC-C uses exponentially distributed think times
-            double c = terminalRandom.nextDouble();
-            long thinkTime = (long) (-1 * Math.log(c) * meanThinkTime);
-            return Math.min(thinkTime, 10 * meanThinkTime); // Cap at 10x mean
-        }
     }
 
     private static class TpccTimestampedLatency {
@@ -553,6 +793,10 @@ public class TpccApiBenchmark {
             }
         }
         
+        if (config.getLatencyWindowSeconds() > 0) {
+            addLatencyWindows(startTimestamp, endTimestamp, allLatencies, config.getLatencyWindowSeconds(), experimentNode);
+        }
+
         // All latencies with timestamps
         ArrayNode latenciesArray = experimentNode.putArray("latencies");
         for (TpccTimestampedLatency latency : allLatencies) {
@@ -567,6 +811,78 @@ public class TpccApiBenchmark {
         logger.info("TPC-C benchmark completed. tpmC: {:.2f}, Total TPS: {:.2f}", tpmC, throughput);
     }
 
+    // Latency of each transaction type per window of the run, and how its p95 moves from window
+    // to window, so a long run shows whether lookups slow down as ORDER and NEW_ORDER grow
+    private static void addLatencyWindows(long startTimestamp, long endTimestamp,
+            List<TpccTimestampedLatency> allLatencies, int windowSeconds, ObjectNode experimentNode) {
+        long windowMs = windowSeconds * 1000L;
+        int windowCount = (int) Math.max(1, (endTimestamp - startTimestamp + windowMs - 1) / windowMs);
+        Map<TpccTransactionType, List<List<Long>>> windows = new EnumMap<>(TpccTransactionType.class);
+        for (TpccTransactionType txType : TpccTransactionType.values()) {
+            List<List<Long>> typeWindows = new ArrayList<>(windowCount);
+            for (int i = 0; i < windowCount; i++) {
+                typeWindows.add(new ArrayList<>());
+            }
+            windows.put(txType, typeWindows);
+        }
+        for (TpccTimestampedLatency latency : allLatencies) {
+            // Failed transactions carry no latency
+            if (latency.getLatency() < 0) {
+                continue;
+            }
+            long offset = Math.max(0, latency.getTimestamp() - startTimestamp);
+            int window = (int) Math.min(windowCount - 1, offset / windowMs);
+            windows.get(latency.getTransactionType()).get(window).add(latency.getLatency());
+        }
+
+        experimentNode.put("latency_window_seconds", windowSeconds);
+        ArrayNode windowsArray = experimentNode.putArray("latency_windows");
+        Map<TpccTransactionType, List<double[]>> p95Points = new EnumMap<>(TpccTransactionType.class);
+        for (int i = 0; i < windowCount; i++) {
+            ObjectNode windowNode = windowsArray.addObject();
+            windowNode.put("offset_seconds", (long) i * windowSeconds);
+            ObjectNode transactionsNode = windowNode.putObject("transactions");
+            for (TpccTransactionType txType : TpccTransactionType.values()) {
+                List<Long> latencies = windows.get(txType).get(i);
+                if (latencies.isEmpty()) {
+                    continue;
+                }
+                Collections.sort(latencies);
+                ObjectNode txNode = transactionsNode.putObject(txType.name());
+                txNode.put("count", latencies.size());
+                txNode.put("median_ns", median(latencies));
+                long p95 = percentile(latencies, 95);
+                txNode.put("p95_ns", p95);
+                txNode.put("p99_ns", percentile(latencies, 99));
+                p95Points.computeIfAbsent(txType, type -> new ArrayList<>())
+                        .add(new double[] {i * windowSeconds / 60.0, p95});
+            }
+        }
+
+        // Least-squares slope of the window p95s; close to zero when latency stays flat
+        ObjectNode driftNode = experimentNode.putObject("latency_drift");
+        for (Map.Entry<TpccTransactionType, List<double[]>> entry : p95Points.entrySet()) {
+            List<double[]> points = entry.getValue();
+            ObjectNode txNode = driftNode.putObject(entry.getKey().name());
+            txNode.put("windows", points.size());
+            txNode.put("first_p95_ns", (long) points.get(0)[1]);
+            txNode.put("last_p95_ns", (long) points.get(points.size() - 1)[1]);
+            if (points.size() > 1) {
+                double meanX = points.stream().mapToDouble(point -> point[0]).average().orElse(0);
+                double meanY = points.stream().mapToDouble(point -> point[1]).average().orElse(0);
+                double covariance = 0;
+                double variance = 0;
+                for (double[] point : points) {
+                    covariance += (point[0] - meanX) * (point[1] - meanY);
+                    variance += (point[0] - meanX) * (point[0] - meanX);
+                }
+                double slope = covariance / variance;
+                txNode.put("p95_slope_ns_per_minute", Math.round(slope));
+                txNode.put("p95_slope_percent_per_minute", meanY > 0 ? slope / meanY * 100 : 0);
+            }
+        }
+    }
+
     private static long median(List<Long> latencies) {
         int middle = latencies.size() / 2;
         return latencies.size() % 2 == 0 ? (latencies.get(middle - 1) + latencies.get(middle)) / 2
@@ -592,6 +908,49 @@ public class TpccApiBenchmark {
         @XmlElement(name = "duration-seconds")
         private int durationSeconds = 300;
 
+        // "platform" (one OS thread per terminal, default) or "virtual"
+        @XmlElement(name = "terminal-executor")
+        private String terminalExecutor;
+
+        // "per-terminal", "shared" or "h2"; defaults to "shared" for virtual terminals
+        @XmlElement(name = "http-client")
+        private String httpClient;
+
+        // Pool size for the "shared" client; defaults to one connection per terminal, so none of them queue
+        @XmlElement(name = "max-connections-per-route")
+        private Integer maxConnectionsPerRoute;
+
+        // Reset the database from its snapshot (POST /api/database/reset) before the run
+        @XmlElement(name = "reset-database")
+        private boolean resetDatabase;
+
+        // Seeds every terminal's generator, so runs with the same seed issue the same transactions
+        @XmlElement(name = "seed")
+        private Long seed;
+
+        // "record" writes every transaction sent to trace-file, "replay" sends the transactions of trace-file again
+        @XmlElement(name = "trace-mode")
+        private String traceMode;
+
+        @XmlElement(name = "trace-file")
+        private String traceFile;
+
+        // Replay time scale: 2.0 sends the recorded transactions twice as fast
+        @XmlElement(name = "replay-speed")
+        private Double replaySpeed;
+
+        // Time the phases inside each transaction on the server (GET/PUT /api/tpcc/profile)
+        @XmlElement(name = "profile-transactions")
+        private boolean profileTransactions;
+
+        // Collect the API's connection pool and statement metrics (GET /api/datasource/metrics)
+        @XmlElement(name = "datasource-metrics")
+        private boolean dataSourceMetrics;
+
+        // Split the latencies into windows of this many seconds (latency_windows); 0 leaves them out
+        @XmlElement(name = "latency-window-seconds")
+        private int latencyWindowSeconds;
+
         public int getWarehouses() {
             return warehouses;
         }
@@ -603,5 +962,66 @@ public class TpccApiBenchmark {
         public int getDurationSeconds() {
             return durationSeconds;
         }
+
+        public String getTerminalExecutor() {
+            return terminalExecutor == null || terminalExecutor.isBlank()
+                    ? "platform" : terminalExecutor.trim().toLowerCase();
+        }
+
+        public boolean isVirtualThreads() {
+            return "virtual".equals(getTerminalExecutor());
+        }
+
+        public String getHttpClient() {
+            if (httpClient == null || httpClient.isBlank()) {
+                // A private client per virtual terminal would mean one socket per terminal
+                return isVirtualThreads() ? BenchmarkHttpClient.SHARED : BenchmarkHttpClient.PER_TERMINAL;
+            }
+            return httpClient.trim().toLowerCase();
+        }
+
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute == null ? terminals : maxConnectionsPerRoute;
+        }
+
+        public boolean isResetDatabase() {
+            return resetDatabase;
+        }
+
+        public Long getSeed() {
+            return seed;
+        }
+
+        public String getTraceMode() {
+            return traceMode == null || traceMode.isBlank() ? null : traceMode.trim().toLowerCase();
+        }
+
+        public boolean isTraceRecord() {
+            return "record".equals(getTraceMode());
+        }
+
+        public boolean isTraceReplay() {
+            return "replay".equals(getTraceMode());
+        }
+
+        public String getTraceFile() {
+            return traceFile == null || traceFile.isBlank() ? null : traceFile.trim();
+        }
+
+        public double getReplaySpeed() {
+            return replaySpeed == null || replaySpeed <= 0 ? 1.0 : replaySpeed;
+        }
+
+        public boolean isProfileTransactions() {
+            return profileTransactions;
+        }
+
+        public boolean isDataSourceMetrics() {
+            return dataSourceMetrics;
+        }
+
+        public int getLatencyWindowSeconds() {
+            return latencyWindowSeconds;
+        }
     }
 } 
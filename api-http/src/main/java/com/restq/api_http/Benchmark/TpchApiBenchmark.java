@@ -51,7 +51,6 @@ public class TpchApiBenchmark {
     private static final String BENCHMARK_TYPE = "TPCH";
     private static Map<String, List<String>> ENDPOINTS;
 
-    private static final Random random = new Random();
 
     // Global JSON result object to store all experiment results
     private static ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
@@ -121,6 +120,9 @@ public class TpchApiBenchmark {
                 experimentNode.put("requests_per_second", experiment.getRequestsPerSecond());
                 experimentNode.put("duration_seconds", experiment.getDuration());
                 experimentNode.put("pause_between_runs_ms", experiment.getPauseBetweenRuns());
+                if (experiment.getSeed() != null) {
+                    experimentNode.put("seed", experiment.getSeed());
+                }
                 
                 // Add probabilities to experiment config
                 ObjectNode expProbNode = experimentNode.putObject("probabilities");
@@ -150,6 +152,8 @@ public class TpchApiBenchmark {
     }
     
     private static void runExperiment(ExperimentConfig experiment, BenchmarkConfig benchmarkConfig, ArrayNode runsArray) throws InterruptedException, IOException {
+        // Built once; every producer draws from it with its own generator
+        AliasSampler<List<String>> endpointSampler = ApiBenchmark.endpointSampler(experiment.getProbabilitiesMap(), ENDPOINTS);
         for (int run = 0; run < experiment.getRuns(); run++) {
             logger.info("Starting run {} of {} for experiment {}", run + 1, experiment.getRuns(), experiment.getExperimentName());
 
@@ -171,12 +175,14 @@ public class TpchApiBenchmark {
             for (int i = 0; i < experiment.getConnections(); i++) {
                 final int connectionIndex = i;
                 Thread producerThread = new Thread(() -> {
+                    // Same seed, same requests per connection in every run
+                    SplittableRandom random = WorkloadSeed.newRandom(experiment.getSeed(), connectionIndex);
                     try {
                         while (System.currentTimeMillis() < endTimestamp) {
                             long startTime = System.currentTimeMillis();
                             
                             for (int j = 0; j < experiment.getRequestsPerSecond(); j++) {
-                                String endpoint = chooseEndpoint(experiment.getProbabilitiesMap());
+                                String endpoint = ApiBenchmark.chooseEndpoint(endpointSampler, random);
                                 connectionQueues.get(connectionIndex).put(endpoint);
                             }
 
@@ -344,23 +350,6 @@ public class TpchApiBenchmark {
         }
     }
 
-    private static String chooseEndpoint(Map<String, Double> probabilities) {
-        double rand = random.nextDouble();
-        double cumulative = 0.0;
-        for (Map.Entry<String, Double> entry : probabilities.entrySet()) {
-            cumulative += entry.getValue();
-            if (rand <= cumulative) {
-                List<String> urls = ENDPOINTS.get(entry.getKey());
-                if (urls != null && !urls.isEmpty()) {
-                    return urls.get(random.nextInt(urls.size()));
-                }
-            }
-        }
-        // Fallback: get the first URL from the first endpoint
-        List<String> fallbackUrls = ENDPOINTS.values().iterator().next();
-        return fallbackUrls.get(0);
-    }
-
     private static void addRunResults(long startTimestamp, long endTimestamp, List<Long> latencyValues,
             List<TimestampedLatency> allLatencies, int totalSuccessfulRequests, int connections, 
             int run, ExperimentConfig experiment, ArrayNode runsArray) throws IOException {
@@ -490,12 +479,17 @@ public class TpchApiBenchmark {
         @XmlElement(name = "duration-seconds")
         private int duration;
         
+        // Seeds every connection's generator, so runs with the same seed send the same requests
+        @XmlElement(name = "seed")
+        private Long seed;
+        
         @XmlElementWrapper(name = "probabilities")
         @XmlElement(name = "probability")
         private List<ProbabilityConfig> probabilities;
         
+        // Configuration order, so a seeded run walks the cumulative probabilities the same way every time
         public Map<String, Double> getProbabilitiesMap() {
-            Map<String, Double> result = new HashMap<>();
+            Map<String, Double> result = new LinkedHashMap<>();
             for (ProbabilityConfig probability : probabilities) {
                 result.put(probability.getEndpoint(), probability.getValue());
             }
@@ -529,6 +523,10 @@ public class TpchApiBenchmark {
         public List<ProbabilityConfig> getProbabilities() {
             return probabilities;
         }
+
+        public Long getSeed() {
+            return seed;
+        }
     }
     
     @XmlAccessorType(XmlAccessType.FIELD)
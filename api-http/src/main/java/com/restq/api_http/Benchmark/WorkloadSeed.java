@@ -0,0 +1,30 @@
+package com.restq.api_http.Benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generators for the producers and terminals of a run. With a seed, stream {@code i} (a
+ * connection or terminal index) always gets the same generator, so two runs with the same seed
+ * issue the same requests in the same order per connection. Without one, every generator is
+ * freshly seeded as before.
+ */
+final class WorkloadSeed {
+
+    // Odd constant from SplitMix64, spreads consecutive stream indexes across the seed space
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private WorkloadSeed() {
+    }
+
+    /** Seed of stream {@code stream} under the run seed {@code seed} */
+    static long derive(long seed, int stream) {
+        long z = seed + GOLDEN_GAMMA * (stream + 1L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    static SplittableRandom newRandom(Long seed, int stream) {
+        return seed == null ? new SplittableRandom() : new SplittableRandom(derive(seed, stream));
+    }
+}
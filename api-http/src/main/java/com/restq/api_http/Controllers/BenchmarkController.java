@@ -1,13 +1,26 @@
 package com.restq.api_http.Controllers;
 
+import com.restq.api_http.Services.DataSourceMetrics;
+import com.restq.api_http.Services.DatabaseRestoreListener;
+import com.restq.api_http.Services.EndpointMetrics;
 import com.restq.api_http.config.BenchmarkConfigurationService;
+import com.restq.core.DBDataLoad.DatabaseSnapshotService;
+import com.restq.core.DBDataLoad.PhysicalDesignService;
 import com.restq.core.benchmark.BenchmarkType;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -19,6 +32,34 @@ public class BenchmarkController {
     
     @Autowired
     private BenchmarkConfigurationService benchmarkConfig;
+
+    @Autowired
+    private DatabaseSnapshotService snapshotService;
+
+    @Autowired
+    private PhysicalDesignService physicalDesignService;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+
+    @Autowired
+    private DataSourceMetrics dataSourceMetrics;
+
+    // Stored procedures and rollups of the running benchmark, created again after a restore
+    @Autowired
+    private ObjectProvider<DatabaseRestoreListener> restoreListeners;
+
+    @Value("${spring.datasource.url}")
+    private String dbUrl;
+
+    @Value("${spring.datasource.username}")
+    private String dbUsername;
+
+    @Value("${spring.datasource.password}")
+    private String dbPassword;
     
     /**
      * Get the current benchmark configuration
@@ -110,4 +151,138 @@ public class BenchmarkController {
         
         return ResponseEntity.ok(result);
     }
-} 
+
+    /**
+     * Per-endpoint latency histograms, request, error and in-flight counts in the Prometheus text format
+     */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_TYPE, EndpointMetrics.CONTENT_TYPE)
+                .body(endpointMetrics.scrape());
+    }
+
+    /**
+     * Connection pool and JDBC statement metrics: totals since the last reset and the
+     * per-interval samples taken at or after {@code since} (epoch milliseconds)
+     */
+    @GetMapping("/datasource/metrics")
+    public ResponseEntity<Map<String, Object>> dataSourceMetrics(@RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(dataSourceMetrics.getStatistics(since));
+    }
+
+    /**
+     * Start the pool metrics over, e.g. right before a run
+     */
+    @PostMapping("/datasource/metrics/reset")
+    public ResponseEntity<Map<String, Object>> resetDataSourceMetrics() {
+        dataSourceMetrics.reset();
+        return ResponseEntity.ok(dataSourceMetrics.getStatistics(Long.MAX_VALUE));
+    }
+
+    /**
+     * Whether a snapshot of the benchmark database exists
+     */
+    @GetMapping("/database/snapshot")
+    public ResponseEntity<Map<String, Object>> getSnapshot() {
+        try {
+            return ResponseEntity.ok(snapshotStatus(null, 0));
+        } catch (SQLException | IllegalArgumentException | IllegalStateException e) {
+            return snapshotError(e);
+        }
+    }
+
+    /**
+     * Snapshot the benchmark database as it is now, replacing any previous snapshot
+     */
+    @PostMapping("/database/snapshot")
+    public ResponseEntity<Map<String, Object>> createSnapshot() {
+        long start = System.nanoTime();
+        try {
+            snapshotService.createSnapshot(dbUrl, dbUsername, dbPassword);
+            return ResponseEntity.ok(snapshotStatus("created", start));
+        } catch (SQLException | IllegalArgumentException | IllegalStateException e) {
+            return snapshotError(e);
+        } finally {
+            evictPooledConnections();
+            notifyRestoreListeners();
+        }
+    }
+
+    /**
+     * Reset the benchmark database from its snapshot between runs. Without a snapshot the
+     * current state is snapshotted, so the first run starts from it and later resets return to it.
+     */
+    @PostMapping("/database/reset")
+    public ResponseEntity<Map<String, Object>> resetDatabase() {
+        long start = System.nanoTime();
+        try {
+            String action = snapshotService.reset(dbUrl, dbUsername, dbPassword);
+            return ResponseEntity.ok(snapshotStatus(action, start));
+        } catch (SQLException | IllegalArgumentException | IllegalStateException e) {
+            return snapshotError(e);
+        } finally {
+            evictPooledConnections();
+            notifyRestoreListeners();
+        }
+    }
+
+    /**
+     * Physical design profiles applied by InitDB, with the indexes and partitioned tables the
+     * database has now
+     */
+    @GetMapping("/database/physical-design")
+    public ResponseEntity<Map<String, Object>> getPhysicalDesign() {
+        try {
+            return ResponseEntity.ok(physicalDesignService.describe(dbUrl, dbUsername, dbPassword));
+        } catch (SQLException e) {
+            log.error("Could not read the physical design: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    private Map<String, Object> snapshotStatus(String action, long start) throws SQLException {
+        Map<String, Object> status = new HashMap<>();
+        status.put("snapshot", snapshotService.snapshotName(dbUrl));
+        status.put("exists", snapshotService.hasSnapshot(dbUrl, dbUsername, dbPassword));
+        if (action != null) {
+            status.put("action", action);
+            status.put("duration_ms", (System.nanoTime() - start) / 1_000_000L);
+        }
+        return status;
+    }
+
+    private ResponseEntity<Map<String, Object>> snapshotError(Exception e) {
+        log.error("Database snapshot operation failed: {}", e.getMessage());
+        // IllegalStateException: there is no snapshot to restore from
+        HttpStatus status = e instanceof SQLException ? HttpStatus.INTERNAL_SERVER_ERROR
+                : e instanceof IllegalStateException ? HttpStatus.CONFLICT : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
+    // The snapshot terminated every session, so pooled connections are replaced before reuse
+    private void evictPooledConnections() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                HikariPoolMXBean pool = dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean();
+                if (pool != null) {
+                    pool.softEvictConnections();
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Could not evict pooled connections: {}", e.getMessage());
+        }
+    }
+
+    // Objects created since the snapshot are gone after a restore
+    private void notifyRestoreListeners() {
+        restoreListeners.orderedStream().forEach(listener -> {
+            try {
+                listener.databaseRestored();
+            } catch (RuntimeException e) {
+                log.warn("Could not prepare {} after the database snapshot operation: {}",
+                        listener.getClass().getSimpleName(), e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.restq.api_http.Controllers;
+
+import com.restq.api_http.Services.EndpointMetrics;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Feeds {@link EndpointMetrics} from the benchmark endpoints. Requests are labelled with their
+ * route pattern rather than the URL, so query parameters do not create new series. A streamed
+ * report completes in a second (async) dispatch; its timing spans both dispatches.
+ */
+@Component
+public class EndpointMetricsInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String ENDPOINT_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".endpoint";
+    private static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+
+    @Autowired
+    private EndpointMetrics metrics;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC && request.getAttribute(START_ATTRIBUTE) != null) {
+            return true;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        EndpointMetrics.Endpoint endpoint = metrics.endpoint(request.getMethod(),
+                handler instanceof HandlerMethod && pattern != null ? pattern.toString() : "unmatched");
+        endpoint.started();
+        request.setAttribute(ENDPOINT_ATTRIBUTE, endpoint);
+        request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        EndpointMetrics.Endpoint endpoint = (EndpointMetrics.Endpoint) request.getAttribute(ENDPOINT_ATTRIBUTE);
+        Long start = (Long) request.getAttribute(START_ATTRIBUTE);
+        if (endpoint == null || start == null) {
+            return;
+        }
+        request.removeAttribute(ENDPOINT_ATTRIBUTE);
+        request.removeAttribute(START_ATTRIBUTE);
+        // An exception that reaches here is turned into a 500 by the error dispatch afterwards
+        int status = ex != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        endpoint.completed(System.nanoTime() - start, status, ex != null);
+    }
+}
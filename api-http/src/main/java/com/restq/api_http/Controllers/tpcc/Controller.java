@@ -1,8 +1,10 @@
 package com.restq.api_http.Controllers.tpcc;
 
 import com.restq.api_http.DTO.tpcc.*;
-import com.restq.api_http.Services.tpcc.TransactionService;
+import com.restq.api_http.Services.tpcc.ReferenceDataCache;
+import com.restq.api_http.Services.tpcc.RoutingTransactionService;
 import com.restq.api_http.Services.tpcc.ServiceModels.*;
+import com.restq.api_http.Services.tpcc.TransactionProfiler;
 import com.restq.api_http.utils.TpccUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.stream.Collectors;
 
@@ -23,7 +26,13 @@ import java.util.stream.Collectors;
 public class Controller {
 
     @Autowired
-    private TransactionService tpccService;
+    private RoutingTransactionService tpccService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private TransactionProfiler profiler;
 
     private final Random random = new Random();
 
@@ -33,6 +42,7 @@ public class Controller {
      */
     @PostMapping("/new-order")
     public ResponseEntity<NewOrderResponse> newOrder(@Valid @RequestBody NewOrderRequest request) {
+        TransactionProfiler.Profile profile = profiler.begin(TransactionProfiler.NEW_ORDER);
         try {
             // Convert DTO to service request
             NewOrderRequest serviceRequest = new NewOrderRequest();
@@ -66,6 +76,8 @@ public class Controller {
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
+        } finally {
+            profiler.finish(profile);
         }
     }
 
@@ -75,6 +87,7 @@ public class Controller {
      */
     @PostMapping("/payment")
     public ResponseEntity<PaymentResponse> payment(@Valid @RequestBody PaymentRequest request) {
+        TransactionProfiler.Profile profile = profiler.begin(TransactionProfiler.PAYMENT);
         try {
             // Convert DTO to service request
             PaymentRequest serviceRequest = new PaymentRequest();
@@ -108,6 +121,8 @@ public class Controller {
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
+        } finally {
+            profiler.finish(profile);
         }
     }
 
@@ -121,6 +136,7 @@ public class Controller {
             @RequestParam Integer districtId,
             @RequestParam(required = false) Integer customerId,
             @RequestParam(required = false) String customerLastName) {
+        TransactionProfiler.Profile profile = profiler.begin(TransactionProfiler.ORDER_STATUS);
         try {
             // Validate parameters
             if (customerId == null && customerLastName == null) {
@@ -159,6 +175,8 @@ public class Controller {
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
+        } finally {
+            profiler.finish(profile);
         }
     }
 
@@ -168,6 +186,7 @@ public class Controller {
      */
     @PostMapping("/delivery")
     public ResponseEntity<DeliveryResponse> delivery(@Valid @RequestBody DeliveryRequest request) {
+        TransactionProfiler.Profile profile = profiler.begin(TransactionProfiler.DELIVERY);
         try {
             // Convert DTO to service request
             DeliveryRequest serviceRequest = new DeliveryRequest();
@@ -194,6 +213,8 @@ public class Controller {
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
+        } finally {
+            profiler.finish(profile);
         }
     }
 
@@ -206,6 +227,7 @@ public class Controller {
             @RequestParam Integer warehouseId,
             @RequestParam Integer districtId,
             @RequestParam Integer threshold) {
+        TransactionProfiler.Profile profile = profiler.begin(TransactionProfiler.STOCK_LEVEL);
         try {
             // Convert to service request
             StockLevelRequest serviceRequest = new StockLevelRequest();
@@ -227,6 +249,8 @@ public class Controller {
 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
+        } finally {
+            profiler.finish(profile);
         }
     }
 
@@ -292,4 +316,59 @@ public class Controller {
             district.getStreet1(), district.getStreet2(), 
             district.getCity(), district.getZip());
     }
-} 
+
+    /**
+     * Reference data cache state and hit/miss statistics
+     */
+    @GetMapping("/reference-cache")
+    public ResponseEntity<Map<String, Object>> referenceCacheStatistics() {
+        return ResponseEntity.ok(referenceDataCache.getStatistics());
+    }
+
+    /**
+     * Enable or disable the reference data cache; statistics start over either way
+     */
+    @PutMapping("/reference-cache")
+    public ResponseEntity<Map<String, Object>> setReferenceCache(@RequestParam boolean enabled) {
+        referenceDataCache.setEnabled(enabled);
+        return ResponseEntity.ok(referenceDataCache.getStatistics());
+    }
+
+    /**
+     * Per-phase timing histograms of the TPC-C transactions
+     */
+    @GetMapping("/profile")
+    public ResponseEntity<Map<String, Object>> profileStatistics() {
+        return ResponseEntity.ok(profiler.getStatistics());
+    }
+
+    /**
+     * Enable or disable per-phase timing; histograms start over either way
+     */
+    @PutMapping("/profile")
+    public ResponseEntity<Map<String, Object>> setProfile(@RequestParam boolean enabled) {
+        profiler.setEnabled(enabled);
+        return ResponseEntity.ok(profiler.getStatistics());
+    }
+
+    /**
+     * Current transaction mode: jpa, jdbc or procedure
+     */
+    @GetMapping("/transaction-mode")
+    public ResponseEntity<Map<String, Object>> transactionMode() {
+        return ResponseEntity.ok(Map.of("mode", tpccService.getMode()));
+    }
+
+    /**
+     * Switch the implementation behind the transaction endpoints between runs
+     */
+    @PutMapping("/transaction-mode")
+    public ResponseEntity<Map<String, Object>> setTransactionMode(@RequestParam String mode) {
+        try {
+            tpccService.setMode(mode);
+            return ResponseEntity.ok(Map.of("mode", tpccService.getMode()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
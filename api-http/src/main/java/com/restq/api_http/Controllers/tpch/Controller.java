@@ -2,19 +2,30 @@ package com.restq.api_http.Controllers.tpch;
 
 import com.restq.api_http.DTO.tpch.*;
 import com.restq.api_http.Repositories.tpch.*;
+import com.restq.api_http.Services.tpch.ColumnarReports;
+import com.restq.api_http.Services.tpch.PartitionedReports;
+import com.restq.api_http.Services.tpch.ReportResultCache;
+import com.restq.api_http.Services.tpch.ReportRollups;
+import com.restq.api_http.Services.tpch.ReportStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 @RestController
@@ -36,6 +47,18 @@ public class Controller {
     private CustomerRepository customerRepository;
     @Autowired
     private PartSuppRepository partSuppRepository;
+    @Autowired
+    private ReportResultCache resultCache;
+    @Autowired
+    private ReportStreamWriter streamWriter;
+    @Autowired
+    private ReportRollups rollups;
+    @Autowired
+    private ReportRollupRepository rollupRepository;
+    @Autowired
+    private ColumnarReports columnar;
+    @Autowired
+    private PartitionedReports partitioned;
 
 //    @Value("${app.database.scale-factor}")
     private Double scaleFactor = 1.0;
@@ -56,7 +79,13 @@ public class Controller {
         // Calculate the endDate by adding DELTA days to the shipDate
         LocalDate endDate = shipDate.plusDays(delta);
 
-        return lineItemRepository.getPricingSummaryReport(endDate);
+        return resultCache.get("pricing-summary", () -> columnar.isActive()
+                ? columnar.getPricingSummaryReport(endDate)
+                : rollups.isActive()
+                ? rollupRepository.getPricingSummaryReport(endDate)
+                : partitioned.isActive()
+                ? partitioned.getPricingSummaryReport(endDate)
+                : lineItemRepository.getPricingSummaryReport(endDate), endDate);
     }
 
     // Q2
@@ -65,7 +94,10 @@ public class Controller {
             @RequestParam(value = "size") Integer size,
             @RequestParam(value = "type") String type,
             @RequestParam(value = "region") String region) {
-        return supplierPartRepository.findSupplierPartInfo(size, type, region);
+        return resultCache.get("supplier-part-info",
+                () -> columnar.isActive()
+                        ? columnar.findSupplierPartInfo(size, type, region)
+                        : supplierPartRepository.findSupplierPartInfo(size, type, region), size, type, region);
     }
 
     // Q3
@@ -73,7 +105,10 @@ public class Controller {
     public List<OrderRevenueInfo> getOrderRevenueInfo(
             @RequestParam(value = "segment") String segment,
             @RequestParam(value = "date") LocalDate date) {
-        return orderRepository.findTopUnshippedOrders(segment, date);
+        return resultCache.get("order-revenue-info",
+                () -> columnar.isActive()
+                        ? columnar.findTopUnshippedOrders(segment, date)
+                        : orderRepository.findTopUnshippedOrders(segment, date), segment, date);
     }
 
     // Q4
@@ -81,7 +116,12 @@ public class Controller {
     public List<OrderPriorityCountInfo> getOrderPriorityCount(
             @RequestParam(value = "date") LocalDate date) {
         LocalDate datePlus = date.plusMonths(3);
-        return orderRepository.findOrderPriorityCount(date, datePlus);
+        return resultCache.get("order-priority-count",
+                () -> columnar.isActive()
+                        ? columnar.findOrderPriorityCount(date, datePlus)
+                        : rollups.isActive()
+                        ? rollupRepository.findOrderPriorityCount(date, datePlus)
+                        : orderRepository.findOrderPriorityCount(date, datePlus), date);
     }
 
     // Q5
@@ -90,7 +130,10 @@ public class Controller {
             @RequestParam(value = "region") String region,
             @RequestParam(value = "startDate") LocalDate startDate) {
         LocalDate endDate = startDate.plusYears(1);
-        return supplierRepository.findLocalSupplierVolume(region, startDate, endDate);
+        return resultCache.get("local-supplier-volume",
+                () -> columnar.isActive()
+                        ? columnar.findLocalSupplierVolume(region, startDate, endDate)
+                        : supplierRepository.findLocalSupplierVolume(region, startDate, endDate), region, startDate);
     }
 
     // Q6
@@ -101,7 +144,13 @@ public class Controller {
             @RequestParam(value = "startDate") LocalDate startDate
     ) {
         LocalDate endDate = startDate.plusYears(1);
-        return lineItemRepository.calculateRevenueIncrease(startDate, endDate, discount, quantity);
+        return resultCache.get("revenue-increase",
+                () -> columnar.isActive()
+                        ? columnar.calculateRevenueIncrease(startDate, endDate, discount, quantity)
+                        : partitioned.isActive()
+                        ? partitioned.calculateRevenueIncrease(startDate, endDate, discount, quantity)
+                        : lineItemRepository.calculateRevenueIncrease(startDate, endDate, discount, quantity),
+                discount, quantity, startDate);
     }
 
     // Q7 (Modified)
@@ -111,7 +160,11 @@ public class Controller {
             @RequestParam(value = "nation2") String nation2,
             @RequestParam(value = "startDate", defaultValue = "1995-01-01") LocalDate startDate,
             @RequestParam(value = "endDate", defaultValue = "1995-12-31") LocalDate endDate) {
-        return nationRepository.getNationsVolumeShipping(nation1, nation2, startDate, endDate);
+        return resultCache.get("nations-volume-shipping",
+                () -> columnar.isActive()
+                        ? columnar.getNationsVolumeShipping(nation1, nation2, startDate, endDate)
+                        : nationRepository.getNationsVolumeShipping(nation1, nation2, startDate, endDate),
+                nation1, nation2, startDate, endDate);
     }
 
     // Q8
@@ -124,7 +177,10 @@ public class Controller {
         LocalDate startDate = LocalDate.of(1995, 1, 1);
         LocalDate endDate = LocalDate.of(1996, 12, 31);
 
-        return nationRepository.getMarketShare(nation, region, type, startDate, endDate);
+        return resultCache.get("market-share",
+                () -> columnar.isActive()
+                        ? columnar.getMarketShare(nation, region, type, startDate, endDate)
+                        : nationRepository.getMarketShare(nation, region, type, startDate, endDate), nation, region, type);
     }
 
     // Q9
@@ -132,7 +188,10 @@ public class Controller {
     public List<ProductProfitReport> getProductTypeProfit(
             @RequestParam(value = "color") String color) {
         // Pass the color parameter directly, wildcards are handled in the query
-        return nationRepository.getProductTypeProfit(color);
+        return resultCache.get("product-type-profit",
+                () -> columnar.isActive()
+                        ? columnar.getProductTypeProfit(color)
+                        : nationRepository.getProductTypeProfit(color), color);
     }
 
     // Q10
@@ -142,7 +201,10 @@ public class Controller {
         // Calculate end date (3 months after start date)
         LocalDate endDate = startDate.plusMonths(3);
 
-        return customerRepository.findTopReturnedItems(startDate, endDate);
+        return resultCache.get("returned-items",
+                () -> columnar.isActive()
+                        ? columnar.findTopReturnedItems(startDate, endDate)
+                        : customerRepository.findTopReturnedItems(startDate, endDate), startDate);
     }
 
    // Q11
@@ -155,7 +217,10 @@ public class Controller {
        BigDecimal fractionPerScaleFactor = BigDecimal.valueOf(fraction)
            .divide(BigDecimal.valueOf(scaleFactor), java.math.RoundingMode.HALF_UP);
 
-       return partSuppRepository.findImportantStock(nation, fractionPerScaleFactor);
+       return resultCache.get("important-stock",
+               () -> columnar.isActive()
+                       ? columnar.findImportantStock(nation, fractionPerScaleFactor)
+                       : partSuppRepository.findImportantStock(nation, fractionPerScaleFactor), nation, fractionPerScaleFactor);
    }
 
     // Q12
@@ -170,7 +235,13 @@ public class Controller {
         // Create list of ship modes
         List<String> shipModes = Arrays.asList(shipMode1, shipMode2);
         
-        return lineItemRepository.findShippingModeStats(shipModes, startDate, endDate);
+        return resultCache.get("shipping-modes",
+                () -> columnar.isActive()
+                        ? columnar.findShippingModeStats(shipModes, startDate, endDate)
+                        : rollups.isActive()
+                        ? rollupRepository.findShippingModeStats(shipModes, startDate, endDate)
+                        : lineItemRepository.findShippingModeStats(shipModes, startDate, endDate),
+                ReportResultCache.normalized(shipModes), startDate);
     }
 
     // Q13
@@ -190,7 +261,10 @@ public class Controller {
             throw new IllegalArgumentException("word2 must be one of: packages, requests, accounts, deposits");
         }
         
-        return customerRepository.findCustomerDistribution(word1, word2);
+        return resultCache.get("customer-distribution",
+                () -> columnar.isActive()
+                        ? columnar.findCustomerDistribution(word1, word2)
+                        : customerRepository.findCustomerDistribution(word1, word2), word1, word2);
     }
 
     // Q14
@@ -205,7 +279,10 @@ public class Controller {
         // Calculate end date (1 month after start date)
         LocalDate endDate = startDate.plusMonths(1);
         
-        return lineItemRepository.calculatePromotionRevenue(startDate, endDate);
+        return resultCache.get("promotion-revenue",
+                () -> columnar.isActive()
+                        ? columnar.calculatePromotionRevenue(startDate, endDate)
+                        : lineItemRepository.calculatePromotionRevenue(startDate, endDate), startDate);
     }
 
 //    // Q15
@@ -231,6 +308,27 @@ public class Controller {
             @RequestParam(value = "brand") String brand,
             @RequestParam(value = "type") String type,
             @RequestParam(value = "sizes") List<Integer> sizes) {
+        validatePartSupplierParameters(brand, type, sizes);
+        
+        return resultCache.get("part-supplier-relationships",
+                () -> columnar.isActive()
+                        ? columnar.findPartSupplierRelationships(brand, type, sizes)
+                        : partSuppRepository.findPartSupplierRelationships(brand, type, sizes),
+                brand, type, ReportResultCache.normalized(sizes));
+    }
+
+    // Q16, rows written as they are read (stream=true); not cached
+    @GetMapping(value = "/part-supplier-relationships", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamPartSupplierRelationships(
+            @RequestParam(value = "brand") String brand,
+            @RequestParam(value = "type") String type,
+            @RequestParam(value = "sizes") List<Integer> sizes) {
+        validatePartSupplierParameters(brand, type, sizes);
+
+        return streamWriter.stream(() -> partSuppRepository.streamPartSupplierRelationships(brand, type, sizes));
+    }
+
+    private static void validatePartSupplierParameters(String brand, String type, List<Integer> sizes) {
         // Validate brand format (Brand#MN where M,N are 1-5)
         if (!brand.matches("Brand#[1-5][1-5]")) {
             throw new IllegalArgumentException("Brand must be in format Brand#MN where M,N are digits 1-5");
@@ -248,8 +346,6 @@ public class Controller {
             throw new IllegalArgumentException(
                 "Must provide 8 different sizes, each between 1 and 50");
         }
-        
-        return partSuppRepository.findPartSupplierRelationships(brand, type, sizes);
     }
 
     // Q17
@@ -273,7 +369,10 @@ public class Controller {
             throw new IllegalArgumentException("Invalid container type");
         }
         
-        return lineItemRepository.calculateSmallQuantityRevenue(brand, container);
+        return resultCache.get("small-quantity-revenue",
+                () -> columnar.isActive()
+                        ? columnar.calculateSmallQuantityRevenue(brand, container)
+                        : lineItemRepository.calculateSmallQuantityRevenue(brand, container), brand, container);
     }
 
 //    // Q18
@@ -323,10 +422,14 @@ public class Controller {
             throw new IllegalArgumentException("Quantity3 must be between 20 and 30");
         }
         
-        return lineItemRepository.calculateDiscountedRevenue(
-            brand1, brand2, brand3,
-            quantity1, quantity2, quantity3
-        );
+        return resultCache.get("discounted-revenue",
+            () -> columnar.isActive()
+                ? columnar.calculateDiscountedRevenue(brand1, brand2, brand3, quantity1, quantity2, quantity3)
+                : lineItemRepository.calculateDiscountedRevenue(
+                    brand1, brand2, brand3,
+                    quantity1, quantity2, quantity3
+                ),
+            brand1, brand2, brand3, quantity1, quantity2, quantity3);
     }
 
 //    // Q20
@@ -380,7 +483,10 @@ public class Controller {
         // Create Pageable for top 100 results
         Pageable topHundred = PageRequest.of(0, 100);
         
-        return supplierRepository.findSuppliersWhoKeptWaiting(nation, topHundred);
+        return resultCache.get("suppliers-kept-waiting",
+                () -> columnar.isActive()
+                        ? columnar.findSuppliersWhoKeptWaiting(nation, topHundred)
+                        : supplierRepository.findSuppliersWhoKeptWaiting(nation, topHundred), nation);
     }
 
     // Q22
@@ -406,6 +512,97 @@ public class Controller {
                 "Country codes must be unique");
         }
         
-        return customerRepository.findGlobalSalesOpportunities(countryCodes);
+        return resultCache.get("global-sales-opportunities",
+                () -> columnar.isActive()
+                        ? columnar.findGlobalSalesOpportunities(countryCodes)
+                        : customerRepository.findGlobalSalesOpportunities(countryCodes),
+                ReportResultCache.normalized(countryCodes));
+    }
+
+    // Result cache state with overall and per-endpoint hit/miss statistics
+    @GetMapping("/cache")
+    public Map<String, Object> getResultCacheStatistics() {
+        return resultCache.getStatistics();
+    }
+
+    // Enable or disable the result cache; it starts empty either way
+    @PutMapping("/cache")
+    public Map<String, Object> setResultCache(@RequestParam(value = "enabled") boolean enabled) {
+        resultCache.setEnabled(enabled);
+        return resultCache.getStatistics();
+    }
+
+    // Drop cached results of one endpoint (e.g. pricing-summary), or all of them
+    @DeleteMapping("/cache")
+    public Map<String, Object> invalidateResultCache(
+            @RequestParam(value = "endpoint", required = false) String endpoint) {
+        resultCache.invalidate(endpoint);
+        return resultCache.getStatistics();
+    }
+
+    // Whether Q1, Q4 and Q12 are answered from the daily rollups, with their row counts
+    @GetMapping("/rollups")
+    public Map<String, Object> getRollups() {
+        return rollups.getStatistics();
+    }
+
+    // Switch Q1, Q4 and Q12 between the rollups and the base tables
+    @PutMapping("/rollups")
+    public Map<String, Object> setRollups(@RequestParam(value = "enabled") boolean enabled) {
+        rollups.setEnabled(enabled);
+        return rollups.getStatistics();
+    }
+
+    // Recompute the rollups from the base tables, e.g. after reloading data
+    @PostMapping("/rollups/refresh")
+    public Map<String, Object> refreshRollups() {
+        rollups.refresh();
+        return rollups.getStatistics();
+    }
+
+    // Whether the reports are answered from the in-memory columns
+    @GetMapping("/columnar")
+    public Map<String, Object> getColumnar() {
+        return columnar.getStatistics();
+    }
+
+    // Switch the reports between the in-memory columns and the database; streamed reports always use the database
+    @PutMapping("/columnar")
+    public Map<String, Object> setColumnar(@RequestParam(value = "enabled") boolean enabled) {
+        columnar.setEnabled(enabled);
+        return columnar.getStatistics();
+    }
+
+    // Read the columns again, e.g. after reloading data
+    @PostMapping("/columnar/reload")
+    public Map<String, Object> reloadColumnar() {
+        columnar.reload();
+        return columnar.getStatistics();
+    }
+
+    // Compare the columnar results with the JPA queries for the TPC-H validation parameters
+    @GetMapping("/columnar/verify")
+    public Map<String, Object> verifyColumnar() {
+        return columnar.verify();
+    }
+
+    // Whether Q1 and Q6 run as concurrent slice queries, with their counts and mean time
+    @GetMapping("/partitioned")
+    public Map<String, Object> getPartitioned() {
+        return partitioned.getStatistics();
+    }
+
+    // Switch Q1 and Q6 between slice queries and a single query; resets the statistics
+    @PutMapping("/partitioned")
+    public ResponseEntity<Map<String, Object>> setPartitioned(
+            @RequestParam(value = "enabled") boolean enabled,
+            @RequestParam(value = "slices", required = false) Integer slices,
+            @RequestParam(value = "slicing", required = false) String slicing) {
+        try {
+            partitioned.configure(enabled, slices, slicing);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+        return ResponseEntity.ok(partitioned.getStatistics());
     }
 }
@@ -1,31 +0,0 @@
-package com.restq.api_http.Controllers.tpch;
-
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
-
-
-import java.time.Instant;
-import java.util.logging.Logger;
-
-@Component
-public class RequestLoggingInterceptor implements HandlerInterceptor {
-
-    private static final Logger logger = Logger.getLogger(RequestLoggingInterceptor.class.getName());
-
-    @Override
-    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
-        request.setAttribute("startTime", Instant.now());
-        logger.info("API call received at: " + Instant.now());
-        return true;
-    }
-
-    @Override
-    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
-        Instant startTime = (Instant) request.getAttribute("startTime");
-        Instant endTime = Instant.now();
-        long duration = endTime.toEpochMilli() - startTime.toEpochMilli();
-        logger.info("API response sent at: " + endTime + ", Duration: " + duration + " ms");
-    }
-}
\ No newline at end of file
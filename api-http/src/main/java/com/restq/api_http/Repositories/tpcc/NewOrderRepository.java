@@ -8,19 +8,22 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface NewOrderRepository extends JpaRepository<NewOrder, NewOrderId> {
 
-    // For Delivery transaction - find oldest new order for district
-    @Query("""
-        SELECT no FROM NewOrder no 
-        WHERE no.warehouseId = :warehouseId 
-        AND no.districtId = :districtId 
-        ORDER BY no.orderId ASC
-    """)
-    List<NewOrder> findOldestNewOrder(@Param("warehouseId") Integer warehouseId, @Param("districtId") Integer districtId);
+    // For Delivery transaction - lock the oldest new order for district. One row read off the
+    // primary key however long the queue is; a row another Delivery holds is skipped, not waited for
+    @Query(value = """
+        SELECT * FROM NEW_ORDER
+        WHERE NO_W_ID = :warehouseId
+        AND NO_D_ID = :districtId
+        ORDER BY NO_O_ID ASC
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+    """, nativeQuery = true)
+    Optional<NewOrder> findOldestNewOrder(@Param("warehouseId") Integer warehouseId, @Param("districtId") Integer districtId);
 
     // For Delivery transaction - delete new order after delivery
     @Modifying
@@ -0,0 +1,82 @@
+package com.restq.api_http.Repositories.tpcc;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based STOCK access for the batched New-Order path. Plain JDBC on the connection of the
+ * surrounding JPA transaction: one locking read for all items of a supply warehouse and one
+ * JDBC batch for the updates, instead of a SELECT and an UPDATE per order line.
+ */
+@Repository
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class StockBatchRepository {
+
+    private static final String UPDATE_STOCK = """
+        UPDATE STOCK SET
+        S_QUANTITY = ?,
+        S_YTD = S_YTD + ?,
+        S_ORDER_CNT = S_ORDER_CNT + 1,
+        S_REMOTE_CNT = S_REMOTE_CNT + ?
+        WHERE S_W_ID = ? AND S_I_ID = ?
+    """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Locks and returns the stock rows of the given items, keyed by item id. Rows are locked in
+     * item order so concurrent New-Orders touching the same items cannot deadlock.
+     */
+    public Map<Integer, StockRow> findForUpdate(Integer warehouseId, Collection<Integer> itemIds, Integer districtId) {
+        if (districtId < 1 || districtId > 10) {
+            throw new IllegalArgumentException("Invalid district id: " + districtId);
+        }
+        String sql = String.format("""
+            SELECT S_I_ID, S_QUANTITY, S_DIST_%02d
+            FROM STOCK WHERE S_W_ID = ? AND S_I_ID = ANY(?)
+            ORDER BY S_I_ID
+            FOR UPDATE
+        """, districtId);
+
+        Map<Integer, StockRow> rows = new HashMap<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            Array itemArray = connection.createArrayOf("integer", itemIds.toArray());
+            statement.setInt(1, warehouseId);
+            statement.setArray(2, itemArray);
+            return statement;
+        }, resultSet -> {
+            rows.put(resultSet.getInt(1), new StockRow(resultSet.getInt(2), resultSet.getString(3)));
+        });
+        return rows;
+    }
+
+    /** Each row is quantity, ytd increase, remote increase, warehouse id, item id */
+    public void updateStock(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate(UPDATE_STOCK, rows);
+    }
+
+    public static class StockRow {
+        private int quantity;
+        private final String distInfo;
+
+        public StockRow(int quantity, String distInfo) {
+            this.quantity = quantity;
+            this.distInfo = distInfo;
+        }
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+        public String getDistInfo() { return distInfo; }
+    }
+}
@@ -8,33 +8,36 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TpccOrderRepository extends JpaRepository<Order, OrderId> {
 
-    // For Order Status transaction - get latest order for customer
-    @Query("""
-        SELECT o FROM Order o 
-        WHERE o.warehouseId = :warehouseId 
-        AND o.districtId = :districtId 
-        AND o.customerId = :customerId 
-        ORDER BY o.orderId DESC
-    """)
-    List<Order> findLatestOrderByCustomer(@Param("warehouseId") Integer warehouseId, 
-                                         @Param("districtId") Integer districtId, 
-                                         @Param("customerId") Integer customerId);
+    // For Order Status transaction - get latest order for customer, one row however many
+    // orders the customer has placed during the run
+    @Query(value = """
+        SELECT * FROM OORDER
+        WHERE O_W_ID = :warehouseId
+        AND O_D_ID = :districtId
+        AND O_C_ID = :customerId
+        ORDER BY O_ID DESC
+        LIMIT 1
+    """, nativeQuery = true)
+    Optional<Order> findLatestOrderByCustomer(@Param("warehouseId") Integer warehouseId,
+                                             @Param("districtId") Integer districtId,
+                                             @Param("customerId") Integer customerId);
 
     // For Delivery transaction - get oldest undelivered order for district
-    @Query("""
-        SELECT o FROM Order o 
-        WHERE o.warehouseId = :warehouseId 
-        AND o.districtId = :districtId 
-        AND o.carrierId IS NULL 
-        ORDER BY o.orderId ASC
-    """)
-    List<Order> findOldestUndeliveredOrder(@Param("warehouseId") Integer warehouseId, 
-                                          @Param("districtId") Integer districtId);
+    @Query(value = """
+        SELECT * FROM OORDER
+        WHERE O_W_ID = :warehouseId
+        AND O_D_ID = :districtId
+        AND O_CARRIER_ID IS NULL
+        ORDER BY O_ID ASC
+        LIMIT 1
+    """, nativeQuery = true)
+    Optional<Order> findOldestUndeliveredOrder(@Param("warehouseId") Integer warehouseId,
+                                              @Param("districtId") Integer districtId);
 
     // For Delivery transaction - update order with carrier ID
     @Modifying
@@ -4,12 +4,17 @@ import com.restq.api_http.DTO.tpch.ImportantStockReport;
 import com.restq.api_http.DTO.tpch.PartSupplierReport;
 import com.restq.core.Models.tpch.PartSupp.PartSupp;
 import com.restq.core.Models.tpch.PartSupp.PartSuppId;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PartSuppRepository extends JpaRepository<PartSupp, PartSuppId> {
@@ -37,7 +42,7 @@ public interface PartSuppRepository extends JpaRepository<PartSupp, PartSuppId>
          @Param("nation") String nation,
          @Param("fraction") BigDecimal fraction);
 
-    @Query("""
+    String PART_SUPPLIER_RELATIONSHIPS_QUERY = """
         SELECT new com.restq.api_http.DTO.tpch.PartSupplierReport(
             p.brand,
             p.type,
@@ -56,10 +61,20 @@ public interface PartSuppRepository extends JpaRepository<PartSupp, PartSuppId>
         )
         GROUP BY p.brand, p.type, p.size
         ORDER BY COUNT(DISTINCT ps.supplier.supplierKey) DESC, p.brand ASC, p.type ASC, p.size ASC
-    """)
+    """;
+
+    @Query(PART_SUPPLIER_RELATIONSHIPS_QUERY)
     // Q16
     List<PartSupplierReport> findPartSupplierRelationships(
         @Param("brand") String brand,
         @Param("type") String type,
         @Param("sizes") List<Integer> sizes);
+
+    // Q16, read through a cursor; needs a surrounding transaction
+    @Query(PART_SUPPLIER_RELATIONSHIPS_QUERY)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    Stream<PartSupplierReport> streamPartSupplierRelationships(
+        @Param("brand") String brand,
+        @Param("type") String type,
+        @Param("sizes") List<Integer> sizes);
 } 
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.restq.api_http.Repositories.tpch;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Q1 and Q6 over one slice of LINEITEM at a time, returning partial sums and counts instead of
+ * the final report, so slices can run on separate connections and be merged exactly. A slice
+ * is either a range of heap blocks of one partition, read with a TID range scan and needing no
+ * index, or a range of ship dates, which only pays off with an index or BRIN on l_shipdate.
+ * An unpartitioned LINEITEM is its own single partition.
+ */
+@Repository
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class PartitionedLineItemRepository {
+
+    // Averages are left to the caller: an average of slice averages is not the average
+    private static final String PRICING_SUMMARY_PARTIAL = """
+        SELECT l_returnflag, l_linestatus,
+        SUM(l_quantity), SUM(l_extendedprice),
+        SUM(l_extendedprice * (1 - l_discount)),
+        SUM(l_extendedprice * (1 - l_discount) * (1 + l_tax)),
+        SUM(l_discount), COUNT(*)
+        FROM %s
+        WHERE l_shipdate <= ?
+        """;
+
+    // Same bounds as the JPA query: the discount is compared with double parameters
+    private static final String REVENUE_INCREASE_PARTIAL = """
+        SELECT SUM(l_extendedprice * l_discount)
+        FROM %s
+        WHERE l_shipdate >= ?
+        AND l_shipdate < ?
+        AND l_discount BETWEEN ? - 0.01 AND ? + 0.01
+        AND l_quantity < ?
+        """;
+
+    // pg_relation_size of a partitioned table is 0, so the leaves are sized one by one; a plain
+    // table is listed as its own leaf
+    private static final String PARTITION_BLOCKS = """
+        SELECT relid::regclass::text, pg_relation_size(relid) / current_setting('block_size')::bigint
+        FROM pg_partition_tree('lineitem')
+        WHERE isleaf
+        ORDER BY relid::regclass::text
+        """;
+
+    private static final String SHIP_DATE_RANGE = "SELECT MIN(l_shipdate), MAX(l_shipdate) FROM lineitem";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Part of LINEITEM read by one query; a null bound leaves that side open */
+    public record Slice(String table, boolean blocks, Object from, Object to) {
+
+        /** Blocks of one partition as returned by {@link #findPartitionBlocks()}, or of lineitem itself */
+        public static Slice blocks(String table, Long from, Long to) {
+            return new Slice(table, true, from == null ? null : "(" + from + ",0)", to == null ? null : "(" + to + ",0)");
+        }
+
+        public static Slice shipDates(LocalDate from, LocalDate to) {
+            return new Slice("lineitem", false, from == null ? null : Date.valueOf(from), to == null ? null : Date.valueOf(to));
+        }
+
+        String predicate() {
+            String column = blocks ? "ctid" : "l_shipdate";
+            String parameter = blocks ? "CAST(? AS tid)" : "?";
+            return (from == null ? "" : " AND " + column + " >= " + parameter)
+                    + (to == null ? "" : " AND " + column + " < " + parameter);
+        }
+
+        void addArguments(List<Object> arguments) {
+            if (from != null) {
+                arguments.add(from);
+            }
+            if (to != null) {
+                arguments.add(to);
+            }
+        }
+    }
+
+    /** A leaf of LINEITEM and its size in blocks */
+    public record Partition(String table, long blocks) {
+    }
+
+    /** Sums and count of one (returnflag, linestatus) group in one slice */
+    public record PricingSummaryPartial(String returnFlag, String lineStatus, BigDecimal sumQty,
+            BigDecimal sumBasePrice, BigDecimal sumDiscPrice, BigDecimal sumCharge, BigDecimal sumDisc,
+            long count) {
+
+        public PricingSummaryPartial plus(PricingSummaryPartial other) {
+            return new PricingSummaryPartial(returnFlag, lineStatus, sumQty.add(other.sumQty),
+                    sumBasePrice.add(other.sumBasePrice), sumDiscPrice.add(other.sumDiscPrice),
+                    sumCharge.add(other.sumCharge), sumDisc.add(other.sumDisc), count + other.count);
+        }
+    }
+
+    // Q1, one slice
+    public List<PricingSummaryPartial> getPricingSummaryPartial(LocalDate shipDate, Slice slice) {
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(Date.valueOf(shipDate));
+        slice.addArguments(arguments);
+        return jdbcTemplate.query(
+                PRICING_SUMMARY_PARTIAL.formatted(slice.table()) + slice.predicate() + " GROUP BY l_returnflag, l_linestatus",
+                (rs, rowNum) -> new PricingSummaryPartial(rs.getString(1), rs.getString(2),
+                        rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6),
+                        rs.getBigDecimal(7), rs.getLong(8)),
+                arguments.toArray());
+    }
+
+    // Q6, one slice; null when no line of the slice qualifies
+    public BigDecimal calculateRevenueIncreasePartial(LocalDate startDate, LocalDate endDate, Double discount,
+            Integer quantity, Slice slice) {
+        List<Object> arguments = new ArrayList<>(List.of(Date.valueOf(startDate), Date.valueOf(endDate),
+                discount, discount, quantity));
+        slice.addArguments(arguments);
+        return jdbcTemplate.queryForObject(REVENUE_INCREASE_PARTIAL.formatted(slice.table()) + slice.predicate(), BigDecimal.class,
+                arguments.toArray());
+    }
+
+    /** Current heap size in blocks of each LINEITEM partition, or of LINEITEM when it is not partitioned */
+    public List<Partition> findPartitionBlocks() {
+        return jdbcTemplate.query(PARTITION_BLOCKS, (rs, rowNum) -> new Partition(rs.getString(1), rs.getLong(2)));
+    }
+
+    /** First and last ship date, or null for an empty table */
+    public LocalDate[] findShipDateRange() {
+        return jdbcTemplate.queryForObject(SHIP_DATE_RANGE, (rs, rowNum) -> rs.getDate(1) == null ? null
+                : new LocalDate[] {rs.getDate(1).toLocalDate(), rs.getDate(2).toLocalDate()});
+    }
+}
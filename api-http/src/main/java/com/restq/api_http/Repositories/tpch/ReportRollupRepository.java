@@ -0,0 +1,88 @@
+package com.restq.api_http.Repositories.tpch;
+
+import com.restq.api_http.DTO.tpch.OrderPriorityCountInfo;
+import com.restq.api_http.DTO.tpch.PricingSummaryReport;
+import com.restq.api_http.DTO.tpch.ShippingModeReport;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Q1, Q4 and Q12 answered from the daily rollups in tpch-rollups.sql. Each query sums the rows
+ * of the days in range, a few thousand at most, and returns the same DTOs as the JPA queries
+ * over LINEITEM and ORDERS.
+ */
+@Repository
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class ReportRollupRepository {
+
+    // Averages from the summed sums and counts, exact where an average of daily averages would not be
+    private static final String PRICING_SUMMARY = """
+        SELECT l_returnflag, l_linestatus,
+        SUM(sum_qty), SUM(sum_base_price), SUM(sum_disc_price), SUM(sum_charge),
+        SUM(sum_qty) / SUM(count_order), SUM(sum_base_price) / SUM(count_order),
+        SUM(sum_disc) / SUM(count_order), SUM(count_order)
+        FROM restq_q1_daily
+        WHERE l_shipdate <= ?
+        GROUP BY l_returnflag, l_linestatus
+        ORDER BY l_returnflag, l_linestatus
+        """;
+
+    private static final String ORDER_PRIORITY_COUNT = """
+        SELECT o_orderpriority, SUM(order_count)
+        FROM restq_q4_daily
+        WHERE o_orderdate >= ? AND o_orderdate < ?
+        GROUP BY o_orderpriority
+        ORDER BY o_orderpriority
+        """;
+
+    private static final String SHIPPING_MODE_STATS = """
+        SELECT l_shipmode, SUM(high_line_count), SUM(low_line_count)
+        FROM restq_q12_daily
+        WHERE l_shipmode = ANY(?)
+        AND l_receiptdate >= ? AND l_receiptdate < ?
+        GROUP BY l_shipmode
+        ORDER BY l_shipmode
+        """;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Q1
+    public List<PricingSummaryReport> getPricingSummaryReport(LocalDate shipDate) {
+        return jdbcTemplate.query(PRICING_SUMMARY, (rs, rowNum) -> new PricingSummaryReport(
+                rs.getString(1), rs.getString(2),
+                rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6),
+                rs.getBigDecimal(7).doubleValue(), rs.getBigDecimal(8).doubleValue(),
+                rs.getBigDecimal(9).doubleValue(), rs.getLong(10)),
+                Date.valueOf(shipDate));
+    }
+
+    // Q4
+    public List<OrderPriorityCountInfo> findOrderPriorityCount(LocalDate date, LocalDate datePlus) {
+        return jdbcTemplate.query(ORDER_PRIORITY_COUNT,
+                (rs, rowNum) -> new OrderPriorityCountInfo(rs.getString(1), rs.getLong(2)),
+                Date.valueOf(date), Date.valueOf(datePlus));
+    }
+
+    // Q12
+    public List<ShippingModeReport> findShippingModeStats(List<String> shipModes, LocalDate startDate,
+            LocalDate endDate) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SHIPPING_MODE_STATS);
+            Array modes = connection.createArrayOf("varchar", shipModes.toArray());
+            statement.setArray(1, modes);
+            statement.setDate(2, Date.valueOf(startDate));
+            statement.setDate(3, Date.valueOf(endDate));
+            return statement;
+        }, (rs, rowNum) -> new ShippingModeReport(rs.getString(1), rs.getLong(2), rs.getLong(3)));
+    }
+}
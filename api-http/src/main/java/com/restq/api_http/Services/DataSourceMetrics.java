@@ -0,0 +1,255 @@
+package com.restq.api_http.Services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool and JDBC statement metrics of the API's Hikari pool. Hikari reports every
+ * connection checkout through {@link MetricsTrackerFactory}; statements are timed by wrapping
+ * the pool's physical connections (see DataSourceInstrumentation). A sampler thread snapshots
+ * active, idle and pending counts plus the acquire and statement time histograms of the last
+ * interval, stamped with the wall clock like the drivers' latency_intervals, so both timelines
+ * line up in the results. Totals since the last reset cover a whole run.
+ */
+@Service
+public class DataSourceMetrics implements MetricsTrackerFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceMetrics.class);
+
+    private static final long HIGHEST_TRACKABLE_NS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    @Value("${benchmark.datasource-metrics.enabled:false}")
+    private boolean enabled;
+
+    @Value("${benchmark.datasource-metrics.statements:false}")
+    private boolean statementsEnabled;
+
+    @Value("${benchmark.datasource-metrics.interval-ms:1000}")
+    private long intervalMs;
+
+    // One hour of samples at the default interval
+    @Value("${benchmark.datasource-metrics.retained-samples:3600}")
+    private int retainedSamples;
+
+    private final Recorder acquireRecorder = new Recorder(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+    private final Recorder statementRecorder = new Recorder(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    private final ArrayDeque<Map<String, Object>> samples = new ArrayDeque<>();
+    private Histogram acquireInterval;
+    private Histogram statementInterval;
+    private Histogram acquireTotal = newHistogram();
+    private Histogram statementTotal = newHistogram();
+    private long timeoutsReported;
+    private long connectionsCreatedReported;
+    private long resetTimestamp = System.currentTimeMillis();
+
+    private volatile HikariDataSource dataSource;
+    private ScheduledExecutorService sampler;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isStatementsEnabled() {
+        return enabled && statementsEnabled;
+    }
+
+    /** Called for the pool before it starts */
+    public void register(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Data source metrics disabled");
+            return;
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "datasource-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Data source metrics sampled every {} ms (statement timing {})",
+                intervalMs, statementsEnabled ? "on" : "off");
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireRecorder.recordValue(clamp(elapsedAcquiredNanos));
+            }
+
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public void recordStatement(long elapsedNanos) {
+        statementRecorder.recordValue(clamp(elapsedNanos));
+    }
+
+    synchronized void sample() {
+        try {
+            acquireInterval = acquireRecorder.getIntervalHistogram(acquireInterval);
+            statementInterval = statementRecorder.getIntervalHistogram(statementInterval);
+            acquireTotal.add(acquireInterval);
+            statementTotal.add(statementInterval);
+
+            Map<String, Object> sample = new LinkedHashMap<>();
+            sample.put("timestamp", System.currentTimeMillis());
+            putPool(sample);
+            long timeoutCount = timeouts.sum();
+            long createdCount = connectionsCreated.sum();
+            sample.put("timeouts", timeoutCount - timeoutsReported);
+            sample.put("connections_created", createdCount - connectionsCreatedReported);
+            timeoutsReported = timeoutCount;
+            connectionsCreatedReported = createdCount;
+            putInterval(sample, "acquire", acquireInterval);
+            if (isStatementsEnabled()) {
+                putInterval(sample, "statement", statementInterval);
+            }
+
+            samples.addLast(sample);
+            while (samples.size() > retainedSamples) {
+                samples.removeFirst();
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule
+            log.warn("Could not sample data source metrics: {}", e.getMessage());
+        }
+    }
+
+    /** Totals since the last reset and the samples taken at or after {@code since} (epoch ms) */
+    public synchronized Map<String, Object> getStatistics(long since) {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("statements_enabled", isStatementsEnabled());
+        statistics.put("interval_ms", intervalMs);
+        HikariDataSource pool = dataSource;
+        if (pool != null) {
+            statistics.put("pool_name", pool.getPoolName());
+            statistics.put("maximum_pool_size", pool.getMaximumPoolSize());
+            statistics.put("minimum_idle", pool.getMinimumIdle());
+            statistics.put("connection_timeout_ms", pool.getConnectionTimeout());
+        }
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("since", resetTimestamp);
+        totals.put("timeouts", timeoutsReported);
+        totals.put("connections_created", connectionsCreatedReported);
+        putDistribution(totals, "acquire", acquireTotal);
+        if (isStatementsEnabled()) {
+            putDistribution(totals, "statement", statementTotal);
+        }
+        statistics.put("totals", totals);
+
+        List<Map<String, Object>> window = new ArrayList<>();
+        for (Map<String, Object> sample : samples) {
+            if ((Long) sample.get("timestamp") >= since) {
+                window.add(sample);
+            }
+        }
+        statistics.put("samples", window);
+        return statistics;
+    }
+
+    /** Starts the totals over and drops the retained samples, e.g. before a run */
+    public synchronized void reset() {
+        // Whatever was recorded since the last sample belongs to before the reset
+        acquireInterval = acquireRecorder.getIntervalHistogram(acquireInterval);
+        statementInterval = statementRecorder.getIntervalHistogram(statementInterval);
+        acquireTotal = newHistogram();
+        statementTotal = newHistogram();
+        timeouts.reset();
+        connectionsCreated.reset();
+        timeoutsReported = 0;
+        connectionsCreatedReported = 0;
+        samples.clear();
+        resetTimestamp = System.currentTimeMillis();
+    }
+
+    private void putPool(Map<String, Object> sample) {
+        HikariDataSource pool = dataSource;
+        // Null until the first connection is requested
+        HikariPoolMXBean mxBean = pool == null ? null : pool.getHikariPoolMXBean();
+        if (mxBean != null) {
+            sample.put("active", mxBean.getActiveConnections());
+            sample.put("idle", mxBean.getIdleConnections());
+            sample.put("total", mxBean.getTotalConnections());
+            sample.put("pending", mxBean.getThreadsAwaitingConnection());
+        }
+    }
+
+    private static void putInterval(Map<String, Object> sample, String name, Histogram histogram) {
+        sample.put(name + "_count", histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            sample.put(name + "_median_ns", histogram.getValueAtPercentile(50));
+            sample.put(name + "_p99_ns", histogram.getValueAtPercentile(99));
+            sample.put(name + "_max_ns", histogram.getMaxValue());
+        }
+    }
+
+    private static void putDistribution(Map<String, Object> totals, String name, Histogram histogram) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            node.put("mean_ns", (long) histogram.getMean());
+            node.put("median_ns", histogram.getValueAtPercentile(50));
+            node.put("p95_ns", histogram.getValueAtPercentile(95));
+            node.put("p99_ns", histogram.getValueAtPercentile(99));
+            node.put("max_ns", histogram.getMaxValue());
+        }
+        totals.put(name, node);
+    }
+
+    private static Histogram newHistogram() {
+        return new Histogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+    }
+
+    private static long clamp(long nanos) {
+        return Math.max(1, Math.min(nanos, HIGHEST_TRACKABLE_NS));
+    }
+}
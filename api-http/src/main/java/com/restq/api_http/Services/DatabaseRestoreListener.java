@@ -0,0 +1,12 @@
+package com.restq.api_http.Services;
+
+/**
+ * A service that remembers objects it created in the benchmark database. A snapshot restore
+ * swaps the database under the running API, so what was created since the snapshot is gone;
+ * the snapshot endpoints call this afterwards so the service can create its objects again.
+ */
+public interface DatabaseRestoreListener {
+
+    /** Called after the database was restored or snapshotted, once pooled connections are replaced */
+    void databaseRestored();
+}
@@ -0,0 +1,121 @@
+package com.restq.api_http.Services;
+
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-side request metrics per endpoint: a latency histogram, request counts by status,
+ * error counts and the number of requests in flight. Recording a request costs a map lookup,
+ * a binary search over the bucket bounds and a few uncontended adds, so it can stay on during
+ * measured runs. Counters only grow; scrapers take rates and differences themselves.
+ * <p>
+ * The snapshot is rendered in the Prometheus text format, so a scraper running next to the
+ * benchmark lines server latencies up with the latencies the driver measured.
+ */
+@Service
+public class EndpointMetrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // Upper bucket bounds; TPC-C calls take a few ms, the heavier TPC-H reports seconds
+    private static final double[] BUCKET_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final long[] BUCKET_NANOS = Arrays.stream(BUCKET_SECONDS)
+            .mapToLong(seconds -> (long) (seconds * 1_000_000_000L))
+            .toArray();
+    private static final String[] BUCKET_LABELS = Arrays.stream(BUCKET_SECONDS)
+            .mapToObj(seconds -> "le=\"" + BigDecimal.valueOf(seconds).stripTrailingZeros().toPlainString() + "\"")
+            .toArray(String[]::new);
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /** Statistics of one method and route pattern, created on first use */
+    public Endpoint endpoint(String method, String pattern) {
+        return endpoints.computeIfAbsent(method + " " + pattern, key -> new Endpoint(method, pattern));
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+        Map<String, Endpoint> sorted = new TreeMap<>(endpoints);
+
+        out.append("# HELP restq_http_requests_in_flight Requests currently being handled.\n");
+        out.append("# TYPE restq_http_requests_in_flight gauge\n");
+        sorted.values().forEach(e -> sample(out, "restq_http_requests_in_flight", e.labels, null, e.inFlight.sum()));
+
+        out.append("# HELP restq_http_requests_total Completed requests by response status.\n");
+        out.append("# TYPE restq_http_requests_total counter\n");
+        sorted.values().forEach(e -> new TreeMap<>(e.statuses).forEach((status, count) ->
+                sample(out, "restq_http_requests_total", e.labels, "status=\"" + status + "\"", count.sum())));
+
+        out.append("# HELP restq_http_request_errors_total Requests answered with a 4xx or 5xx status or an exception.\n");
+        out.append("# TYPE restq_http_request_errors_total counter\n");
+        sorted.values().forEach(e -> sample(out, "restq_http_request_errors_total", e.labels, null, e.errors.sum()));
+
+        out.append("# HELP restq_http_request_duration_seconds Time from handler dispatch to request completion.\n");
+        out.append("# TYPE restq_http_request_duration_seconds histogram\n");
+        for (Endpoint e : sorted.values()) {
+            // The count is taken from the buckets so the series stays consistent while requests complete
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                cumulative += e.buckets[i].sum();
+                sample(out, "restq_http_request_duration_seconds_bucket", e.labels, BUCKET_LABELS[i], cumulative);
+            }
+            cumulative += e.buckets[BUCKET_SECONDS.length].sum();
+            sample(out, "restq_http_request_duration_seconds_bucket", e.labels, "le=\"+Inf\"", cumulative);
+            out.append("restq_http_request_duration_seconds_sum{").append(e.labels).append("} ")
+                    .append(e.durationNanos.sum() / 1e9).append('\n');
+            sample(out, "restq_http_request_duration_seconds_count", e.labels, null, cumulative);
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extraLabel, long value) {
+        out.append(name).append('{').append(labels);
+        if (extraLabel != null) {
+            out.append(',').append(extraLabel);
+        }
+        out.append("} ").append(value).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static final class Endpoint {
+        private final String labels;
+        private final LongAdder inFlight = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder durationNanos = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BUCKET_NANOS.length + 1]; // last one is +Inf
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private Endpoint(String method, String pattern) {
+            this.labels = "method=\"" + escape(method) + "\",endpoint=\"" + escape(pattern) + "\"";
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void started() {
+            inFlight.increment();
+        }
+
+        public void completed(long elapsedNanos, int status, boolean failed) {
+            inFlight.decrement();
+            int bucket = Arrays.binarySearch(BUCKET_NANOS, elapsedNanos);
+            buckets[bucket >= 0 ? bucket : -bucket - 1].increment();
+            durationNanos.add(elapsedNanos);
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+            if (failed || status >= 400) {
+                errors.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.restq.api_http.Services.tpcc;
+
+import com.restq.api_http.Services.tpcc.ServiceModels.*;
+import com.restq.core.Models.tpcc.Customer.Customer;
+import com.restq.core.Models.tpcc.District.District;
+import com.restq.core.Models.tpcc.Order.Order;
+import com.restq.core.Models.tpcc.OrderLine.OrderLine;
+import com.restq.core.Models.tpcc.Warehouse.Warehouse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The TPC-C transactions as prepared statements through JdbcTemplate. Statements follow the
+ * queries of the JPA TransactionService, so the difference between the two modes is mostly
+ * entity materialization, persistence context and dirty checking. Where the SQL differs:
+ * <ul>
+ * <li>New-Order always runs per row; benchmark.tpcc.new-order-mode and the reference data
+ * cache only apply to the JPA service.</li>
+ * <li>Rows are read as the columns the response needs, where JPA loads whole entities
+ * (Delivery, for instance, reads only O_C_ID of the delivered order).</li>
+ * <li>Orders, new orders, order lines and history are plain INSERTs; the JPA per-row path
+ * saves entities with assigned keys, which Hibernate merges with a SELECT first.</li>
+ * </ul>
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class JdbcTransactionService implements TpccTransactions {
+
+    private static final String CUSTOMER_COLUMNS = """
+        C_W_ID, C_D_ID, C_ID, C_FIRST, C_MIDDLE, C_LAST, C_CREDIT, C_DISCOUNT,
+        C_BALANCE, C_YTD_PAYMENT, C_PAYMENT_CNT
+    """;
+
+    private static final RowMapper<Customer> CUSTOMER_MAPPER = (rs, rowNum) -> {
+        Customer customer = new Customer();
+        customer.setWarehouseId(rs.getInt("C_W_ID"));
+        customer.setDistrictId(rs.getInt("C_D_ID"));
+        customer.setCustomerId(rs.getInt("C_ID"));
+        customer.setFirstName(rs.getString("C_FIRST"));
+        customer.setMiddleName(rs.getString("C_MIDDLE"));
+        customer.setLastName(rs.getString("C_LAST"));
+        customer.setCredit(rs.getString("C_CREDIT"));
+        customer.setDiscount(rs.getBigDecimal("C_DISCOUNT"));
+        customer.setBalance(rs.getBigDecimal("C_BALANCE"));
+        customer.setYearToDatePayment(rs.getBigDecimal("C_YTD_PAYMENT"));
+        customer.setPaymentCount(rs.getInt("C_PAYMENT_CNT"));
+        return customer;
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // New Order Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public NewOrderResult newOrderTransaction(NewOrderRequest request) {
+
+        // Get customer info
+        Map<String, Object> customerInfo = jdbcTemplate.queryForMap(
+            "SELECT C_DISCOUNT, C_LAST, C_CREDIT FROM CUSTOMER WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?",
+            request.getWarehouseId(), request.getDistrictId(), request.getCustomerId());
+        BigDecimal customerDiscount = (BigDecimal) customerInfo.get("c_discount");
+        String customerLastName = (String) customerInfo.get("c_last");
+        String customerCredit = (String) customerInfo.get("c_credit");
+
+        // Get warehouse tax
+        BigDecimal warehouseTax = jdbcTemplate.queryForObject(
+            "SELECT W_TAX FROM WAREHOUSE WHERE W_ID = ?", BigDecimal.class, request.getWarehouseId());
+
+        // Get district and increment next order ID
+        Map<String, Object> districtInfo = jdbcTemplate.queryForMap(
+            "SELECT D_NEXT_O_ID, D_TAX FROM DISTRICT WHERE D_W_ID = ? AND D_ID = ? FOR UPDATE",
+            request.getWarehouseId(), request.getDistrictId());
+        int nextOrderId = ((Number) districtInfo.get("d_next_o_id")).intValue();
+        BigDecimal districtTax = (BigDecimal) districtInfo.get("d_tax");
+        jdbcTemplate.update("UPDATE DISTRICT SET D_NEXT_O_ID = D_NEXT_O_ID + 1 WHERE D_W_ID = ? AND D_ID = ?",
+            request.getWarehouseId(), request.getDistrictId());
+
+        // Create order and new order
+        boolean allLocal = request.getOrderLines().stream()
+            .allMatch(ol -> ol.getSupplierWarehouseId().equals(request.getWarehouseId()));
+        jdbcTemplate.update("""
+            INSERT INTO OORDER (O_W_ID, O_D_ID, O_ID, O_C_ID, O_ENTRY_D, O_OL_CNT, O_ALL_LOCAL)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+        """, request.getWarehouseId(), request.getDistrictId(), nextOrderId, request.getCustomerId(),
+            Timestamp.valueOf(LocalDateTime.now()), request.getOrderLines().size(), allLocal ? 1 : 0);
+        jdbcTemplate.update("INSERT INTO NEW_ORDER (NO_W_ID, NO_D_ID, NO_O_ID) VALUES (?, ?, ?)",
+            request.getWarehouseId(), request.getDistrictId(), nextOrderId);
+
+        // Process order lines
+        List<OrderLineResult> orderLineResults = new ArrayList<>();
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        String distColumn = String.format("S_DIST_%02d", request.getDistrictId());
+
+        for (int i = 0; i < request.getOrderLines().size(); i++) {
+            OrderLineRequest olRequest = request.getOrderLines().get(i);
+
+            // Get item info, an unknown item rolls the whole order back
+            Map<String, Object> itemInfo = jdbcTemplate.queryForMap(
+                "SELECT I_PRICE, I_NAME FROM ITEM WHERE I_ID = ?", olRequest.getItemId());
+            BigDecimal itemPrice = (BigDecimal) itemInfo.get("i_price");
+            String itemName = (String) itemInfo.get("i_name");
+
+            // Get and update stock
+            Map<String, Object> stockInfo = jdbcTemplate.queryForMap(
+                "SELECT S_QUANTITY, " + distColumn + " AS DIST_INFO FROM STOCK WHERE S_I_ID = ? AND S_W_ID = ?",
+                olRequest.getItemId(), olRequest.getSupplierWarehouseId());
+            int stockQuantity = ((Number) stockInfo.get("s_quantity")).intValue();
+            String distInfo = (String) stockInfo.get("dist_info");
+
+            int newQuantity = stockQuantity >= olRequest.getQuantity() ?
+                stockQuantity - olRequest.getQuantity() :
+                stockQuantity + 91 - olRequest.getQuantity();
+
+            jdbcTemplate.update("""
+                UPDATE STOCK SET S_QUANTITY = ?, S_YTD = S_YTD + ?, S_ORDER_CNT = S_ORDER_CNT + 1,
+                S_REMOTE_CNT = S_REMOTE_CNT + ?
+                WHERE S_I_ID = ? AND S_W_ID = ?
+            """, newQuantity, olRequest.getQuantity(),
+                olRequest.getSupplierWarehouseId().equals(request.getWarehouseId()) ? 0 : 1,
+                olRequest.getItemId(), olRequest.getSupplierWarehouseId());
+
+            // Calculate line amount
+            BigDecimal lineAmount = itemPrice
+                .multiply(BigDecimal.valueOf(olRequest.getQuantity()))
+                .multiply(BigDecimal.ONE.subtract(customerDiscount))
+                .multiply(BigDecimal.ONE.add(warehouseTax).add(districtTax));
+            totalAmount = totalAmount.add(lineAmount);
+
+            // Create order line
+            jdbcTemplate.update("""
+                INSERT INTO ORDER_LINE (OL_W_ID, OL_D_ID, OL_O_ID, OL_NUMBER, OL_I_ID, OL_SUPPLY_W_ID,
+                OL_QUANTITY, OL_AMOUNT, OL_DIST_INFO)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """, request.getWarehouseId(), request.getDistrictId(), nextOrderId, i + 1, olRequest.getItemId(),
+                olRequest.getSupplierWarehouseId(), olRequest.getQuantity(), lineAmount, distInfo);
+
+            orderLineResults.add(new OrderLineResult(olRequest.getItemId(), itemName,
+                olRequest.getSupplierWarehouseId(), BigDecimal.valueOf(olRequest.getQuantity()),
+                itemPrice, lineAmount, newQuantity));
+        }
+
+        return new NewOrderResult(request.getWarehouseId(), request.getDistrictId(),
+            request.getCustomerId(), nextOrderId, LocalDateTime.now(), totalAmount,
+            customerLastName, customerCredit, customerDiscount, warehouseTax,
+            districtTax, orderLineResults);
+    }
+
+    // Payment Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public PaymentResult paymentTransaction(PaymentRequest request) {
+
+        // Update warehouse
+        jdbcTemplate.update("UPDATE WAREHOUSE SET W_YTD = W_YTD + ? WHERE W_ID = ?",
+            request.getPaymentAmount(), request.getWarehouseId());
+        Warehouse warehouse = jdbcTemplate.queryForObject(
+            "SELECT W_ID, W_NAME, W_STREET_1, W_STREET_2, W_CITY, W_STATE, W_ZIP FROM WAREHOUSE WHERE W_ID = ?",
+            (rs, rowNum) -> {
+                Warehouse w = new Warehouse();
+                w.setWarehouseId(rs.getInt("W_ID"));
+                w.setName(rs.getString("W_NAME"));
+                w.setStreet1(rs.getString("W_STREET_1"));
+                w.setStreet2(rs.getString("W_STREET_2"));
+                w.setCity(rs.getString("W_CITY"));
+                w.setState(rs.getString("W_STATE"));
+                w.setZip(rs.getString("W_ZIP"));
+                return w;
+            }, request.getWarehouseId());
+
+        // Update district
+        jdbcTemplate.update("UPDATE DISTRICT SET D_YTD = D_YTD + ? WHERE D_W_ID = ? AND D_ID = ?",
+            request.getPaymentAmount(), request.getWarehouseId(), request.getDistrictId());
+        District district = jdbcTemplate.queryForObject("""
+            SELECT D_W_ID, D_ID, D_NAME, D_STREET_1, D_STREET_2, D_CITY, D_STATE, D_ZIP
+            FROM DISTRICT WHERE D_W_ID = ? AND D_ID = ?
+        """, (rs, rowNum) -> {
+                District d = new District();
+                d.setWarehouseId(rs.getInt("D_W_ID"));
+                d.setDistrictId(rs.getInt("D_ID"));
+                d.setName(rs.getString("D_NAME"));
+                d.setStreet1(rs.getString("D_STREET_1"));
+                d.setStreet2(rs.getString("D_STREET_2"));
+                d.setCity(rs.getString("D_CITY"));
+                d.setState(rs.getString("D_STATE"));
+                d.setZip(rs.getString("D_ZIP"));
+                return d;
+            }, request.getWarehouseId(), request.getDistrictId());
+
+        // Get customer
+        Customer customer = findCustomer(request.getWarehouseId(), request.getDistrictId(),
+            request.getCustomerId(), request.getCustomerLastName());
+
+        // Update customer
+        BigDecimal newBalance = customer.getBalance().subtract(request.getPaymentAmount());
+        BigDecimal newYtdPayment = customer.getYearToDatePayment().add(request.getPaymentAmount());
+        int newPaymentCount = customer.getPaymentCount() + 1;
+
+        if ("BC".equals(customer.getCredit())) {
+            String oldData = jdbcTemplate.queryForObject(
+                "SELECT C_DATA FROM CUSTOMER WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?", String.class,
+                customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId());
+            String newData = String.format("%d %d %d %d %d %.2f | %s",
+                customer.getCustomerId(), customer.getDistrictId(), customer.getWarehouseId(),
+                request.getDistrictId(), request.getWarehouseId(), request.getPaymentAmount().doubleValue(),
+                oldData.length() > 450 ? oldData.substring(0, 450) : oldData);
+
+            jdbcTemplate.update("""
+                UPDATE CUSTOMER SET C_BALANCE = ?, C_YTD_PAYMENT = ?, C_PAYMENT_CNT = ?, C_DATA = ?
+                WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?
+            """, newBalance, newYtdPayment, newPaymentCount, newData,
+                customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId());
+        } else {
+            jdbcTemplate.update("""
+                UPDATE CUSTOMER SET C_BALANCE = ?, C_YTD_PAYMENT = ?, C_PAYMENT_CNT = ?
+                WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?
+            """, newBalance, newYtdPayment, newPaymentCount,
+                customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId());
+        }
+        // The response carries the balance after the payment, as in the other modes
+        customer.setBalance(newBalance);
+
+        // Create history
+        jdbcTemplate.update("""
+            INSERT INTO HISTORY (H_C_ID, H_C_D_ID, H_C_W_ID, H_D_ID, H_W_ID, H_DATE, H_AMOUNT, H_DATA)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+        """, customer.getCustomerId(), customer.getDistrictId(), customer.getWarehouseId(),
+            request.getDistrictId(), request.getWarehouseId(), Timestamp.valueOf(LocalDateTime.now()),
+            request.getPaymentAmount(), warehouse.getName() + "    " + district.getName());
+
+        return new PaymentResult(warehouse, district, customer, request.getPaymentAmount(), LocalDateTime.now());
+    }
+
+    // Order Status Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager", readOnly = true)
+    public OrderStatusResult orderStatusTransaction(OrderStatusRequest request) {
+
+        // Get customer
+        Customer customer = findCustomer(request.getWarehouseId(), request.getDistrictId(),
+            request.getCustomerId(), request.getCustomerLastName());
+
+        // Get latest order
+        List<Order> orders = jdbcTemplate.query("""
+            SELECT O_W_ID, O_D_ID, O_ID, O_C_ID, O_ENTRY_D, O_CARRIER_ID FROM OORDER
+            WHERE O_W_ID = ? AND O_D_ID = ? AND O_C_ID = ?
+            ORDER BY O_ID DESC LIMIT 1
+        """, (rs, rowNum) -> {
+                Order order = new Order();
+                order.setWarehouseId(rs.getInt("O_W_ID"));
+                order.setDistrictId(rs.getInt("O_D_ID"));
+                order.setOrderId(rs.getInt("O_ID"));
+                order.setCustomerId(rs.getInt("O_C_ID"));
+                order.setEntryDate(toLocalDateTime(rs.getTimestamp("O_ENTRY_D")));
+                order.setCarrierId((Integer) rs.getObject("O_CARRIER_ID"));
+                return order;
+            }, customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId());
+        if (orders.isEmpty()) {
+            throw new RuntimeException("No orders found");
+        }
+        Order latestOrder = orders.get(0);
+
+        // Get order lines
+        List<OrderLine> orderLines = jdbcTemplate.query("""
+            SELECT OL_NUMBER, OL_I_ID, OL_SUPPLY_W_ID, OL_QUANTITY, OL_AMOUNT, OL_DELIVERY_D FROM ORDER_LINE
+            WHERE OL_W_ID = ? AND OL_D_ID = ? AND OL_O_ID = ?
+            ORDER BY OL_NUMBER
+        """, (rs, rowNum) -> {
+                OrderLine orderLine = new OrderLine();
+                orderLine.setWarehouseId(latestOrder.getWarehouseId());
+                orderLine.setDistrictId(latestOrder.getDistrictId());
+                orderLine.setOrderId(latestOrder.getOrderId());
+                orderLine.setLineNumber(rs.getInt("OL_NUMBER"));
+                orderLine.setItemId(rs.getInt("OL_I_ID"));
+                orderLine.setSupplyWarehouseId(rs.getInt("OL_SUPPLY_W_ID"));
+                orderLine.setQuantity(rs.getBigDecimal("OL_QUANTITY"));
+                orderLine.setAmount(rs.getBigDecimal("OL_AMOUNT"));
+                orderLine.setDeliveryDate(toLocalDateTime(rs.getTimestamp("OL_DELIVERY_D")));
+                return orderLine;
+            }, latestOrder.getWarehouseId(), latestOrder.getDistrictId(), latestOrder.getOrderId());
+
+        return new OrderStatusResult(customer, latestOrder, orderLines);
+    }
+
+    // Delivery Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public DeliveryResult deliveryTransaction(DeliveryRequest request) {
+
+        List<DeliveredOrderInfo> deliveredOrders = new ArrayList<>();
+        List<Integer> skippedDistricts = new ArrayList<>();
+        LocalDateTime deliveryDate = LocalDateTime.now();
+
+        for (int districtId = 1; districtId <= 10; districtId++) {
+            List<Integer> newOrders = jdbcTemplate.queryForList("""
+                SELECT NO_O_ID FROM NEW_ORDER WHERE NO_W_ID = ? AND NO_D_ID = ?
+                ORDER BY NO_O_ID ASC LIMIT 1
+                FOR UPDATE SKIP LOCKED
+            """, Integer.class, request.getWarehouseId(), districtId);
+
+            if (newOrders.isEmpty()) {
+                skippedDistricts.add(districtId);
+                continue;
+            }
+
+            int orderId = newOrders.get(0);
+
+            jdbcTemplate.update("DELETE FROM NEW_ORDER WHERE NO_W_ID = ? AND NO_D_ID = ? AND NO_O_ID = ?",
+                request.getWarehouseId(), districtId, orderId);
+            jdbcTemplate.update("UPDATE OORDER SET O_CARRIER_ID = ? WHERE O_W_ID = ? AND O_D_ID = ? AND O_ID = ?",
+                request.getCarrierId(), request.getWarehouseId(), districtId, orderId);
+            jdbcTemplate.update("UPDATE ORDER_LINE SET OL_DELIVERY_D = ? WHERE OL_W_ID = ? AND OL_D_ID = ? AND OL_O_ID = ?",
+                Timestamp.valueOf(deliveryDate), request.getWarehouseId(), districtId, orderId);
+
+            BigDecimal totalAmount = jdbcTemplate.queryForObject(
+                "SELECT SUM(OL_AMOUNT) FROM ORDER_LINE WHERE OL_W_ID = ? AND OL_D_ID = ? AND OL_O_ID = ?",
+                BigDecimal.class, request.getWarehouseId(), districtId, orderId);
+
+            // The customer is the one who placed the delivered order
+            List<Integer> customerIds = jdbcTemplate.queryForList(
+                "SELECT O_C_ID FROM OORDER WHERE O_W_ID = ? AND O_D_ID = ? AND O_ID = ?",
+                Integer.class, request.getWarehouseId(), districtId, orderId);
+            if (!customerIds.isEmpty()) {
+                int customerId = customerIds.get(0);
+                jdbcTemplate.update("""
+                    UPDATE CUSTOMER SET C_BALANCE = C_BALANCE + ?, C_DELIVERY_CNT = C_DELIVERY_CNT + 1
+                    WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?
+                """, totalAmount, request.getWarehouseId(), districtId, customerId);
+                deliveredOrders.add(new DeliveredOrderInfo(districtId, orderId, customerId, totalAmount));
+            }
+        }
+
+        return new DeliveryResult(request.getWarehouseId(), request.getCarrierId(), deliveryDate, deliveredOrders, skippedDistricts);
+    }
+
+    // Stock Level Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager", readOnly = true)
+    public StockLevelResult stockLevelTransaction(StockLevelRequest request) {
+
+        int nextOrderId = jdbcTemplate.queryForObject(
+            "SELECT D_NEXT_O_ID FROM DISTRICT WHERE D_W_ID = ? AND D_ID = ?",
+            Integer.class, request.getWarehouseId(), request.getDistrictId());
+        int minOrderId = Math.max(1, nextOrderId - 20);
+
+        Long lowStockCount = jdbcTemplate.queryForObject("""
+            SELECT COUNT(DISTINCT S_I_ID) FROM STOCK
+            WHERE S_W_ID = ? AND S_QUANTITY < ?
+            AND S_I_ID IN (
+                SELECT DISTINCT OL_I_ID FROM ORDER_LINE
+                WHERE OL_W_ID = ? AND OL_D_ID = ? AND OL_O_ID >= ? AND OL_O_ID < ?
+            )
+        """, Long.class, request.getWarehouseId(), request.getThreshold(),
+            request.getWarehouseId(), request.getDistrictId(), minOrderId, nextOrderId);
+
+        return new StockLevelResult(request.getWarehouseId(), request.getDistrictId(), request.getThreshold(), lowStockCount);
+    }
+
+    private Customer findCustomer(Integer warehouseId, Integer districtId, Integer customerId, String lastName) {
+        if (customerId != null) {
+            return jdbcTemplate.queryForObject(
+                "SELECT " + CUSTOMER_COLUMNS + " FROM CUSTOMER WHERE C_W_ID = ? AND C_D_ID = ? AND C_ID = ?",
+                CUSTOMER_MAPPER, warehouseId, districtId, customerId);
+        }
+        List<Customer> customers = jdbcTemplate.query(
+            "SELECT " + CUSTOMER_COLUMNS + " FROM CUSTOMER WHERE C_W_ID = ? AND C_D_ID = ? AND C_LAST = ? ORDER BY C_FIRST",
+            CUSTOMER_MAPPER, warehouseId, districtId, lastName);
+        if (customers.isEmpty()) {
+            throw new RuntimeException("Customer not found");
+        }
+        return customers.get(customers.size() / 2);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,251 @@
+package com.restq.api_http.Services.tpcc;
+
+import com.restq.api_http.Services.DatabaseRestoreListener;
+import com.restq.api_http.Services.tpcc.ServiceModels.*;
+import com.restq.core.Models.tpcc.Customer.Customer;
+import com.restq.core.Models.tpcc.District.District;
+import com.restq.core.Models.tpcc.Order.Order;
+import com.restq.core.Models.tpcc.OrderLine.OrderLine;
+import com.restq.core.Models.tpcc.Warehouse.Warehouse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The TPC-C transactions as PL/pgSQL functions from tpcc-procedures.sql, one function call
+ * per transaction. The calls run under the plain JDBC transaction manager so they commit the
+ * same way whatever the pool's auto-commit setting is.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class ProcedureTransactionService implements TpccTransactions, DatabaseRestoreListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcedureTransactionService.class);
+
+    private static final String PROCEDURES_SCRIPT = "tpcc-procedures.sql";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean installed;
+
+    /** Creates or replaces the functions, done once before the procedure mode is first used */
+    public synchronized void installProcedures() {
+        if (installed) {
+            return;
+        }
+        try {
+            String script = new ClassPathResource(PROCEDURES_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+            // pgjdbc splits the script into its statements itself and honours dollar quoting,
+            // so the function bodies stay intact
+            jdbcTemplate.execute(script);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + PROCEDURES_SCRIPT, e);
+        }
+        installed = true;
+        log.info("Installed TPC-C stored procedures from {}", PROCEDURES_SCRIPT);
+    }
+
+    /** The restored database may predate the functions, so they are installed again if they were in use */
+    @Override
+    public synchronized void databaseRestored() {
+        if (installed) {
+            installed = false;
+            installProcedures();
+        }
+    }
+
+    // New Order Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public NewOrderResult newOrderTransaction(NewOrderRequest request) {
+        List<OrderLineRequest> olRequests = request.getOrderLines();
+        Integer[] itemIds = new Integer[olRequests.size()];
+        Integer[] supplyWarehouseIds = new Integer[olRequests.size()];
+        Integer[] quantities = new Integer[olRequests.size()];
+        for (int i = 0; i < olRequests.size(); i++) {
+            itemIds[i] = olRequests.get(i).getItemId();
+            supplyWarehouseIds[i] = olRequests.get(i).getSupplierWarehouseId();
+            quantities[i] = olRequests.get(i).getQuantity();
+        }
+
+        // Header columns repeat on every line row
+        Object[][] header = new Object[1][];
+        List<OrderLineResult> orderLineResults = new ArrayList<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                "SELECT * FROM restq_tpcc_new_order(?, ?, ?, ?, ?, ?)");
+            statement.setInt(1, request.getWarehouseId());
+            statement.setInt(2, request.getDistrictId());
+            statement.setInt(3, request.getCustomerId());
+            statement.setArray(4, integerArray(connection, itemIds));
+            statement.setArray(5, integerArray(connection, supplyWarehouseIds));
+            statement.setArray(6, integerArray(connection, quantities));
+            return statement;
+        }, rs -> {
+            if (header[0] == null) {
+                header[0] = new Object[] {rs.getInt("order_id"), rs.getString("customer_last"),
+                    rs.getString("customer_credit"), rs.getBigDecimal("customer_discount"),
+                    rs.getBigDecimal("warehouse_tax"), rs.getBigDecimal("district_tax")};
+            }
+            orderLineResults.add(new OrderLineResult(rs.getInt("item_id"), rs.getString("item_name"),
+                rs.getInt("supply_warehouse_id"), BigDecimal.valueOf(rs.getInt("line_quantity")),
+                rs.getBigDecimal("item_price"), rs.getBigDecimal("line_amount"), rs.getInt("stock_quantity")));
+        });
+        if (header[0] == null) {
+            throw new RuntimeException("New order returned no order lines");
+        }
+
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderLineResult orderLineResult : orderLineResults) {
+            totalAmount = totalAmount.add(orderLineResult.getLineAmount());
+        }
+
+        return new NewOrderResult(request.getWarehouseId(), request.getDistrictId(),
+            request.getCustomerId(), (Integer) header[0][0], LocalDateTime.now(), totalAmount,
+            (String) header[0][1], (String) header[0][2], (BigDecimal) header[0][3], (BigDecimal) header[0][4],
+            (BigDecimal) header[0][5], orderLineResults);
+    }
+
+    // Payment Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public PaymentResult paymentTransaction(PaymentRequest request) {
+        return jdbcTemplate.queryForObject("SELECT * FROM restq_tpcc_payment(?, ?, ?, ?, ?)", (rs, rowNum) -> {
+            Warehouse warehouse = new Warehouse();
+            warehouse.setWarehouseId(request.getWarehouseId());
+            warehouse.setName(rs.getString("warehouse_name"));
+            warehouse.setStreet1(rs.getString("warehouse_street_1"));
+            warehouse.setStreet2(rs.getString("warehouse_street_2"));
+            warehouse.setCity(rs.getString("warehouse_city"));
+            warehouse.setState(rs.getString("warehouse_state"));
+            warehouse.setZip(rs.getString("warehouse_zip"));
+
+            District district = new District();
+            district.setWarehouseId(request.getWarehouseId());
+            district.setDistrictId(request.getDistrictId());
+            district.setName(rs.getString("district_name"));
+            district.setStreet1(rs.getString("district_street_1"));
+            district.setStreet2(rs.getString("district_street_2"));
+            district.setCity(rs.getString("district_city"));
+            district.setState(rs.getString("district_state"));
+            district.setZip(rs.getString("district_zip"));
+
+            Customer customer = new Customer();
+            customer.setWarehouseId(request.getWarehouseId());
+            customer.setDistrictId(request.getDistrictId());
+            customer.setCustomerId(rs.getInt("customer_id"));
+            customer.setFirstName(rs.getString("customer_first"));
+            customer.setMiddleName(rs.getString("customer_middle"));
+            customer.setLastName(rs.getString("customer_last"));
+            customer.setBalance(rs.getBigDecimal("customer_balance"));
+            customer.setCredit(rs.getString("customer_credit"));
+
+            return new PaymentResult(warehouse, district, customer, request.getPaymentAmount(), LocalDateTime.now());
+        }, request.getWarehouseId(), request.getDistrictId(), request.getCustomerId(),
+            request.getCustomerLastName(), request.getPaymentAmount());
+    }
+
+    // Order Status Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager", readOnly = true)
+    public OrderStatusResult orderStatusTransaction(OrderStatusRequest request) {
+        Customer customer = new Customer();
+        Order order = new Order();
+        List<OrderLine> orderLines = new ArrayList<>();
+
+        jdbcTemplate.query("SELECT * FROM restq_tpcc_order_status(?, ?, ?, ?)", rs -> {
+            if (orderLines.isEmpty()) {
+                customer.setWarehouseId(request.getWarehouseId());
+                customer.setDistrictId(request.getDistrictId());
+                customer.setCustomerId(rs.getInt("customer_id"));
+                customer.setFirstName(rs.getString("customer_first"));
+                customer.setMiddleName(rs.getString("customer_middle"));
+                customer.setLastName(rs.getString("customer_last"));
+                customer.setBalance(rs.getBigDecimal("customer_balance"));
+
+                order.setWarehouseId(request.getWarehouseId());
+                order.setDistrictId(request.getDistrictId());
+                order.setOrderId(rs.getInt("order_id"));
+                order.setCustomerId(customer.getCustomerId());
+                order.setEntryDate(toLocalDateTime(rs.getTimestamp("order_entry_date")));
+                order.setCarrierId((Integer) rs.getObject("order_carrier_id"));
+            }
+            OrderLine orderLine = new OrderLine();
+            orderLine.setWarehouseId(request.getWarehouseId());
+            orderLine.setDistrictId(request.getDistrictId());
+            orderLine.setOrderId(order.getOrderId());
+            orderLine.setLineNumber(rs.getInt("line_number"));
+            orderLine.setItemId(rs.getInt("item_id"));
+            orderLine.setSupplyWarehouseId(rs.getInt("supply_warehouse_id"));
+            orderLine.setQuantity(rs.getBigDecimal("line_quantity"));
+            orderLine.setAmount(rs.getBigDecimal("line_amount"));
+            orderLine.setDeliveryDate(toLocalDateTime(rs.getTimestamp("line_delivery_date")));
+            orderLines.add(orderLine);
+        }, request.getWarehouseId(), request.getDistrictId(), request.getCustomerId(), request.getCustomerLastName());
+
+        if (orderLines.isEmpty()) {
+            throw new RuntimeException("No orders found");
+        }
+        return new OrderStatusResult(customer, order, orderLines);
+    }
+
+    // Delivery Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager")
+    public DeliveryResult deliveryTransaction(DeliveryRequest request) {
+        LocalDateTime deliveryDate = LocalDateTime.now();
+        List<DeliveredOrderInfo> deliveredOrders = jdbcTemplate.query(
+            "SELECT * FROM restq_tpcc_delivery(?, ?)",
+            (rs, rowNum) -> new DeliveredOrderInfo(rs.getInt("district_id"), rs.getInt("order_id"),
+                rs.getInt("customer_id"), rs.getBigDecimal("total_amount")),
+            request.getWarehouseId(), request.getCarrierId());
+
+        List<Integer> skippedDistricts = new ArrayList<>();
+        for (int districtId = 1; districtId <= 10; districtId++) {
+            int d = districtId;
+            if (deliveredOrders.stream().noneMatch(o -> o.getDistrictId() == d)) {
+                skippedDistricts.add(districtId);
+            }
+        }
+
+        return new DeliveryResult(request.getWarehouseId(), request.getCarrierId(), deliveryDate, deliveredOrders, skippedDistricts);
+    }
+
+    // Stock Level Transaction
+    @Override
+    @Transactional(transactionManager = "tpccJdbcTransactionManager", readOnly = true)
+    public StockLevelResult stockLevelTransaction(StockLevelRequest request) {
+        Long lowStockCount = jdbcTemplate.queryForObject("SELECT restq_tpcc_stock_level(?, ?, ?)", Long.class,
+            request.getWarehouseId(), request.getDistrictId(), request.getThreshold());
+
+        return new StockLevelResult(request.getWarehouseId(), request.getDistrictId(), request.getThreshold(), lowStockCount);
+    }
+
+    private static Array integerArray(Connection connection, Integer[] values) throws SQLException {
+        return connection.createArrayOf("integer", values);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
@@ -0,0 +1,128 @@
+package com.restq.api_http.Services.tpcc;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.restq.api_http.Repositories.tpcc.ItemRepository;
+import com.restq.api_http.Repositories.tpcc.WarehouseRepository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-process cache for TPC-C reference data that New-Order reads on every call:
+ * item price/name/data (ITEM never changes) and warehouse tax (no transaction updates it).
+ * When disabled every lookup goes straight to the repository, so cached and uncached
+ * runs can be compared on the same deployment.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class ReferenceDataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private WarehouseRepository warehouseRepository;
+
+    @Value("${benchmark.tpcc.reference-cache.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${benchmark.tpcc.reference-cache.item-max-size:100000}")
+    private long itemMaxSize;
+
+    @Value("${benchmark.tpcc.reference-cache.warehouse-max-size:1000}")
+    private long warehouseMaxSize;
+
+    // 0 keeps warehouse tax until evicted by size
+    @Value("${benchmark.tpcc.reference-cache.warehouse-expire-seconds:0}")
+    private long warehouseExpireSeconds;
+
+    private volatile Cache<Integer, Object[]> itemCache;
+    private volatile Cache<Integer, BigDecimal> warehouseTaxCache;
+
+    @PostConstruct
+    public void initialize() {
+        resetCaches();
+        log.info("TPC-C reference data cache {} (items: {}, warehouses: {})",
+                enabled ? "enabled" : "disabled", itemMaxSize, warehouseMaxSize);
+    }
+
+    // Same row as ItemRepository.getItemPriceNameData: price, name, data
+    public Object[] getItemPriceNameData(Integer itemId) {
+        if (!enabled) {
+            return itemRepository.getItemPriceNameData(itemId);
+        }
+        // Unknown items are not cached, New-Order's 1% invalid item rollbacks still hit the database
+        return itemCache.get(itemId, itemRepository::getItemPriceNameData);
+    }
+
+    public BigDecimal getWarehouseTax(Integer warehouseId) {
+        if (!enabled) {
+            return warehouseRepository.getWarehouseTax(warehouseId);
+        }
+        return warehouseTaxCache.get(warehouseId, warehouseRepository::getWarehouseTax);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch caching on or off between runs. Both caches start empty and with fresh
+     * statistics, so every run is measured from a cold cache.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        resetCaches();
+        log.info("TPC-C reference data cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("item", describe(itemCache, itemMaxSize));
+        statistics.put("warehouse_tax", describe(warehouseTaxCache, warehouseMaxSize));
+        return statistics;
+    }
+
+    private synchronized void resetCaches() {
+        itemCache = Caffeine.newBuilder()
+                .maximumSize(itemMaxSize)
+                .recordStats()
+                .build();
+
+        Caffeine<Object, Object> warehouseBuilder = Caffeine.newBuilder()
+                .maximumSize(warehouseMaxSize)
+                .recordStats();
+        if (warehouseExpireSeconds > 0) {
+            warehouseBuilder.expireAfterWrite(Duration.ofSeconds(warehouseExpireSeconds));
+        }
+        warehouseTaxCache = warehouseBuilder.build();
+    }
+
+    private static Map<String, Object> describe(Cache<?, ?> cache, long maxSize) {
+        CacheStats stats = cache.stats();
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("size", cache.estimatedSize());
+        node.put("max_size", maxSize);
+        node.put("hits", stats.hitCount());
+        node.put("misses", stats.missCount());
+        node.put("hit_ratio", stats.hitRate());
+        node.put("evictions", stats.evictionCount());
+        node.put("average_load_ns", stats.averageLoadPenalty());
+        return node;
+    }
+}
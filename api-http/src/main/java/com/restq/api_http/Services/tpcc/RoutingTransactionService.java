@@ -0,0 +1,93 @@
+package com.restq.api_http.Services.tpcc;
+
+import com.restq.api_http.Services.tpcc.ServiceModels.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Sends each TPC-C transaction to the implementation selected by
+ * benchmark.tpcc.transaction-mode, so the same /api/tpcc endpoints can be measured with
+ * JPA repositories, plain JDBC or stored procedures. The mode can be changed between runs.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class RoutingTransactionService implements TpccTransactions {
+
+    private static final Logger log = LoggerFactory.getLogger(RoutingTransactionService.class);
+
+    @Autowired
+    private TransactionService jpaTransactionService;
+
+    @Autowired
+    private JdbcTransactionService jdbcTransactionService;
+
+    @Autowired
+    private ProcedureTransactionService procedureTransactionService;
+
+    @Value("${benchmark.tpcc.transaction-mode:jpa}")
+    private String initialMode;
+
+    private volatile String mode;
+    private volatile TpccTransactions delegate;
+
+    @PostConstruct
+    public void initialize() {
+        setMode(initialMode);
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public synchronized void setMode(String mode) {
+        String normalized = mode == null || mode.isBlank() ? JPA : mode.trim().toLowerCase();
+        switch (normalized) {
+            case JPA:
+                delegate = jpaTransactionService;
+                break;
+            case JDBC:
+                delegate = jdbcTransactionService;
+                break;
+            case PROCEDURE:
+                procedureTransactionService.installProcedures();
+                delegate = procedureTransactionService;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown transaction mode: " + mode);
+        }
+        this.mode = normalized;
+        log.info("TPC-C transactions run in {} mode", normalized);
+    }
+
+    @Override
+    public NewOrderResult newOrderTransaction(NewOrderRequest request) {
+        return delegate.newOrderTransaction(request);
+    }
+
+    @Override
+    public PaymentResult paymentTransaction(PaymentRequest request) {
+        return delegate.paymentTransaction(request);
+    }
+
+    @Override
+    public OrderStatusResult orderStatusTransaction(OrderStatusRequest request) {
+        return delegate.orderStatusTransaction(request);
+    }
+
+    @Override
+    public DeliveryResult deliveryTransaction(DeliveryRequest request) {
+        return delegate.deliveryTransaction(request);
+    }
+
+    @Override
+    public StockLevelResult stockLevelTransaction(StockLevelRequest request) {
+        return delegate.stockLevelTransaction(request);
+    }
+}
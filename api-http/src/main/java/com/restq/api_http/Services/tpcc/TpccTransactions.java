@@ -0,0 +1,25 @@
+package com.restq.api_http.Services.tpcc;
+
+import com.restq.api_http.Services.tpcc.ServiceModels.*;
+
+/**
+ * The five TPC-C transactions as served by the /api/tpcc controller. Implementations differ
+ * only in how they reach the database: JPA repositories, plain JDBC, or PL/pgSQL functions.
+ */
+public interface TpccTransactions {
+
+    // Values accepted by benchmark.tpcc.transaction-mode
+    String JPA = "jpa";
+    String JDBC = "jdbc";
+    String PROCEDURE = "procedure";
+
+    NewOrderResult newOrderTransaction(NewOrderRequest request);
+
+    PaymentResult paymentTransaction(PaymentRequest request);
+
+    OrderStatusResult orderStatusTransaction(OrderStatusRequest request);
+
+    DeliveryResult deliveryTransaction(DeliveryRequest request);
+
+    StockLevelResult stockLevelTransaction(StockLevelRequest request);
+}
@@ -0,0 +1,201 @@
+package com.restq.api_http.Services.tpcc;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-phase timing of the TPC-C transactions. The controller opens a profile per request, the
+ * JPA transaction service marks the end of each phase (every phase is one or a few statements,
+ * so its time is mostly spent waiting on the database), and a transaction synchronization marks
+ * the commit. The controller's mark covers mapping the result to the response. Phase times go
+ * into histograms per transaction type and phase.
+ * <p>
+ * When disabled, a mark is a single volatile read. When enabled, the service flushes the
+ * persistence context explicitly before returning, so the ORM flush shows up as its own phase
+ * instead of inside the commit.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
+public class TransactionProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionProfiler.class);
+
+    // Transaction types, named like the driver's transaction_breakdown
+    public static final String NEW_ORDER = "NEW_ORDER";
+    public static final String PAYMENT = "PAYMENT";
+    public static final String ORDER_STATUS = "ORDER_STATUS";
+    public static final String DELIVERY = "DELIVERY";
+    public static final String STOCK_LEVEL = "STOCK_LEVEL";
+
+    // Phases marked outside the service methods
+    public static final String FLUSH = "flush";
+    public static final String COMMIT = "commit";
+    public static final String ROLLBACK = "rollback";
+    public static final String RESPONSE = "response";
+
+    // Two significant digits keep each histogram at a few tens of KB
+    private static final long HIGHEST_TRACKABLE_NS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    @Value("${benchmark.tpcc.profile.enabled:false}")
+    private volatile boolean enabled;
+
+    private final ThreadLocal<Profile> current = new ThreadLocal<>();
+    private volatile ConcurrentMap<String, TypeStatistics> statistics = new ConcurrentHashMap<>();
+
+    /** Starts profiling a request on this thread; null when profiling is off */
+    public Profile begin(String type) {
+        if (!enabled) {
+            return null;
+        }
+        Profile profile = new Profile(type);
+        current.set(profile);
+        return profile;
+    }
+
+    /** Ends the phase running on this thread; a no-op without a profile */
+    public void mark(String phase) {
+        if (!enabled) {
+            return;
+        }
+        Profile profile = current.get();
+        if (profile != null) {
+            profile.mark(phase);
+        }
+    }
+
+    public boolean isActive() {
+        return enabled && current.get() != null;
+    }
+
+    /** Marks the response phase and records the request's phases */
+    public void finish(Profile profile) {
+        if (profile == null) {
+            return;
+        }
+        current.remove();
+        profile.mark(RESPONSE);
+        TypeStatistics type = statistics.computeIfAbsent(profile.type, t -> new TypeStatistics());
+        type.total.recordValue(clamp(profile.lapNanos - profile.startNanos));
+        profile.phaseNanos.forEach((phase, nanos) -> type.phase(phase).recordValue(clamp(nanos)));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Switch profiling on or off between runs; histograms start over either way */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        this.statistics = new ConcurrentHashMap<>();
+        log.info("TPC-C transaction profiling {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        Map<String, Object> types = new LinkedHashMap<>();
+        for (String name : List.of(NEW_ORDER, PAYMENT, ORDER_STATUS, DELIVERY, STOCK_LEVEL)) {
+            TypeStatistics type = statistics.get(name);
+            if (type == null) {
+                continue;
+            }
+            Histogram total = type.total.copy();
+            double totalNanos = total.getMean() * total.getTotalCount();
+            Map<String, Object> typeNode = new LinkedHashMap<>();
+            typeNode.put("count", total.getTotalCount());
+            typeNode.put("total", describe(total));
+            Map<String, Object> phases = new LinkedHashMap<>();
+            for (String phase : type.order) {
+                Histogram histogram = type.phases.get(phase).copy();
+                Map<String, Object> phaseNode = describe(histogram);
+                // Share of all time spent in this transaction type; phases a request skipped count as 0
+                phaseNode.put("share", totalNanos > 0 ? histogram.getMean() * histogram.getTotalCount() / totalNanos : 0);
+                phases.put(phase, phaseNode);
+            }
+            typeNode.put("phases", phases);
+            types.put(name, typeNode);
+        }
+        result.put("transactions", types);
+        return result;
+    }
+
+    private static Map<String, Object> describe(Histogram histogram) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("count", histogram.getTotalCount());
+        node.put("mean_ns", (long) histogram.getMean());
+        node.put("median_ns", histogram.getValueAtPercentile(50));
+        node.put("p95_ns", histogram.getValueAtPercentile(95));
+        node.put("p99_ns", histogram.getValueAtPercentile(99));
+        node.put("max_ns", histogram.getMaxValue());
+        return node;
+    }
+
+    private static long clamp(long nanos) {
+        return Math.max(1, Math.min(nanos, HIGHEST_TRACKABLE_NS));
+    }
+
+    private static final class TypeStatistics {
+        private final ConcurrentHistogram total = new ConcurrentHistogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+        private final ConcurrentMap<String, ConcurrentHistogram> phases = new ConcurrentHashMap<>();
+        // Phases in the order requests first reached them
+        private final List<String> order = new CopyOnWriteArrayList<>();
+
+        private ConcurrentHistogram phase(String name) {
+            ConcurrentHistogram histogram = phases.get(name);
+            if (histogram != null) {
+                return histogram;
+            }
+            return phases.computeIfAbsent(name, n -> {
+                order.add(n);
+                return new ConcurrentHistogram(HIGHEST_TRACKABLE_NS, SIGNIFICANT_DIGITS);
+            });
+        }
+    }
+
+    /** Phase times of one request, owned by the request's thread */
+    public static final class Profile implements TransactionSynchronization {
+        private final String type;
+        private final long startNanos;
+        private long lapNanos;
+        private boolean synchronizationRegistered;
+        // Accumulated, so phases repeated in a loop (Delivery's districts) add up
+        private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+        private Profile(String type) {
+            this.type = type;
+            this.startNanos = System.nanoTime();
+            this.lapNanos = startNanos;
+        }
+
+        private void mark(String phase) {
+            long now = System.nanoTime();
+            phaseNanos.merge(phase, now - lapNanos, Long::sum);
+            lapNanos = now;
+            if (!synchronizationRegistered && TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(this);
+                synchronizationRegistered = true;
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            mark(status == STATUS_COMMITTED ? COMMIT : ROLLBACK);
+        }
+    }
+}
@@ -1,28 +1,40 @@
 package com.restq.api_http.Services.tpcc;
 
 import com.restq.api_http.Repositories.tpcc.*;
+import com.restq.api_http.Repositories.tpcc.StockBatchRepository.StockRow;
 import com.restq.api_http.Services.tpcc.ServiceModels.*;
 import com.restq.core.Models.tpcc.Customer.Customer;
 import com.restq.core.Models.tpcc.District.District;
 import com.restq.core.Models.tpcc.History.History;
 import com.restq.core.Models.tpcc.NewOrder.NewOrder;
 import com.restq.core.Models.tpcc.Order.Order;
+import com.restq.core.Models.tpcc.Order.OrderId;
 import com.restq.core.Models.tpcc.OrderLine.OrderLine;
 import com.restq.core.Models.tpcc.Warehouse.Warehouse;
 
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 @ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC")
-public class TransactionService {
+public class TransactionService implements TpccTransactions {
 
     @Autowired
     private WarehouseRepository warehouseRepository;
@@ -51,19 +63,44 @@ public class TransactionService {
     @Autowired
     private HistoryRepository historyRepository;
 
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private StockBatchRepository stockBatchRepository;
+
+    @Autowired
+    private TransactionProfiler profiler;
+
+    @PersistenceContext(unitName = "tpcc")
+    private EntityManager entityManager;
+
+    // Values accepted by benchmark.tpcc.new-order-mode
+    public static final String NEW_ORDER_PER_ROW = "per-row";
+    public static final String NEW_ORDER_BATCHED = "batched";
+
+    @Value("${benchmark.tpcc.new-order-mode:per-row}")
+    private String newOrderMode;
+
+    @Value("${benchmark.tpcc.new-order-batch-size:32}")
+    private int newOrderBatchSize;
+
     // New Order Transaction
     @Transactional
     public NewOrderResult newOrderTransaction(NewOrderRequest request) {
-        
+        profiler.mark("begin");
+
         // Get customer info
         Object[] customerInfo = customerRepository.getCustomerDiscountLastCredit(
             request.getWarehouseId(), request.getDistrictId(), request.getCustomerId());
         BigDecimal customerDiscount = (BigDecimal) customerInfo[0];
         String customerLastName = (String) customerInfo[1];
         String customerCredit = (String) customerInfo[2];
+        profiler.mark("customer");
 
         // Get warehouse tax
-        BigDecimal warehouseTax = warehouseRepository.getWarehouseTax(request.getWarehouseId());
+        BigDecimal warehouseTax = referenceDataCache.getWarehouseTax(request.getWarehouseId());
+        profiler.mark("warehouse_tax");
 
         // Get district and increment next order ID
         District district = districtRepository.findByWarehouseIdAndDistrictIdForUpdate(
@@ -71,6 +108,7 @@ public class TransactionService {
         int nextOrderId = district.getNextOrderId();
         BigDecimal districtTax = district.getTax();
         districtRepository.incrementNextOrderId(request.getWarehouseId(), request.getDistrictId());
+        profiler.mark("district");
 
         // Create order
         Order order = new Order();
@@ -82,24 +120,54 @@ public class TransactionService {
         order.setOrderLineCount(request.getOrderLines().size());
         order.setAllLocal(request.getOrderLines().stream()
             .allMatch(ol -> ol.getSupplierWarehouseId().equals(request.getWarehouseId())) ? 1 : 0);
-        orderRepository.save(order);
+        boolean batched = NEW_ORDER_BATCHED.equals(newOrderMode);
+        if (batched) {
+            // Fresh keys, persist inserts directly instead of merge's SELECT-then-INSERT
+            entityManager.persist(order);
+        } else {
+            orderRepository.save(order);
+        }
 
         // Create new order
         NewOrder newOrder = new NewOrder();
         newOrder.setWarehouseId(request.getWarehouseId());
         newOrder.setDistrictId(request.getDistrictId());
         newOrder.setOrderId(nextOrderId);
-        newOrderRepository.save(newOrder);
+        if (batched) {
+            entityManager.persist(newOrder);
+        } else {
+            newOrderRepository.save(newOrder);
+        }
+        profiler.mark("order_insert");
 
         // Process order lines
-        List<OrderLineResult> orderLineResults = new ArrayList<>();
+        List<OrderLineResult> orderLineResults = batched
+            ? processOrderLinesBatched(request, nextOrderId, customerDiscount, warehouseTax, districtTax)
+            : processOrderLines(request, nextOrderId, customerDiscount, warehouseTax, districtTax);
+        profiler.mark("order_lines");
+        flushForProfile();
+
         BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderLineResult orderLineResult : orderLineResults) {
+            totalAmount = totalAmount.add(orderLineResult.getLineAmount());
+        }
+
+        return new NewOrderResult(request.getWarehouseId(), request.getDistrictId(), 
+            request.getCustomerId(), nextOrderId, LocalDateTime.now(), totalAmount, 
+            customerLastName, customerCredit, customerDiscount, warehouseTax, 
+            districtTax, orderLineResults);
+    }
+
+    // One item, stock select and stock update per order line
+    private List<OrderLineResult> processOrderLines(NewOrderRequest request, int orderId,
+            BigDecimal customerDiscount, BigDecimal warehouseTax, BigDecimal districtTax) {
+        List<OrderLineResult> orderLineResults = new ArrayList<>();
 
         for (int i = 0; i < request.getOrderLines().size(); i++) {
             OrderLineRequest olRequest = request.getOrderLines().get(i);
             
             // Get item info
-            Object[] itemInfo = itemRepository.getItemPriceNameData(olRequest.getItemId());
+            Object[] itemInfo = referenceDataCache.getItemPriceNameData(olRequest.getItemId());
             BigDecimal itemPrice = (BigDecimal) itemInfo[0];
             String itemName = (String) itemInfo[1];
 
@@ -110,9 +178,7 @@ public class TransactionService {
             String distInfo = (String) stockInfo[request.getDistrictId() + 1];
 
             // Calculate new stock quantity
-            int newQuantity = stockQuantity >= olRequest.getQuantity() ? 
-                stockQuantity - olRequest.getQuantity() : 
-                stockQuantity + 91 - olRequest.getQuantity();
+            int newQuantity = newStockQuantity(stockQuantity, olRequest.getQuantity());
 
             // Update stock
             stockRepository.updateStock(olRequest.getItemId(), olRequest.getSupplierWarehouseId(), 
@@ -120,48 +186,135 @@ public class TransactionService {
                 olRequest.getSupplierWarehouseId().equals(request.getWarehouseId()) ? 0 : 1);
 
             // Calculate line amount
-            BigDecimal lineAmount = itemPrice
-                .multiply(BigDecimal.valueOf(olRequest.getQuantity()))
-                .multiply(BigDecimal.ONE.subtract(customerDiscount))
-                .multiply(BigDecimal.ONE.add(warehouseTax).add(districtTax));
-
-            totalAmount = totalAmount.add(lineAmount);
+            BigDecimal lineAmount = lineAmount(itemPrice, olRequest.getQuantity(),
+                customerDiscount, warehouseTax, districtTax);
 
             // Create order line
-            OrderLine orderLine = new OrderLine();
-            orderLine.setWarehouseId(request.getWarehouseId());
-            orderLine.setDistrictId(request.getDistrictId());
-            orderLine.setOrderId(nextOrderId);
-            orderLine.setLineNumber(i + 1);
-            orderLine.setItemId(olRequest.getItemId());
-            orderLine.setSupplyWarehouseId(olRequest.getSupplierWarehouseId());
-            orderLine.setQuantity(BigDecimal.valueOf(olRequest.getQuantity()));
-            orderLine.setAmount(lineAmount);
-            orderLine.setDistInfo(distInfo);
-            orderLineRepository.save(orderLine);
+            orderLineRepository.save(newOrderLine(request, orderId, i + 1, olRequest, lineAmount, distInfo));
 
             orderLineResults.add(new OrderLineResult(olRequest.getItemId(), itemName, 
                 olRequest.getSupplierWarehouseId(), BigDecimal.valueOf(olRequest.getQuantity()), 
                 itemPrice, lineAmount, newQuantity));
         }
+        return orderLineResults;
+    }
 
-        return new NewOrderResult(request.getWarehouseId(), request.getDistrictId(), 
-            request.getCustomerId(), nextOrderId, LocalDateTime.now(), totalAmount, 
-            customerLastName, customerCredit, customerDiscount, warehouseTax, 
-            districtTax, orderLineResults);
+    // One locking stock read per supply warehouse, one stock update batch and one order line insert batch
+    private List<OrderLineResult> processOrderLinesBatched(NewOrderRequest request, int orderId,
+            BigDecimal customerDiscount, BigDecimal warehouseTax, BigDecimal districtTax) {
+        List<OrderLineRequest> olRequests = request.getOrderLines();
+
+        // Items first, so an unknown item rolls back before any stock row is locked
+        Object[][] itemInfos = new Object[olRequests.size()][];
+        for (int i = 0; i < olRequests.size(); i++) {
+            itemInfos[i] = referenceDataCache.getItemPriceNameData(olRequests.get(i).getItemId());
+            if (itemInfos[i] == null) {
+                throw new RuntimeException("Item not found: " + olRequests.get(i).getItemId());
+            }
+        }
+
+        // Supply warehouses in ascending order, like the items within each of them
+        Map<Integer, Set<Integer>> itemsBySupplyWarehouse = new TreeMap<>();
+        for (OrderLineRequest olRequest : olRequests) {
+            itemsBySupplyWarehouse.computeIfAbsent(olRequest.getSupplierWarehouseId(), w -> new TreeSet<>())
+                .add(olRequest.getItemId());
+        }
+        Map<Integer, Map<Integer, StockRow>> stockBySupplyWarehouse = new HashMap<>();
+        for (Map.Entry<Integer, Set<Integer>> entry : itemsBySupplyWarehouse.entrySet()) {
+            stockBySupplyWarehouse.put(entry.getKey(),
+                stockBatchRepository.findForUpdate(entry.getKey(), entry.getValue(), request.getDistrictId()));
+        }
+
+        // Order, new order and order line inserts go out in JDBC batches at commit
+        entityManager.unwrap(Session.class).setJdbcBatchSize(newOrderBatchSize);
+
+        List<Object[]> stockUpdates = new ArrayList<>(olRequests.size());
+        List<OrderLineResult> orderLineResults = new ArrayList<>(olRequests.size());
+
+        for (int i = 0; i < olRequests.size(); i++) {
+            OrderLineRequest olRequest = olRequests.get(i);
+            BigDecimal itemPrice = (BigDecimal) itemInfos[i][0];
+            String itemName = (String) itemInfos[i][1];
+
+            StockRow stock = stockBySupplyWarehouse.get(olRequest.getSupplierWarehouseId()).get(olRequest.getItemId());
+            if (stock == null) {
+                throw new RuntimeException("Stock not found for item " + olRequest.getItemId()
+                    + " in warehouse " + olRequest.getSupplierWarehouseId());
+            }
+
+            // A repeated item sees the quantity left by its earlier line, as in the per-row path
+            int newQuantity = newStockQuantity(stock.getQuantity(), olRequest.getQuantity());
+            stock.setQuantity(newQuantity);
+            stockUpdates.add(new Object[] {newQuantity, olRequest.getQuantity(),
+                olRequest.getSupplierWarehouseId().equals(request.getWarehouseId()) ? 0 : 1,
+                olRequest.getSupplierWarehouseId(), olRequest.getItemId()});
+
+            BigDecimal lineAmount = lineAmount(itemPrice, olRequest.getQuantity(),
+                customerDiscount, warehouseTax, districtTax);
+
+            entityManager.persist(newOrderLine(request, orderId, i + 1, olRequest, lineAmount, stock.getDistInfo()));
+
+            orderLineResults.add(new OrderLineResult(olRequest.getItemId(), itemName, 
+                olRequest.getSupplierWarehouseId(), BigDecimal.valueOf(olRequest.getQuantity()), 
+                itemPrice, lineAmount, newQuantity));
+        }
+
+        stockBatchRepository.updateStock(stockUpdates);
+        return orderLineResults;
+    }
+
+    // Sends pending inserts now so the flush is timed apart from the commit; only while profiling
+    private void flushForProfile() {
+        if (profiler.isActive()) {
+            entityManager.flush();
+            profiler.mark(TransactionProfiler.FLUSH);
+        }
+    }
+
+    private static int newStockQuantity(int stockQuantity, int orderQuantity) {
+        return stockQuantity >= orderQuantity ? 
+            stockQuantity - orderQuantity : 
+            stockQuantity + 91 - orderQuantity;
+    }
+
+    /** Line amount with customer discount and taxes applied; public for the api-jmh harness */
+    public static BigDecimal lineAmount(BigDecimal itemPrice, int quantity, BigDecimal customerDiscount,
+            BigDecimal warehouseTax, BigDecimal districtTax) {
+        return itemPrice
+            .multiply(BigDecimal.valueOf(quantity))
+            .multiply(BigDecimal.ONE.subtract(customerDiscount))
+            .multiply(BigDecimal.ONE.add(warehouseTax).add(districtTax));
+    }
+
+    private static OrderLine newOrderLine(NewOrderRequest request, int orderId, int lineNumber,
+            OrderLineRequest olRequest, BigDecimal lineAmount, String distInfo) {
+        OrderLine orderLine = new OrderLine();
+        orderLine.setWarehouseId(request.getWarehouseId());
+        orderLine.setDistrictId(request.getDistrictId());
+        orderLine.setOrderId(orderId);
+        orderLine.setLineNumber(lineNumber);
+        orderLine.setItemId(olRequest.getItemId());
+        orderLine.setSupplyWarehouseId(olRequest.getSupplierWarehouseId());
+        orderLine.setQuantity(BigDecimal.valueOf(olRequest.getQuantity()));
+        orderLine.setAmount(lineAmount);
+        orderLine.setDistInfo(distInfo);
+        return orderLine;
     }
 
     // Payment Transaction
     @Transactional
     public PaymentResult paymentTransaction(PaymentRequest request) {
-        
+        profiler.mark("begin");
+
         // Update warehouse
         warehouseRepository.updateYearToDateBalance(request.getWarehouseId(), request.getPaymentAmount());
         Warehouse warehouse = warehouseRepository.findByWarehouseId(request.getWarehouseId());
+        profiler.mark("warehouse");
 
         // Update district
         districtRepository.updateYearToDateBalance(request.getWarehouseId(), request.getDistrictId(), request.getPaymentAmount());
         District district = districtRepository.findByWarehouseIdAndDistrictId(request.getWarehouseId(), request.getDistrictId());
+        profiler.mark("district");
 
         // Get customer
         Customer customer;
@@ -176,6 +329,7 @@ public class TransactionService {
             }
             customer = customers.get(customers.size() / 2);
         }
+        profiler.mark("customer");
 
         // Update customer
         BigDecimal newBalance = customer.getBalance().subtract(request.getPaymentAmount());
@@ -197,6 +351,11 @@ public class TransactionService {
             customerRepository.updateCustomerBalance(customer.getWarehouseId(), customer.getDistrictId(), 
                 customer.getCustomerId(), newBalance, newYtdPayment, newPaymentCount);
         }
+        // The bulk update bypassed the loaded entity; report the new balance like the other modes,
+        // detached first so dirty checking does not write the customer a second time
+        entityManager.detach(customer);
+        customer.setBalance(newBalance);
+        profiler.mark("customer_update");
 
         // Create history
         History history = new History();
@@ -209,6 +368,8 @@ public class TransactionService {
         history.setAmount(request.getPaymentAmount());
         history.setData(warehouse.getName() + "    " + district.getName());
         historyRepository.save(history);
+        profiler.mark("history_insert");
+        flushForProfile();
 
         return new PaymentResult(warehouse, district, customer, request.getPaymentAmount(), LocalDateTime.now());
     }
@@ -216,7 +377,8 @@ public class TransactionService {
     // Order Status Transaction
     @Transactional(readOnly = true)
     public OrderStatusResult orderStatusTransaction(OrderStatusRequest request) {
-        
+        profiler.mark("begin");
+
         // Get customer
         Customer customer;
         if (request.getCustomerId() != null) {
@@ -230,18 +392,18 @@ public class TransactionService {
             }
             customer = customers.get(customers.size() / 2);
         }
+        profiler.mark("customer");
 
         // Get latest order
-        List<Order> orders = orderRepository.findLatestOrderByCustomer(
-            customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId());
-        if (orders.isEmpty()) {
-            throw new RuntimeException("No orders found");
-        }
-        Order latestOrder = orders.get(0);
+        Order latestOrder = orderRepository.findLatestOrderByCustomer(
+            customer.getWarehouseId(), customer.getDistrictId(), customer.getCustomerId())
+            .orElseThrow(() -> new RuntimeException("No orders found"));
+        profiler.mark("order");
 
         // Get order lines
         List<OrderLine> orderLines = orderLineRepository.findByOrderIdOrderByLineNumber(
             latestOrder.getWarehouseId(), latestOrder.getDistrictId(), latestOrder.getOrderId());
+        profiler.mark("order_lines");
 
         return new OrderStatusResult(customer, latestOrder, orderLines);
     }
@@ -249,35 +411,41 @@ public class TransactionService {
     // Delivery Transaction
     @Transactional
     public DeliveryResult deliveryTransaction(DeliveryRequest request) {
-        
+        profiler.mark("begin");
+
         List<DeliveredOrderInfo> deliveredOrders = new ArrayList<>();
         List<Integer> skippedDistricts = new ArrayList<>();
         LocalDateTime deliveryDate = LocalDateTime.now();
 
         for (int districtId = 1; districtId <= 10; districtId++) {
-            List<NewOrder> newOrders = newOrderRepository.findOldestNewOrder(request.getWarehouseId(), districtId);
-            
-            if (newOrders.isEmpty()) {
+            Optional<NewOrder> oldestNewOrder = newOrderRepository.findOldestNewOrder(request.getWarehouseId(), districtId);
+            profiler.mark("find_new_order");
+
+            if (oldestNewOrder.isEmpty()) {
                 skippedDistricts.add(districtId);
                 continue;
             }
 
-            NewOrder oldestNewOrder = newOrders.get(0);
-            int orderId = oldestNewOrder.getOrderId();
+            int orderId = oldestNewOrder.get().getOrderId();
 
             newOrderRepository.deleteByWarehouseIdAndDistrictIdAndOrderId(request.getWarehouseId(), districtId, orderId);
             orderRepository.updateCarrierId(request.getWarehouseId(), districtId, orderId, request.getCarrierId());
             orderLineRepository.updateDeliveryDate(request.getWarehouseId(), districtId, orderId, deliveryDate);
+            profiler.mark("deliver");
 
             BigDecimal totalAmount = orderLineRepository.getTotalAmountForOrder(request.getWarehouseId(), districtId, orderId);
-            
-            List<Order> orders = orderRepository.findLatestOrderByCustomer(request.getWarehouseId(), districtId, orderId);
-            if (!orders.isEmpty()) {
-                Order order = orders.get(0);
+            profiler.mark("order_total");
+
+            // The customer is the one who placed the delivered order
+            Optional<Order> delivered = orderRepository.findById(new OrderId(request.getWarehouseId(), districtId, orderId));
+            if (delivered.isPresent()) {
+                Order order = delivered.get();
                 customerRepository.updateCustomerDelivery(request.getWarehouseId(), districtId, order.getCustomerId(), totalAmount);
                 deliveredOrders.add(new DeliveredOrderInfo(districtId, orderId, order.getCustomerId(), totalAmount));
             }
+            profiler.mark("customer_update");
         }
+        flushForProfile();
 
         return new DeliveryResult(request.getWarehouseId(), request.getCarrierId(), deliveryDate, deliveredOrders, skippedDistricts);
     }
@@ -285,12 +453,15 @@ public class TransactionService {
     // Stock Level Transaction
     @Transactional(readOnly = true)
     public StockLevelResult stockLevelTransaction(StockLevelRequest request) {
-        
+        profiler.mark("begin");
+
         District district = districtRepository.findByWarehouseIdAndDistrictId(request.getWarehouseId(), request.getDistrictId());
+        profiler.mark("district");
         int nextOrderId = district.getNextOrderId();
         int minOrderId = Math.max(1, nextOrderId - 20);
 
         Long lowStockCount = stockRepository.countLowStockItems(request.getWarehouseId(), request.getDistrictId(), minOrderId, nextOrderId, request.getThreshold());
+        profiler.mark("stock_count");
 
         return new StockLevelResult(request.getWarehouseId(), request.getDistrictId(), request.getThreshold(), lowStockCount);
     }
@@ -0,0 +1,1321 @@
+package com.restq.api_http.Services.tpch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.restq.api_http.DTO.tpch.CustomerDistributionReport;
+import com.restq.api_http.DTO.tpch.DiscountedRevenueReport;
+import com.restq.api_http.DTO.tpch.GlobalSalesOpportunityReport;
+import com.restq.api_http.DTO.tpch.ImportantStockReport;
+import com.restq.api_http.DTO.tpch.LocalSupplierVolume;
+import com.restq.api_http.DTO.tpch.MarketShareReport;
+import com.restq.api_http.DTO.tpch.OrderPriorityCountInfo;
+import com.restq.api_http.DTO.tpch.OrderRevenueInfo;
+import com.restq.api_http.DTO.tpch.PartSupplierReport;
+import com.restq.api_http.DTO.tpch.PricingSummaryReport;
+import com.restq.api_http.DTO.tpch.ProductProfitReport;
+import com.restq.api_http.DTO.tpch.PromotionRevenueReport;
+import com.restq.api_http.DTO.tpch.ReturnedItemReport;
+import com.restq.api_http.DTO.tpch.ShippingModeReport;
+import com.restq.api_http.DTO.tpch.SmallQuantityRevenueReport;
+import com.restq.api_http.DTO.tpch.SupplierPartInfo;
+import com.restq.api_http.DTO.tpch.SupplierWaitingReport;
+import com.restq.api_http.DTO.tpch.VolumeShippingOfNations;
+import com.restq.api_http.Repositories.tpch.CustomerRepository;
+import com.restq.api_http.Repositories.tpch.LineItemRepository;
+import com.restq.api_http.Repositories.tpch.NationRepository;
+import com.restq.api_http.Repositories.tpch.OrderRepository;
+import com.restq.api_http.Repositories.tpch.PartRepository;
+import com.restq.api_http.Repositories.tpch.PartSuppRepository;
+import com.restq.api_http.Repositories.tpch.SupplierRepository;
+import com.restq.api_http.Services.tpch.ColumnarTables.LikePattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Answers the TPC-H reports the API serves (Q1 to Q14, Q16, Q17, Q19, Q21 and Q22) in the API
+ * process instead of in PostgreSQL, to measure application-side analytics against pushing the
+ * query down. The eight tables are loaded once into the off-heap {@link ColumnarTables}; each
+ * report is a scan over fixed-size chunks of the columns run in parallel on a fork-join pool,
+ * with every chunk summing into its own primitive accumulators. Sums are kept in unscaled
+ * hundredths and merged exactly, and divisions round to the scale PostgreSQL picks, so the
+ * reports are the same DTOs with the same values and scales as the JPA queries. The columns
+ * are a snapshot: reload them after loading new data into the database.
+ * <p>
+ * Reports hold a read lock while they scan; releasing or reloading the columns takes the write
+ * lock, so the off-heap memory is never freed under a running scan.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class ColumnarReports {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarReports.class);
+
+    // Rows per task; also bounds the per-chunk long sums far below overflow
+    private static final int CHUNK_ROWS = 1 << 16;
+
+    private static final List<String> HIGH_PRIORITIES = List.of("1-URGENT", "2-HIGH");
+    private static final List<String> AIR_MODES = List.of("AIR", "AIR REG");
+    private static final String DELIVER_IN_PERSON = "DELIVER IN PERSON";
+    private static final List<String> SMALL_CONTAINERS = List.of("SM CASE", "SM BOX", "SM PACK", "SM PKG");
+    private static final List<String> MEDIUM_CONTAINERS = List.of("MED BAG", "MED BOX", "MED PKG", "MED PACK");
+    private static final List<String> LARGE_CONTAINERS = List.of("LG CASE", "LG BOX", "LG PACK", "LG PKG");
+    private static final LikePattern PROMOTION_TYPES = LikePattern.of("PROMO%");
+    private static final LikePattern COMPLAINTS = LikePattern.of("%Customer%Complaints%");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    @Qualifier("tpchTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private LineItemRepository lineItemRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PartRepository partRepository;
+
+    @Autowired
+    private PartSuppRepository partSuppRepository;
+
+    @Autowired
+    private SupplierRepository supplierRepository;
+
+    @Autowired
+    private NationRepository nationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${benchmark.tpch.columnar.enabled:false}")
+    private volatile boolean enabled;
+
+    // 0 uses one thread per available processor
+    @Value("${benchmark.tpch.columnar.parallelism:0}")
+    private int parallelism;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ForkJoinPool pool;
+    private volatile ColumnarTables tables;
+    private volatile long loadTimestamp;
+    private volatile long loadMs;
+
+    @PostConstruct
+    public void initialize() {
+        if (parallelism <= 0) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        pool = new ForkJoinPool(parallelism);
+        if (!enabled) {
+            log.info("TPC-H columnar reports disabled");
+            return;
+        }
+        try {
+            load();
+        } catch (DataAccessException e) {
+            // A missing or half-loaded database should not keep the API from starting
+            log.error("Could not load the TPC-H columns, reports use the database: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+        release();
+    }
+
+    /** Whether the covered reports should be answered from the columns */
+    public boolean isActive() {
+        return enabled && tables != null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Switch between runs; enabling loads the columns, disabling frees them */
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && tables == null) {
+            load();
+        }
+        this.enabled = enabled;
+        if (!enabled) {
+            release();
+        }
+        log.info("TPC-H columnar reports {}", enabled ? "enabled" : "disabled");
+    }
+
+    /** Reads the tables again, e.g. after reloading data */
+    public synchronized void reload() {
+        load();
+    }
+
+    public Map<String, Object> getStatistics() {
+        ColumnarTables current = tables;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("active", isActive());
+        statistics.put("parallelism", parallelism);
+        statistics.put("chunk_rows", CHUNK_ROWS);
+        if (current != null) {
+            statistics.put("load_timestamp", loadTimestamp);
+            statistics.put("load_ms", loadMs);
+            Map<String, Object> rows = new LinkedHashMap<>();
+            rows.put("region", current.regionNames.length);
+            rows.put("nation", current.nationNames.length);
+            rows.put("supplier", current.supplierCount);
+            rows.put("customer", current.customerCount);
+            rows.put("part", current.partCount);
+            rows.put("partsupp", current.partSuppCount);
+            rows.put("orders", current.orderCount);
+            rows.put("lineitem", current.lineCount);
+            statistics.put("rows", rows);
+            statistics.put("column_bytes", current.columnBytes());
+        }
+        return statistics;
+    }
+
+    private synchronized void load() {
+        long start = System.nanoTime();
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        // Free the old columns first so both copies are never held at once
+        release();
+        ColumnarTables loaded = snapshot.execute(status -> ColumnarTables.load(jdbcTemplate));
+        loadTimestamp = System.currentTimeMillis();
+        loadMs = (System.nanoTime() - start) / 1_000_000L;
+        tables = loaded;
+        log.info("TPC-H columns loaded in {} ms ({} line items, {} MB off-heap)", loadMs, loaded.lineCount,
+                loaded.columnBytes() >> 20);
+    }
+
+    // Waits for running reports, then frees the off-heap columns
+    private void release() {
+        lock.writeLock().lock();
+        try {
+            ColumnarTables current = tables;
+            tables = null;
+            if (current != null) {
+                current.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Q1
+    public List<PricingSummaryReport> getPricingSummaryReport(LocalDate shipDate) {
+        return read(t -> {
+            int bound = (int) shipDate.toEpochDay();
+            int statuses = t.lineStatuses.size();
+            int groups = t.returnFlags.size() * statuses;
+            // Per group: quantity, base price, discounted price, charge, discount, count
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[groups * 6];
+                for (int i = from; i < to; i++) {
+                    if (t.shipDate.get(i) <= bound) {
+                        int g = (t.returnFlag.get(i) * statuses + t.lineStatus.get(i)) * 6;
+                        long price = t.extendedPrice.get(i);
+                        int discount = t.discount.get(i);
+                        long discounted = price * (100 - discount);
+                        sums[g] += t.quantity.get(i);
+                        sums[g + 1] += price;
+                        sums[g + 2] += discounted;
+                        sums[g + 3] += discounted * (100 + t.tax.get(i));
+                        sums[g + 4] += discount;
+                        sums[g + 5]++;
+                    }
+                }
+                return sums;
+            }), groups * 6);
+
+            List<PricingSummaryReport> reports = new ArrayList<>();
+            for (int group = 0; group < groups; group++) {
+                int g = group * 6;
+                if (totals[g + 5].signum() == 0) {
+                    continue;
+                }
+                BigDecimal count = new BigDecimal(totals[g + 5]);
+                reports.add(new PricingSummaryReport(
+                        t.returnFlags.decode(group / statuses), t.lineStatuses.decode(group % statuses),
+                        new BigDecimal(totals[g], 2), new BigDecimal(totals[g + 1], 2),
+                        new BigDecimal(totals[g + 2], 4), new BigDecimal(totals[g + 3], 6),
+                        average(totals[g], count), average(totals[g + 1], count), average(totals[g + 4], count),
+                        totals[g + 5].longValueExact()));
+            }
+            reports.sort(Comparator.comparing(PricingSummaryReport::getReturnflag)
+                    .thenComparing(PricingSummaryReport::getLinestatus));
+            return reports;
+        });
+    }
+
+    // Q2
+    public List<SupplierPartInfo> findSupplierPartInfo(Integer size, String type, String region) {
+        return read(t -> {
+            int regionRow = t.region(region);
+            if (regionRow < 0) {
+                return List.<SupplierPartInfo>of();
+            }
+            boolean[] types = t.types.matching(LikePattern.of("%" + type));
+            // Part suppliers in the region with the lowest supply cost of their part
+            long[] cheapest = concat(scan(t.partCount, (from, to) -> {
+                LongBuffer rows = new LongBuffer();
+                for (int p = from; p < to; p++) {
+                    if (t.partSize.get(p) != size || !types[t.partType.get(p)]) {
+                        continue;
+                    }
+                    int minimum = Integer.MAX_VALUE;
+                    for (int ps = t.partSuppStart.get(p); ps < t.partSuppEnd.get(p); ps++) {
+                        if (inRegion(t, t.partSuppSupplier.get(ps), regionRow)) {
+                            minimum = Math.min(minimum, t.partSuppCost.get(ps));
+                        }
+                    }
+                    for (int ps = t.partSuppStart.get(p); ps < t.partSuppEnd.get(p); ps++) {
+                        if (inRegion(t, t.partSuppSupplier.get(ps), regionRow) && t.partSuppCost.get(ps) == minimum) {
+                            rows.add(ps);
+                        }
+                    }
+                }
+                return rows.toArray();
+            }));
+
+            Comparator<Integer> order = Comparator.<Integer>comparingLong(
+                            ps -> t.supplierBalance.get(t.partSuppSupplier.get(ps))).reversed()
+                    .thenComparing(ps -> t.nationNames[t.supplierNation.get(t.partSuppSupplier.get(ps))])
+                    .thenComparing(ps -> t.supplierName.get(t.partSuppSupplier.get(ps)))
+                    .thenComparingInt(ps -> t.partKey.get(t.partSuppPart.get(ps)));
+            return Arrays.stream(cheapest).mapToObj(ps -> (int) ps).sorted(order).limit(100)
+                    .map(ps -> {
+                        int s = t.partSuppSupplier.get(ps);
+                        int p = t.partSuppPart.get(ps);
+                        return new SupplierPartInfo(BigDecimal.valueOf(t.supplierBalance.get(s), 2),
+                                t.supplierName.get(s), t.nationNames[t.supplierNation.get(s)], t.partKey.get(p),
+                                t.manufacturers.decode(t.partManufacturer.get(p)), t.supplierAddress.get(s),
+                                t.supplierPhone.get(s), t.supplierComment.get(s));
+                    })
+                    .toList();
+        });
+    }
+
+    // Q3
+    public List<OrderRevenueInfo> findTopUnshippedOrders(String segment, LocalDate date) {
+        return read(t -> {
+            int segmentCode = t.segments.code(segment);
+            int day = (int) date.toEpochDay();
+            // Order and revenue of every order with an unshipped line
+            long[] revenues = concat(scan(t.orderCount, (from, to) -> {
+                LongBuffer orders = new LongBuffer();
+                for (int o = from; o < to; o++) {
+                    int c = t.orderCustomer.get(o);
+                    if (t.orderDate.get(o) >= day || c < 0 || t.customerSegment.get(c) != segmentCode) {
+                        continue;
+                    }
+                    long revenue = 0;
+                    boolean unshipped = false;
+                    for (int i = t.orderLineStart.get(o); i < t.orderLineEnd.get(o); i++) {
+                        if (t.shipDate.get(i) > day) {
+                            revenue += t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                            unshipped = true;
+                        }
+                    }
+                    if (unshipped) {
+                        orders.add(o);
+                        orders.add(revenue);
+                    }
+                }
+                return orders.toArray();
+            }));
+
+            List<Integer> pairs = new ArrayList<>();
+            for (int k = 0; k < revenues.length; k += 2) {
+                pairs.add(k);
+            }
+            pairs.sort(Comparator.<Integer>comparingLong(k -> revenues[k + 1]).reversed()
+                    .thenComparingInt(k -> t.orderDate.get((int) revenues[k])));
+            return pairs.stream().limit(10)
+                    .map(k -> {
+                        int o = (int) revenues[k];
+                        return new OrderRevenueInfo(t.orderKey.get(o), BigDecimal.valueOf(revenues[k + 1], 4),
+                                LocalDate.ofEpochDay(t.orderDate.get(o)), t.orderShipPriority.get(o));
+                    })
+                    .toList();
+        });
+    }
+
+    // Q4
+    public List<OrderPriorityCountInfo> findOrderPriorityCount(LocalDate date, LocalDate datePlus) {
+        return read(t -> {
+            int start = (int) date.toEpochDay();
+            int end = (int) datePlus.toEpochDay();
+            BigInteger[] totals = merge(scan(t.orderCount, (from, to) -> {
+                long[] counts = new long[t.priorities.size()];
+                for (int o = from; o < to; o++) {
+                    if (t.orderDate.get(o) >= start && t.orderDate.get(o) < end) {
+                        for (int i = t.orderLineStart.get(o); i < t.orderLineEnd.get(o); i++) {
+                            if (t.commitDate.get(i) < t.receiptDate.get(i)) {
+                                counts[t.orderPriority.get(o)]++;
+                                break;
+                            }
+                        }
+                    }
+                }
+                return counts;
+            }), t.priorities.size());
+
+            List<OrderPriorityCountInfo> reports = new ArrayList<>();
+            for (int priority = 0; priority < totals.length; priority++) {
+                if (totals[priority].signum() > 0) {
+                    reports.add(new OrderPriorityCountInfo(t.priorities.decode(priority), totals[priority].longValueExact()));
+                }
+            }
+            reports.sort(Comparator.comparing(OrderPriorityCountInfo::getOrderPriority));
+            return reports;
+        });
+    }
+
+    // Q5
+    public List<LocalSupplierVolume> findLocalSupplierVolume(String region, LocalDate startDate, LocalDate endDate) {
+        return read(t -> {
+            int regionRow = t.region(region);
+            if (regionRow < 0) {
+                return List.<LocalSupplierVolume>of();
+            }
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            int nations = t.nationNames.length;
+            // Per nation: revenue, count
+            BigInteger[] totals = merge(scan(t.orderCount, (from, to) -> {
+                long[] sums = new long[nations * 2];
+                for (int o = from; o < to; o++) {
+                    int c = t.orderCustomer.get(o);
+                    if (t.orderDate.get(o) < start || t.orderDate.get(o) >= end || c < 0) {
+                        continue;
+                    }
+                    int nation = t.customerNation.get(c);
+                    if (nation < 0 || t.nationRegion[nation] != regionRow) {
+                        continue;
+                    }
+                    for (int i = t.orderLineStart.get(o); i < t.orderLineEnd.get(o); i++) {
+                        int s = t.lineSupplier.get(i);
+                        if (s >= 0 && t.supplierNation.get(s) == nation) {
+                            sums[nation * 2] += t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                            sums[nation * 2 + 1]++;
+                        }
+                    }
+                }
+                return sums;
+            }), nations * 2);
+
+            List<Integer> matched = new ArrayList<>();
+            for (int nation = 0; nation < nations; nation++) {
+                if (totals[nation * 2 + 1].signum() > 0) {
+                    matched.add(nation);
+                }
+            }
+            matched.sort(Comparator.<Integer, BigInteger>comparing(nation -> totals[nation * 2]).reversed());
+            return matched.stream()
+                    .map(nation -> new LocalSupplierVolume(t.nationNames[nation], new BigDecimal(totals[nation * 2], 4)))
+                    .toList();
+        });
+    }
+
+    // Q6
+    public BigDecimal calculateRevenueIncrease(LocalDate startDate, LocalDate endDate, Double discount,
+            Integer quantity) {
+        return read(t -> {
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            // PostgreSQL compares the numeric discount with the double bounds as doubles; so does this
+            double low = discount - 0.01;
+            double high = discount + 0.01;
+            boolean[] discounts = new boolean[256];
+            for (int cents = 0; cents < discounts.length; cents++) {
+                discounts[cents] = cents / 100.0 >= low && cents / 100.0 <= high;
+            }
+            int quantityBound = quantity * 100;
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long revenue = 0;
+                long count = 0;
+                for (int i = from; i < to; i++) {
+                    if (t.shipDate.get(i) >= start && t.shipDate.get(i) < end && t.quantity.get(i) < quantityBound
+                            && discounts[t.discount.get(i)]) {
+                        revenue += t.extendedPrice.get(i) * t.discount.get(i);
+                        count++;
+                    }
+                }
+                return new long[] {revenue, count};
+            }), 2);
+            // SUM over no rows is null
+            return totals[1].signum() == 0 ? null : new BigDecimal(totals[0], 4);
+        });
+    }
+
+    // Q7
+    public List<VolumeShippingOfNations> getNationsVolumeShipping(String nation1, String nation2,
+            LocalDate startDate, LocalDate endDate) {
+        return read(t -> {
+            int[] nations = {t.nation(nation1), t.nation(nation2)};
+            if (nations[0] < 0 || nations[1] < 0) {
+                return List.<VolumeShippingOfNations>of();
+            }
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            int years = t.orderYears();
+            // Per direction (0 ships from nation1 to nation2, 1 the other way) and year: revenue, count
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[2 * years * 2];
+                for (int i = from; i < to; i++) {
+                    int o = t.lineOrder.get(i);
+                    int s = t.lineSupplier.get(i);
+                    if (t.shipDate.get(i) < start || t.shipDate.get(i) > end || o < 0 || s < 0
+                            || t.orderCustomer.get(o) < 0) {
+                        continue;
+                    }
+                    int supplierNation = t.supplierNation.get(s);
+                    int customerNation = t.customerNation.get(t.orderCustomer.get(o));
+                    int direction;
+                    if (supplierNation == nations[0] && customerNation == nations[1]) {
+                        direction = 0;
+                    } else if (supplierNation == nations[1] && customerNation == nations[0]) {
+                        direction = 1;
+                    } else {
+                        continue;
+                    }
+                    int g = (direction * years + t.orderYear(o)) * 2;
+                    sums[g] += t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                    sums[g + 1]++;
+                }
+                return sums;
+            }), 2 * years * 2);
+
+            List<Integer> matched = new ArrayList<>();
+            for (int group = 0; group < 2 * years; group++) {
+                if (totals[group * 2 + 1].signum() > 0) {
+                    matched.add(group);
+                }
+            }
+            Function<Integer, String> supplierNation = group -> t.nationNames[nations[group / years]];
+            Function<Integer, String> customerNation = group -> t.nationNames[nations[1 - group / years]];
+            matched.sort(Comparator.comparing(supplierNation).thenComparing(customerNation)
+                    .thenComparingInt(group -> group % years));
+            return matched.stream()
+                    .map(group -> new VolumeShippingOfNations(supplierNation.apply(group), customerNation.apply(group),
+                            t.firstOrderYear + group % years, new BigDecimal(totals[group * 2], 4)))
+                    .toList();
+        });
+    }
+
+    // Q8
+    public List<MarketShareReport> getMarketShare(String nation, String region, String type, LocalDate startDate,
+            LocalDate endDate) {
+        return read(t -> {
+            int nationRow = t.nation(nation);
+            int regionRow = t.region(region);
+            if (regionRow < 0) {
+                return List.<MarketShareReport>of();
+            }
+            int typeCode = t.types.code(type);
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            int years = t.orderYears();
+            // Per year: volume, count, volume of the nation, count of the nation
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[years * 4];
+                for (int i = from; i < to; i++) {
+                    int p = t.linePart.get(i);
+                    int o = t.lineOrder.get(i);
+                    int s = t.lineSupplier.get(i);
+                    if (p < 0 || t.partType.get(p) != typeCode || o < 0 || s < 0 || t.supplierNation.get(s) < 0
+                            || t.orderDate.get(o) < start || t.orderDate.get(o) > end) {
+                        continue;
+                    }
+                    int c = t.orderCustomer.get(o);
+                    if (c < 0 || t.customerNation.get(c) < 0 || t.nationRegion[t.customerNation.get(c)] != regionRow) {
+                        continue;
+                    }
+                    int g = t.orderYear(o) * 4;
+                    long volume = t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                    sums[g] += volume;
+                    sums[g + 1]++;
+                    if (t.supplierNation.get(s) == nationRow) {
+                        sums[g + 2] += volume;
+                        sums[g + 3]++;
+                    }
+                }
+                return sums;
+            }), years * 4);
+
+            List<MarketShareReport> reports = new ArrayList<>();
+            for (int year = 0; year < years; year++) {
+                if (totals[year * 4 + 1].signum() == 0) {
+                    continue;
+                }
+                // The ELSE 0 branch has scale 0, so the sum only has scale 4 when the nation contributed
+                BigDecimal nationVolume = new BigDecimal(totals[year * 4 + 2], totals[year * 4 + 3].signum() > 0 ? 4 : 0);
+                reports.add(new MarketShareReport(t.firstOrderYear + year,
+                        divide(nationVolume, new BigDecimal(totals[year * 4], 4))));
+            }
+            return reports;
+        });
+    }
+
+    // Q9
+    public List<ProductProfitReport> getProductTypeProfit(String color) {
+        return read(t -> {
+            LikePattern pattern = LikePattern.of("%" + color + "%");
+            boolean[] parts = new boolean[t.partCount];
+            scan(t.partCount, (from, to) -> {
+                for (int p = from; p < to; p++) {
+                    parts[p] = t.partName.like(p, pattern);
+                }
+                return new long[0];
+            });
+            int years = t.orderYears();
+            int nations = t.nationNames.length;
+            // Per nation and year: profit, count
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[nations * years * 2];
+                for (int i = from; i < to; i++) {
+                    int p = t.linePart.get(i);
+                    int o = t.lineOrder.get(i);
+                    int s = t.lineSupplier.get(i);
+                    if (p < 0 || !parts[p] || o < 0 || s < 0 || t.supplierNation.get(s) < 0) {
+                        continue;
+                    }
+                    int ps = t.partSuppStart.get(p);
+                    while (ps < t.partSuppEnd.get(p) && t.partSuppSupplier.get(ps) != s) {
+                        ps++;
+                    }
+                    if (ps == t.partSuppEnd.get(p)) {
+                        continue;
+                    }
+                    int g = (t.supplierNation.get(s) * years + t.orderYear(o)) * 2;
+                    sums[g] += t.extendedPrice.get(i) * (100 - t.discount.get(i))
+                            - (long) t.partSuppCost.get(ps) * t.quantity.get(i);
+                    sums[g + 1]++;
+                }
+                return sums;
+            }), nations * years * 2);
+
+            List<Integer> matched = new ArrayList<>();
+            for (int group = 0; group < nations * years; group++) {
+                if (totals[group * 2 + 1].signum() > 0) {
+                    matched.add(group);
+                }
+            }
+            matched.sort(Comparator.<Integer, String>comparing(group -> t.nationNames[group / years])
+                    .thenComparing(Comparator.<Integer>comparingInt(group -> group % years).reversed()));
+            return matched.stream()
+                    .map(group -> new ProductProfitReport(t.nationNames[group / years],
+                            t.firstOrderYear + group % years, new BigDecimal(totals[group * 2], 4)))
+                    .toList();
+        });
+    }
+
+    // Q10
+    public List<ReturnedItemReport> findTopReturnedItems(LocalDate startDate, LocalDate endDate) {
+        return read(t -> {
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            int returned = t.returnFlags.code("R");
+            // Customer and revenue of every order in the range with a returned line
+            long[] revenues = concat(scan(t.orderCount, (from, to) -> {
+                LongBuffer orders = new LongBuffer();
+                for (int o = from; o < to; o++) {
+                    int c = t.orderCustomer.get(o);
+                    if (t.orderDate.get(o) < start || t.orderDate.get(o) >= end || c < 0 || t.customerNation.get(c) < 0) {
+                        continue;
+                    }
+                    long revenue = 0;
+                    boolean any = false;
+                    for (int i = t.orderLineStart.get(o); i < t.orderLineEnd.get(o); i++) {
+                        if (t.returnFlag.get(i) == returned) {
+                            revenue += t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                            any = true;
+                        }
+                    }
+                    if (any) {
+                        orders.add(c);
+                        orders.add(revenue);
+                    }
+                }
+                return orders.toArray();
+            }));
+
+            long[] customerRevenue = new long[t.customerCount];
+            boolean[] customers = new boolean[t.customerCount];
+            for (int k = 0; k < revenues.length; k += 2) {
+                customerRevenue[(int) revenues[k]] += revenues[k + 1];
+                customers[(int) revenues[k]] = true;
+            }
+            List<Integer> matched = new ArrayList<>();
+            for (int c = 0; c < customers.length; c++) {
+                if (customers[c]) {
+                    matched.add(c);
+                }
+            }
+            matched.sort(Comparator.<Integer>comparingLong(c -> customerRevenue[c]).reversed());
+            return matched.stream().limit(20)
+                    .map(c -> new ReturnedItemReport(t.customerKey.get(c), t.customerName.get(c),
+                            BigDecimal.valueOf(customerRevenue[c], 4), BigDecimal.valueOf(t.customerBalance.get(c), 2),
+                            t.nationNames[t.customerNation.get(c)], t.customerAddress.get(c), t.customerPhone.get(c),
+                            t.customerComment.get(c)))
+                    .toList();
+        });
+    }
+
+    // Q11
+    public List<ImportantStockReport> findImportantStock(String nation, BigDecimal fraction) {
+        return read(t -> {
+            int nationRow = t.nation(nation);
+            if (nationRow < 0) {
+                return List.<ImportantStockReport>of();
+            }
+            // Part and stock value of every part with a supplier in the nation
+            long[] values = concat(scan(t.partCount, (from, to) -> {
+                LongBuffer parts = new LongBuffer();
+                for (int p = from; p < to; p++) {
+                    long value = 0;
+                    boolean any = false;
+                    for (int ps = t.partSuppStart.get(p); ps < t.partSuppEnd.get(p); ps++) {
+                        int s = t.partSuppSupplier.get(ps);
+                        if (s >= 0 && t.supplierNation.get(s) == nationRow) {
+                            value += (long) t.partSuppCost.get(ps) * t.partSuppAvailable.get(ps);
+                            any = true;
+                        }
+                    }
+                    if (any) {
+                        parts.add(p);
+                        parts.add(value);
+                    }
+                }
+                return parts.toArray();
+            }));
+            if (values.length == 0) {
+                return List.<ImportantStockReport>of();
+            }
+
+            BigInteger total = BigInteger.ZERO;
+            for (int k = 1; k < values.length; k += 2) {
+                total = total.add(BigInteger.valueOf(values[k]));
+            }
+            // numeric * double is a double in PostgreSQL, and the HAVING comparison is made in doubles too
+            double threshold = new BigDecimal(total, 2).doubleValue() * fraction.doubleValue();
+            List<Integer> matched = new ArrayList<>();
+            for (int k = 0; k < values.length; k += 2) {
+                if (BigDecimal.valueOf(values[k + 1], 2).doubleValue() > threshold) {
+                    matched.add(k);
+                }
+            }
+            matched.sort(Comparator.<Integer>comparingLong(k -> values[k + 1]).reversed());
+            return matched.stream()
+                    .map(k -> new ImportantStockReport(t.partKey.get((int) values[k]), BigDecimal.valueOf(values[k + 1], 2)))
+                    .toList();
+        });
+    }
+
+    // Q12
+    public List<ShippingModeReport> findShippingModeStats(List<String> shipModes, LocalDate startDate,
+            LocalDate endDate) {
+        return read(t -> {
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            boolean[] modes = t.shipModes.matching(shipModes);
+            boolean[] high = t.priorities.matching(HIGH_PRIORITIES);
+            // Per mode: high, low
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] counts = new long[modes.length * 2];
+                for (int i = from; i < to; i++) {
+                    int mode = t.shipMode.get(i);
+                    if (modes[mode] && t.commitDate.get(i) < t.receiptDate.get(i) && t.shipDate.get(i) < t.commitDate.get(i)
+                            && t.receiptDate.get(i) >= start && t.receiptDate.get(i) < end && t.lineOrder.get(i) >= 0) {
+                        counts[mode * 2 + (high[t.orderPriority.get(t.lineOrder.get(i))] ? 0 : 1)]++;
+                    }
+                }
+                return counts;
+            }), modes.length * 2);
+
+            List<Integer> matched = new ArrayList<>();
+            for (int mode = 0; mode < modes.length; mode++) {
+                if (totals[mode * 2].signum() > 0 || totals[mode * 2 + 1].signum() > 0) {
+                    matched.add(mode);
+                }
+            }
+            matched.sort(Comparator.comparing(t.shipModes::decode));
+            return matched.stream()
+                    .map(mode -> new ShippingModeReport(t.shipModes.decode(mode),
+                            totals[mode * 2].longValueExact(), totals[mode * 2 + 1].longValueExact()))
+                    .toList();
+        });
+    }
+
+    // Q13
+    public List<CustomerDistributionReport> findCustomerDistribution(String word1, String word2) {
+        return read(t -> {
+            LikePattern pattern = LikePattern.of("%" + word1 + "%" + word2 + "%");
+            // Customer of every order whose comment does not match
+            long[] counted = concat(scan(t.orderCount, (from, to) -> {
+                LongBuffer customers = new LongBuffer();
+                for (int o = from; o < to; o++) {
+                    if (t.orderCustomer.get(o) >= 0 && !t.orderComment.like(o, pattern)) {
+                        customers.add(t.orderCustomer.get(o));
+                    }
+                }
+                return customers.toArray();
+            }));
+
+            int[] orders = new int[t.customerCount];
+            for (long c : counted) {
+                orders[(int) c]++;
+            }
+            // Order count, then customer key, both descending
+            long[] keys = new long[t.customerCount];
+            for (int c = 0; c < keys.length; c++) {
+                keys[c] = (long) orders[c] << 32 | t.customerKey.get(c);
+            }
+            Arrays.sort(keys);
+            List<CustomerDistributionReport> reports = new ArrayList<>(keys.length);
+            for (int k = keys.length - 1; k >= 0; k--) {
+                reports.add(new CustomerDistributionReport(keys[k] >>> 32, 1L));
+            }
+            return reports;
+        });
+    }
+
+    // Q14
+    public PromotionRevenueReport calculatePromotionRevenue(LocalDate startDate, LocalDate endDate) {
+        return read(t -> {
+            int start = (int) startDate.toEpochDay();
+            int end = (int) endDate.toEpochDay();
+            boolean[] promotions = t.types.matching(PROMOTION_TYPES);
+            // Revenue, count, promotion revenue, promotion count
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[4];
+                for (int i = from; i < to; i++) {
+                    int p = t.linePart.get(i);
+                    if (p < 0 || t.shipDate.get(i) < start || t.shipDate.get(i) >= end) {
+                        continue;
+                    }
+                    long revenue = t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                    sums[0] += revenue;
+                    sums[1]++;
+                    if (promotions[t.partType.get(p)]) {
+                        sums[2] += revenue;
+                        sums[3]++;
+                    }
+                }
+                return sums;
+            }), 4);
+            if (totals[1].signum() == 0) {
+                return new PromotionRevenueReport(null);
+            }
+            BigDecimal promotion = new BigDecimal(totals[2].multiply(BigInteger.valueOf(100)), totals[3].signum() > 0 ? 4 : 0);
+            return new PromotionRevenueReport(divide(promotion, new BigDecimal(totals[0], 4)));
+        });
+    }
+
+    // Q16
+    public List<PartSupplierReport> findPartSupplierRelationships(String brand, String type, List<Integer> sizes) {
+        return read(t -> {
+            int excludedBrand = t.brands.code(brand);
+            boolean[] excludedTypes = t.types.matching(LikePattern.of(type + "%"));
+            int[] accepted = sizes.stream().mapToInt(Integer::intValue).toArray();
+            boolean[] complaints = new boolean[t.supplierCount];
+            for (int s = 0; s < complaints.length; s++) {
+                complaints[s] = t.supplierComment.like(s, COMPLAINTS);
+            }
+            int typeCount = t.types.size();
+            // Group (brand, type, size position) and supplier of every qualifying part supplier
+            long[] pairs = concat(scan(t.partCount, (from, to) -> {
+                LongBuffer rows = new LongBuffer();
+                for (int p = from; p < to; p++) {
+                    int size = 0;
+                    while (size < accepted.length && accepted[size] != t.partSize.get(p)) {
+                        size++;
+                    }
+                    if (t.partBrand.get(p) == excludedBrand || excludedTypes[t.partType.get(p)] || size == accepted.length) {
+                        continue;
+                    }
+                    long group = ((long) t.partBrand.get(p) * typeCount + t.partType.get(p)) * accepted.length + size;
+                    for (int ps = t.partSuppStart.get(p); ps < t.partSuppEnd.get(p); ps++) {
+                        int s = t.partSuppSupplier.get(ps);
+                        if (s >= 0 && !complaints[s]) {
+                            rows.add(group << 32 | s);
+                        }
+                    }
+                }
+                return rows.toArray();
+            }));
+
+            // Sorted, the pairs of a group are adjacent and a repeated supplier follows itself
+            Arrays.sort(pairs);
+            List<long[]> groups = new ArrayList<>();
+            for (int k = 0; k < pairs.length; k++) {
+                long group = pairs[k] >>> 32;
+                if (groups.isEmpty() || groups.get(groups.size() - 1)[0] != group) {
+                    groups.add(new long[] {group, 0});
+                }
+                if (k == 0 || pairs[k] != pairs[k - 1]) {
+                    groups.get(groups.size() - 1)[1]++;
+                }
+            }
+            Function<long[], String> brandOf = g -> t.brands.decode((int) (g[0] / accepted.length / typeCount));
+            Function<long[], String> typeOf = g -> t.types.decode((int) (g[0] / accepted.length % typeCount));
+            groups.sort(Comparator.<long[]>comparingLong(g -> g[1]).reversed().thenComparing(brandOf)
+                    .thenComparing(typeOf).thenComparingInt(g -> accepted[(int) (g[0] % accepted.length)]));
+            return groups.stream()
+                    .map(g -> new PartSupplierReport(brandOf.apply(g), typeOf.apply(g),
+                            accepted[(int) (g[0] % accepted.length)], g[1]))
+                    .toList();
+        });
+    }
+
+    // Q17
+    public SmallQuantityRevenueReport calculateSmallQuantityRevenue(String brand, String container) {
+        return read(t -> {
+            int brandCode = t.brands.code(brand);
+            int containerCode = t.containers.code(container);
+            // Position of each selected part in the per-chunk sums, -1 for the others
+            int[] slots = new int[t.partCount];
+            int selected = 0;
+            for (int p = 0; p < slots.length; p++) {
+                slots[p] = t.partBrand.get(p) == brandCode && t.partContainer.get(p) == containerCode ? selected++ : -1;
+            }
+            int width = selected;
+            // Per selected part: quantity, count
+            BigInteger[] quantities = merge(scan(t.lineCount, (from, to) -> {
+                long[] sums = new long[width * 2];
+                for (int i = from; i < to; i++) {
+                    int p = t.linePart.get(i);
+                    if (p >= 0 && slots[p] >= 0) {
+                        sums[slots[p] * 2] += t.quantity.get(i);
+                        sums[slots[p] * 2 + 1]++;
+                    }
+                }
+                return sums;
+            }), width * 2);
+            long[] quantitySums = new long[width];
+            long[] counts = new long[width];
+            for (int slot = 0; slot < width; slot++) {
+                quantitySums[slot] = quantities[slot * 2].longValueExact();
+                counts[slot] = quantities[slot * 2 + 1].longValueExact();
+            }
+            // quantity < 0.2 * AVG(quantity), compared exactly as 5 * quantity * count < SUM(quantity)
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long price = 0;
+                long count = 0;
+                for (int i = from; i < to; i++) {
+                    int p = t.linePart.get(i);
+                    if (p >= 0 && slots[p] >= 0 && 5L * t.quantity.get(i) * counts[slots[p]] < quantitySums[slots[p]]) {
+                        price += t.extendedPrice.get(i);
+                        count++;
+                    }
+                }
+                return new long[] {price, count};
+            }), 2);
+            return new SmallQuantityRevenueReport(totals[1].signum() == 0 ? null
+                    : divide(new BigDecimal(totals[0], 2), new BigDecimal("7.0")));
+        });
+    }
+
+    // Q19
+    public DiscountedRevenueReport calculateDiscountedRevenue(String brand1, String brand2, String brand3,
+            Integer quantity1, Integer quantity2, Integer quantity3) {
+        return read(t -> {
+            int[] brands = {t.brands.code(brand1), t.brands.code(brand2), t.brands.code(brand3)};
+            boolean[][] containers = {t.containers.matching(SMALL_CONTAINERS),
+                    t.containers.matching(MEDIUM_CONTAINERS), t.containers.matching(LARGE_CONTAINERS)};
+            int[] maxSizes = {5, 10, 15};
+            int[] minQuantities = {quantity1 * 100, quantity2 * 100, quantity3 * 100};
+            boolean[] air = t.shipModes.matching(AIR_MODES);
+            int inPerson = t.shipInstructions.code(DELIVER_IN_PERSON);
+            BigInteger[] totals = merge(scan(t.lineCount, (from, to) -> {
+                long revenue = 0;
+                long count = 0;
+                for (int i = from; i < to; i++) {
+                    int part = t.linePart.get(i);
+                    if (!air[t.shipMode.get(i)] || t.shipInstruct.get(i) != inPerson || part < 0) {
+                        continue;
+                    }
+                    int quantity = t.quantity.get(i);
+                    int size = t.partSize.get(part);
+                    for (int clause = 0; clause < 3; clause++) {
+                        if (t.partBrand.get(part) == brands[clause] && containers[clause][t.partContainer.get(part)]
+                                && quantity >= minQuantities[clause] && quantity <= minQuantities[clause] + 1000
+                                && size >= 1 && size <= maxSizes[clause]) {
+                            revenue += t.extendedPrice.get(i) * (100 - t.discount.get(i));
+                            count++;
+                            break;
+                        }
+                    }
+                }
+                return new long[] {revenue, count};
+            }), 2);
+            return new DiscountedRevenueReport(totals[1].signum() == 0 ? null : new BigDecimal(totals[0], 4));
+        });
+    }
+
+    // Q21
+    public List<SupplierWaitingReport> findSuppliersWhoKeptWaiting(String nation, Pageable pageable) {
+        return read(t -> {
+            int nationRow = t.nation(nation);
+            if (nationRow < 0) {
+                return List.<SupplierWaitingReport>of();
+            }
+            int finished = t.orderStatuses.code("F");
+            // Position of each supplier of the nation in the per-chunk counts, -1 for the others
+            int[] slots = new int[t.supplierCount];
+            List<Integer> suppliers = new ArrayList<>();
+            for (int s = 0; s < slots.length; s++) {
+                slots[s] = t.supplierNation.get(s) == nationRow ? suppliers.size() : -1;
+                if (slots[s] >= 0) {
+                    suppliers.add(s);
+                }
+            }
+            BigInteger[] totals = merge(scan(t.orderCount, (from, to) -> {
+                long[] counts = new long[suppliers.size()];
+                for (int o = from; o < to; o++) {
+                    if (t.orderStatus.get(o) != finished) {
+                        continue;
+                    }
+                    int first = t.orderLineStart.get(o);
+                    int last = t.orderLineEnd.get(o);
+                    for (int i = first; i < last; i++) {
+                        int s = t.lineSupplier.get(i);
+                        if (s < 0 || slots[s] < 0 || t.receiptDate.get(i) <= t.commitDate.get(i)) {
+                            continue;
+                        }
+                        boolean otherSupplier = false;
+                        boolean otherLate = false;
+                        for (int j = first; j < last; j++) {
+                            if (t.lineSupplier.get(j) != s) {
+                                otherSupplier = true;
+                                otherLate |= t.receiptDate.get(j) > t.commitDate.get(j);
+                            }
+                        }
+                        if (otherSupplier && !otherLate) {
+                            counts[slots[s]]++;
+                        }
+                    }
+                }
+                return counts;
+            }), suppliers.size());
+
+            List<Integer> matched = new ArrayList<>();
+            for (int slot = 0; slot < totals.length; slot++) {
+                if (totals[slot].signum() > 0) {
+                    matched.add(slot);
+                }
+            }
+            matched.sort(Comparator.<Integer, BigInteger>comparing(slot -> totals[slot]).reversed()
+                    .thenComparing(slot -> t.supplierName.get(suppliers.get(slot))));
+            return matched.stream().skip(pageable.getOffset()).limit(pageable.getPageSize())
+                    .map(slot -> new SupplierWaitingReport(t.supplierName.get(suppliers.get(slot)),
+                            totals[slot].longValueExact()))
+                    .toList();
+        });
+    }
+
+    // Q22
+    public List<GlobalSalesOpportunityReport> findGlobalSalesOpportunities(List<String> countryCodes) {
+        return read(t -> {
+            boolean[] codes = t.countryCodes.matching(countryCodes);
+            // Balance and count of the customers with a positive balance
+            BigInteger[] positive = merge(scan(t.customerCount, (from, to) -> {
+                long[] sums = new long[2];
+                for (int c = from; c < to; c++) {
+                    if (codes[t.customerCountry.get(c)] && t.customerBalance.get(c) > 0) {
+                        sums[0] += t.customerBalance.get(c);
+                        sums[1]++;
+                    }
+                }
+                return sums;
+            }), 2);
+            if (positive[1].signum() == 0) {
+                return List.<GlobalSalesOpportunityReport>of();
+            }
+            // balance > AVG(balance), compared exactly as balance * count > SUM(balance)
+            long balanceSum = positive[0].longValueExact();
+            long balanceCount = positive[1].longValueExact();
+            int countries = codes.length;
+            // Per country code: balance, count
+            BigInteger[] totals = merge(scan(t.customerCount, (from, to) -> {
+                long[] sums = new long[countries * 2];
+                for (int c = from; c < to; c++) {
+                    int country = t.customerCountry.get(c);
+                    if (codes[country] && t.customerBalance.get(c) * balanceCount > balanceSum
+                            && t.customerOrders.get(c) == 0) {
+                        sums[country * 2] += t.customerBalance.get(c);
+                        sums[country * 2 + 1]++;
+                    }
+                }
+                return sums;
+            }), countries * 2);
+
+            List<Integer> matched = new ArrayList<>();
+            for (int country = 0; country < countries; country++) {
+                if (totals[country * 2 + 1].signum() > 0) {
+                    matched.add(country);
+                }
+            }
+            matched.sort(Comparator.comparing(t.countryCodes::decode));
+            return matched.stream()
+                    .map(country -> new GlobalSalesOpportunityReport(t.countryCodes.decode(country),
+                            totals[country * 2 + 1].longValueExact(), new BigDecimal(totals[country * 2], 2)))
+                    .toList();
+        });
+    }
+
+    /**
+     * Runs every covered report with the TPC-H validation parameters through both the columns
+     * and the JPA queries and compares the serialized results. Also reports both times, from a
+     * single execution each.
+     */
+    public Map<String, Object> verify() {
+        read(t -> t);
+        LocalDate q1Date = LocalDate.of(1998, 9, 2);
+        LocalDate q3Date = LocalDate.of(1995, 3, 15);
+        LocalDate q4Date = LocalDate.of(1993, 7, 1);
+        LocalDate q5Date = LocalDate.of(1994, 1, 1);
+        LocalDate q6Date = LocalDate.of(1994, 1, 1);
+        LocalDate q7Start = LocalDate.of(1995, 1, 1);
+        LocalDate q7End = LocalDate.of(1996, 12, 31);
+        LocalDate q10Date = LocalDate.of(1993, 10, 1);
+        BigDecimal q11Fraction = new BigDecimal("0.0001");
+        LocalDate q12Date = LocalDate.of(1994, 1, 1);
+        List<String> q12Modes = List.of("MAIL", "SHIP");
+        LocalDate q14Date = LocalDate.of(1995, 9, 1);
+        List<Integer> q16Sizes = List.of(49, 14, 23, 45, 19, 3, 36, 9);
+        Pageable q21Page = PageRequest.of(0, 100);
+        List<String> q22Codes = List.of("13", "31", "23", "29", "30", "18", "17");
+
+        Map<String, Object> results = new LinkedHashMap<>();
+        results.put("pricing-summary", compare(
+                () -> getPricingSummaryReport(q1Date),
+                () -> lineItemRepository.getPricingSummaryReport(q1Date)));
+        results.put("supplier-part-info", compare(
+                () -> findSupplierPartInfo(15, "BRASS", "EUROPE"),
+                () -> partRepository.findSupplierPartInfo(15, "BRASS", "EUROPE")));
+        results.put("order-revenue-info", compare(
+                () -> findTopUnshippedOrders("BUILDING", q3Date),
+                () -> orderRepository.findTopUnshippedOrders("BUILDING", q3Date)));
+        results.put("order-priority-count", compare(
+                () -> findOrderPriorityCount(q4Date, q4Date.plusMonths(3)),
+                () -> orderRepository.findOrderPriorityCount(q4Date, q4Date.plusMonths(3))));
+        results.put("local-supplier-volume", compare(
+                () -> findLocalSupplierVolume("ASIA", q5Date, q5Date.plusYears(1)),
+                () -> supplierRepository.findLocalSupplierVolume("ASIA", q5Date, q5Date.plusYears(1))));
+        results.put("revenue-increase", compare(
+                () -> calculateRevenueIncrease(q6Date, q6Date.plusYears(1), 0.06, 24),
+                () -> lineItemRepository.calculateRevenueIncrease(q6Date, q6Date.plusYears(1), 0.06, 24)));
+        results.put("nations-volume-shipping", compare(
+                () -> getNationsVolumeShipping("FRANCE", "GERMANY", q7Start, q7End),
+                () -> nationRepository.getNationsVolumeShipping("FRANCE", "GERMANY", q7Start, q7End)));
+        results.put("market-share", compare(
+                () -> getMarketShare("BRAZIL", "AMERICA", "ECONOMY ANODIZED STEEL", q7Start, q7End),
+                () -> nationRepository.getMarketShare("BRAZIL", "AMERICA", "ECONOMY ANODIZED STEEL", q7Start, q7End)));
+        results.put("product-type-profit", compare(
+                () -> getProductTypeProfit("green"),
+                () -> nationRepository.getProductTypeProfit("green")));
+        results.put("returned-items", compare(
+                () -> findTopReturnedItems(q10Date, q10Date.plusMonths(3)),
+                () -> customerRepository.findTopReturnedItems(q10Date, q10Date.plusMonths(3))));
+        results.put("important-stock", compare(
+                () -> findImportantStock("GERMANY", q11Fraction),
+                () -> partSuppRepository.findImportantStock("GERMANY", q11Fraction)));
+        results.put("shipping-modes", compare(
+                () -> findShippingModeStats(q12Modes, q12Date, q12Date.plusYears(1)),
+                () -> lineItemRepository.findShippingModeStats(q12Modes, q12Date, q12Date.plusYears(1))));
+        results.put("customer-distribution", compare(
+                () -> findCustomerDistribution("special", "requests"),
+                () -> customerRepository.findCustomerDistribution("special", "requests")));
+        results.put("promotion-revenue", compare(
+                () -> calculatePromotionRevenue(q14Date, q14Date.plusMonths(1)),
+                () -> lineItemRepository.calculatePromotionRevenue(q14Date, q14Date.plusMonths(1))));
+        results.put("part-supplier-relationships", compare(
+                () -> findPartSupplierRelationships("Brand#45", "MEDIUM POLISHED", q16Sizes),
+                () -> partSuppRepository.findPartSupplierRelationships("Brand#45", "MEDIUM POLISHED", q16Sizes)));
+        results.put("small-quantity-revenue", compare(
+                () -> calculateSmallQuantityRevenue("Brand#23", "MED BOX"),
+                () -> lineItemRepository.calculateSmallQuantityRevenue("Brand#23", "MED BOX")));
+        results.put("discounted-revenue", compare(
+                () -> calculateDiscountedRevenue("Brand#12", "Brand#23", "Brand#34", 1, 10, 20),
+                () -> lineItemRepository.calculateDiscountedRevenue("Brand#12", "Brand#23", "Brand#34", 1, 10, 20)));
+        results.put("suppliers-kept-waiting", compare(
+                () -> findSuppliersWhoKeptWaiting("SAUDI ARABIA", q21Page),
+                () -> supplierRepository.findSuppliersWhoKeptWaiting("SAUDI ARABIA", q21Page)));
+        results.put("global-sales-opportunities", compare(
+                () -> findGlobalSalesOpportunities(q22Codes),
+                () -> customerRepository.findGlobalSalesOpportunities(q22Codes)));
+        return results;
+    }
+
+    private Map<String, Object> compare(Supplier<Object> columnar, Supplier<Object> database) {
+        long start = System.nanoTime();
+        Object columnarResult = columnar.get();
+        long columnarNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        Object databaseResult = database.get();
+        long databaseNs = System.nanoTime() - start;
+
+        Map<String, Object> comparison = new LinkedHashMap<>();
+        comparison.put("equal", objectMapper.valueToTree(columnarResult).equals(objectMapper.valueToTree(databaseResult)));
+        comparison.put("columnar_ms", columnarNs / 1_000_000.0);
+        comparison.put("database_ms", databaseNs / 1_000_000.0);
+        return comparison;
+    }
+
+    // Runs the report under the read lock, so the columns stay allocated until it is done
+    private <T> T read(Function<ColumnarTables, T> report) {
+        lock.readLock().lock();
+        try {
+            ColumnarTables current = tables;
+            if (current == null) {
+                throw new IllegalStateException("TPC-H columns are not loaded");
+            }
+            return report.apply(current);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkScan {
+        long[] scan(int from, int to);
+    }
+
+    // One task per chunk of rows; the results come back in chunk order
+    private List<long[]> scan(int rows, ChunkScan chunkScan) {
+        List<Callable<long[]>> tasks = new ArrayList<>();
+        for (int from = 0; from < rows; from += CHUNK_ROWS) {
+            int start = from;
+            int end = Math.min(rows, from + CHUNK_ROWS);
+            tasks.add(() -> chunkScan.scan(start, end));
+        }
+        List<long[]> partials = new ArrayList<>(tasks.size());
+        try {
+            for (Future<long[]> future : pool.invokeAll(tasks)) {
+                partials.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during a columnar scan", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+        return partials;
+    }
+
+    private static BigInteger[] merge(List<long[]> partials, int width) {
+        BigInteger[] totals = new BigInteger[width];
+        for (int i = 0; i < width; i++) {
+            BigInteger total = BigInteger.ZERO;
+            for (long[] partial : partials) {
+                total = total.add(BigInteger.valueOf(partial[i]));
+            }
+            totals[i] = total;
+        }
+        return totals;
+    }
+
+    // Chunk results of varying length, one after the other
+    private static long[] concat(List<long[]> partials) {
+        long[] all = new long[partials.stream().mapToInt(partial -> partial.length).sum()];
+        int position = 0;
+        for (long[] partial : partials) {
+            System.arraycopy(partial, 0, all, position, partial.length);
+            position += partial.length;
+        }
+        return all;
+    }
+
+    private static boolean inRegion(ColumnarTables t, int supplier, int region) {
+        return supplier >= 0 && t.supplierNation.get(supplier) >= 0
+                && t.nationRegion[t.supplierNation.get(supplier)] == region;
+    }
+
+    private static Double average(BigInteger unscaledSum, BigDecimal count) {
+        return new BigDecimal(unscaledSum, 2).divide(count, MathContext.DECIMAL128).doubleValue();
+    }
+
+    /**
+     * numeric / numeric the way PostgreSQL's select_div_scale sizes it: at least 16 significant
+     * digits, never fewer decimals than either operand, rounded half up.
+     */
+    private static BigDecimal divide(BigDecimal dividend, BigDecimal divisor) {
+        int quotientWeight = weight(dividend) - weight(divisor);
+        if (firstDigit(dividend) <= firstDigit(divisor)) {
+            quotientWeight--;
+        }
+        int scale = Math.max(Math.max(16 - quotientWeight * 4, 0), Math.max(dividend.scale(), divisor.scale()));
+        return dividend.divide(divisor, Math.min(scale, 1000), RoundingMode.HALF_UP);
+    }
+
+    // Position of the leading base-10000 digit of a numeric; 0 for zero, as in PostgreSQL
+    private static int weight(BigDecimal value) {
+        return value.signum() == 0 ? 0 : Math.floorDiv(value.precision() - value.scale() - 1, 4);
+    }
+
+    private static int firstDigit(BigDecimal value) {
+        return value.signum() == 0 ? 0
+                : value.abs().movePointLeft(4 * weight(value)).setScale(0, RoundingMode.DOWN).intValueExact();
+    }
+
+    /** A growing long array for chunk results of varying length */
+    private static final class LongBuffer {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,815 @@
+package com.restq.api_http.Services.tpch;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * The eight TPC-H tables held column by column in off-heap memory. Every per-row column is a
+ * {@link MemorySegment} from one shared {@link Arena}, so even large scale factors add nothing
+ * to the Java heap or to garbage collection, and {@link #close} frees all of it at once instead
+ * of waiting for a collection. Only the dictionaries and the 25 nation and 5 region rows stay
+ * on the heap.
+ * <p>
+ * Decimals are kept as unscaled hundredths (all of them are numeric(15, 2)), dates as epoch
+ * days, low-cardinality strings as codes into a {@link Dictionary} and the remaining strings as
+ * UTF-8 bytes in a {@link StringColumn}. Foreign keys are stored as the row index of the
+ * referenced row, -1 where it does not exist, so the joins of the reports are lookups. Line
+ * items are sorted by order key and part suppliers by part key, so the lines of an order and the
+ * suppliers of a part are contiguous ranges. Built once by {@link #load} and not changed
+ * afterwards; the columns must not be read after {@link #close}.
+ */
+final class ColumnarTables implements AutoCloseable {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final Arena arena = Arena.ofShared();
+    private final List<StringColumn.Builder> openBuilders = new ArrayList<>();
+    private long allocatedBytes;
+
+    // REGION and NATION, by key
+    final String[] regionNames;
+    final String[] nationNames;
+    final int[] nationRegion;
+
+    // SUPPLIER, by key
+    final int supplierCount;
+    final IntColumn supplierKey;
+    final StringColumn supplierName;
+    final StringColumn supplierAddress;
+    final StringColumn supplierPhone;
+    final StringColumn supplierComment;
+    final IntColumn supplierNation;
+    final LongColumn supplierBalance;
+
+    // CUSTOMER, by key
+    final int customerCount;
+    final IntColumn customerKey;
+    final StringColumn customerName;
+    final StringColumn customerAddress;
+    final StringColumn customerPhone;
+    final StringColumn customerComment;
+    final IntColumn customerNation;
+    final LongColumn customerBalance;
+    final ByteColumn customerSegment;
+    // The first two characters of the phone number
+    final ByteColumn customerCountry;
+    final IntColumn customerOrders;
+    final Dictionary segments = new Dictionary();
+    final Dictionary countryCodes = new Dictionary();
+
+    // PART, by key
+    final int partCount;
+    final IntColumn partKey;
+    final StringColumn partName;
+    final ByteColumn partManufacturer;
+    final ByteColumn partBrand;
+    final ByteColumn partType;
+    final ByteColumn partContainer;
+    final IntColumn partSize;
+    // Suppliers of part i are partsupp[partSuppStart[i], partSuppEnd[i])
+    final IntColumn partSuppStart;
+    final IntColumn partSuppEnd;
+    final Dictionary manufacturers = new Dictionary();
+    final Dictionary brands = new Dictionary();
+    final Dictionary types = new Dictionary();
+    final Dictionary containers = new Dictionary();
+
+    // PARTSUPP, by part key and supplier key
+    final int partSuppCount;
+    final IntColumn partSuppPart;
+    final IntColumn partSuppSupplier;
+    final IntColumn partSuppAvailable;
+    final IntColumn partSuppCost;
+
+    // ORDERS, by order key
+    final int orderCount;
+    final IntColumn orderKey;
+    final IntColumn orderCustomer;
+    final ByteColumn orderStatus;
+    final IntColumn orderDate;
+    final ByteColumn orderPriority;
+    final IntColumn orderShipPriority;
+    final StringColumn orderComment;
+    // Lines of order i are lineitem[orderLineStart[i], orderLineEnd[i])
+    final IntColumn orderLineStart;
+    final IntColumn orderLineEnd;
+    final Dictionary orderStatuses = new Dictionary();
+    final Dictionary priorities = new Dictionary();
+    // Epoch day of January 1 of each year with orders, from firstOrderYear on
+    int firstOrderYear;
+    int[] orderYearStarts = {0};
+
+    // LINEITEM, by order key
+    final int lineCount;
+    final IntColumn lineOrder;
+    final IntColumn linePart;
+    final IntColumn lineSupplier;
+    final IntColumn quantity;
+    final LongColumn extendedPrice;
+    final ByteColumn discount;
+    final ByteColumn tax;
+    final ByteColumn returnFlag;
+    final ByteColumn lineStatus;
+    final IntColumn shipDate;
+    final IntColumn commitDate;
+    final IntColumn receiptDate;
+    final ByteColumn shipInstruct;
+    final ByteColumn shipMode;
+    final Dictionary returnFlags = new Dictionary();
+    final Dictionary lineStatuses = new Dictionary();
+    final Dictionary shipInstructions = new Dictionary();
+    final Dictionary shipModes = new Dictionary();
+
+    private ColumnarTables(int regionCount, int nationCount, int supplierCount, int customerCount, int partCount,
+            int partSuppCount, int orderCount, int lineCount) {
+        regionNames = new String[regionCount];
+        nationNames = new String[nationCount];
+        nationRegion = new int[nationCount];
+
+        this.supplierCount = supplierCount;
+        supplierKey = new IntColumn(supplierCount);
+        supplierName = new StringColumn(supplierCount);
+        supplierAddress = new StringColumn(supplierCount);
+        supplierPhone = new StringColumn(supplierCount);
+        supplierComment = new StringColumn(supplierCount);
+        supplierNation = new IntColumn(supplierCount);
+        supplierBalance = new LongColumn(supplierCount);
+
+        this.customerCount = customerCount;
+        customerKey = new IntColumn(customerCount);
+        customerName = new StringColumn(customerCount);
+        customerAddress = new StringColumn(customerCount);
+        customerPhone = new StringColumn(customerCount);
+        customerComment = new StringColumn(customerCount);
+        customerNation = new IntColumn(customerCount);
+        customerBalance = new LongColumn(customerCount);
+        customerSegment = new ByteColumn(customerCount);
+        customerCountry = new ByteColumn(customerCount);
+        customerOrders = new IntColumn(customerCount);
+
+        this.partCount = partCount;
+        partKey = new IntColumn(partCount);
+        partName = new StringColumn(partCount);
+        partManufacturer = new ByteColumn(partCount);
+        partBrand = new ByteColumn(partCount);
+        partType = new ByteColumn(partCount);
+        partContainer = new ByteColumn(partCount);
+        partSize = new IntColumn(partCount);
+        partSuppStart = new IntColumn(partCount);
+        partSuppEnd = new IntColumn(partCount);
+
+        this.partSuppCount = partSuppCount;
+        partSuppPart = new IntColumn(partSuppCount);
+        partSuppSupplier = new IntColumn(partSuppCount);
+        partSuppAvailable = new IntColumn(partSuppCount);
+        partSuppCost = new IntColumn(partSuppCount);
+
+        this.orderCount = orderCount;
+        orderKey = new IntColumn(orderCount);
+        orderCustomer = new IntColumn(orderCount);
+        orderStatus = new ByteColumn(orderCount);
+        orderDate = new IntColumn(orderCount);
+        orderPriority = new ByteColumn(orderCount);
+        orderShipPriority = new IntColumn(orderCount);
+        orderComment = new StringColumn(orderCount);
+        orderLineStart = new IntColumn(orderCount);
+        orderLineEnd = new IntColumn(orderCount);
+
+        this.lineCount = lineCount;
+        lineOrder = new IntColumn(lineCount);
+        linePart = new IntColumn(lineCount);
+        lineSupplier = new IntColumn(lineCount);
+        quantity = new IntColumn(lineCount);
+        extendedPrice = new LongColumn(lineCount);
+        discount = new ByteColumn(lineCount);
+        tax = new ByteColumn(lineCount);
+        returnFlag = new ByteColumn(lineCount);
+        lineStatus = new ByteColumn(lineCount);
+        shipDate = new IntColumn(lineCount);
+        commitDate = new IntColumn(lineCount);
+        receiptDate = new IntColumn(lineCount);
+        shipInstruct = new ByteColumn(lineCount);
+        shipMode = new ByteColumn(lineCount);
+    }
+
+    /**
+     * Reads the tables. Must run in a transaction: the PostgreSQL driver only honours the fetch
+     * size with auto-commit off, and the counts and rows have to come from one snapshot. Frees
+     * what was allocated when reading fails.
+     */
+    static ColumnarTables load(JdbcTemplate jdbcTemplate) {
+        Map<String, Object> regions = keyRange(jdbcTemplate, "r_regionkey", "region");
+        Map<String, Object> nations = keyRange(jdbcTemplate, "n_nationkey", "nation");
+        Map<String, Object> suppliers = keyRange(jdbcTemplate, "s_suppkey", "supplier");
+        Map<String, Object> customers = keyRange(jdbcTemplate, "c_custkey", "customer");
+        Map<String, Object> parts = keyRange(jdbcTemplate, "p_partkey", "part");
+        Long partSuppRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM partsupp", Long.class);
+        Long orderRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders", Long.class);
+        Long lineRows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM lineitem", Long.class);
+        ColumnarTables tables = new ColumnarTables(toIntExact(regions.get("row_count")),
+                toIntExact(nations.get("row_count")), toIntExact(suppliers.get("row_count")),
+                toIntExact(customers.get("row_count")), toIntExact(parts.get("row_count")),
+                toIntExact(partSuppRows), toIntExact(orderRows), toIntExact(lineRows));
+        try {
+            int[] regionIndex = tables.loadRegions(jdbcTemplate, keyIndex(regions));
+            int[] nationIndex = tables.loadNations(jdbcTemplate, keyIndex(nations), regionIndex);
+            int[] supplierIndex = tables.loadSuppliers(jdbcTemplate, keyIndex(suppliers), nationIndex);
+            int[] customerIndex = tables.loadCustomers(jdbcTemplate, keyIndex(customers), nationIndex);
+            int[] partIndex = tables.loadParts(jdbcTemplate, keyIndex(parts));
+            tables.loadPartSuppliers(jdbcTemplate, partIndex, supplierIndex);
+            tables.loadOrders(jdbcTemplate, customerIndex);
+            tables.loadLineItems(jdbcTemplate, partIndex, supplierIndex);
+            return tables;
+        } catch (RuntimeException e) {
+            tables.close();
+            throw e;
+        }
+    }
+
+    private int[] loadRegions(JdbcTemplate jdbcTemplate, int[] regionIndex) {
+        int[] row = {0};
+        scan(jdbcTemplate, "SELECT r_regionkey, r_name FROM region ORDER BY r_regionkey", rs -> {
+            int i = row[0]++;
+            regionIndex[rs.getInt(1)] = i;
+            regionNames[i] = rs.getString(2);
+        });
+        return regionIndex;
+    }
+
+    private int[] loadNations(JdbcTemplate jdbcTemplate, int[] nationIndex, int[] regionIndex) {
+        int[] row = {0};
+        scan(jdbcTemplate, "SELECT n_nationkey, n_name, n_regionkey FROM nation ORDER BY n_nationkey", rs -> {
+            int i = row[0]++;
+            nationIndex[rs.getInt(1)] = i;
+            nationNames[i] = rs.getString(2);
+            nationRegion[i] = index(regionIndex, rs.getInt(3));
+        });
+        return nationIndex;
+    }
+
+    private int[] loadSuppliers(JdbcTemplate jdbcTemplate, int[] supplierIndex, int[] nationIndex) {
+        int[] row = {0};
+        StringColumn.Builder names = supplierName.builder();
+        StringColumn.Builder addresses = supplierAddress.builder();
+        StringColumn.Builder phones = supplierPhone.builder();
+        StringColumn.Builder comments = supplierComment.builder();
+        scan(jdbcTemplate, """
+                SELECT s_suppkey, s_name, s_address, s_nationkey, s_phone, (s_acctbal * 100)::bigint, s_comment
+                FROM supplier
+                ORDER BY s_suppkey
+                """, rs -> {
+            int i = row[0]++;
+            supplierIndex[rs.getInt(1)] = i;
+            supplierKey.set(i, rs.getInt(1));
+            names.add(rs.getString(2));
+            addresses.add(rs.getString(3));
+            supplierNation.set(i, index(nationIndex, rs.getInt(4)));
+            phones.add(rs.getString(5));
+            supplierBalance.set(i, rs.getLong(6));
+            comments.add(rs.getString(7));
+        });
+        names.build();
+        addresses.build();
+        phones.build();
+        comments.build();
+        return supplierIndex;
+    }
+
+    private int[] loadCustomers(JdbcTemplate jdbcTemplate, int[] customerIndex, int[] nationIndex) {
+        int[] row = {0};
+        StringColumn.Builder names = customerName.builder();
+        StringColumn.Builder addresses = customerAddress.builder();
+        StringColumn.Builder phones = customerPhone.builder();
+        StringColumn.Builder comments = customerComment.builder();
+        scan(jdbcTemplate, """
+                SELECT c_custkey, c_name, c_address, c_nationkey, c_phone, (c_acctbal * 100)::bigint,
+                c_mktsegment, c_comment
+                FROM customer
+                ORDER BY c_custkey
+                """, rs -> {
+            int i = row[0]++;
+            customerIndex[rs.getInt(1)] = i;
+            customerKey.set(i, rs.getInt(1));
+            names.add(rs.getString(2));
+            addresses.add(rs.getString(3));
+            customerNation.set(i, index(nationIndex, rs.getInt(4)));
+            String phone = rs.getString(5);
+            phones.add(phone);
+            // SUBSTRING(c_phone, 1, 2)
+            customerCountry.set(i, countryCodes.encode(phone.substring(0, Math.min(2, phone.length()))));
+            customerBalance.set(i, rs.getLong(6));
+            customerSegment.set(i, segments.encode(rs.getString(7)));
+            comments.add(rs.getString(8));
+        });
+        names.build();
+        addresses.build();
+        phones.build();
+        comments.build();
+        return customerIndex;
+    }
+
+    private int[] loadParts(JdbcTemplate jdbcTemplate, int[] partIndex) {
+        int[] row = {0};
+        StringColumn.Builder names = partName.builder();
+        scan(jdbcTemplate, """
+                SELECT p_partkey, p_name, p_mfgr, p_brand, p_type, p_size, p_container
+                FROM part
+                ORDER BY p_partkey
+                """, rs -> {
+            int i = row[0]++;
+            partIndex[rs.getInt(1)] = i;
+            partKey.set(i, rs.getInt(1));
+            names.add(rs.getString(2));
+            partManufacturer.set(i, manufacturers.encode(rs.getString(3)));
+            partBrand.set(i, brands.encode(rs.getString(4)));
+            partType.set(i, types.encode(rs.getString(5)));
+            partSize.set(i, rs.getInt(6));
+            partContainer.set(i, containers.encode(rs.getString(7)));
+        });
+        names.build();
+        return partIndex;
+    }
+
+    private void loadPartSuppliers(JdbcTemplate jdbcTemplate, int[] partIndex, int[] supplierIndex) {
+        int[] row = {0};
+        scan(jdbcTemplate, """
+                SELECT ps_partkey, ps_suppkey, ps_availqty, (ps_supplycost * 100)::int
+                FROM partsupp
+                ORDER BY ps_partkey, ps_suppkey
+                """, rs -> {
+            int i = row[0]++;
+            int part = index(partIndex, rs.getInt(1));
+            partSuppPart.set(i, part);
+            partSuppSupplier.set(i, index(supplierIndex, rs.getInt(2)));
+            partSuppAvailable.set(i, rs.getInt(3));
+            partSuppCost.set(i, rs.getInt(4));
+            if (part >= 0) {
+                if (partSuppEnd.get(part) == 0) {
+                    partSuppStart.set(part, i);
+                }
+                partSuppEnd.set(part, i + 1);
+            }
+        });
+    }
+
+    private void loadOrders(JdbcTemplate jdbcTemplate, int[] customerIndex) {
+        int[] row = {0};
+        int[] dateRange = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        StringColumn.Builder comments = orderComment.builder();
+        scan(jdbcTemplate, """
+                SELECT o_orderkey, o_custkey, o_orderstatus, o_orderdate - DATE '1970-01-01',
+                o_orderpriority, o_shippriority, o_comment
+                FROM orders
+                ORDER BY o_orderkey
+                """, rs -> {
+            int i = row[0]++;
+            orderKey.set(i, rs.getInt(1));
+            int customer = index(customerIndex, rs.getInt(2));
+            orderCustomer.set(i, customer);
+            if (customer >= 0) {
+                customerOrders.set(customer, customerOrders.get(customer) + 1);
+            }
+            orderStatus.set(i, orderStatuses.encode(rs.getString(3)));
+            orderDate.set(i, rs.getInt(4));
+            dateRange[0] = Math.min(dateRange[0], rs.getInt(4));
+            dateRange[1] = Math.max(dateRange[1], rs.getInt(4));
+            orderPriority.set(i, priorities.encode(rs.getString(5)));
+            orderShipPriority.set(i, rs.getInt(6));
+            comments.add(rs.getString(7));
+        });
+        comments.build();
+        if (orderCount > 0) {
+            firstOrderYear = LocalDate.ofEpochDay(dateRange[0]).getYear();
+            orderYearStarts = new int[LocalDate.ofEpochDay(dateRange[1]).getYear() - firstOrderYear + 1];
+            for (int year = 0; year < orderYearStarts.length; year++) {
+                orderYearStarts[year] = (int) LocalDate.of(firstOrderYear + year, 1, 1).toEpochDay();
+            }
+        }
+    }
+
+    private void loadLineItems(JdbcTemplate jdbcTemplate, int[] partIndex, int[] supplierIndex) {
+        // row, then the position of the current order while both are walked in key order
+        int[] cursor = {0, 0};
+        scan(jdbcTemplate, """
+                SELECT l_orderkey, l_partkey, l_suppkey,
+                (l_quantity * 100)::int, (l_extendedprice * 100)::bigint,
+                (l_discount * 100)::int, (l_tax * 100)::int,
+                l_returnflag, l_linestatus,
+                l_shipdate - DATE '1970-01-01', l_commitdate - DATE '1970-01-01', l_receiptdate - DATE '1970-01-01',
+                l_shipinstruct, l_shipmode
+                FROM lineitem
+                ORDER BY l_orderkey
+                """, rs -> {
+            int i = cursor[0]++;
+            int key = rs.getInt(1);
+            int order = cursor[1];
+            while (order < orderCount && orderKey.get(order) < key) {
+                order++;
+            }
+            cursor[1] = order;
+            if (order < orderCount && orderKey.get(order) == key) {
+                if (orderLineEnd.get(order) == 0) {
+                    orderLineStart.set(order, i);
+                }
+                orderLineEnd.set(order, i + 1);
+                lineOrder.set(i, order);
+            } else {
+                lineOrder.set(i, -1);
+            }
+            linePart.set(i, index(partIndex, rs.getInt(2)));
+            lineSupplier.set(i, index(supplierIndex, rs.getInt(3)));
+            quantity.set(i, rs.getInt(4));
+            extendedPrice.set(i, rs.getLong(5));
+            discount.set(i, rs.getInt(6));
+            tax.set(i, rs.getInt(7));
+            returnFlag.set(i, returnFlags.encode(rs.getString(8)));
+            lineStatus.set(i, lineStatuses.encode(rs.getString(9)));
+            shipDate.set(i, rs.getInt(10));
+            commitDate.set(i, rs.getInt(11));
+            receiptDate.set(i, rs.getInt(12));
+            shipInstruct.set(i, shipInstructions.encode(rs.getString(13)));
+            shipMode.set(i, shipModes.encode(rs.getString(14)));
+        });
+    }
+
+    /** Off-heap bytes allocated for the columns */
+    long columnBytes() {
+        return allocatedBytes;
+    }
+
+    /** Number of years with orders */
+    int orderYears() {
+        return orderYearStarts.length;
+    }
+
+    /** Year of the order date, counted from firstOrderYear */
+    int orderYear(int order) {
+        int day = orderDate.get(order);
+        int year = 0;
+        while (year + 1 < orderYearStarts.length && day >= orderYearStarts[year + 1]) {
+            year++;
+        }
+        return year;
+    }
+
+    /** Row of the nation with the given name, or -1 */
+    int nation(String name) {
+        return find(nationNames, name);
+    }
+
+    /** Row of the region with the given name, or -1 */
+    int region(String name) {
+        return find(regionNames, name);
+    }
+
+    /** Frees the columns; waits for nothing, so no scan may still be reading them */
+    @Override
+    public void close() {
+        // Staging arenas are confined to the loading thread, which is the one closing after a failure
+        for (StringColumn.Builder builder : List.copyOf(openBuilders)) {
+            builder.discard();
+        }
+        arena.close();
+    }
+
+    private MemorySegment allocate(ValueLayout layout, long count) {
+        MemorySegment segment = arena.allocate(layout, Math.max(1, count));
+        allocatedBytes += segment.byteSize();
+        return segment;
+    }
+
+    // Names are compared the way PostgreSQL compares bpchar values, without trailing blanks
+    private static int find(String[] names, String name) {
+        String key = name.stripTrailing();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].stripTrailing().equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> keyRange(JdbcTemplate jdbcTemplate, String key, String table) {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*) AS row_count, COALESCE(MAX(" + key
+                + "), 0) AS max_key FROM " + table);
+    }
+
+    // Key to row, filled in while the table is read; -1 for keys without a row
+    private static int[] keyIndex(Map<String, Object> range) {
+        int[] index = new int[toIntExact(range.get("max_key")) + 1];
+        Arrays.fill(index, -1);
+        return index;
+    }
+
+    private static int index(int[] keyIndex, int key) {
+        return key >= 0 && key < keyIndex.length ? keyIndex[key] : -1;
+    }
+
+    private static void scan(JdbcTemplate jdbcTemplate, String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(FETCH_SIZE);
+            return statement;
+        }, handler);
+    }
+
+    private static int toIntExact(Object count) {
+        return Math.toIntExact(((Number) count).longValue());
+    }
+
+    final class IntColumn {
+        private final MemorySegment segment;
+
+        private IntColumn(int rows) {
+            segment = allocate(ValueLayout.JAVA_INT, rows);
+        }
+
+        int get(int row) {
+            return segment.getAtIndex(ValueLayout.JAVA_INT, row);
+        }
+
+        void set(int row, int value) {
+            segment.setAtIndex(ValueLayout.JAVA_INT, row, value);
+        }
+    }
+
+    final class LongColumn {
+        private final MemorySegment segment;
+
+        private LongColumn(int rows) {
+            segment = allocate(ValueLayout.JAVA_LONG, rows);
+        }
+
+        long get(int row) {
+            return segment.getAtIndex(ValueLayout.JAVA_LONG, row);
+        }
+
+        void set(int row, long value) {
+            segment.setAtIndex(ValueLayout.JAVA_LONG, row, value);
+        }
+    }
+
+    /** Values from 0 to 255: percentages and dictionary codes */
+    final class ByteColumn {
+        private final MemorySegment segment;
+
+        private ByteColumn(int rows) {
+            segment = allocate(ValueLayout.JAVA_BYTE, rows);
+        }
+
+        int get(int row) {
+            return Byte.toUnsignedInt(segment.get(ValueLayout.JAVA_BYTE, row));
+        }
+
+        void set(int row, int value) {
+            if (value < 0 || value > 0xFF) {
+                throw new IllegalStateException("Value " + value + " does not fit the columnar byte column");
+            }
+            segment.set(ValueLayout.JAVA_BYTE, row, (byte) value);
+        }
+    }
+
+    /**
+     * Strings as UTF-8 bytes back to back, with the offset of each row in a second segment.
+     * Filled in row order by a {@link Builder}, which stages the bytes in a growing segment of
+     * its own arena because the total length is only known at the end.
+     */
+    final class StringColumn {
+        private final int rows;
+        private final MemorySegment offsets;
+        private MemorySegment bytes;
+
+        private StringColumn(int rows) {
+            this.rows = rows;
+            offsets = allocate(ValueLayout.JAVA_LONG, rows + 1L);
+        }
+
+        String get(int row) {
+            long from = offsets.getAtIndex(ValueLayout.JAVA_LONG, row);
+            long to = offsets.getAtIndex(ValueLayout.JAVA_LONG, row + 1L);
+            return new String(bytes.asSlice(from, to - from).toArray(ValueLayout.JAVA_BYTE), StandardCharsets.UTF_8);
+        }
+
+        /** Whether the value without trailing blanks matches, as with bpchar LIKE in PostgreSQL */
+        boolean like(int row, LikePattern pattern) {
+            long from = offsets.getAtIndex(ValueLayout.JAVA_LONG, row);
+            long to = offsets.getAtIndex(ValueLayout.JAVA_LONG, row + 1L);
+            while (to > from && bytes.get(ValueLayout.JAVA_BYTE, to - 1) == ' ') {
+                to--;
+            }
+            return pattern.matches(bytes, from, to);
+        }
+
+        Builder builder() {
+            Builder builder = new Builder();
+            openBuilders.add(builder);
+            return builder;
+        }
+
+        /** Used by the loading thread only; {@link #build} must be called once all rows are added */
+        final class Builder {
+            private Arena staging = Arena.ofConfined();
+            private MemorySegment buffer = staging.allocate(1 << 16);
+            private long size;
+            private int row;
+
+            void add(String value) {
+                byte[] utf8 = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+                if (size + utf8.length > buffer.byteSize()) {
+                    Arena grown = Arena.ofConfined();
+                    MemorySegment larger = grown.allocate(Math.max(buffer.byteSize() * 2, size + utf8.length));
+                    MemorySegment.copy(buffer, 0, larger, 0, size);
+                    staging.close();
+                    staging = grown;
+                    buffer = larger;
+                }
+                MemorySegment.copy(utf8, 0, buffer, ValueLayout.JAVA_BYTE, size, utf8.length);
+                offsets.setAtIndex(ValueLayout.JAVA_LONG, row++, size);
+                size += utf8.length;
+            }
+
+            void build() {
+                if (row != rows) {
+                    discard();
+                    throw new IllegalStateException("Read " + row + " strings for " + rows + " rows");
+                }
+                offsets.setAtIndex(ValueLayout.JAVA_LONG, rows, size);
+                bytes = allocate(ValueLayout.JAVA_BYTE, size);
+                MemorySegment.copy(buffer, 0, bytes, 0, size);
+                discard();
+            }
+
+            void discard() {
+                staging.close();
+                openBuilders.remove(this);
+            }
+        }
+    }
+
+    /**
+     * A LIKE pattern as PostgreSQL reads it: % matches any run of characters, _ a single one
+     * and a backslash makes the next character literal. Matched against UTF-8 bytes, so the
+     * strings are not decoded.
+     */
+    static final class LikePattern {
+        private static final int ANY_CHARACTER = -1;
+
+        // The parts between the % signs; the first is anchored at the start, the last at the end
+        private final int[][] parts;
+
+        private LikePattern(int[][] parts) {
+            this.parts = parts;
+        }
+
+        static LikePattern of(String pattern) {
+            List<int[]> parts = new ArrayList<>();
+            List<Integer> part = new ArrayList<>();
+            byte[] utf8 = pattern.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < utf8.length; i++) {
+                int b = utf8[i] & 0xFF;
+                if (b == '%') {
+                    parts.add(part.stream().mapToInt(Integer::intValue).toArray());
+                    part.clear();
+                } else if (b == '_') {
+                    part.add(ANY_CHARACTER);
+                } else {
+                    if (b == '\\' && i + 1 < utf8.length) {
+                        b = utf8[++i] & 0xFF;
+                    }
+                    part.add(b);
+                }
+            }
+            parts.add(part.stream().mapToInt(Integer::intValue).toArray());
+            return new LikePattern(parts.toArray(new int[0][]));
+        }
+
+        boolean matches(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            return matches(MemorySegment.ofArray(utf8), 0, utf8.length);
+        }
+
+        boolean matches(MemorySegment text, long from, long to) {
+            int last = parts.length - 1;
+            long position = matchAt(parts[0], text, from, to);
+            if (position < 0) {
+                return false;
+            }
+            if (last == 0) {
+                return position == to;
+            }
+            // Taking the leftmost match of each middle part leaves the most room for the rest
+            for (int p = 1; p < last; p++) {
+                long end = -1;
+                for (long start = position; start <= to && end < 0; start++) {
+                    end = matchAt(parts[p], text, start, to);
+                }
+                if (end < 0) {
+                    return false;
+                }
+                position = end;
+            }
+            for (long start = position; start <= to; start++) {
+                if (matchAt(parts[last], text, start, to) == to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // End of the part matched at start, or -1
+        private static long matchAt(int[] part, MemorySegment text, long start, long to) {
+            long position = start;
+            for (int expected : part) {
+                if (position >= to) {
+                    return -1;
+                }
+                int b = text.get(ValueLayout.JAVA_BYTE, position) & 0xFF;
+                if (expected == ANY_CHARACTER) {
+                    // One character: a lead byte and its continuation bytes
+                    position++;
+                    while (position < to && (text.get(ValueLayout.JAVA_BYTE, position) & 0xC0) == 0x80) {
+                        position++;
+                    }
+                } else if (b == expected) {
+                    position++;
+                } else {
+                    return -1;
+                }
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Codes for the distinct values of a string column, in order of first appearance. Lookups
+     * ignore trailing blanks the way PostgreSQL compares bpchar values; decoding returns the
+     * value as it was read, so results carry the same strings as the JPA queries.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+
+        /** Code of the value, or -1 when no row has it */
+        int code(String value) {
+            String key = value.stripTrailing();
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i).stripTrailing().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /** For each code, whether its value satisfies the condition */
+        boolean[] matching(Predicate<String> condition) {
+            boolean[] matches = new boolean[values.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = condition.test(values.get(i).stripTrailing());
+            }
+            return matches;
+        }
+
+        /** For each code, whether its value is one of the given ones */
+        boolean[] matching(List<String> accepted) {
+            return matching(value -> accepted.stream().anyMatch(candidate -> candidate.stripTrailing().equals(value)));
+        }
+
+        /** For each code, whether its value matches the LIKE pattern */
+        boolean[] matching(LikePattern pattern) {
+            return matching(pattern::matches);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.restq.api_http.Services.tpch;
+
+import com.restq.api_http.DTO.tpch.PricingSummaryReport;
+import com.restq.api_http.Repositories.tpch.PartitionedLineItemRepository;
+import com.restq.api_http.Repositories.tpch.PartitionedLineItemRepository.Partition;
+import com.restq.api_http.Repositories.tpch.PartitionedLineItemRepository.PricingSummaryPartial;
+import com.restq.api_http.Repositories.tpch.PartitionedLineItemRepository.Slice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs Q1 and Q6 as several queries over slices of LINEITEM at once, each on its own pooled
+ * connection, so a large scan is spread over several PostgreSQL backends instead of one. The
+ * slices return sums and counts that are added up exactly; the Q1 averages are computed from
+ * the merged sums and counts. Slicing by heap blocks needs no index and cuts each partition of
+ * a partitioned LINEITEM separately; slicing by ship date needs one on l_shipdate to skip the
+ * other slices. Slice queries of all requests share a fixed
+ * number of threads, which bounds the connections this takes from the pool.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class PartitionedReports {
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionedReports.class);
+
+    public static final String BLOCKS = "blocks";
+    public static final String SHIP_DATE = "ship-date";
+
+    @Autowired
+    private PartitionedLineItemRepository repository;
+
+    @Value("${benchmark.tpch.partitioned.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${benchmark.tpch.partitioned.slices:4}")
+    private volatile int slices;
+
+    // blocks or ship-date
+    @Value("${benchmark.tpch.partitioned.slicing:blocks}")
+    private volatile String slicing;
+
+    // Shared by all requests; keep it below the connection pool size
+    @Value("${benchmark.tpch.partitioned.threads:4}")
+    private int threads;
+
+    private ExecutorService executor;
+    // Only used to place the ship-date slice bounds; the open outer slices keep results exact
+    private volatile LocalDate[] shipDateRange;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder sliceQueries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+
+    @PostConstruct
+    public void initialize() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "partitioned-report-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("TPC-H partitioned Q1/Q6 {} ({} {} slices on {} threads)",
+                enabled ? "enabled" : "disabled", slices, slicing, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isActive() {
+        return enabled;
+    }
+
+    /** Switch between runs; null arguments keep the current slice count and slicing */
+    public synchronized void configure(boolean enabled, Integer slices, String slicing) {
+        if (slices != null) {
+            if (slices < 1) {
+                throw new IllegalArgumentException("slices must be at least 1");
+            }
+            this.slices = slices;
+        }
+        if (slicing != null) {
+            if (!BLOCKS.equals(slicing) && !SHIP_DATE.equals(slicing)) {
+                throw new IllegalArgumentException("slicing must be " + BLOCKS + " or " + SHIP_DATE);
+            }
+            this.slicing = slicing;
+            shipDateRange = null;
+        }
+        this.enabled = enabled;
+        queries.reset();
+        sliceQueries.reset();
+        queryNanos.reset();
+        log.info("TPC-H partitioned Q1/Q6 {} ({} {} slices)", enabled ? "enabled" : "disabled",
+                this.slices, this.slicing);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("slices", slices);
+        statistics.put("slicing", slicing);
+        statistics.put("threads", threads);
+        long count = queries.sum();
+        statistics.put("queries", count);
+        statistics.put("slice_queries", sliceQueries.sum());
+        if (count > 0) {
+            statistics.put("mean_ms", queryNanos.sum() / count / 1_000_000.0);
+        }
+        return statistics;
+    }
+
+    // Q1
+    public List<PricingSummaryReport> getPricingSummaryReport(LocalDate shipDate) {
+        long start = System.nanoTime();
+        List<Slice> parts = slices(null, shipDate.plusDays(1));
+        Map<List<String>, PricingSummaryPartial> groups = new LinkedHashMap<>();
+        for (List<PricingSummaryPartial> partials : run(parts,
+                slice -> () -> repository.getPricingSummaryPartial(shipDate, slice))) {
+            for (PricingSummaryPartial partial : partials) {
+                groups.merge(List.of(partial.returnFlag(), partial.lineStatus()), partial, PricingSummaryPartial::plus);
+            }
+        }
+
+        List<PricingSummaryReport> reports = new ArrayList<>();
+        for (PricingSummaryPartial group : groups.values()) {
+            BigDecimal count = BigDecimal.valueOf(group.count());
+            reports.add(new PricingSummaryReport(group.returnFlag(), group.lineStatus(),
+                    group.sumQty(), group.sumBasePrice(), group.sumDiscPrice(), group.sumCharge(),
+                    average(group.sumQty(), count), average(group.sumBasePrice(), count),
+                    average(group.sumDisc(), count), group.count()));
+        }
+        reports.sort(Comparator.comparing(PricingSummaryReport::getReturnflag)
+                .thenComparing(PricingSummaryReport::getLinestatus));
+        record(start, parts.size());
+        return reports;
+    }
+
+    // Q6
+    public BigDecimal calculateRevenueIncrease(LocalDate startDate, LocalDate endDate, Double discount,
+            Integer quantity) {
+        long start = System.nanoTime();
+        List<Slice> parts = slices(startDate, endDate);
+        BigDecimal revenue = null;
+        for (BigDecimal partial : run(parts,
+                slice -> () -> repository.calculateRevenueIncreasePartial(startDate, endDate, discount, quantity, slice))) {
+            // SUM over no rows is null, in every slice as in the whole query
+            if (partial != null) {
+                revenue = revenue == null ? partial : revenue.add(partial);
+            }
+        }
+        record(start, parts.size());
+        return revenue;
+    }
+
+    /** Slices covering [from, to) for ship-date slicing, or the heap of every partition for block slicing */
+    private List<Slice> slices(LocalDate from, LocalDate to) {
+        int count = slices;
+        List<Slice> parts = new ArrayList<>(count);
+        if (BLOCKS.equals(slicing)) {
+            List<Partition> partitions = repository.findPartitionBlocks();
+            long blocks = 0;
+            for (Partition partition : partitions) {
+                blocks += partition.blocks();
+            }
+            // Block ranges never cross partitions, so each partition is cut on its own and
+            // gets at least one slice
+            long perSlice = Math.max(1, (blocks + count - 1) / count);
+            for (Partition partition : partitions) {
+                for (long first = 0; first < partition.blocks() || first == 0; first += perSlice) {
+                    // The last slice is open, so rows added since the count are still read
+                    boolean last = first + perSlice >= partition.blocks();
+                    parts.add(Slice.blocks(partition.table(), first == 0 ? null : first, last ? null : first + perSlice));
+                }
+            }
+            if (parts.isEmpty()) {
+                parts.add(Slice.blocks("lineitem", null, null));
+            }
+            return parts;
+        }
+
+        LocalDate low = from != null ? from : shipDateLow();
+        if (low == null || !low.isBefore(to)) {
+            parts.add(Slice.shipDates(null, null));
+            return parts;
+        }
+        long days = ChronoUnit.DAYS.between(low, to);
+        count = (int) Math.min(count, days);
+        for (int i = 0; i < count; i++) {
+            LocalDate sliceFrom = i == 0 ? null : low.plusDays(days * i / count);
+            LocalDate sliceTo = i == count - 1 ? null : low.plusDays(days * (i + 1) / count);
+            parts.add(Slice.shipDates(sliceFrom, sliceTo));
+        }
+        return parts;
+    }
+
+    private LocalDate shipDateLow() {
+        LocalDate[] range = shipDateRange;
+        if (range == null) {
+            range = repository.findShipDateRange();
+            if (range == null) {
+                return null;
+            }
+            shipDateRange = range;
+        }
+        return range[0];
+    }
+
+    @FunctionalInterface
+    private interface SliceQuery<T> {
+        Callable<T> on(Slice slice);
+    }
+
+    private <T> List<T> run(List<Slice> parts, SliceQuery<T> query) {
+        List<Callable<T>> tasks = new ArrayList<>(parts.size());
+        for (Slice slice : parts) {
+            tasks.add(query.on(slice));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the slice queries", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    private void record(long start, int sliceCount) {
+        queries.increment();
+        sliceQueries.add(sliceCount);
+        queryNanos.add(System.nanoTime() - start);
+    }
+
+    private static Double average(BigDecimal sum, BigDecimal count) {
+        return sum.divide(count, MathContext.DECIMAL128).doubleValue();
+    }
+}
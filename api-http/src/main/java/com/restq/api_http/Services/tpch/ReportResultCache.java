@@ -0,0 +1,149 @@
+package com.restq.api_http.Services.tpch;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Opt-in cache of TPC-H report results. The data set does not change during a run, so a
+ * report is fully determined by its endpoint and the query arguments the controller derives
+ * from the request. Those arguments form the key: defaults applied, dates resolved and
+ * order-insensitive lists sorted, so equivalent URLs share one entry.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class ReportResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportResultCache.class);
+
+    @Value("${benchmark.tpch.result-cache.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${benchmark.tpch.result-cache.max-size:10000}")
+    private long maxSize;
+
+    // 0 keeps results until evicted by size or invalidated
+    @Value("${benchmark.tpch.result-cache.expire-seconds:0}")
+    private long expireSeconds;
+
+    private volatile Cache<List<Object>, Object> cache;
+    private final Map<String, LongAdder[]> endpointCounters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        resetCache();
+        log.info("TPC-H result cache {} (max size: {}, expire: {} s)",
+                enabled ? "enabled" : "disabled", maxSize, expireSeconds);
+    }
+
+    /**
+     * Returns the cached result for the endpoint and normalized arguments, running the query
+     * on a miss. Null results are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, Supplier<T> query, Object... arguments) {
+        if (!enabled) {
+            return query.get();
+        }
+        List<Object> key = new ArrayList<>(arguments.length + 1);
+        key.add(endpoint);
+        key.addAll(Arrays.asList(arguments));
+
+        LongAdder[] counters = endpointCounters.computeIfAbsent(endpoint,
+                e -> new LongAdder[] {new LongAdder(), new LongAdder()});
+        boolean[] loaded = new boolean[1];
+        Object result = cache.get(key, k -> {
+            loaded[0] = true;
+            return query.get();
+        });
+        counters[loaded[0] ? 1 : 0].increment();
+        return (T) result;
+    }
+
+    /** Sorted copy of a list argument whose order does not change the query result */
+    public static <T extends Comparable<? super T>> List<T> normalized(Collection<T> values) {
+        return values.stream().sorted().toList();
+    }
+
+    /** Drops every entry of one endpoint, or all entries when endpoint is null */
+    public void invalidate(String endpoint) {
+        if (endpoint == null) {
+            cache.invalidateAll();
+            log.info("TPC-H result cache invalidated");
+            return;
+        }
+        cache.asMap().keySet().removeIf(key -> endpoint.equals(key.get(0)));
+        log.info("TPC-H result cache invalidated for {}", endpoint);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch caching on or off between runs. The cache starts empty with fresh statistics,
+     * so every run is measured from a cold cache.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        resetCache();
+        log.info("TPC-H result cache {}", enabled ? "enabled" : "disabled");
+    }
+
+    public Map<String, Object> getStatistics() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("size", cache.estimatedSize());
+        statistics.put("max_size", maxSize);
+        statistics.put("expire_seconds", expireSeconds);
+        statistics.put("hits", stats.hitCount());
+        statistics.put("misses", stats.missCount());
+        statistics.put("hit_ratio", stats.hitRate());
+        statistics.put("evictions", stats.evictionCount());
+        statistics.put("average_load_ns", stats.averageLoadPenalty());
+
+        Map<String, Object> endpoints = new TreeMap<>();
+        endpointCounters.forEach((endpoint, counters) -> {
+            long hits = counters[0].sum();
+            long misses = counters[1].sum();
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("hits", hits);
+            node.put("misses", misses);
+            node.put("hit_ratio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+            endpoints.put(endpoint, node);
+        });
+        statistics.put("endpoints", endpoints);
+        return statistics;
+    }
+
+    private synchronized void resetCache() {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (expireSeconds > 0) {
+            builder.expireAfterWrite(Duration.ofSeconds(expireSeconds));
+        }
+        cache = builder.build();
+        endpointCounters.clear();
+    }
+}
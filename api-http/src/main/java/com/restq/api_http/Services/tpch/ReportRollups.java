@@ -0,0 +1,141 @@
+package com.restq.api_http.Services.tpch;
+
+import com.restq.api_http.Services.DatabaseRestoreListener;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily rollups of LINEITEM and ORDERS for the Q1, Q4 and Q12 reports, kept as materialized
+ * views (tpch-rollups.sql). When enabled, those three endpoints sum the rollup rows of the
+ * requested days instead of scanning the base tables. The views are created on first use and
+ * refreshed at startup, since a reload may have changed the tables underneath them; after
+ * loading data into a running API, refresh them explicitly. Disabling switches the endpoints
+ * back to the base tables without dropping the views, so both paths can be measured on the
+ * same deployment.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class ReportRollups implements DatabaseRestoreListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportRollups.class);
+
+    private static final String ROLLUPS_SCRIPT = "tpch-rollups.sql";
+    private static final List<String> VIEWS = List.of("restq_q1_daily", "restq_q4_daily", "restq_q12_daily");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${benchmark.tpch.rollups.enabled:false}")
+    private volatile boolean enabled;
+
+    @Value("${benchmark.tpch.rollups.refresh-on-startup:true}")
+    private boolean refreshOnStartup;
+
+    // Set once the views exist; the endpoints fall back to the base tables until then
+    private volatile boolean ready;
+    private volatile long lastRefreshTimestamp;
+    private volatile long lastRefreshMs;
+
+    @PostConstruct
+    public void initialize() {
+        if (!enabled) {
+            log.info("TPC-H rollups disabled");
+            return;
+        }
+        try {
+            prepare(refreshOnStartup);
+        } catch (DataAccessException e) {
+            // A missing or half-loaded database should not keep the API from starting
+            log.error("Could not prepare TPC-H rollups, reports use the base tables: {}", e.getMessage());
+        }
+    }
+
+    /** Whether Q1, Q4 and Q12 should be answered from the rollups */
+    public boolean isActive() {
+        return enabled && ready;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Switch between runs; enabling creates the views if they do not exist yet */
+    public synchronized void setEnabled(boolean enabled) {
+        if (enabled && !ready) {
+            prepare(false);
+        }
+        this.enabled = enabled;
+        log.info("TPC-H rollups {}", enabled ? "enabled" : "disabled");
+    }
+
+    /** The restored database may predate the views; the endpoints use the base tables until they exist again */
+    @Override
+    public synchronized void databaseRestored() {
+        ready = false;
+        if (enabled) {
+            prepare(false);
+        }
+    }
+
+    /** Creates missing views and recomputes all of them from the base tables */
+    public synchronized void refresh() {
+        prepare(true);
+    }
+
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("active", isActive());
+        if (ready) {
+            statistics.put("last_refresh_timestamp", lastRefreshTimestamp);
+            statistics.put("last_refresh_ms", lastRefreshMs);
+            Map<String, Object> rows = new LinkedHashMap<>();
+            for (String view : VIEWS) {
+                rows.put(view, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + view, Long.class));
+            }
+            statistics.put("rows", rows);
+        }
+        return statistics;
+    }
+
+    private synchronized void prepare(boolean refresh) {
+        long start = System.nanoTime();
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pg_matviews WHERE schemaname = current_schema() AND matviewname = ANY(?)",
+                Integer.class, (Object) VIEWS.toArray(new String[0]));
+        try {
+            // Views that do not exist yet are filled as they are created
+            String script = new ClassPathResource(ROLLUPS_SCRIPT).getContentAsString(StandardCharsets.UTF_8);
+            jdbcTemplate.execute(script);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + ROLLUPS_SCRIPT, e);
+        }
+        if (refresh && existing != null && existing > 0) {
+            for (String view : VIEWS) {
+                jdbcTemplate.execute("REFRESH MATERIALIZED VIEW " + view);
+            }
+        }
+        jdbcTemplate.execute("ANALYZE " + String.join(", ", VIEWS));
+        ready = true;
+        lastRefreshTimestamp = System.currentTimeMillis();
+        lastRefreshMs = (System.nanoTime() - start) / 1_000_000L;
+        log.info("TPC-H rollups ready in {} ms ({} of {} views already existed{})", lastRefreshMs,
+                existing, VIEWS.size(), refresh && existing != null && existing > 0 ? ", refreshed" : "");
+    }
+}
@@ -0,0 +1,86 @@
+package com.restq.api_http.Services.tpch;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a report as a JSON array one row at a time while the rows are read from a
+ * database cursor, so neither the result list nor the serialized body is held in memory.
+ * The body is written after the controller returns, so the read-only transaction that
+ * keeps the cursor open is started here rather than around the controller method.
+ */
+@Service
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCH")
+public class ReportStreamWriter {
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("tpchTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
+    private ObjectWriter rowWriter;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void initialize() {
+        // Flushing is left to the generator buffer instead of once per row
+        rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    /** JSON array response whose rows come from the given repository stream */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> query) {
+        StreamingResponseBody body = output -> {
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> writeRows(query, output));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private <T> void writeRows(Supplier<Stream<T>> query, OutputStream output) {
+        try (Stream<T> rows = query.get();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            // The container owns the response stream
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<T> iterator = rows.iterator();
+            if (iterator.hasNext()) {
+                rowWriter.writeValue(generator, iterator.next());
+                // Send the first row right away; later rows go out as the buffers fill
+                generator.flush();
+            }
+            while (iterator.hasNext()) {
+                rowWriter.writeValue(generator, iterator.next());
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package com.restq.api_http;
 
-import com.restq.api_http.Controllers.tpch.RequestLoggingInterceptor;
+import com.restq.api_http.Controllers.EndpointMetricsInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -9,11 +10,18 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
-    // @Autowired
-    // private RequestLoggingInterceptor requestLoggingInterceptor;
+    @Autowired
+    private EndpointMetricsInterceptor endpointMetricsInterceptor;
 
-    // @Override
-    // public void addInterceptors(InterceptorRegistry registry) {
-    //     registry.addInterceptor(requestLoggingInterceptor);
-    // }
+    @Value("${benchmark.metrics.enabled:false}")
+    private boolean metricsEnabled;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Benchmark endpoints only; /api/config, /api/database and /api/metrics itself are not measured
+        if (metricsEnabled) {
+            registry.addInterceptor(endpointMetricsInterceptor)
+                    .addPathPatterns("/api/reports/**", "/api/tpcc/**");
+        }
+    }
 }
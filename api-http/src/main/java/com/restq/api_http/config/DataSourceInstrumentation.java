@@ -0,0 +1,134 @@
+package com.restq.api_http.config;
+
+import com.restq.api_http.Services.DataSourceMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Hooks {@link DataSourceMetrics} into the Hikari pool before its first connection. Hikari
+ * reports connection checkouts to the metrics as a tracker factory. With statement timing on,
+ * Hikari opens its physical connections through a wrapper whose statements time every
+ * execute call, which is the time spent in the PostgreSQL driver and on the server. The pool
+ * keeps wrapping the connections and statements in its own proxies as before.
+ */
+@Component
+public class DataSourceInstrumentation implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(DataSourceInstrumentation.class);
+
+    private final ObjectProvider<DataSourceMetrics> metrics;
+
+    public DataSourceInstrumentation(ObjectProvider<DataSourceMetrics> metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof HikariDataSource hikari) || hikari.getHikariPoolMXBean() != null) {
+            return bean;
+        }
+        DataSourceMetrics dataSourceMetrics = metrics.getObject();
+        if (!dataSourceMetrics.isEnabled()) {
+            return bean;
+        }
+        if (hikari.getMetricsTrackerFactory() == null && hikari.getMetricRegistry() == null) {
+            hikari.setMetricsTrackerFactory(dataSourceMetrics);
+        }
+        dataSourceMetrics.register(hikari);
+
+        if (dataSourceMetrics.isStatementsEnabled()) {
+            if (hikari.getDataSource() == null && hikari.getJdbcUrl() != null) {
+                // Same driver connections Hikari would open itself from the URL
+                DataSource driver = new DriverDataSource(hikari.getJdbcUrl(), hikari.getDriverClassName(),
+                        hikari.getDataSourceProperties(), hikari.getUsername(), hikari.getPassword());
+                hikari.setDataSource(new TimedDataSource(driver, dataSourceMetrics));
+                log.info("JDBC statement timing installed on pool {}", beanName);
+            } else {
+                log.warn("Pool {} is not configured by JDBC URL, statement timing is off", beanName);
+            }
+        }
+        return bean;
+    }
+
+    private static final class TimedDataSource extends DelegatingDataSource {
+        private final DataSourceMetrics metrics;
+
+        private TimedDataSource(DataSource target, DataSourceMetrics metrics) {
+            super(target);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return timed(obtainTargetDataSource().getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return timed(obtainTargetDataSource().getConnection(username, password));
+        }
+
+        private Connection timed(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new ConnectionHandler(connection, metrics));
+        }
+    }
+
+    // Hands out timed statements, everything else goes straight to the driver's connection
+    private record ConnectionHandler(Connection target, DataSourceMetrics metrics) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = forward(target, method, args);
+            if (result instanceof Statement statement) {
+                Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                        : result instanceof PreparedStatement ? PreparedStatement.class
+                        : Statement.class;
+                return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {type},
+                        new StatementHandler(statement, metrics));
+            }
+            return result;
+        }
+    }
+
+    // Times execute, executeQuery, executeUpdate, executeBatch and their large variants
+    private record StatementHandler(Statement target, DataSourceMetrics metrics) implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return forward(target, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return forward(target, method, args);
+            } finally {
+                metrics.recordStatement(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
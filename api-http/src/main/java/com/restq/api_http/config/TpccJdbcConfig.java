@@ -0,0 +1,20 @@
+package com.restq.api_http.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "benchmark.type", havingValue = "TPCC", matchIfMissing = false)
+public class TpccJdbcConfig {
+
+    // Used by the plain JDBC transactions so no EntityManager is opened per transaction
+    @Bean(name = "tpccJdbcTransactionManager")
+    public PlatformTransactionManager tpccJdbcTransactionManager(DataSource dataSource) {
+        return new DataSourceTransactionManager(dataSource);
+    }
+}
@@ -0,0 +1,226 @@
+-- PL/pgSQL versions of the five TPC-C transactions, used when benchmark.tpcc.transaction-mode=procedure.
+-- Installed by ProcedureTransactionService; every statement is CREATE OR REPLACE so reinstalling is safe.
+-- Each transaction is one function call, i.e. one round trip and one implicit transaction.
+
+CREATE OR REPLACE FUNCTION restq_tpcc_new_order(
+    p_w_id INT, p_d_id INT, p_c_id INT,
+    p_item_ids INT[], p_supply_w_ids INT[], p_quantities INT[])
+RETURNS TABLE (
+    order_id INT, customer_last VARCHAR, customer_credit VARCHAR, customer_discount NUMERIC,
+    warehouse_tax NUMERIC, district_tax NUMERIC, item_id INT, item_name VARCHAR,
+    supply_warehouse_id INT, line_quantity INT, item_price NUMERIC, line_amount NUMERIC,
+    stock_quantity INT)
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_ol_cnt INT := array_length(p_item_ids, 1);
+    v_dist_info VARCHAR;
+BEGIN
+    -- STRICT: a missing customer raises instead of leaving the outputs NULL
+    SELECT c_discount, c_last, c_credit INTO STRICT customer_discount, customer_last, customer_credit
+      FROM customer WHERE c_w_id = p_w_id AND c_d_id = p_d_id AND c_id = p_c_id;
+
+    SELECT w_tax INTO warehouse_tax FROM warehouse WHERE w_id = p_w_id;
+
+    UPDATE district SET d_next_o_id = d_next_o_id + 1
+     WHERE d_w_id = p_w_id AND d_id = p_d_id
+    RETURNING d_next_o_id - 1, d_tax INTO order_id, district_tax;
+
+    INSERT INTO oorder (o_w_id, o_d_id, o_id, o_c_id, o_entry_d, o_ol_cnt, o_all_local)
+    VALUES (p_w_id, p_d_id, order_id, p_c_id, now(), v_ol_cnt,
+            CASE WHEN p_w_id = ALL (p_supply_w_ids) THEN 1 ELSE 0 END);
+
+    INSERT INTO new_order (no_w_id, no_d_id, no_o_id) VALUES (p_w_id, p_d_id, order_id);
+
+    FOR v_line IN 1 .. v_ol_cnt LOOP
+        item_id := p_item_ids[v_line];
+        supply_warehouse_id := p_supply_w_ids[v_line];
+        line_quantity := p_quantities[v_line];
+
+        SELECT i_price, i_name INTO item_price, item_name FROM item WHERE i_id = item_id;
+        IF NOT FOUND THEN
+            RAISE EXCEPTION 'Item not found: %', item_id;
+        END IF;
+
+        SELECT s_quantity,
+               CASE p_d_id WHEN 1 THEN s_dist_01 WHEN 2 THEN s_dist_02 WHEN 3 THEN s_dist_03
+                           WHEN 4 THEN s_dist_04 WHEN 5 THEN s_dist_05 WHEN 6 THEN s_dist_06
+                           WHEN 7 THEN s_dist_07 WHEN 8 THEN s_dist_08 WHEN 9 THEN s_dist_09
+                           ELSE s_dist_10 END
+          INTO stock_quantity, v_dist_info
+          FROM stock WHERE s_i_id = item_id AND s_w_id = supply_warehouse_id
+           FOR UPDATE;
+
+        stock_quantity := CASE WHEN stock_quantity >= line_quantity
+                               THEN stock_quantity - line_quantity
+                               ELSE stock_quantity + 91 - line_quantity END;
+
+        UPDATE stock SET s_quantity = stock_quantity,
+                         s_ytd = s_ytd + line_quantity,
+                         s_order_cnt = s_order_cnt + 1,
+                         s_remote_cnt = s_remote_cnt + CASE WHEN supply_warehouse_id = p_w_id THEN 0 ELSE 1 END
+         WHERE s_i_id = item_id AND s_w_id = supply_warehouse_id;
+
+        line_amount := item_price * line_quantity * (1 - customer_discount) * (1 + warehouse_tax + district_tax);
+
+        INSERT INTO order_line (ol_w_id, ol_d_id, ol_o_id, ol_number, ol_i_id, ol_supply_w_id,
+                                ol_quantity, ol_amount, ol_dist_info)
+        VALUES (p_w_id, p_d_id, order_id, v_line, item_id, supply_warehouse_id,
+                line_quantity, line_amount, v_dist_info);
+
+        RETURN NEXT;
+    END LOOP;
+END;
+$$;
+
+-- Customer picked by id, or the middle one of those with the last name ordered by first name
+CREATE OR REPLACE FUNCTION restq_tpcc_find_customer(p_w_id INT, p_d_id INT, p_c_id INT, p_c_last VARCHAR)
+RETURNS INT
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_count INT;
+    v_c_id INT;
+BEGIN
+    IF p_c_id IS NOT NULL THEN
+        RETURN p_c_id;
+    END IF;
+    SELECT count(*) INTO v_count FROM customer
+     WHERE c_w_id = p_w_id AND c_d_id = p_d_id AND c_last = p_c_last;
+    IF v_count = 0 THEN
+        RAISE EXCEPTION 'Customer not found';
+    END IF;
+    SELECT c_id INTO v_c_id FROM customer
+     WHERE c_w_id = p_w_id AND c_d_id = p_d_id AND c_last = p_c_last
+     ORDER BY c_first OFFSET v_count / 2 LIMIT 1;
+    RETURN v_c_id;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION restq_tpcc_payment(
+    p_w_id INT, p_d_id INT, p_c_id INT, p_c_last VARCHAR, p_amount NUMERIC)
+RETURNS TABLE (
+    warehouse_name VARCHAR, warehouse_street_1 VARCHAR, warehouse_street_2 VARCHAR,
+    warehouse_city VARCHAR, warehouse_state VARCHAR, warehouse_zip VARCHAR,
+    district_name VARCHAR, district_street_1 VARCHAR, district_street_2 VARCHAR,
+    district_city VARCHAR, district_state VARCHAR, district_zip VARCHAR,
+    customer_id INT, customer_first VARCHAR, customer_middle VARCHAR, customer_last VARCHAR,
+    customer_balance NUMERIC, customer_credit VARCHAR)
+LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE warehouse SET w_ytd = w_ytd + p_amount WHERE w_id = p_w_id
+    RETURNING w_name, w_street_1, w_street_2, w_city, w_state, w_zip
+         INTO warehouse_name, warehouse_street_1, warehouse_street_2, warehouse_city, warehouse_state, warehouse_zip;
+
+    UPDATE district SET d_ytd = d_ytd + p_amount WHERE d_w_id = p_w_id AND d_id = p_d_id
+    RETURNING d_name, d_street_1, d_street_2, d_city, d_state, d_zip
+         INTO district_name, district_street_1, district_street_2, district_city, district_state, district_zip;
+
+    customer_id := restq_tpcc_find_customer(p_w_id, p_d_id, p_c_id, p_c_last);
+
+    UPDATE customer SET c_balance = c_balance - p_amount,
+                        c_ytd_payment = c_ytd_payment + p_amount,
+                        c_payment_cnt = c_payment_cnt + 1,
+                        c_data = CASE WHEN c_credit = 'BC'
+                                      THEN format('%s %s %s %s %s %s | %s', c_id, c_d_id, c_w_id, p_d_id, p_w_id,
+                                                  to_char(p_amount, 'FM999999990.00'), left(c_data, 450))
+                                      ELSE c_data END
+     WHERE c_w_id = p_w_id AND c_d_id = p_d_id AND c_id = customer_id
+    RETURNING c_first, c_middle, c_last, c_balance, c_credit
+         INTO customer_first, customer_middle, customer_last, customer_balance, customer_credit;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'Customer not found';
+    END IF;
+
+    INSERT INTO history (h_c_id, h_c_d_id, h_c_w_id, h_d_id, h_w_id, h_date, h_amount, h_data)
+    VALUES (customer_id, p_d_id, p_w_id, p_d_id, p_w_id, now(), p_amount,
+            warehouse_name || '    ' || district_name);
+
+    RETURN NEXT;
+END;
+$$;
+
+-- One row per order line of the customer's latest order
+CREATE OR REPLACE FUNCTION restq_tpcc_order_status(p_w_id INT, p_d_id INT, p_c_id INT, p_c_last VARCHAR)
+RETURNS TABLE (
+    customer_id INT, customer_first VARCHAR, customer_middle VARCHAR, customer_last VARCHAR,
+    customer_balance NUMERIC, order_id INT, order_entry_date TIMESTAMP, order_carrier_id INT,
+    line_number INT, item_id INT, supply_warehouse_id INT, line_quantity NUMERIC,
+    line_amount NUMERIC, line_delivery_date TIMESTAMP)
+LANGUAGE plpgsql AS $$
+BEGIN
+    customer_id := restq_tpcc_find_customer(p_w_id, p_d_id, p_c_id, p_c_last);
+
+    SELECT c_first, c_middle, c_last, c_balance
+      INTO customer_first, customer_middle, customer_last, customer_balance
+      FROM customer WHERE c_w_id = p_w_id AND c_d_id = p_d_id AND c_id = customer_id;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'Customer not found';
+    END IF;
+
+    SELECT o_id, o_entry_d, o_carrier_id INTO order_id, order_entry_date, order_carrier_id
+      FROM oorder WHERE o_w_id = p_w_id AND o_d_id = p_d_id AND o_c_id = customer_id
+     ORDER BY o_id DESC LIMIT 1;
+    IF NOT FOUND THEN
+        RAISE EXCEPTION 'No orders found';
+    END IF;
+
+    FOR line_number, item_id, supply_warehouse_id, line_quantity, line_amount, line_delivery_date IN
+        SELECT ol_number, ol_i_id, ol_supply_w_id, ol_quantity, ol_amount, ol_delivery_d
+          FROM order_line WHERE ol_w_id = p_w_id AND ol_d_id = p_d_id AND ol_o_id = order_id
+         ORDER BY ol_number
+    LOOP
+        RETURN NEXT;
+    END LOOP;
+END;
+$$;
+
+-- One row per delivered order; districts without a new order produce no row
+CREATE OR REPLACE FUNCTION restq_tpcc_delivery(p_w_id INT, p_carrier_id INT)
+RETURNS TABLE (district_id INT, order_id INT, customer_id INT, total_amount NUMERIC)
+LANGUAGE plpgsql AS $$
+BEGIN
+    FOR v_d_id IN 1 .. 10 LOOP
+        SELECT no_o_id INTO order_id FROM new_order
+         WHERE no_w_id = p_w_id AND no_d_id = v_d_id
+         ORDER BY no_o_id LIMIT 1
+           FOR UPDATE SKIP LOCKED;
+        CONTINUE WHEN NOT FOUND;
+
+        DELETE FROM new_order WHERE no_w_id = p_w_id AND no_d_id = v_d_id AND no_o_id = order_id;
+
+        UPDATE oorder SET o_carrier_id = p_carrier_id
+         WHERE o_w_id = p_w_id AND o_d_id = v_d_id AND o_id = order_id
+        RETURNING o_c_id INTO customer_id;
+
+        UPDATE order_line SET ol_delivery_d = now()
+         WHERE ol_w_id = p_w_id AND ol_d_id = v_d_id AND ol_o_id = order_id;
+
+        SELECT sum(ol_amount) INTO total_amount FROM order_line
+         WHERE ol_w_id = p_w_id AND ol_d_id = v_d_id AND ol_o_id = order_id;
+
+        UPDATE customer SET c_balance = c_balance + total_amount, c_delivery_cnt = c_delivery_cnt + 1
+         WHERE c_w_id = p_w_id AND c_d_id = v_d_id AND c_id = customer_id;
+
+        district_id := v_d_id;
+        RETURN NEXT;
+    END LOOP;
+END;
+$$;
+
+CREATE OR REPLACE FUNCTION restq_tpcc_stock_level(p_w_id INT, p_d_id INT, p_threshold INT)
+RETURNS BIGINT
+LANGUAGE plpgsql AS $$
+DECLARE
+    v_next_o_id INT;
+    v_count BIGINT;
+BEGIN
+    SELECT d_next_o_id INTO v_next_o_id FROM district WHERE d_w_id = p_w_id AND d_id = p_d_id;
+
+    SELECT count(DISTINCT s_i_id) INTO v_count
+      FROM stock
+     WHERE s_w_id = p_w_id AND s_quantity < p_threshold
+       AND s_i_id IN (SELECT ol_i_id FROM order_line
+                       WHERE ol_w_id = p_w_id AND ol_d_id = p_d_id
+                         AND ol_o_id >= greatest(1, v_next_o_id - 20) AND ol_o_id < v_next_o_id);
+    RETURN v_count;
+END;
+$$;
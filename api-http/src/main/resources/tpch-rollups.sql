@@ -0,0 +1,51 @@
+-- Daily pre-aggregates behind the Q1, Q4 and Q12 reports, used when benchmark.tpch.rollups.enabled=true.
+-- Created by ReportRollups; every statement is IF NOT EXISTS, so running the script again is safe.
+-- Each view keeps one row per day and group. The report endpoints only take whole-day bounds, so a
+-- date range query over the view sums whole rows and gives the same result as the scan of the base tables.
+
+-- Q1: sums and counts per ship date, return flag and line status; the averages are the sums over the count
+CREATE MATERIALIZED VIEW IF NOT EXISTS restq_q1_daily AS
+SELECT l_shipdate,
+       l_returnflag,
+       l_linestatus,
+       SUM(l_quantity) AS sum_qty,
+       SUM(l_extendedprice) AS sum_base_price,
+       SUM(l_extendedprice * (1 - l_discount)) AS sum_disc_price,
+       SUM(l_extendedprice * (1 - l_discount) * (1 + l_tax)) AS sum_charge,
+       SUM(l_discount) AS sum_disc,
+       COUNT(*) AS count_order
+FROM lineitem
+GROUP BY l_shipdate, l_returnflag, l_linestatus;
+
+CREATE UNIQUE INDEX IF NOT EXISTS restq_q1_daily_key
+    ON restq_q1_daily (l_shipdate, l_returnflag, l_linestatus);
+
+-- Q4: orders with at least one late line, per order date and priority
+CREATE MATERIALIZED VIEW IF NOT EXISTS restq_q4_daily AS
+SELECT o_orderdate,
+       o_orderpriority,
+       COUNT(*) AS order_count
+FROM orders o
+WHERE EXISTS (
+    SELECT 1 FROM lineitem l
+    WHERE l.l_orderkey = o.o_orderkey
+    AND l.l_commitdate < l.l_receiptdate)
+GROUP BY o_orderdate, o_orderpriority;
+
+CREATE UNIQUE INDEX IF NOT EXISTS restq_q4_daily_key
+    ON restq_q4_daily (o_orderdate, o_orderpriority);
+
+-- Q12: late-committed, early-shipped lines per receipt date and ship mode, split by order priority
+CREATE MATERIALIZED VIEW IF NOT EXISTS restq_q12_daily AS
+SELECT l.l_receiptdate,
+       l.l_shipmode,
+       SUM(CASE WHEN o.o_orderpriority = '1-URGENT' OR o.o_orderpriority = '2-HIGH' THEN 1 ELSE 0 END) AS high_line_count,
+       SUM(CASE WHEN o.o_orderpriority <> '1-URGENT' AND o.o_orderpriority <> '2-HIGH' THEN 1 ELSE 0 END) AS low_line_count
+FROM orders o
+JOIN lineitem l ON l.l_orderkey = o.o_orderkey
+WHERE l.l_commitdate < l.l_receiptdate
+AND l.l_shipdate < l.l_commitdate
+GROUP BY l.l_receiptdate, l.l_shipmode;
+
+CREATE UNIQUE INDEX IF NOT EXISTS restq_q12_daily_key
+    ON restq_q12_daily (l_receiptdate, l_shipmode);
@@ -0,0 +1,76 @@
+package com.restq.api_http.Benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class AliasSamplerTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    // Observed frequencies may be this many standard deviations off before the test fails
+    private static final double MAX_DEVIATIONS = 5.0;
+
+    @Test
+    void samplesTheTpccMixInProportion() {
+        assertFrequencies(List.of("NEW_ORDER", "PAYMENT", "ORDER_STATUS", "DELIVERY", "STOCK_LEVEL"),
+                new double[] {45, 43, 4, 4, 4});
+    }
+
+    @Test
+    void samplesWeightsThatDoNotSumToOne() {
+        assertFrequencies(List.of("a", "b", "c", "d"), new double[] {0.1, 2.5, 0.0, 7.0});
+    }
+
+    @Test
+    void buildsFromAMapInIterationOrder() {
+        Map<String, Double> weights = new LinkedHashMap<>();
+        weights.put("pricing-summary", 0.7);
+        weights.put("shipping-modes", 0.2);
+        weights.put("revenue-increase", 0.1);
+        AliasSampler<String> sampler = AliasSampler.of(weights);
+
+        assertEquals(List.copyOf(weights.keySet()), sampler.getOutcomes());
+        assertFrequencies(sampler, new double[] {0.7, 0.2, 0.1});
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler<>(List.of("a", "b"), new double[] {1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler<>(List.of("a"), new double[] {-1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler<>(List.of("a"), new double[] {Double.NaN}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasSampler<>(List.of("a", "b"), new double[] {0, 0}));
+    }
+
+    private static void assertFrequencies(List<String> outcomes, double[] weights) {
+        assertFrequencies(new AliasSampler<>(outcomes, weights), weights);
+    }
+
+    private static void assertFrequencies(AliasSampler<String> sampler, double[] weights) {
+        List<String> outcomes = sampler.getOutcomes();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            counts.merge(sampler.sample(random), 1, Integer::sum);
+        }
+
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        for (int i = 0; i < outcomes.size(); i++) {
+            String outcome = outcomes.get(i);
+            double expected = weights[i] / total;
+            double observed = counts.getOrDefault(outcome, 0) / (double) SAMPLES;
+            double deviation = Math.sqrt(expected * (1 - expected) / SAMPLES);
+            assertEquals(expected, observed, MAX_DEVIATIONS * deviation,
+                    () -> "Frequency of " + outcome + " in " + counts);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.restq.api_jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line, but unless -rf / -rff are
+ * given, results are written as JSON to jmh-results/jmh-&lt;timestamp&gt;.json so runs of
+ * different releases can be compared.
+ */
+public class JmhRunner {
+
+    private static final String RESULTS_DIRECTORY = "jmh-results";
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            new File(RESULTS_DIRECTORY).mkdirs();
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            options.result(RESULTS_DIRECTORY + "/jmh-" + timestamp + ".json");
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,66 @@
+package com.restq.api_jmh;
+
+import com.restq.api_http.Services.tpcc.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BigDecimal arithmetic of newOrderTransaction: one line amount per order line, summed
+ * into the order total. Prices, discount and taxes have the scales of the TPC-C columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class NewOrderAmountBenchmark {
+
+    @Param({"5", "10", "15"})
+    private int orderLines;
+
+    private BigDecimal[] itemPrices;
+    private int[] quantities;
+    private BigDecimal customerDiscount;
+    private BigDecimal warehouseTax;
+    private BigDecimal districtTax;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        itemPrices = new BigDecimal[orderLines];
+        quantities = new int[orderLines];
+        for (int i = 0; i < orderLines; i++) {
+            // I_PRICE 1.00 - 100.00, OL_QUANTITY 1 - 10
+            itemPrices[i] = BigDecimal.valueOf(random.nextInt(100, 10_001), 2);
+            quantities[i] = random.nextInt(1, 11);
+        }
+        // C_DISCOUNT 0.0000 - 0.5000, W_TAX and D_TAX 0.0000 - 0.2000
+        customerDiscount = BigDecimal.valueOf(random.nextInt(0, 5_001), 4);
+        warehouseTax = BigDecimal.valueOf(random.nextInt(0, 2_001), 4);
+        districtTax = BigDecimal.valueOf(random.nextInt(0, 2_001), 4);
+    }
+
+    @Benchmark
+    public BigDecimal orderTotal() {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (int i = 0; i < orderLines; i++) {
+            totalAmount = totalAmount.add(TransactionService.lineAmount(itemPrices[i], quantities[i],
+                    customerDiscount, warehouseTax, districtTax));
+        }
+        return totalAmount;
+    }
+}
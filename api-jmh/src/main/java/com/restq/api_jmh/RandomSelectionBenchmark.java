@@ -0,0 +1,80 @@
+package com.restq.api_jmh;
+
+import com.restq.api_http.Benchmark.AliasSampler;
+import com.restq.api_http.Benchmark.ApiBenchmark;
+import com.restq.api_http.utils.TpccUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request random choices of the benchmark clients: TPC-C NURand customer and item ids,
+ * and the endpoint pick of ApiBenchmark for a TPC-H mix with several URLs per endpoint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RandomSelectionBenchmark {
+
+    @Param({"22"})
+    private int endpointCount;
+
+    @Param({"10"})
+    private int urlsPerEndpoint;
+
+    private Random random;
+    private SplittableRandom splittableRandom;
+    private AliasSampler<List<String>> endpointSampler;
+
+    @Setup
+    public void setUp() {
+        random = new Random(42);
+        splittableRandom = new SplittableRandom(42);
+        Map<String, Double> probabilities = new LinkedHashMap<>();
+        Map<String, List<String>> endpoints = new LinkedHashMap<>();
+        for (int e = 1; e <= endpointCount; e++) {
+            String name = "q" + e;
+            probabilities.put(name, 1.0 / endpointCount);
+            List<String> urls = new ArrayList<>();
+            for (int u = 0; u < urlsPerEndpoint; u++) {
+                urls.add("/api/reports/" + name + "?p=" + u);
+            }
+            endpoints.put(name, urls);
+        }
+        endpointSampler = ApiBenchmark.endpointSampler(probabilities, endpoints);
+    }
+
+    @Benchmark
+    public int nonUniformCustomerId() {
+        return TpccUtil.getNonUniformRandom(1023, 1, 3000, random);
+    }
+
+    @Benchmark
+    public int nonUniformItemId() {
+        return TpccUtil.getNonUniformRandom(8191, 1, 100000, random);
+    }
+
+    @Benchmark
+    public String chooseEndpoint() {
+        return ApiBenchmark.chooseEndpoint(endpointSampler, splittableRandom);
+    }
+}
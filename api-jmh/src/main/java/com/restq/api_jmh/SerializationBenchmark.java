@@ -0,0 +1,83 @@
+package com.restq.api_jmh;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.restq.api_http.DTO.tpcc.NewOrderResponse;
+import com.restq.api_http.DTO.tpch.PricingSummaryReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response body serialization, as the API's message converter does it: New-Order responses
+ * and the Q1 pricing summary report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    @Param({"5", "10", "15"})
+    private int orderLines;
+
+    private ObjectMapper mapper;
+    private NewOrderResponse newOrderResponse;
+    private List<PricingSummaryReport> pricingSummaryReport;
+
+    @Setup
+    public void setUp() {
+        // Same settings as the mapper Spring Boot configures for the API
+        mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        List<NewOrderResponse.OrderLineInfo> lines = new ArrayList<>();
+        for (int i = 1; i <= orderLines; i++) {
+            lines.add(new NewOrderResponse.OrderLineInfo(i * 6151, "item-name-" + i, 1,
+                    BigDecimal.valueOf(i % 10 + 1), new BigDecimal("42.17"), new BigDecimal("379.5300"), 57 + i));
+        }
+        newOrderResponse = new NewOrderResponse(1, 7, 2143, 3001, LocalDateTime.of(2025, 1, 15, 10, 30),
+                new BigDecimal("3917.1524"), "ABLEPRESEING", "GC", new BigDecimal("0.2315"),
+                new BigDecimal("0.1187"), new BigDecimal("0.0453"), lines);
+
+        // Q1 returns one row per return flag and line status
+        pricingSummaryReport = List.of(
+                report("A", "F", 37734107L), report("N", "F", 991417L),
+                report("N", "O", 74476040L), report("R", "F", 37719753L));
+    }
+
+    @Benchmark
+    public byte[] newOrderResponse() throws Exception {
+        return mapper.writeValueAsBytes(newOrderResponse);
+    }
+
+    @Benchmark
+    public byte[] pricingSummaryReport() throws Exception {
+        return mapper.writeValueAsBytes(pricingSummaryReport);
+    }
+
+    private static PricingSummaryReport report(String returnFlag, String lineStatus, long quantity) {
+        return new PricingSummaryReport(returnFlag, lineStatus, BigDecimal.valueOf(quantity),
+                new BigDecimal("56586554400.73"), new BigDecimal("53758257134.8700"),
+                new BigDecimal("55909065222.827692"), 25.522005853257337, 38273.129734621674,
+                0.04998529583839799, 1478493L);
+    }
+}
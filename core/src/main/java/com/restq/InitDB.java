@@ -1,5 +1,7 @@
 package com.restq;
 
+import com.restq.core.DBDataLoad.DatabaseSnapshotService;
+import com.restq.core.DBDataLoad.PhysicalDesignService;
 import com.restq.core.benchmark.BenchmarkConfig;
 import com.restq.core.benchmark.BenchmarkFactory;
 import com.restq.core.benchmark.BenchmarkType;
@@ -11,6 +13,8 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 
+import java.util.List;
+
 @SpringBootApplication
 @Slf4j
 public class InitDB implements CommandLineRunner {
@@ -18,6 +22,9 @@ public class InitDB implements CommandLineRunner {
     @Autowired
     private BenchmarkFactory benchmarkFactory;
 
+    @Autowired
+    private DatabaseSnapshotService snapshotService;
+
     // Benchmark Configuration
     @Value("${benchmark.type:TPCC}")
     private String benchmarkType;
@@ -31,6 +38,14 @@ public class InitDB implements CommandLineRunner {
     @Value("${benchmark.batch-size:0}")
     private int batchSize;
 
+    // none, create (snapshot the loaded database) or restore (reset it from the snapshot)
+    @Value("${benchmark.snapshot:none}")
+    private String snapshotAction;
+
+    // Comma-separated physical design profiles applied after the load: none, indexes, brin, partitioned
+    @Value("${benchmark.physical-design:none}")
+    private String physicalDesign;
+
     // Database Configuration
     @Value("${spring.datasource.url}")
     private String dbUrl;
@@ -70,6 +85,19 @@ public class InitDB implements CommandLineRunner {
         log.info("Database URL: {}", dbUrl);
         log.info("Database User: {}", dbUsername);
 
+        String snapshot = snapshotAction.trim().toLowerCase();
+        if (!snapshot.equals("none") && !snapshot.equals("create") && !snapshot.equals("restore")) {
+            throw new IllegalArgumentException("Unknown snapshot action: " + snapshotAction + " (expected none, create or restore)");
+        }
+        if (snapshot.equals("restore")) {
+            // The snapshot already holds a loaded database, nothing needs to be generated
+            log.info("Restoring {} database from {}", benchmark.getDisplayName(), snapshotService.snapshotName(dbUrl));
+            snapshotService.restoreSnapshot(dbUrl, dbUsername, dbPassword);
+            applyPhysicalDesign(benchmark, false);
+            logDatabaseInfo(benchmark);
+            return;
+        }
+
         // Create configuration with strategy-based validation
         BenchmarkConfig config;
         try {
@@ -93,22 +121,33 @@ public class InitDB implements CommandLineRunner {
         updateEntityScanPackages(benchmark);
 
         // Check if database is already populated
+        boolean populated = false;
         try {
-            if (benchmarkFactory.isDatabasePopulated(benchmark, dbUrl, dbUsername, dbPassword)) {
-                log.info("{} database is already populated. Skipping initialization.", benchmark.getDisplayName());
-                logDatabaseInfo(benchmark);
-                return;
-            }
+            populated = benchmarkFactory.isDatabasePopulated(benchmark, dbUrl, dbUsername, dbPassword, config.getScaleFactor());
         } catch (Exception e) {
             log.warn("Could not check database population status: {}", e.getMessage());
             log.info("Proceeding with database initialization...");
         }
+        if (populated) {
+            log.info("{} database is already populated. Skipping initialization.", benchmark.getDisplayName());
+            applyPhysicalDesign(benchmark, false);
+            if (snapshot.equals("create")) {
+                snapshotService.createSnapshot(dbUrl, dbUsername, dbPassword);
+            }
+            logDatabaseInfo(benchmark);
+            return;
+        }
 
         // Initialize database using the appropriate strategy
         try {
             log.info("Initializing {} database...", benchmark.getDisplayName());
             benchmarkFactory.initializeDatabase(config, dbUrl, dbUsername, dbPassword);
             log.info("{} database initialization completed successfully!", benchmark.getDisplayName());
+            // Before the snapshot, so restores come back with the same design
+            applyPhysicalDesign(benchmark, true);
+            if (snapshot.equals("create")) {
+                snapshotService.createSnapshot(dbUrl, dbUsername, dbPassword);
+            }
             
             logDatabaseInfo(benchmark);
         } catch (Exception e) {
@@ -117,6 +156,17 @@ public class InitDB implements CommandLineRunner {
         }
     }
 
+    private void applyPhysicalDesign(BenchmarkType benchmark, boolean freshLoad) throws Exception {
+        boolean none = physicalDesign.trim().equalsIgnoreCase(PhysicalDesignService.NONE);
+        if (none && !freshLoad) {
+            return;
+        }
+        // A fresh load still clears the profiles recorded for the tables it replaced
+        List<String> applied = benchmarkFactory.applyPhysicalDesign(benchmark, dbUrl, dbUsername, dbPassword,
+                physicalDesign, freshLoad);
+        log.info("Physical design profiles: {}", applied.isEmpty() ? PhysicalDesignService.NONE : String.join(", ", applied));
+    }
+
     private void updateEntityScanPackages(BenchmarkType benchmarkType) {
         String[] packages = benchmarkType.getEntityPackages();
         log.info("Entity packages for {}: {}", benchmarkType.getDisplayName(), String.join(", ", packages));
@@ -0,0 +1,247 @@
+package com.restq.core.DBDataLoad;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PostgreSQL connection handed to benchbase loaders in COPY mode. The loaders still generate
+ * rows through {@code INSERT INTO table [(columns)] VALUES (?, ...)} prepared statements, but
+ * the bound rows are collected as CSV and sent with {@code COPY table [(columns)] FROM STDIN}
+ * instead of being executed as insert batches. Without a column list, both take the columns in
+ * table order.
+ * <p>
+ * Rows are buffered per statement and copied once the buffer reaches {@link #FLUSH_CHARS}, on
+ * commit, and when the statement or connection is closed. Any statement the wrapper does not
+ * recognise flushes all buffers first, then runs unchanged on the real connection; an INSERT
+ * that cannot be copied is logged once per statement text, since it loads row by row.
+ */
+@Slf4j
+final class CopyLoadConnection implements InvocationHandler {
+
+    // About 8 MB of CSV per statement before it is copied
+    static final int FLUSH_CHARS = 4 * 1024 * 1024;
+
+    private static final Pattern INSERT = Pattern.compile(
+            "^\\s*INSERT\\s+INTO\\s+(\\S+?)\\s*(?:\\(([^)]*)\\))?\\s*VALUES\\s*\\(([^)]*)\\)\\s*;?\\s*$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ANY_INSERT = Pattern.compile("^\\s*INSERT\\s", Pattern.CASE_INSENSITIVE);
+
+    // Shared by all loader threads, so each statement text is reported only once
+    private static final Set<String> uncopiedInserts = ConcurrentHashMap.newKeySet();
+
+    private final Connection connection;
+    private final CopyManager copyManager;
+    private final List<CopyStatement> openStatements = new ArrayList<>();
+    private Connection proxy;
+
+    private CopyLoadConnection(Connection connection) throws SQLException {
+        this.connection = connection;
+        this.copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    /** Wraps an open PostgreSQL connection; closing the wrapper closes it */
+    static Connection wrap(Connection connection) throws SQLException {
+        CopyLoadConnection handler = new CopyLoadConnection(connection);
+        handler.proxy = (Connection) Proxy.newProxyInstance(CopyLoadConnection.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+        return handler.proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "prepareStatement":
+                if (args.length == 1) {
+                    Matcher insert = INSERT.matcher((String) args[0]);
+                    if (insert.matches() && onlyPlaceholders(insert.group(3))) {
+                        CopyStatement statement = new CopyStatement(insert.group(1), insert.group(2),
+                                insert.group(3).split(",").length);
+                        openStatements.add(statement);
+                        return statement.proxy;
+                    }
+                }
+                if (ANY_INSERT.matcher((String) args[0]).find() && uncopiedInserts.add((String) args[0])) {
+                    log.warn("INSERT is not in a form COPY mode can copy, loading it row by row: {}", args[0]);
+                }
+                flushAll();
+                break;
+            case "createStatement":
+            case "prepareCall":
+                flushAll();
+                break;
+            case "commit":
+                flushAll();
+                break;
+            case "close":
+                try {
+                    flushAll();
+                } finally {
+                    connection.close();
+                }
+                return null;
+            default:
+                break;
+        }
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void flushAll() throws SQLException {
+        for (CopyStatement statement : openStatements) {
+            statement.flush();
+        }
+    }
+
+    private static boolean onlyPlaceholders(String values) {
+        return Arrays.stream(values.split(",")).allMatch(value -> value.trim().equals("?"));
+    }
+
+    /** One INSERT statement turned into buffered CSV rows for a single COPY target */
+    private final class CopyStatement implements InvocationHandler {
+
+        private final String copySql;
+        private final Object[] parameters;
+        private final StringBuilder buffer = new StringBuilder();
+        private final PreparedStatement proxy;
+        private int bufferedRows;
+        private int batchRows;
+        private boolean closed;
+
+        CopyStatement(String table, String columns, int parameterCount) {
+            this.copySql = "COPY " + table + (columns != null ? " (" + columns.trim() + ")" : "")
+                    + " FROM STDIN WITH (FORMAT csv)";
+            this.parameters = new Object[parameterCount];
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(CopyLoadConnection.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                // setNull(index, sqlType) binds NULL, every other setter binds its value
+                parameters[(Integer) args[0] - 1] = name.equals("setNull") ? null : args[1];
+                return null;
+            }
+            switch (name) {
+                case "addBatch":
+                    addRow();
+                    return null;
+                case "executeBatch":
+                    int[] counts = new int[batchRows];
+                    Arrays.fill(counts, 1);
+                    batchRows = 0;
+                    return counts;
+                case "executeUpdate":
+                case "execute":
+                    if (args != null && args.length > 0) {
+                        break;
+                    }
+                    addRow();
+                    batchRows = 0;
+                    return name.equals("execute") ? Boolean.FALSE : 1;
+                case "clearParameters":
+                    Arrays.fill(parameters, null);
+                    return null;
+                case "clearBatch":
+                    return null;
+                case "close":
+                    if (!closed) {
+                        flush();
+                        openStatements.remove(this);
+                        closed = true;
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return CopyLoadConnection.this.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return copySql;
+                default:
+                    // Tuning calls such as setFetchSize or setQueryTimeout do not apply to COPY
+                    if (name.startsWith("set") && args != null && args.length == 1) {
+                        return null;
+                    }
+                    break;
+            }
+            throw new SQLFeatureNotSupportedException("COPY load statement does not support " + name);
+        }
+
+        private void addRow() throws SQLException {
+            for (int i = 0; i < parameters.length; i++) {
+                if (i > 0) {
+                    buffer.append(',');
+                }
+                appendCsv(parameters[i]);
+            }
+            buffer.append('\n');
+            bufferedRows++;
+            batchRows++;
+            if (buffer.length() >= FLUSH_CHARS) {
+                flush();
+            }
+        }
+
+        private void appendCsv(Object value) {
+            if (value == null) {
+                // An unquoted empty field is NULL in CSV format
+                return;
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                buffer.append(value);
+                return;
+            }
+            String text = value.toString();
+            buffer.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    buffer.append('"');
+                }
+                buffer.append(c);
+            }
+            buffer.append('"');
+        }
+
+        void flush() throws SQLException {
+            if (bufferedRows == 0) {
+                return;
+            }
+            try {
+                copyManager.copyIn(copySql, new StringReader(buffer.toString()));
+            } catch (IOException e) {
+                throw new SQLException("COPY failed: " + copySql, e);
+            }
+            log.debug("Copied {} rows: {}", bufferedRows, copySql);
+            buffer.setLength(0);
+            bufferedRows = 0;
+        }
+    }
+}
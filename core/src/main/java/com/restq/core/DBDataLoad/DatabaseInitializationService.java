@@ -8,18 +8,56 @@ import com.oltpbenchmark.benchmarks.tpch.TPCHBenchmark;
 import com.oltpbenchmark.benchmarks.tpch.TPCHLoader;
 import com.oltpbenchmark.types.DatabaseType;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @Slf4j
 public class DatabaseInitializationService {
 
+    private static final String[] TPCC_TABLES = {"WAREHOUSE", "DISTRICT", "CUSTOMER", "ITEM", "STOCK", "OORDER", "NEW_ORDER", "ORDER_LINE", "HISTORY"};
+    private static final String[] TPCH_TABLES = {"CUSTOMER", "LINEITEM", "NATION", "ORDERS", "PART", "PARTSUPP", "REGION", "SUPPLIER"};
+
+    // Initial TPC-C population (TPC-C 4.3.3.1); every order has 5 to 15 order lines
+    private static final long TPCC_ITEMS = 100_000;
+    private static final long TPCC_DISTRICTS_PER_WAREHOUSE = 10;
+    private static final long TPCC_CUSTOMERS_PER_DISTRICT = 3_000;
+    private static final long TPCC_NEW_ORDERS_PER_DISTRICT = 900;
+
+    // Rows of one warehouse and the column that holds it, children before parents
+    private static final String[][] TPCC_WAREHOUSE_COLUMNS = {
+            {"ORDER_LINE", "OL_W_ID"}, {"NEW_ORDER", "NO_W_ID"}, {"OORDER", "O_W_ID"}, {"HISTORY", "H_W_ID"},
+            {"CUSTOMER", "C_W_ID"}, {"DISTRICT", "D_W_ID"}, {"STOCK", "S_W_ID"}, {"WAREHOUSE", "W_ID"}};
+    // TPC-H tables, children before parents
+    private static final String[] TPCH_DELETE_ORDER = {"LINEITEM", "PARTSUPP", "ORDERS", "CUSTOMER", "SUPPLIER", "PART", "NATION", "REGION"};
+
+    // Loader threads run concurrently; 0 uses one per available processor
+    @Value("${benchmark.loader-threads:0}")
+    private int loaderPoolSize;
+
+    // jdbc: benchbase insert batches; copy: COPY FROM STDIN with indexes built afterwards (PostgreSQL)
+    @Value("${benchmark.load-method:jdbc}")
+    private String loadMethod;
+
+    // Seconds between per-table progress reports while loading, 0 disables them
+    @Value("${benchmark.load-progress-interval-seconds:10}")
+    private int progressIntervalSeconds;
+
+    // Record finished loader tasks so an interrupted load resumes instead of starting over
+    @Value("${benchmark.load-resume:true}")
+    private boolean loadResume;
+
     /**
      * Initialize TPCC database with the specified configuration
      */
@@ -30,7 +68,8 @@ public class DatabaseInitializationService {
         log.info("Scale Factor: {} (warehouses)", (int)scaleFactor);
         
         try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
-            if (isTPCCDatabasePopulated(conn)) {
+            LoadCheckpoint checkpoint = openCheckpoint(conn, dbUrl, username, password, "TPCC");
+            if (isTPCCDatabasePopulated(conn, checkpoint, scaleFactor)) {
                 log.info("TPCC database is already populated with data");
                 return;
             }
@@ -41,9 +80,16 @@ public class DatabaseInitializationService {
             // Create and configure TPCC benchmark
             TPCCBenchmark benchmark = new TPCCBenchmark(workConf);
             
-            // Create database schema
-            log.info("Creating TPCC database schema...");
-            benchmark.createDatabase();
+            if (resumeTPCCLoad(conn, checkpoint, scaleFactor)) {
+                log.info("Resuming interrupted TPCC load...");
+            } else {
+                // Create database schema
+                log.info("Creating TPCC database schema...");
+                benchmark.createDatabase();
+                if (checkpoint != null) {
+                    checkpoint.start(conn, scaleFactor);
+                }
+            }
             
             // Refresh catalog
             log.info("Refreshing TPCC catalog...");
@@ -53,13 +99,11 @@ public class DatabaseInitializationService {
             log.info("Loading TPCC data...");
             TPCCLoader loader = new TPCCLoader(benchmark);
             List<LoaderThread> loaderThreads = loader.createLoaderThreads();
-            
-            for (LoaderThread thread : loaderThreads) {
-                thread.run();
-            }
+            createParallelLoader(dbUrl, username, password).load("TPCC", loaderThreads, TPCC_TABLES, checkpoint);
+
+            validateLoad("TPCC", conn, checkpoint, tpccRowCountProblems(conn, scaleFactor, true));
             
             log.info("TPCC database initialization completed successfully");
-            printTPCCStatistics(conn);
             
         } catch (Exception e) {
             log.error("Failed to initialize TPCC database", e);
@@ -77,7 +121,8 @@ public class DatabaseInitializationService {
         log.info("Scale Factor: {}", scaleFactor);
         
         try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
-            if (isTPCHDatabasePopulated(conn)) {
+            LoadCheckpoint checkpoint = openCheckpoint(conn, dbUrl, username, password, "TPCH");
+            if (isTPCHDatabasePopulated(conn, checkpoint, scaleFactor)) {
                 log.info("TPC-H database is already populated with data");
                 return;
             }
@@ -88,9 +133,16 @@ public class DatabaseInitializationService {
             // Create and configure TPC-H benchmark
             TPCHBenchmark benchmark = new TPCHBenchmark(workConf);
             
-            // Create database schema
-            log.info("Creating TPC-H database schema...");
-            benchmark.createDatabase();
+            if (resumeTPCHLoad(conn, checkpoint, scaleFactor)) {
+                log.info("Resuming interrupted TPC-H load...");
+            } else {
+                // Create database schema
+                log.info("Creating TPC-H database schema...");
+                benchmark.createDatabase();
+                if (checkpoint != null) {
+                    checkpoint.start(conn, scaleFactor);
+                }
+            }
             
             // Refresh catalog
             log.info("Refreshing TPC-H catalog...");
@@ -100,13 +152,11 @@ public class DatabaseInitializationService {
             log.info("Loading TPC-H data...");
             TPCHLoader loader = new TPCHLoader(benchmark);
             List<LoaderThread> loaderThreads = loader.createLoaderThreads();
-            
-            for (LoaderThread thread : loaderThreads) {
-                thread.run();
-            }
+            createParallelLoader(dbUrl, username, password).load("TPC-H", loaderThreads, TPCH_TABLES, checkpoint);
+
+            validateLoad("TPC-H", conn, checkpoint, tpchRowCountProblems(conn, scaleFactor));
             
             log.info("TPC-H database initialization completed successfully");
-            printTPCHStatistics(conn);
             
         } catch (Exception e) {
             log.error("Failed to initialize TPC-H database", e);
@@ -129,64 +179,261 @@ public class DatabaseInitializationService {
         return workConf;
     }
 
-    private boolean isTPCCDatabasePopulated(Connection conn) {
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM WAREHOUSE");
-            rs.next();
-            return rs.getInt(1) > 0;
+    /**
+     * Checks whether the TPC-C database is ready for the given number of warehouses. A database
+     * whose last load completed is trusted; one loaded without completion markers must have the
+     * row counts of its scale factor.
+     */
+    public boolean isTPCCDatabasePopulated(String dbUrl, String username, String password, double scaleFactor) {
+        try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+            return isTPCCDatabasePopulated(conn, readCheckpoint(conn, dbUrl, username, password, "TPCC"), scaleFactor);
         } catch (Exception e) {
+            log.debug("TPC-C database check failed (likely not populated): {}", e.getMessage());
             return false;
         }
     }
 
-    private boolean isTPCHDatabasePopulated(Connection conn) {
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM CUSTOMER");
-            rs.next();
-            return rs.getInt(1) > 0;
+    /**
+     * Checks whether the TPC-H database is ready for the given scale factor, in the same way
+     * as {@link #isTPCCDatabasePopulated(String, String, String, double)}
+     */
+    public boolean isTPCHDatabasePopulated(String dbUrl, String username, String password, double scaleFactor) {
+        try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+            return isTPCHDatabasePopulated(conn, readCheckpoint(conn, dbUrl, username, password, "TPCH"), scaleFactor);
         } catch (Exception e) {
+            log.debug("TPC-H database check failed (likely not populated): {}", e.getMessage());
             return false;
         }
     }
 
-    private void printTPCCStatistics(Connection conn) {
+    private boolean isTPCCDatabasePopulated(Connection conn, LoadCheckpoint checkpoint, double scaleFactor) {
+        try {
+            if (checkpoint != null && checkpoint.isCompleted(scaleFactor)) {
+                // Row counts were validated when that load finished
+                return countRows(conn, "WAREHOUSE").get("WAREHOUSE") > 0;
+            }
+            if (checkpoint != null && checkpoint.isInterrupted(scaleFactor)) {
+                log.info("TPCC load was interrupted after {} loader tasks", checkpoint.completedChunkCount());
+                return false;
+            }
+            return matchesScaleFactor("TPCC", scaleFactor, tpccRowCountProblems(conn, scaleFactor, false));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isTPCHDatabasePopulated(Connection conn, LoadCheckpoint checkpoint, double scaleFactor) {
+        try {
+            if (checkpoint != null && checkpoint.isCompleted(scaleFactor)) {
+                // Row counts were validated when that load finished
+                return countRows(conn, "CUSTOMER").get("CUSTOMER") > 0;
+            }
+            if (checkpoint != null && checkpoint.isInterrupted(scaleFactor)) {
+                log.info("TPC-H load was interrupted after {} loader tasks", checkpoint.completedChunkCount());
+                return false;
+            }
+            return matchesScaleFactor("TPC-H", scaleFactor, tpchRowCountProblems(conn, scaleFactor));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean matchesScaleFactor(String benchmarkName, double scaleFactor, List<String> problems) {
+        if (problems.isEmpty()) {
+            return true;
+        }
+        log.info("{} database does not match scale factor {}: {}", benchmarkName, scaleFactor, String.join("; ", problems));
+        return false;
+    }
+
+    /**
+     * Row count mismatches of the TPC-C tables. Right after a load every table must hold its
+     * initial population; afterwards the workload has added orders and history rows and
+     * delivered new orders, so those tables are only checked against a lower bound.
+     */
+    private List<String> tpccRowCountProblems(Connection conn, double scaleFactor, boolean freshLoad) throws SQLException {
+        // benchbase loads at least one warehouse
+        long warehouses = Math.max((long) scaleFactor, 1);
+        long districts = warehouses * TPCC_DISTRICTS_PER_WAREHOUSE;
+        long customers = districts * TPCC_CUSTOMERS_PER_DISTRICT;
+        Map<String, Long> counts = countRows(conn, TPCC_TABLES);
+
+        List<String> problems = new ArrayList<>();
+        expectRows(problems, counts, "WAREHOUSE", warehouses, warehouses);
+        expectRows(problems, counts, "DISTRICT", districts, districts);
+        expectRows(problems, counts, "CUSTOMER", customers, customers);
+        expectRows(problems, counts, "ITEM", TPCC_ITEMS, TPCC_ITEMS);
+        expectRows(problems, counts, "STOCK", warehouses * TPCC_ITEMS, warehouses * TPCC_ITEMS);
+        if (freshLoad) {
+            expectRows(problems, counts, "OORDER", customers, customers);
+            expectRows(problems, counts, "NEW_ORDER", districts * TPCC_NEW_ORDERS_PER_DISTRICT,
+                    districts * TPCC_NEW_ORDERS_PER_DISTRICT);
+            expectRows(problems, counts, "HISTORY", customers, customers);
+            expectRows(problems, counts, "ORDER_LINE", 5 * customers, 15 * customers);
+        } else {
+            expectRows(problems, counts, "OORDER", customers, Long.MAX_VALUE);
+            expectRows(problems, counts, "HISTORY", customers, Long.MAX_VALUE);
+            expectRows(problems, counts, "ORDER_LINE", 5 * customers, Long.MAX_VALUE);
+        }
+        return problems;
+    }
+
+    /** Row count mismatches of the TPC-H tables (TPC-H 4.2.5); every order has 1 to 7 line items */
+    private List<String> tpchRowCountProblems(Connection conn, double scaleFactor) throws SQLException {
+        long parts = (long) (200_000 * scaleFactor);
+        long orders = (long) (1_500_000 * scaleFactor);
+        Map<String, Long> counts = countRows(conn, TPCH_TABLES);
+
+        List<String> problems = new ArrayList<>();
+        expectRows(problems, counts, "REGION", 5, 5);
+        expectRows(problems, counts, "NATION", 25, 25);
+        expectRows(problems, counts, "SUPPLIER", (long) (10_000 * scaleFactor), (long) (10_000 * scaleFactor));
+        expectRows(problems, counts, "PART", parts, parts);
+        expectRows(problems, counts, "PARTSUPP", 4 * parts, 4 * parts);
+        expectRows(problems, counts, "CUSTOMER", (long) (150_000 * scaleFactor), (long) (150_000 * scaleFactor));
+        expectRows(problems, counts, "ORDERS", orders, orders);
+        expectRows(problems, counts, "LINEITEM", orders, 7 * orders);
+        return problems;
+    }
+
+    private static void expectRows(List<String> problems, Map<String, Long> counts, String table, long min, long max) {
+        long rows = counts.get(table);
+        if (rows < min || rows > max) {
+            String expected = min == max ? String.valueOf(min)
+                    : max == Long.MAX_VALUE ? "at least " + min : min + " to " + max;
+            problems.add(table + " has " + rows + " rows, expected " + expected);
+        }
+    }
+
+    private Map<String, Long> countRows(Connection conn, String... tables) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
         try (Statement stmt = conn.createStatement()) {
-            log.info("=== TPCC Database Statistics ===");
-            
-            String[] tables = {"WAREHOUSE", "DISTRICT", "CUSTOMER", "ITEM", "STOCK", "OORDER", "NEW_ORDER", "ORDER_LINE", "HISTORY"};
-            
             for (String table : tables) {
-                try {
-                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table);
-                    rs.next();
-                    log.info("{} table: {} records", table, rs.getInt(1));
-                } catch (Exception e) {
-                    log.warn("Could not get count for table {}: {}", table, e.getMessage());
+                ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table);
+                rs.next();
+                counts.put(table, rs.getLong(1));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Marks the load complete once the row counts match the scale factor. Otherwise the
+     * markers are dropped, so the next run reloads from scratch, and the load fails.
+     */
+    private void validateLoad(String benchmarkName, Connection conn, LoadCheckpoint checkpoint,
+                              List<String> problems) throws SQLException {
+        if (!problems.isEmpty()) {
+            if (checkpoint != null) {
+                checkpoint.discard(conn);
+            }
+            throw new IllegalStateException(benchmarkName + " row counts do not match the scale factor: "
+                    + String.join("; ", problems));
+        }
+        if (checkpoint != null) {
+            checkpoint.finish(conn);
+        }
+        log.info("{} row counts match the scale factor", benchmarkName);
+    }
+
+    private LoadCheckpoint openCheckpoint(Connection conn, String dbUrl, String username, String password,
+                                          String benchmarkName) {
+        if (!loadResume) {
+            return null;
+        }
+        try {
+            return LoadCheckpoint.open(conn, dbUrl, username, password, benchmarkName);
+        } catch (SQLException e) {
+            log.warn("Load checkpoints unavailable, an interrupted {} load will start over: {}", benchmarkName, e.getMessage());
+            return null;
+        }
+    }
+
+    // Same as openCheckpoint, but leaves a database without marker tables as it is
+    private LoadCheckpoint readCheckpoint(Connection conn, String dbUrl, String username, String password,
+                                          String benchmarkName) {
+        if (!loadResume) {
+            return null;
+        }
+        try {
+            return LoadCheckpoint.read(conn, dbUrl, username, password, benchmarkName);
+        } catch (SQLException e) {
+            log.debug("Could not read the {} load checkpoint: {}", benchmarkName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Prepares an interrupted TPC-C load for resuming. benchbase creates the ITEM task first and
+     * then one task per warehouse, so task N loads warehouse N; the rows of every warehouse whose
+     * task did not finish are deleted. Returns false when the load has to start over.
+     */
+    private boolean resumeTPCCLoad(Connection conn, LoadCheckpoint checkpoint, double scaleFactor) {
+        if (checkpoint == null || !checkpoint.isInterrupted(scaleFactor)) {
+            return false;
+        }
+        if (!checkpoint.isChunkCompleted(0)) {
+            // The stock of every warehouse references the items
+            log.info("TPCC items were not loaded completely, reloading from scratch");
+            return false;
+        }
+        int warehouses = Math.max((int) scaleFactor, 1);
+        try (Statement stmt = conn.createStatement()) {
+            for (int w = 1; w <= warehouses; w++) {
+                if (checkpoint.isChunkCompleted(w)) {
+                    continue;
+                }
+                long deleted = 0;
+                for (String[] table : TPCC_WAREHOUSE_COLUMNS) {
+                    deleted += stmt.executeUpdate("DELETE FROM " + table[0] + " WHERE " + table[1] + " = " + w);
+                }
+                if (deleted > 0) {
+                    log.info("Removed {} rows of unfinished warehouse {}", deleted, w);
                 }
             }
-        } catch (Exception e) {
-            log.warn("Could not print TPCC statistics", e);
+            return true;
+        } catch (SQLException e) {
+            log.warn("Could not remove rows of unfinished TPCC loader tasks, reloading from scratch: {}", e.getMessage());
+            return false;
         }
     }
 
-    private void printTPCHStatistics(Connection conn) {
+    /**
+     * Prepares an interrupted TPC-H load for resuming. Each TPC-H loader task fills its own
+     * tables, so every table no finished task wrote is emptied. Returns false when the load has
+     * to start over.
+     */
+    private boolean resumeTPCHLoad(Connection conn, LoadCheckpoint checkpoint, double scaleFactor) {
+        if (checkpoint == null || !checkpoint.isInterrupted(scaleFactor)) {
+            return false;
+        }
+        Set<String> loadedTables = checkpoint.completedTables();
         try (Statement stmt = conn.createStatement()) {
-            log.info("=== TPC-H Database Statistics ===");
-            
-            String[] tables = {"CUSTOMER", "LINEITEM", "NATION", "ORDERS", "PART", "PARTSUPP", "REGION", "SUPPLIER"};
-            
-            for (String table : tables) {
-                try {
-                    ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table);
-                    rs.next();
-                    log.info("{} table: {} records", table, rs.getInt(1));
-                } catch (Exception e) {
-                    log.warn("Could not get count for table {}: {}", table, e.getMessage());
+            for (String table : TPCH_DELETE_ORDER) {
+                if (!loadedTables.contains(table)) {
+                    int deleted = stmt.executeUpdate("DELETE FROM " + table);
+                    if (deleted > 0) {
+                        log.info("Removed {} rows of unfinished table {}", deleted, table);
+                    }
                 }
             }
-        } catch (Exception e) {
-            log.warn("Could not print TPC-H statistics", e);
+            return true;
+        } catch (SQLException e) {
+            log.warn("Could not remove rows of unfinished TPC-H loader tasks, reloading from scratch: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private ParallelDataLoader createParallelLoader(String dbUrl, String username, String password) {
+        int threads = loaderPoolSize > 0 ? loaderPoolSize : Runtime.getRuntime().availableProcessors();
+        boolean copy = "copy".equalsIgnoreCase(loadMethod.trim());
+        if (copy && determineDatabaseType(dbUrl) != DatabaseType.POSTGRES) {
+            log.warn("COPY loading needs PostgreSQL, falling back to JDBC batches");
+            copy = false;
+        } else if (!copy && !"jdbc".equalsIgnoreCase(loadMethod.trim())) {
+            throw new IllegalArgumentException("Unknown load method: " + loadMethod + " (expected jdbc or copy)");
         }
+        return new ParallelDataLoader(dbUrl, username, password, threads, progressIntervalSeconds, copy);
     }
 
     private DatabaseType determineDatabaseType(String jdbcUrl) {
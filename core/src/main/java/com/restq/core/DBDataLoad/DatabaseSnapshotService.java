@@ -0,0 +1,186 @@
+package com.restq.core.DBDataLoad;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fast reset of a loaded benchmark database between experiments. A snapshot is a PostgreSQL
+ * template clone of the database ({@code CREATE DATABASE <db>_snapshot TEMPLATE <db>}); a
+ * restore clones the snapshot to {@code <db>_restoring}, then drops the database and renames
+ * the clone in its place, so a failed clone leaves the database as it was. Both are file-level
+ * copies, far quicker than regenerating the data.
+ * <p>
+ * Cloning needs the source database to have no sessions. While a snapshot or restore runs,
+ * the benchmark database refuses new connections and its existing sessions are terminated,
+ * so connection pools (such as the API's) fail over to fresh connections afterwards.
+ */
+@Service
+@Slf4j
+public class DatabaseSnapshotService {
+
+    public static final String SNAPSHOT_SUFFIX = "_snapshot";
+    public static final String RESTORE_SUFFIX = "_restoring";
+
+    private static final Pattern POSTGRES_URL = Pattern.compile("^(jdbc:postgresql://[^/]*/)([^?]+)(\\?.*)?$");
+    private static final String MAINTENANCE_DATABASE = "postgres";
+
+    /** Name of the snapshot database kept for the database in the JDBC URL */
+    public String snapshotName(String dbUrl) {
+        return databaseName(dbUrl) + SNAPSHOT_SUFFIX;
+    }
+
+    public boolean hasSnapshot(String dbUrl, String username, String password) throws SQLException {
+        try (Connection conn = maintenanceConnection(dbUrl, username, password)) {
+            return databaseExists(conn, snapshotName(dbUrl));
+        }
+    }
+
+    /** Takes a snapshot of the current database, replacing any previous one */
+    public void createSnapshot(String dbUrl, String username, String password) throws SQLException {
+        String database = databaseName(dbUrl);
+        String snapshot = snapshotName(dbUrl);
+        long start = System.nanoTime();
+        try (Connection conn = maintenanceConnection(dbUrl, username, password);
+             Statement stmt = conn.createStatement()) {
+            if (databaseExists(conn, snapshot)) {
+                stmt.execute("ALTER DATABASE " + quote(snapshot) + " IS_TEMPLATE false");
+                stmt.execute("DROP DATABASE " + quote(snapshot));
+            }
+            try {
+                disconnect(conn, database);
+                stmt.execute("CREATE DATABASE " + quote(snapshot) + " TEMPLATE " + quote(database));
+            } finally {
+                stmt.execute("ALTER DATABASE " + quote(database) + " ALLOW_CONNECTIONS true");
+            }
+            // Nobody connects to the snapshot, which keeps it usable as a template
+            stmt.execute("ALTER DATABASE " + quote(snapshot) + " IS_TEMPLATE true ALLOW_CONNECTIONS false");
+        }
+        log.info("Snapshot {} of {} created in {} ms", snapshot, database, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Replaces the database with a fresh clone of its snapshot. Throws IllegalStateException
+     * when there is no snapshot.
+     */
+    public void restoreSnapshot(String dbUrl, String username, String password) throws SQLException {
+        String database = databaseName(dbUrl);
+        String snapshot = snapshotName(dbUrl);
+        String restoring = database + RESTORE_SUFFIX;
+        long start = System.nanoTime();
+        try (Connection conn = maintenanceConnection(dbUrl, username, password);
+             Statement stmt = conn.createStatement()) {
+            if (!databaseExists(conn, snapshot)) {
+                throw new IllegalStateException("No snapshot " + snapshot + " to restore " + database + " from");
+            }
+            // Left over from a restore that failed before the rename
+            stmt.execute("DROP DATABASE IF EXISTS " + quote(restoring));
+            // Cloned first, so a failing clone leaves the database untouched
+            stmt.execute("CREATE DATABASE " + quote(restoring) + " TEMPLATE " + quote(snapshot));
+            // A restore that failed after the drop left no database behind
+            if (databaseExists(conn, database)) {
+                try {
+                    disconnect(conn, database);
+                    stmt.execute("DROP DATABASE " + quote(database));
+                } catch (SQLException e) {
+                    // The database is still there, let clients back in
+                    stmt.execute("ALTER DATABASE " + quote(database) + " ALLOW_CONNECTIONS true");
+                    stmt.execute("DROP DATABASE " + quote(restoring));
+                    throw e;
+                }
+            }
+            try {
+                // A new database accepts connections again
+                stmt.execute("ALTER DATABASE " + quote(restoring) + " RENAME TO " + quote(database));
+            } catch (SQLException e) {
+                log.error("Database {} is dropped and its restored copy is {}; recover with: ALTER DATABASE {} RENAME TO {}",
+                        database, restoring, quote(restoring), quote(database));
+                throw e;
+            }
+        }
+        log.info("Database {} restored from {} in {} ms", database, snapshot, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Restores the database when a snapshot exists, otherwise snapshots its current state so
+     * later resets return to it. Returns "restored" or "created".
+     */
+    public String reset(String dbUrl, String username, String password) throws SQLException {
+        if (hasSnapshot(dbUrl, username, password)) {
+            restoreSnapshot(dbUrl, username, password);
+            return "restored";
+        }
+        createSnapshot(dbUrl, username, password);
+        return "created";
+    }
+
+    public void dropSnapshot(String dbUrl, String username, String password) throws SQLException {
+        String snapshot = snapshotName(dbUrl);
+        try (Connection conn = maintenanceConnection(dbUrl, username, password);
+             Statement stmt = conn.createStatement()) {
+            if (databaseExists(conn, snapshot)) {
+                stmt.execute("ALTER DATABASE " + quote(snapshot) + " IS_TEMPLATE false");
+                stmt.execute("DROP DATABASE " + quote(snapshot));
+                log.info("Snapshot {} dropped", snapshot);
+            }
+        }
+    }
+
+    // Blocks new sessions on the database and terminates the open ones
+    private void disconnect(Connection conn, String database) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER DATABASE " + quote(database) + " ALLOW_CONNECTIONS false");
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT pg_terminate_backend(pid) FROM pg_stat_activity WHERE datname = ? AND pid <> pg_backend_pid()")) {
+            stmt.setString(1, database);
+            ResultSet rs = stmt.executeQuery();
+            int terminated = 0;
+            while (rs.next()) {
+                terminated++;
+            }
+            log.info("Terminated {} sessions on {}", terminated, database);
+        }
+    }
+
+    private boolean databaseExists(Connection conn, String database) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM pg_database WHERE datname = ?")) {
+            stmt.setString(1, database);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    private Connection maintenanceConnection(String dbUrl, String username, String password) throws SQLException {
+        Matcher matcher = matchUrl(dbUrl);
+        String maintenanceUrl = matcher.group(1) + MAINTENANCE_DATABASE
+                + (matcher.group(3) == null ? "" : matcher.group(3));
+        Connection conn = DriverManager.getConnection(maintenanceUrl, username, password);
+        // CREATE / DROP DATABASE cannot run inside a transaction block
+        conn.setAutoCommit(true);
+        return conn;
+    }
+
+    private String databaseName(String dbUrl) {
+        return matchUrl(dbUrl).group(2);
+    }
+
+    private Matcher matchUrl(String dbUrl) {
+        Matcher matcher = POSTGRES_URL.matcher(dbUrl);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Snapshots need a PostgreSQL JDBC URL with a database name: " + dbUrl);
+        }
+        return matcher;
+    }
+
+    private static String quote(String identifier) {
+        return "\"" + identifier.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,143 @@
+package com.restq.core.DBDataLoad;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keys, unique constraints, foreign keys and secondary indexes of the benchmark tables, taken
+ * off before a COPY load and rebuilt once the data is in. Building an index over loaded rows
+ * is much cheaper than maintaining it row by row, and foreign keys are validated in one pass.
+ * The definitions are read from the PostgreSQL catalog, so they match the benchbase DDL
+ * exactly.
+ */
+@Slf4j
+final class DeferredIndexes {
+
+    private static final String CONSTRAINTS_SQL = """
+            SELECT c.conrelid::regclass::text, quote_ident(c.conname), c.contype,
+                   pg_get_constraintdef(c.oid)
+            FROM pg_constraint c
+            JOIN pg_class t ON t.oid = c.conrelid
+            JOIN pg_namespace n ON n.oid = t.relnamespace
+            WHERE n.nspname = current_schema()
+            AND upper(t.relname) = ANY(?)
+            AND c.contype IN ('p', 'u', 'f')
+            ORDER BY c.contype DESC, c.conname
+            """;
+
+    // Indexes that do not back a primary key or unique constraint
+    private static final String INDEXES_SQL = """
+            SELECT quote_ident(i.indexname), i.indexdef
+            FROM pg_indexes i
+            WHERE i.schemaname = current_schema()
+            AND upper(i.tablename) = ANY(?)
+            AND NOT EXISTS (
+                SELECT 1 FROM pg_constraint c
+                JOIN pg_namespace n ON n.oid = c.connamespace
+                WHERE n.nspname = i.schemaname
+                AND c.conname = i.indexname
+                AND c.contype IN ('p', 'u')
+            )
+            ORDER BY i.indexname
+            """;
+
+    private final List<String[]> keys = new ArrayList<>();
+    private final List<String[]> foreignKeys = new ArrayList<>();
+    private final List<String[]> indexes = new ArrayList<>();
+
+    private DeferredIndexes() {
+    }
+
+    /** Records and drops foreign keys, then keys and secondary indexes of the given tables */
+    static DeferredIndexes drop(Connection conn, String[] tables) throws SQLException {
+        DeferredIndexes deferred = new DeferredIndexes();
+        Object[] upperCaseTables = Arrays.stream(tables).map(String::toUpperCase).toArray();
+
+        try (PreparedStatement stmt = conn.prepareStatement(CONSTRAINTS_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("text", upperCaseTables));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                String[] constraint = {rs.getString(1), rs.getString(2), rs.getString(4)};
+                if ("f".equals(rs.getString(3))) {
+                    deferred.foreignKeys.add(constraint);
+                } else {
+                    deferred.keys.add(constraint);
+                }
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INDEXES_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("text", upperCaseTables));
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                deferred.indexes.add(new String[] {rs.getString(1), rs.getString(2)});
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            // Foreign keys depend on the referenced keys, so they go first
+            for (String[] foreignKey : deferred.foreignKeys) {
+                stmt.execute("ALTER TABLE " + foreignKey[0] + " DROP CONSTRAINT " + foreignKey[1]);
+            }
+            for (String[] key : deferred.keys) {
+                stmt.execute("ALTER TABLE " + key[0] + " DROP CONSTRAINT " + key[1]);
+            }
+            for (String[] index : deferred.indexes) {
+                stmt.execute("DROP INDEX " + index[0]);
+            }
+        }
+        commitIfNeeded(conn);
+        log.info("Deferred {} keys, {} foreign keys and {} indexes until the load completes",
+                deferred.keys.size(), deferred.foreignKeys.size(), deferred.indexes.size());
+        return deferred;
+    }
+
+    /** Statements that add the keys, indexes and foreign keys back, in the order they must run */
+    List<String> statements() {
+        List<String> statements = new ArrayList<>();
+        for (String[] key : keys) {
+            statements.add("ALTER TABLE " + key[0] + " ADD CONSTRAINT " + key[1] + " " + key[2]);
+        }
+        for (String[] index : indexes) {
+            statements.add(index[1]);
+        }
+        for (String[] foreignKey : foreignKeys) {
+            statements.add("ALTER TABLE " + foreignKey[0] + " ADD CONSTRAINT " + foreignKey[1] + " " + foreignKey[2]);
+        }
+        return statements;
+    }
+
+    /** Rebuilds keys and indexes, adds the foreign keys back and refreshes planner statistics */
+    static void recreate(Connection conn, List<String> statements, String[] tables) throws SQLException {
+        long start = System.nanoTime();
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                execute(stmt, sql);
+            }
+            for (String table : tables) {
+                execute(stmt, "ANALYZE " + table);
+            }
+        }
+        commitIfNeeded(conn);
+        log.info("Rebuilt keys, indexes and foreign keys in {} s", (System.nanoTime() - start) / 1_000_000_000L);
+    }
+
+    private static void execute(Statement stmt, String sql) throws SQLException {
+        long start = System.nanoTime();
+        stmt.execute(sql);
+        log.info("{} ({} ms)", sql, (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    private static void commitIfNeeded(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.commit();
+        }
+    }
+}
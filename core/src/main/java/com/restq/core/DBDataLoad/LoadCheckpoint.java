@@ -0,0 +1,235 @@
+package com.restq.core.DBDataLoad;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Completion markers of a data load, kept in the benchmark database so that an interrupted
+ * load resumes with the loader tasks that did not finish instead of starting over.
+ * <p>
+ * A load writes a header row (chunk -1) with its scale factor when it starts, and one row per
+ * loader task, with the tables that task wrote, once the task's rows are committed. The header
+ * is marked complete after the row counts have been validated. Keys and indexes a COPY load
+ * dropped are recorded too, so they are rebuilt even if the load that dropped them died.
+ */
+@Slf4j
+final class LoadCheckpoint {
+
+    private static final String CHUNK_TABLE = "restq_load_chunk";
+    private static final String DEFERRED_TABLE = "restq_load_deferred";
+    private static final int LOAD_CHUNK = -1;
+
+    private final String dbUrl;
+    private final String username;
+    private final String password;
+    private final String benchmark;
+    private final Map<Integer, Set<String>> completedChunks = new ConcurrentHashMap<>();
+    private Double scaleFactor;
+    private boolean loadCompleted;
+    private Connection connection;
+
+    private LoadCheckpoint(String dbUrl, String username, String password, String benchmark) {
+        this.dbUrl = dbUrl;
+        this.username = username;
+        this.password = password;
+        this.benchmark = benchmark;
+    }
+
+    /** Creates the marker tables if needed and reads the markers of the last load */
+    static LoadCheckpoint open(Connection conn, String dbUrl, String username, String password,
+                               String benchmark) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + CHUNK_TABLE + " (benchmark VARCHAR(16) NOT NULL, "
+                    + "chunk INT NOT NULL, scale_factor DOUBLE PRECISION, tables VARCHAR(1000), "
+                    + "completed_at TIMESTAMP, PRIMARY KEY (benchmark, chunk))");
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + DEFERRED_TABLE + " (benchmark VARCHAR(16) NOT NULL, "
+                    + "position INT NOT NULL, statement VARCHAR(4000) NOT NULL, PRIMARY KEY (benchmark, position))");
+        }
+        commitIfNeeded(conn);
+        return readMarkers(conn, new LoadCheckpoint(dbUrl, username, password, benchmark));
+    }
+
+    /**
+     * Reads the markers of the last load without creating anything, for checks that must leave
+     * the database as it is. Without marker tables there are no markers.
+     */
+    static LoadCheckpoint read(Connection conn, String dbUrl, String username, String password,
+                               String benchmark) throws SQLException {
+        LoadCheckpoint checkpoint = new LoadCheckpoint(dbUrl, username, password, benchmark);
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT to_regclass(?)")) {
+            stmt.setString(1, CHUNK_TABLE);
+            ResultSet rs = stmt.executeQuery();
+            if (!rs.next() || rs.getString(1) == null) {
+                return checkpoint;
+            }
+        }
+        return readMarkers(conn, checkpoint);
+    }
+
+    private static LoadCheckpoint readMarkers(Connection conn, LoadCheckpoint checkpoint) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT chunk, scale_factor, tables, completed_at FROM "
+                + CHUNK_TABLE + " WHERE benchmark = ?")) {
+            stmt.setString(1, checkpoint.benchmark);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                if (rs.getInt(1) == LOAD_CHUNK) {
+                    checkpoint.scaleFactor = rs.getDouble(2);
+                    checkpoint.loadCompleted = rs.getTimestamp(4) != null;
+                } else if (rs.getTimestamp(4) != null) {
+                    String tables = rs.getString(3);
+                    checkpoint.completedChunks.put(rs.getInt(1), tables == null || tables.isEmpty()
+                            ? Collections.emptySet() : new TreeSet<>(Arrays.asList(tables.split(","))));
+                }
+            }
+        }
+        return checkpoint;
+    }
+
+    /** True when a load at this scale factor started and did not complete */
+    boolean isInterrupted(double scaleFactor) {
+        return this.scaleFactor != null && !loadCompleted && this.scaleFactor == scaleFactor;
+    }
+
+    /** True when a load at this scale factor completed and passed row count validation */
+    boolean isCompleted(double scaleFactor) {
+        return this.scaleFactor != null && loadCompleted && this.scaleFactor == scaleFactor;
+    }
+
+    boolean isChunkCompleted(int chunk) {
+        return completedChunks.containsKey(chunk);
+    }
+
+    int completedChunkCount() {
+        return completedChunks.size();
+    }
+
+    /** Tables written by the loader tasks that completed */
+    Set<String> completedTables() {
+        Set<String> tables = new TreeSet<>();
+        completedChunks.values().forEach(tables::addAll);
+        return tables;
+    }
+
+    /** Forgets the markers of any previous load and records the start of a new one */
+    void start(Connection conn, double scaleFactor) throws SQLException {
+        discard(conn);
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + CHUNK_TABLE
+                + " (benchmark, chunk, scale_factor) VALUES (?, ?, ?)")) {
+            stmt.setString(1, benchmark);
+            stmt.setInt(2, LOAD_CHUNK);
+            stmt.setDouble(3, scaleFactor);
+            stmt.executeUpdate();
+        }
+        commitIfNeeded(conn);
+        this.scaleFactor = scaleFactor;
+    }
+
+    /** Records a finished loader task; called from the loader threads once its rows are committed */
+    synchronized void chunkCompleted(int chunk, Set<String> tables) throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DriverManager.getConnection(dbUrl, username, password);
+            connection.setAutoCommit(true);
+        }
+        try (PreparedStatement stmt = connection.prepareStatement("INSERT INTO " + CHUNK_TABLE
+                + " (benchmark, chunk, scale_factor, tables, completed_at) VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)")) {
+            stmt.setString(1, benchmark);
+            stmt.setInt(2, chunk);
+            stmt.setDouble(3, scaleFactor);
+            stmt.setString(4, String.join(",", new TreeSet<>(tables)));
+            stmt.executeUpdate();
+        }
+        completedChunks.put(chunk, tables);
+    }
+
+    /** Statements that rebuild keys and indexes dropped by an earlier, unfinished COPY load */
+    List<String> deferredStatements(Connection conn) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT statement FROM " + DEFERRED_TABLE
+                + " WHERE benchmark = ? ORDER BY position")) {
+            stmt.setString(1, benchmark);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                statements.add(rs.getString(1));
+            }
+        }
+        return statements;
+    }
+
+    void saveDeferredStatements(Connection conn, List<String> statements) throws SQLException {
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM " + DEFERRED_TABLE + " WHERE benchmark = ?");
+             PreparedStatement insert = conn.prepareStatement("INSERT INTO " + DEFERRED_TABLE
+                     + " (benchmark, position, statement) VALUES (?, ?, ?)")) {
+            delete.setString(1, benchmark);
+            delete.executeUpdate();
+            for (int i = 0; i < statements.size(); i++) {
+                insert.setString(1, benchmark);
+                insert.setInt(2, i);
+                insert.setString(3, statements.get(i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        commitIfNeeded(conn);
+    }
+
+    /** Marks the load as complete; the database is ready and later runs skip loading */
+    void finish(Connection conn) throws SQLException {
+        try (PreparedStatement update = conn.prepareStatement("UPDATE " + CHUNK_TABLE
+                + " SET completed_at = CURRENT_TIMESTAMP WHERE benchmark = ? AND chunk = ?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM " + DEFERRED_TABLE + " WHERE benchmark = ?")) {
+            update.setString(1, benchmark);
+            update.setInt(2, LOAD_CHUNK);
+            update.executeUpdate();
+            delete.setString(1, benchmark);
+            delete.executeUpdate();
+        }
+        commitIfNeeded(conn);
+        loadCompleted = true;
+    }
+
+    /** Drops all markers, so the next run loads from scratch */
+    void discard(Connection conn) throws SQLException {
+        try (PreparedStatement chunks = conn.prepareStatement("DELETE FROM " + CHUNK_TABLE + " WHERE benchmark = ?");
+             PreparedStatement deferred = conn.prepareStatement("DELETE FROM " + DEFERRED_TABLE + " WHERE benchmark = ?")) {
+            chunks.setString(1, benchmark);
+            chunks.executeUpdate();
+            deferred.setString(1, benchmark);
+            deferred.executeUpdate();
+        }
+        commitIfNeeded(conn);
+        completedChunks.clear();
+        scaleFactor = null;
+        loadCompleted = false;
+    }
+
+    synchronized void closeConnection() {
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            log.debug("Could not close checkpoint connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+
+    private static void commitIfNeeded(Connection conn) throws SQLException {
+        if (!conn.getAutoCommit()) {
+            conn.commit();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.restq.core.DBDataLoad;
+
+import com.oltpbenchmark.api.LoaderThread;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs benchbase loader threads on a bounded pool and reports progress while they run.
+ * <p>
+ * Benchbase orders the loader threads so that every dependency (ITEM before the warehouses,
+ * REGION and NATION before SUPPLIER and CUSTOMER, ...) comes before the threads that wait on
+ * its latch. The pool starts tasks in submission order, so a waiting thread never holds the
+ * slot its dependency needs, whatever the pool size.
+ * <p>
+ * In COPY mode (PostgreSQL only) each loader thread gets a {@link CopyLoadConnection}, and the
+ * keys, foreign keys and indexes are dropped before the load and rebuilt after it. Without a
+ * checkpoint they are also rebuilt when the load fails, since nothing else remembers them.
+ * <p>
+ * With a {@link LoadCheckpoint}, every task that finishes is recorded together with the tables
+ * it wrote, and tasks an interrupted load already finished are skipped. A skipped task still
+ * runs its afterLoad, which releases the tasks waiting on it.
+ */
+@Slf4j
+class ParallelDataLoader {
+
+    private static final Pattern INSERT_TABLE = Pattern.compile("^\\s*INSERT\\s+INTO\\s+([^\\s(]+)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final String dbUrl;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private final int progressIntervalSeconds;
+    private final boolean copy;
+
+    ParallelDataLoader(String dbUrl, String username, String password,
+                       int poolSize, int progressIntervalSeconds, boolean copy) {
+        this.dbUrl = dbUrl;
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.progressIntervalSeconds = progressIntervalSeconds;
+        this.copy = copy;
+    }
+
+    /**
+     * Runs all loader threads and returns once every one has finished. The first failure
+     * cancels the remaining threads and is rethrown. The checkpoint may be null.
+     */
+    void load(String benchmarkName, List<LoaderThread> loaderThreads, String[] tables,
+              LoadCheckpoint checkpoint) throws Exception {
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < loaderThreads.size(); i++) {
+            if (checkpoint != null && checkpoint.isChunkCompleted(i)) {
+                // Finished by an earlier load; release whatever waits on it
+                loaderThreads.get(i).afterLoad();
+            } else {
+                pending.add(i);
+            }
+        }
+        int threads = Math.max(1, Math.min(poolSize, pending.size()));
+        if (pending.size() < loaderThreads.size()) {
+            log.info("Resuming {} load: {} of {} loader tasks already completed", benchmarkName,
+                    loaderThreads.size() - pending.size(), loaderThreads.size());
+        }
+        log.info("Loading {} data with {} loader tasks on {} threads ({})", benchmarkName, pending.size(),
+                threads, copy ? "COPY" : "JDBC batches");
+
+        // Keys and indexes an interrupted COPY load dropped are rebuilt along with this load's
+        List<String> deferredStatements = new ArrayList<>();
+        if (copy || checkpoint != null) {
+            try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+                if (checkpoint != null) {
+                    deferredStatements.addAll(checkpoint.deferredStatements(conn));
+                }
+                if (copy) {
+                    deferredStatements.addAll(DeferredIndexes.drop(conn, tables).statements());
+                    if (checkpoint != null) {
+                        checkpoint.saveDeferredStatements(conn, deferredStatements);
+                    }
+                }
+            }
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+                r -> new Thread(r, "loader-" + threadNumber.incrementAndGet()));
+        ScheduledExecutorService progressReporter = Executors.newSingleThreadScheduledExecutor(
+                r -> new Thread(r, "loader-progress"));
+        ProgressMonitor monitor = new ProgressMonitor(benchmarkName, tables, loaderThreads.size(),
+                loaderThreads.size() - pending.size());
+        long start = System.nanoTime();
+        boolean loaded = false;
+
+        try {
+            if (progressIntervalSeconds > 0) {
+                progressReporter.scheduleAtFixedRate(monitor::report,
+                        progressIntervalSeconds, progressIntervalSeconds, TimeUnit.SECONDS);
+            }
+
+            CompletionService<Void> completionService = new ExecutorCompletionService<>(executor);
+            for (int chunk : pending) {
+                LoaderThread loaderThread = loaderThreads.get(chunk);
+                completionService.submit(copy || checkpoint != null
+                        ? task(chunk, loaderThread, checkpoint) : loaderThread, null);
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                Future<Void> completed = completionService.take();
+                try {
+                    completed.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+                monitor.threadCompleted();
+            }
+            loaded = true;
+        } finally {
+            progressReporter.shutdownNow();
+            progressReporter.awaitTermination(5, TimeUnit.SECONDS);
+            monitor.closeConnection();
+            executor.shutdownNow();
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("{} loader threads did not stop within 30 s", benchmarkName);
+            }
+            if (checkpoint != null) {
+                checkpoint.closeConnection();
+            } else if (!loaded && !deferredStatements.isEmpty()) {
+                // A checkpoint keeps the statements for the next load; without one they would be lost
+                recreateAfterFailure(benchmarkName, deferredStatements, tables);
+            }
+        }
+
+        if (!deferredStatements.isEmpty()) {
+            try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+                DeferredIndexes.recreate(conn, deferredStatements, tables);
+            }
+        }
+
+        monitor.summarize((System.nanoTime() - start) / 1e9);
+    }
+
+    // Never throws, so the load failure stays the one reported
+    private void recreateAfterFailure(String benchmarkName, List<String> statements, String[] tables) {
+        log.warn("{} load failed, rebuilding the {} keys and indexes dropped for it", benchmarkName,
+                statements.size());
+        try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+            DeferredIndexes.recreate(conn, statements, tables);
+        } catch (SQLException e) {
+            log.error("Could not rebuild the {} keys and indexes: {}. Run the statements that did not "
+                    + "complete by hand:\n{};", benchmarkName, e.getMessage(), String.join(";\n", statements));
+        }
+    }
+
+    /**
+     * Same steps as LoaderThread.run, on a connection that turns the inserts into COPY in COPY
+     * mode. With a checkpoint, the tables the task writes are recorded and the task is marked
+     * completed once its connection has committed and closed.
+     */
+    private Runnable task(int chunk, LoaderThread loaderThread, LoadCheckpoint checkpoint) {
+        return () -> {
+            loaderThread.beforeLoad();
+            Set<String> writtenTables = ConcurrentHashMap.newKeySet();
+            try {
+                Connection conn = DriverManager.getConnection(dbUrl, username, password);
+                if (copy) {
+                    conn = CopyLoadConnection.wrap(conn);
+                }
+                if (checkpoint != null) {
+                    conn = recordInsertTables(conn, writtenTables);
+                }
+                try (Connection loadConnection = conn) {
+                    loaderThread.load(loadConnection);
+                }
+                if (checkpoint != null) {
+                    checkpoint.chunkCompleted(chunk, writtenTables);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException((copy ? "COPY load" : "Load") + " failed", e);
+            } finally {
+                loaderThread.afterLoad();
+            }
+        };
+    }
+
+    // Notes the target table of every INSERT the loader prepares
+    private static Connection recordInsertTables(Connection conn, Set<String> tables) {
+        return (Connection) Proxy.newProxyInstance(ParallelDataLoader.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") && args[0] instanceof String sql) {
+                        Matcher insert = INSERT_TABLE.matcher(sql);
+                        if (insert.find()) {
+                            tables.add(insert.group(1).replace("\"", "").toUpperCase());
+                        }
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Samples per-table row counts on its own connection. PostgreSQL is sampled from
+     * pg_stat_user_tables, which costs nothing during the load; other databases fall back
+     * to COUNT(*) per table.
+     */
+    private class ProgressMonitor {
+
+        private final String benchmarkName;
+        private final String[] tables;
+        private final int totalThreads;
+        private final AtomicInteger completedThreads;
+        private final long start = System.nanoTime();
+        private Map<String, Long> previousCounts = new LinkedHashMap<>();
+        private long previousSample = start;
+        private Connection connection;
+
+        ProgressMonitor(String benchmarkName, String[] tables, int totalThreads, int completedThreads) {
+            this.benchmarkName = benchmarkName;
+            this.tables = tables;
+            this.totalThreads = totalThreads;
+            this.completedThreads = new AtomicInteger(completedThreads);
+        }
+
+        void threadCompleted() {
+            int completed = completedThreads.incrementAndGet();
+            log.info("{} loader tasks completed: {}/{} ({} s)",
+                    benchmarkName, completed, totalThreads, (System.nanoTime() - start) / 1_000_000_000L);
+        }
+
+        void report() {
+            try {
+                Map<String, Long> counts = sampleRowCounts(dbUrl.toLowerCase().contains("postgresql"));
+                long now = System.nanoTime();
+                double seconds = (now - previousSample) / 1e9;
+                log.info("=== {} load progress: {}/{} loader tasks done, {} s elapsed ===", benchmarkName,
+                        completedThreads.get(), totalThreads, (now - start) / 1_000_000_000L);
+                for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                    long delta = entry.getValue() - previousCounts.getOrDefault(entry.getKey(), 0L);
+                    log.info("{} table: {} rows, {} rows/sec", entry.getKey(), entry.getValue(),
+                            Math.round(delta / seconds));
+                }
+                previousCounts = counts;
+                previousSample = now;
+            } catch (Exception e) {
+                log.warn("Could not sample {} load progress: {}", benchmarkName, e.getMessage());
+                closeConnection();
+            }
+        }
+
+        void summarize(double elapsedSeconds) {
+            try {
+                Map<String, Long> counts = sampleRowCounts(false);
+                log.info("=== {} load finished in {} s ===", benchmarkName, Math.round(elapsedSeconds));
+                long totalRows = 0;
+                for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                    totalRows += entry.getValue();
+                    log.info("{} table: {} rows, {} rows/sec", entry.getKey(), entry.getValue(),
+                            Math.round(entry.getValue() / elapsedSeconds));
+                }
+                log.info("All tables: {} rows, {} rows/sec", totalRows, Math.round(totalRows / elapsedSeconds));
+            } catch (Exception e) {
+                log.warn("Could not summarize {} load: {}", benchmarkName, e.getMessage());
+            } finally {
+                closeConnection();
+            }
+        }
+
+        private Map<String, Long> sampleRowCounts(boolean fromStatistics) throws Exception {
+            if (connection == null || connection.isClosed()) {
+                connection = DriverManager.getConnection(dbUrl, username, password);
+            }
+            Map<String, Long> counts = new LinkedHashMap<>();
+            try (Statement stmt = connection.createStatement()) {
+                if (fromStatistics) {
+                    Map<String, Long> inserted = new LinkedHashMap<>();
+                    ResultSet rs = stmt.executeQuery(
+                            "SELECT relname, n_tup_ins FROM pg_stat_user_tables WHERE schemaname = current_schema()");
+                    while (rs.next()) {
+                        inserted.put(rs.getString(1).toUpperCase(), rs.getLong(2));
+                    }
+                    for (String table : tables) {
+                        counts.put(table, inserted.getOrDefault(table, 0L));
+                    }
+                } else {
+                    for (String table : tables) {
+                        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table);
+                        rs.next();
+                        counts.put(table, rs.getLong(1));
+                    }
+                }
+            }
+            return counts;
+        }
+
+        private void closeConnection() {
+            try {
+                if (connection != null) {
+                    connection.close();
+                }
+            } catch (Exception e) {
+                log.debug("Could not close progress connection: {}", e.getMessage());
+            }
+            connection = null;
+        }
+    }
+}
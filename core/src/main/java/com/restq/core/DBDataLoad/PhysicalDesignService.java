@@ -0,0 +1,357 @@
+package com.restq.core.DBDataLoad;
+
+import com.restq.core.benchmark.BenchmarkType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Named physical design profiles applied to a loaded benchmark database, so that index and
+ * partitioning choices can be benchmarked reproducibly. A profile is either a script of
+ * {@code CREATE INDEX IF NOT EXISTS} statements ({@code physical-design/<benchmark>-<name>.sql})
+ * or {@code partitioned}, which rebuilds the largest table as a range-partitioned one: LINEITEM
+ * by ship year for TPC-H, ORDER_LINE by warehouse for TPC-C. Profiles only add to the schema
+ * and applying one twice changes nothing. The profiles applied since the load are recorded in
+ * the database, next to the load markers, so the API can report them with the results.
+ */
+@Service
+@Slf4j
+public class PhysicalDesignService {
+
+    public static final String NONE = "none";
+    public static final String PARTITIONED = "partitioned";
+
+    private static final String DESIGN_TABLE = "restq_physical_design";
+    private static final String SCRIPT_LOCATION = "physical-design/";
+
+    // Secondary indexes of one table that do not back a key, as in DeferredIndexes
+    private static final String TABLE_INDEXES_SQL = """
+            SELECT i.indexdef
+            FROM pg_indexes i
+            WHERE i.schemaname = current_schema()
+            AND i.tablename = ?
+            AND NOT EXISTS (
+                SELECT 1 FROM pg_constraint c
+                JOIN pg_namespace n ON n.oid = c.connamespace
+                WHERE n.nspname = i.schemaname
+                AND c.conname = i.indexname
+                AND c.contype IN ('p', 'u')
+            )
+            ORDER BY i.indexname
+            """;
+
+    // Primary key columns in key order
+    private static final String PRIMARY_KEY_SQL = """
+            SELECT a.attname
+            FROM pg_index i
+            JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey)
+            WHERE i.indrelid = CAST(? AS regclass)
+            AND i.indisprimary
+            ORDER BY array_position(i.indkey, a.attnum)
+            """;
+
+    private static final String PARTITIONED_SQL = """
+            SELECT 1 FROM pg_partitioned_table p
+            JOIN pg_class c ON c.oid = p.partrelid
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = current_schema()
+            AND c.relname = ?
+            """;
+
+    // ORDER_LINE partitions of the partitioned profile; warehouses are split evenly across them
+    @Value("${benchmark.physical-design.warehouse-partitions:8}")
+    private int warehousePartitions;
+
+    /**
+     * Applies the comma-separated profiles in order. After a fresh load the records of earlier
+     * profiles are cleared first, since reloading recreated the tables without them.
+     *
+     * @return the names of the profiles that were applied
+     */
+    public List<String> apply(BenchmarkType benchmark, String dbUrl, String username, String password,
+                              String profiles, boolean freshLoad) throws SQLException {
+        List<String> names = parse(profiles);
+        for (String name : names) {
+            if (!name.equals(PARTITIONED) && !script(benchmark, name).exists()) {
+                throw new IllegalArgumentException("Unknown " + benchmark.getDisplayName() + " physical design profile: "
+                        + name + " (expected " + NONE + ", indexes, brin or " + PARTITIONED + ")");
+            }
+        }
+
+        try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+            createDesignTable(conn);
+            if (freshLoad) {
+                try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + DESIGN_TABLE + " WHERE benchmark = ?")) {
+                    stmt.setString(1, benchmark.name());
+                    stmt.executeUpdate();
+                }
+            }
+            for (String name : names) {
+                long start = System.nanoTime();
+                log.info("Applying {} physical design profile '{}'", benchmark.getDisplayName(), name);
+                if (name.equals(PARTITIONED)) {
+                    partition(conn, benchmark);
+                } else {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute(readScript(benchmark, name));
+                    }
+                }
+                analyze(conn, benchmark);
+                long durationMs = (System.nanoTime() - start) / 1_000_000L;
+                record(conn, benchmark, name, durationMs);
+                log.info("Physical design profile '{}' applied in {} ms", name, durationMs);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * The profiles recorded for the database and the indexes and partitioned tables it
+     * actually has, so results show the design even if it was changed by hand.
+     */
+    public Map<String, Object> describe(String dbUrl, String username, String password) throws SQLException {
+        Map<String, Object> design = new LinkedHashMap<>();
+        try (Connection conn = DriverManager.getConnection(dbUrl, username, password)) {
+            createDesignTable(conn);
+            List<Map<String, Object>> profiles = new ArrayList<>();
+            try (Statement stmt = conn.createStatement()) {
+                ResultSet rs = stmt.executeQuery("SELECT benchmark, profile, applied_at, duration_ms FROM "
+                        + DESIGN_TABLE + " ORDER BY applied_at");
+                while (rs.next()) {
+                    Map<String, Object> profile = new LinkedHashMap<>();
+                    profile.put("benchmark", rs.getString(1));
+                    profile.put("profile", rs.getString(2));
+                    profile.put("applied_at", rs.getTimestamp(3).toInstant().toString());
+                    profile.put("duration_ms", rs.getLong(4));
+                    profiles.add(profile);
+                }
+                design.put("profiles", profiles);
+
+                Map<String, List<String>> indexes = new TreeMap<>();
+                rs = stmt.executeQuery("SELECT tablename, indexdef FROM pg_indexes "
+                        + "WHERE schemaname = current_schema() AND tablename NOT LIKE 'restq\\_%' ORDER BY tablename, indexname");
+                while (rs.next()) {
+                    indexes.computeIfAbsent(rs.getString(1), table -> new ArrayList<>()).add(rs.getString(2));
+                }
+                design.put("indexes", indexes);
+
+                Map<String, String> partitioned = new TreeMap<>();
+                rs = stmt.executeQuery("SELECT c.relname, pg_get_partkeydef(c.oid) FROM pg_partitioned_table p "
+                        + "JOIN pg_class c ON c.oid = p.partrelid JOIN pg_namespace n ON n.oid = c.relnamespace "
+                        + "WHERE n.nspname = current_schema()");
+                while (rs.next()) {
+                    partitioned.put(rs.getString(1), rs.getString(2));
+                }
+                design.put("partitioned_tables", partitioned);
+            }
+        }
+        return design;
+    }
+
+    private static List<String> parse(String profiles) {
+        List<String> names = new ArrayList<>();
+        for (String name : profiles.split(",")) {
+            name = name.trim().toLowerCase();
+            if (!name.isEmpty() && !name.equals(NONE) && !names.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static ClassPathResource script(BenchmarkType benchmark, String name) {
+        return new ClassPathResource(SCRIPT_LOCATION + benchmark.name().toLowerCase() + "-" + name + ".sql");
+    }
+
+    private static String readScript(BenchmarkType benchmark, String name) {
+        ClassPathResource resource = script(benchmark, name);
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + resource.getPath(), e);
+        }
+    }
+
+    private void partition(Connection conn, BenchmarkType benchmark) throws SQLException {
+        switch (benchmark) {
+            case TPCH -> partitionLineItemByShipYear(conn);
+            case TPCC -> partitionOrderLineByWarehouse(conn);
+        }
+    }
+
+    private void partitionLineItemByShipYear(Connection conn) throws SQLException {
+        int firstYear;
+        int lastYear;
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT EXTRACT(YEAR FROM MIN(l_shipdate))::int, "
+                    + "EXTRACT(YEAR FROM MAX(l_shipdate))::int FROM lineitem");
+            rs.next();
+            firstYear = rs.getInt(1);
+            lastYear = rs.getInt(2);
+            if (rs.wasNull()) {
+                log.warn("LINEITEM is empty, not partitioning it");
+                return;
+            }
+        }
+        List<String> partitions = new ArrayList<>();
+        for (int year = firstYear; year <= lastYear; year++) {
+            partitions.add("lineitem_" + year + " PARTITION OF lineitem FOR VALUES FROM ('" + year
+                    + "-01-01') TO ('" + (year + 1) + "-01-01')");
+        }
+        repartition(conn, "lineitem", "l_shipdate", partitions);
+    }
+
+    private void partitionOrderLineByWarehouse(Connection conn) throws SQLException {
+        int warehouses;
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(ol_w_id), 0) FROM order_line");
+            rs.next();
+            warehouses = rs.getInt(1);
+        }
+        if (warehouses == 0) {
+            log.warn("ORDER_LINE is empty, not partitioning it");
+            return;
+        }
+        int count = Math.max(1, Math.min(warehousePartitions, warehouses));
+        int perPartition = (warehouses + count - 1) / count;
+        List<String> partitions = new ArrayList<>();
+        for (int first = 1; first <= warehouses; first += perPartition) {
+            partitions.add("order_line_w" + first + " PARTITION OF order_line FOR VALUES FROM (" + first
+                    + ") TO (" + (first + perPartition) + ")");
+        }
+        repartition(conn, "order_line", "ol_w_id", partitions);
+    }
+
+    /**
+     * Rebuilds the table as one range-partitioned on the column, in one transaction. Rows are
+     * copied over; the primary key gains the partition column if it lacks it, since PostgreSQL
+     * requires that; secondary indexes and outgoing foreign keys are recreated from their
+     * catalog definitions. Views over the table are dropped with the old one. A default
+     * partition takes rows outside the given ranges.
+     */
+    private void repartition(Connection conn, String table, String column, List<String> partitions) throws SQLException {
+        if (exists(conn, PARTITIONED_SQL, table)) {
+            log.info("{} is already partitioned", table);
+            return;
+        }
+        List<String> primaryKey = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(PRIMARY_KEY_SQL)) {
+            stmt.setString(1, table);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                primaryKey.add(rs.getString(1));
+            }
+        }
+        if (!primaryKey.isEmpty() && !primaryKey.contains(column)) {
+            primaryKey.add(column);
+        }
+        List<String> indexes = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(TABLE_INDEXES_SQL)) {
+            stmt.setString(1, table);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                if (rs.getString(1).startsWith("CREATE UNIQUE")) {
+                    log.warn("Not recreating unique index on partitioned {}: {}", table, rs.getString(1));
+                } else {
+                    indexes.add(rs.getString(1));
+                }
+            }
+        }
+        List<String> foreignKeys = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT quote_ident(conname), pg_get_constraintdef(oid) "
+                + "FROM pg_constraint WHERE conrelid = CAST(? AS regclass) AND contype = 'f'")) {
+            stmt.setString(1, table);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                foreignKeys.add("ALTER TABLE " + table + " ADD CONSTRAINT " + rs.getString(1) + " " + rs.getString(2));
+            }
+        }
+
+        String old = table + "_unpartitioned";
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            execute(stmt, "ALTER TABLE " + table + " RENAME TO " + old);
+            execute(stmt, "CREATE TABLE " + table + " (LIKE " + old + " INCLUDING DEFAULTS INCLUDING STORAGE) "
+                    + "PARTITION BY RANGE (" + column + ")");
+            for (String partition : partitions) {
+                execute(stmt, "CREATE TABLE " + partition);
+            }
+            execute(stmt, "CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+            execute(stmt, "INSERT INTO " + table + " SELECT * FROM " + old);
+            // Frees the key and index names for the new table
+            execute(stmt, "DROP TABLE " + old + " CASCADE");
+            if (!primaryKey.isEmpty()) {
+                execute(stmt, "ALTER TABLE " + table + " ADD PRIMARY KEY (" + String.join(", ", primaryKey) + ")");
+            }
+            for (String sql : indexes) {
+                execute(stmt, sql);
+            }
+            for (String sql : foreignKeys) {
+                execute(stmt, sql);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        log.info("Partitioned {} by range of {} into {} partitions", table, column, partitions.size() + 1);
+    }
+
+    private static void analyze(Connection conn, BenchmarkType benchmark) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(benchmark == BenchmarkType.TPCH ? "ANALYZE lineitem, orders" : "ANALYZE order_line, oorder");
+        }
+    }
+
+    private static void createDesignTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + DESIGN_TABLE + " (benchmark VARCHAR(16) NOT NULL, "
+                    + "profile VARCHAR(64) NOT NULL, applied_at TIMESTAMP NOT NULL, duration_ms BIGINT NOT NULL, "
+                    + "PRIMARY KEY (benchmark, profile))");
+        }
+    }
+
+    private static void record(Connection conn, BenchmarkType benchmark, String profile, long durationMs) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + DESIGN_TABLE
+                + " (benchmark, profile, applied_at, duration_ms) VALUES (?, ?, CURRENT_TIMESTAMP, ?) "
+                + "ON CONFLICT (benchmark, profile) DO UPDATE SET applied_at = EXCLUDED.applied_at, "
+                + "duration_ms = EXCLUDED.duration_ms")) {
+            stmt.setString(1, benchmark.name());
+            stmt.setString(2, profile);
+            stmt.setLong(3, durationMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean exists(Connection conn, String sql, String argument) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, argument);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    private static void execute(Statement stmt, String sql) throws SQLException {
+        long start = System.nanoTime();
+        stmt.execute(sql);
+        log.info("{} ({} ms)", sql, (System.nanoTime() - start) / 1_000_000L);
+    }
+}
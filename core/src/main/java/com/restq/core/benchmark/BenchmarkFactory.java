@@ -102,10 +102,20 @@ public class BenchmarkFactory {
     }
     
     /**
-     * Check if database is already populated for a benchmark type
+     * Check if database is already populated for a benchmark type and scale factor
      */
-    public boolean isDatabasePopulated(BenchmarkType benchmarkType, String dbUrl, String username, String password) throws Exception {
+    public boolean isDatabasePopulated(BenchmarkType benchmarkType, String dbUrl, String username, String password,
+                                       double scaleFactor) throws Exception {
         BenchmarkStrategy strategy = getStrategy(benchmarkType);
-        return strategy.isDatabasePopulated(dbUrl, username, password);
+        return strategy.isDatabasePopulated(dbUrl, username, password, scaleFactor);
+    }
+
+    /**
+     * Apply physical design profiles to a loaded database using the appropriate strategy
+     */
+    public List<String> applyPhysicalDesign(BenchmarkType benchmarkType, String dbUrl, String username, String password,
+                                            String profiles, boolean freshLoad) throws Exception {
+        BenchmarkStrategy strategy = getStrategy(benchmarkType);
+        return strategy.applyPhysicalDesign(dbUrl, username, password, profiles, freshLoad);
     }
 } 
@@ -1,5 +1,7 @@
 package com.restq.core.benchmark;
 
+import java.util.List;
+
 /**
  * Strategy interface for different benchmark implementations
  */
@@ -17,9 +19,16 @@ public interface BenchmarkStrategy {
                           double scaleFactor, int batchSize, int terminals) throws Exception;
     
     /**
-     * Checks if the database is already populated with data for this benchmark
+     * Checks if the database is already populated with data for this benchmark at the given scale factor
+     */
+    boolean isDatabasePopulated(String dbUrl, String username, String password, double scaleFactor) throws Exception;
+
+    /**
+     * Applies the comma-separated physical design profiles to the loaded database and records
+     * them; after a fresh load the records of earlier profiles are cleared first
      */
-    boolean isDatabasePopulated(String dbUrl, String username, String password) throws Exception;
+    List<String> applyPhysicalDesign(String dbUrl, String username, String password,
+                                     String profiles, boolean freshLoad) throws Exception;
     
     /**
      * Gets the default scale factor for this benchmark
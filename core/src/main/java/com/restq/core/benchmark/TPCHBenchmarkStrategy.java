@@ -1,14 +1,12 @@
 package com.restq.core.benchmark;
 
 import com.restq.core.DBDataLoad.DatabaseInitializationService;
+import com.restq.core.DBDataLoad.PhysicalDesignService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.Statement;
+import java.util.List;
 
 @Slf4j
 @Component
@@ -16,6 +14,7 @@ import java.sql.Statement;
 public class TPCHBenchmarkStrategy implements BenchmarkStrategy {
     
     private final DatabaseInitializationService databaseInitializationService;
+    private final PhysicalDesignService physicalDesignService;
     
     @Override
     public BenchmarkType getBenchmarkType() {
@@ -30,23 +29,18 @@ public class TPCHBenchmarkStrategy implements BenchmarkStrategy {
     }
     
     @Override
-    public boolean isDatabasePopulated(String dbUrl, String username, String password) throws Exception {
-        try (Connection conn = DriverManager.getConnection(dbUrl, username, password);
-             Statement stmt = conn.createStatement()) {
-            
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM CUSTOMER");
-            rs.next();
-            boolean populated = rs.getInt(1) > 0;
-            
-            if (populated) {
-                log.info("TPC-H database is already populated with {} customers", rs.getInt(1));
-            }
-            
-            return populated;
-        } catch (Exception e) {
-            log.debug("TPC-H database check failed (likely not populated): {}", e.getMessage());
-            return false;
+    public boolean isDatabasePopulated(String dbUrl, String username, String password, double scaleFactor) throws Exception {
+        boolean populated = databaseInitializationService.isTPCHDatabasePopulated(dbUrl, username, password, scaleFactor);
+        if (populated) {
+            log.info("TPC-H database is already populated for scale factor {}", scaleFactor);
         }
+        return populated;
+    }
+
+    @Override
+    public List<String> applyPhysicalDesign(String dbUrl, String username, String password,
+                                            String profiles, boolean freshLoad) throws Exception {
+        return physicalDesignService.apply(BenchmarkType.TPCH, dbUrl, username, password, profiles, freshLoad);
     }
     
     @Override
@@ -0,0 +1,6 @@
+-- TPC-C BRIN indexes on the date columns, which grow in insertion order.
+-- Applied with benchmark.physical-design=brin; every statement is IF NOT EXISTS.
+
+CREATE INDEX IF NOT EXISTS restq_oorder_entry_d_brin ON oorder USING brin (o_entry_d);
+CREATE INDEX IF NOT EXISTS restq_order_line_delivery_d_brin ON order_line USING brin (ol_delivery_d);
+CREATE INDEX IF NOT EXISTS restq_history_date_brin ON history USING brin (h_date);
@@ -0,0 +1,9 @@
+-- TPC-C secondary indexes for the lookups the API's repositories make.
+-- Applied with benchmark.physical-design=indexes; every statement is IF NOT EXISTS.
+-- Only what benchbase's schema lacks: the customer name lookup is served by its
+-- idx_customer_name, the latest order by its unique (o_w_id, o_d_id, o_c_id, o_id) key and
+-- the oldest new order by the new_order primary key.
+
+-- Stock-Level: items of the district's last 20 orders, read from the index alone; the
+-- order_line primary key does not carry ol_i_id
+CREATE INDEX IF NOT EXISTS restq_order_line_items ON order_line (ol_w_id, ol_d_id, ol_o_id) INCLUDE (ol_i_id);
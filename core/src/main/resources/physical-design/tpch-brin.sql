@@ -0,0 +1,7 @@
+-- TPC-H BRIN indexes on the date columns. They are small, but only skip blocks where the
+-- data is laid out roughly in date order (for instance after the partitioned profile or CLUSTER).
+-- Applied with benchmark.physical-design=brin; every statement is IF NOT EXISTS.
+
+CREATE INDEX IF NOT EXISTS restq_lineitem_shipdate_brin ON lineitem USING brin (l_shipdate);
+CREATE INDEX IF NOT EXISTS restq_lineitem_receiptdate_brin ON lineitem USING brin (l_receiptdate);
+CREATE INDEX IF NOT EXISTS restq_orders_orderdate_brin ON orders USING brin (o_orderdate);